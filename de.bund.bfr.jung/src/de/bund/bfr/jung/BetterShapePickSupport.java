@@ -21,26 +21,85 @@ package de.bund.bfr.jung;
 
 import java.awt.Shape;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.Line2D;
+import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import javax.swing.event.ChangeListener;
+
+import org.apache.commons.collections15.Transformer;
+
 import edu.uci.ics.jung.algorithms.layout.GraphElementAccessor;
 import edu.uci.ics.jung.algorithms.layout.Layout;
 import edu.uci.ics.jung.graph.Graph;
 import edu.uci.ics.jung.graph.util.Context;
+import edu.uci.ics.jung.graph.util.Pair;
 import edu.uci.ics.jung.visualization.Layer;
+import edu.uci.ics.jung.visualization.RenderContext;
 import edu.uci.ics.jung.visualization.VisualizationServer;
-
+import edu.uci.ics.jung.visualization.picking.PickedState;
+import edu.uci.ics.jung.visualization.util.ChangeEventSupport;
+
+/**
+ * Vertices and edges are found with a {@link PickIndex} of their positions in
+ * layout coordinates, so that the index stays valid, when the transform
+ * changes. Vertices moved in the layout are updated in the index with their
+ * edges. The size of vertex and edge shapes, which does not scale with the
+ * transform, is added as a margin to each query.
+ */
 public class BetterShapePickSupport<V, E> implements GraphElementAccessor<V, E> {
 
+	private static final float EDGE_PICK_DISTANCE = 7.0f;
+	private static final int EDGE_PIECES_PER_LAYOUT = 16;
+	private static final int MAX_EDGE_PIECES = 8;
+
 	private VisualizationServer<V, E> vv;
 
+	private Layout<V, E> indexedLayout;
+	private Graph<V, E> indexedGraph;
+	private boolean locationsChanged;
+	private ChangeListener layoutListener;
+
+	private PickIndex<V> vertexIndex;
+	private PickIndex<E> edgeIndex;
+	private Map<V, Integer> vertexOrder;
+	private Map<E, Integer> edgeOrder;
+	private double edgePieceLength;
+
+	private Transformer<V, Shape> indexedVertexShapes;
+	private Transformer<Context<Graph<V, E>, E>, Shape> indexedEdgeShapes;
+	private double vertexMargin;
+	private double edgeMargin;
+	private Set<E> unboundedEdges;
+
 	public BetterShapePickSupport(VisualizationServer<V, E> vv) {
 		this.vv = vv;
+		indexedLayout = null;
+		indexedGraph = null;
+		locationsChanged = false;
+		layoutListener = e -> locationsChanged = true;
+		vertexIndex = new PickIndex<>();
+		edgeIndex = new PickIndex<>();
+		vertexOrder = new HashMap<>();
+		edgeOrder = new HashMap<>();
+		edgePieceLength = 0.0;
+		indexedVertexShapes = null;
+		indexedEdgeShapes = null;
+		vertexMargin = 0.0;
+		edgeMargin = 0.0;
+		unboundedEdges = new LinkedHashSet<>();
 	}
 
 	@Override
@@ -50,7 +109,13 @@ public class BetterShapePickSupport<V, E> implements GraphElementAccessor<V, E>
 		Point2D ip = vv.getRenderContext().getMultiLayerTransformer().inverseTransform(Layer.VIEW,
 				new Point2D.Double(x, y));
 
-		for (V v : layout.getGraph().getVertices()) {
+		updateIndex(layout);
+
+		List<V> candidates = new ArrayList<>(vertexIndex.getItems(getLayoutRect(ip, vertexMargin)));
+
+		sortAsInGraph(candidates, vertexOrder, vv.getPickedVertexState());
+
+		for (V v : candidates) {
 			if (!vv.getRenderContext().getVertexIncludePredicate()
 					.evaluate(Context.<Graph<V, E>, V>getInstance(layout.getGraph(), v))) {
 				continue;
@@ -88,8 +153,11 @@ public class BetterShapePickSupport<V, E> implements GraphElementAccessor<V, E>
 	public Collection<V> getVertices(Layout<V, E> layout, Shape shape) {
 		Set<V> pickedVertices = new HashSet<>();
 		Shape iShape = vv.getRenderContext().getMultiLayerTransformer().inverseTransform(Layer.VIEW, shape);
+		Rectangle2D layoutRect = toLayout(iShape.getBounds2D());
+
+		updateIndex(layout);
 
-		for (V v : layout.getGraph().getVertices()) {
+		for (V v : vertexIndex.getItems(layoutRect)) {
 			if (!vv.getRenderContext().getVertexIncludePredicate()
 					.evaluate(Context.<Graph<V, E>, V>getInstance(layout.getGraph(), v))) {
 				continue;
@@ -118,7 +186,19 @@ public class BetterShapePickSupport<V, E> implements GraphElementAccessor<V, E>
 		E closest = null;
 		float minDistance = Float.POSITIVE_INFINITY;
 
-		for (E e : layout.getGraph().getEdges()) {
+		updateIndex(layout);
+
+		List<E> candidates = new ArrayList<>(unboundedEdges);
+
+		for (E e : edgeIndex.getItems(getLayoutRect(ip, edgeMargin))) {
+			if (!unboundedEdges.contains(e) && getDistanceToEndpoints(layout, e, ip) <= edgeMargin) {
+				candidates.add(e);
+			}
+		}
+
+		sortAsInGraph(candidates, edgeOrder, vv.getPickedEdgeState());
+
+		for (E e : candidates) {
 			Shape edgeShape = JungUtils.getTransformedEdgeShape(vv.getRenderContext(), layout, e);
 
 			if (edgeShape == null) {
@@ -149,7 +229,231 @@ public class BetterShapePickSupport<V, E> implements GraphElementAccessor<V, E>
 			}
 		}
 
-		return minDistance < 7 ? closest : null;
+		return minDistance < EDGE_PICK_DISTANCE ? closest : null;
+	}
+
+	/**
+	 * Rebuilds the index, when the layout or graph was replaced, and updates the
+	 * vertices, that were moved since the last call.
+	 */
+	private void updateIndex(Layout<V, E> layout) {
+		Graph<V, E> graph = layout.getGraph();
+		RenderContext<V, E> rc = vv.getRenderContext();
+
+		if (layout != indexedLayout || graph != indexedGraph || graph.getVertexCount() != vertexOrder.size()
+				|| graph.getEdgeCount() != edgeOrder.size()) {
+			if (indexedLayout instanceof ChangeEventSupport) {
+				((ChangeEventSupport) indexedLayout).removeChangeListener(layoutListener);
+			}
+
+			if (layout instanceof ChangeEventSupport) {
+				((ChangeEventSupport) layout).addChangeListener(layoutListener);
+			}
+
+			indexedLayout = layout;
+			indexedGraph = graph;
+			rebuildIndex();
+		} else if (locationsChanged || !(layout instanceof ChangeEventSupport)) {
+			for (V v : graph.getVertices()) {
+				Point2D p = layout.transform(v);
+				Rectangle2D[] bounds = vertexIndex.getBounds(v);
+
+				if (p == null ? bounds != null
+						: bounds == null || bounds[0].getX() != p.getX() || bounds[0].getY() != p.getY()) {
+					updateVertex(v, p);
+					graph.getIncidentEdges(v).forEach(e -> updateEdge(e));
+				}
+			}
+		}
+
+		locationsChanged = false;
+
+		if (rc.getVertexShapeTransformer() != indexedVertexShapes
+				|| rc.getEdgeShapeTransformer() != indexedEdgeShapes) {
+			updateMargins();
+		}
+	}
+
+	private void rebuildIndex() {
+		Map<V, Rectangle2D[]> vertexBounds = new LinkedHashMap<>();
+		Map<E, Rectangle2D[]> edgeBounds = new LinkedHashMap<>();
+		Rectangle2D layoutBounds = null;
+
+		vertexOrder.clear();
+		edgeOrder.clear();
+
+		for (V v : indexedGraph.getVertices()) {
+			Point2D p = indexedLayout.transform(v);
+
+			if (p != null) {
+				Rectangle2D bounds = new Rectangle2D.Double(p.getX(), p.getY(), 0.0, 0.0);
+
+				vertexBounds.put(v, new Rectangle2D[] { bounds });
+
+				if (layoutBounds == null) {
+					layoutBounds = bounds.getBounds2D();
+				} else {
+					layoutBounds.add(p);
+				}
+			}
+
+			vertexOrder.put(v, vertexOrder.size());
+		}
+
+		edgePieceLength = layoutBounds != null
+				? Math.max(layoutBounds.getWidth(), layoutBounds.getHeight()) / EDGE_PIECES_PER_LAYOUT : 0.0;
+
+		for (E e : indexedGraph.getEdges()) {
+			Rectangle2D[] bounds = getEdgeBounds(e);
+
+			if (bounds != null) {
+				edgeBounds.put(e, bounds);
+			}
+
+			edgeOrder.put(e, edgeOrder.size());
+		}
+
+		vertexIndex.setItems(vertexBounds);
+		edgeIndex.setItems(edgeBounds);
+		updateMargins();
+	}
+
+	private void updateVertex(V v, Point2D p) {
+		if (p != null) {
+			vertexIndex.put(v, new Rectangle2D.Double(p.getX(), p.getY(), 0.0, 0.0));
+		} else {
+			vertexIndex.remove(v);
+		}
+	}
+
+	private void updateEdge(E e) {
+		Rectangle2D[] bounds = getEdgeBounds(e);
+
+		if (bounds != null) {
+			edgeIndex.put(e, bounds);
+		} else {
+			edgeIndex.remove(e);
+		}
+	}
+
+	/**
+	 * Returns the bounds of the line between the edge's end points in layout
+	 * coordinates. Long lines are split into pieces, so that they are not found
+	 * for points far away from them.
+	 */
+	private Rectangle2D[] getEdgeBounds(E e) {
+		Pair<V> endpoints = indexedGraph.getEndpoints(e);
+		Point2D p1 = indexedLayout.transform(endpoints.getFirst());
+		Point2D p2 = indexedLayout.transform(endpoints.getSecond());
+
+		if (p1 == null || p2 == null) {
+			return null;
+		}
+
+		int n = edgePieceLength > 0.0
+				? (int) Math.max(Math.min(Math.ceil(p1.distance(p2) / edgePieceLength), MAX_EDGE_PIECES), 1) : 1;
+		Rectangle2D[] pieces = new Rectangle2D[n];
+		double dx = (p2.getX() - p1.getX()) / n;
+		double dy = (p2.getY() - p1.getY()) / n;
+
+		for (int i = 0; i < n; i++) {
+			pieces[i] = new Rectangle2D.Double(p1.getX() + i * dx, p1.getY() + i * dy, 0.0, 0.0);
+			pieces[i].add(p1.getX() + (i + 1) * dx, p1.getY() + (i + 1) * dy);
+		}
+
+		return pieces;
+	}
+
+	/**
+	 * Returns the distance of p to the line between the transformed end points of
+	 * e, which is a lower bound for the distance to the edge shape minus the edge
+	 * margin.
+	 */
+	private double getDistanceToEndpoints(Layout<V, E> layout, E e, Point2D p) {
+		Pair<V> endpoints = layout.getGraph().getEndpoints(e);
+		Point2D p1 = layout.transform(endpoints.getFirst());
+		Point2D p2 = layout.transform(endpoints.getSecond());
+
+		if (p1 == null || p2 == null) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		p1 = vv.getRenderContext().getMultiLayerTransformer().transform(Layer.LAYOUT, p1);
+		p2 = vv.getRenderContext().getMultiLayerTransformer().transform(Layer.LAYOUT, p2);
+
+		return Line2D.ptSegDist(p1.getX(), p1.getY(), p2.getX(), p2.getY(), p.getX(), p.getY());
+	}
+
+	/**
+	 * Computes, how far vertex and edge shapes extend beyond the positions in the
+	 * index (in pixels). Edges, whose shape is not bounded by their end points,
+	 * are not looked up in the index.
+	 */
+	private void updateMargins() {
+		RenderContext<V, E> rc = vv.getRenderContext();
+
+		indexedVertexShapes = rc.getVertexShapeTransformer();
+		indexedEdgeShapes = rc.getEdgeShapeTransformer();
+		vertexMargin = 0.0;
+		edgeMargin = 0.0;
+		unboundedEdges.clear();
+
+		for (V v : indexedGraph.getVertices()) {
+			vertexMargin = Math.max(vertexMargin, getMaxAbs(indexedVertexShapes.transform(v).getBounds2D()));
+		}
+
+		for (E e : indexedGraph.getEdges()) {
+			Pair<V> endpoints = indexedGraph.getEndpoints(e);
+			Rectangle2D bounds = indexedEdgeShapes.transform(Context.getInstance(indexedGraph, e)).getBounds2D();
+
+			if (endpoints.getFirst().equals(endpoints.getSecond())) {
+				Rectangle2D vertexBounds = indexedVertexShapes.transform(endpoints.getFirst()).getBounds2D();
+				double vertexSize = Math.max(vertexBounds.getWidth(), vertexBounds.getHeight());
+
+				edgeMargin = Math.max(edgeMargin, vertexSize * (getMaxAbs(bounds) + bounds.getWidth() / 2.0));
+			} else if (bounds.getMinX() >= 0.0 && bounds.getMaxX() <= 1.0) {
+				edgeMargin = Math.max(edgeMargin, Math.max(Math.abs(bounds.getMinY()), Math.abs(bounds.getMaxY())));
+			} else {
+				unboundedEdges.add(e);
+			}
+		}
+
+		edgeMargin += EDGE_PICK_DISTANCE;
+	}
+
+	/**
+	 * Returns the square [p - margin, p + margin] in layout coordinates.
+	 */
+	private Rectangle2D getLayoutRect(Point2D p, double margin) {
+		return toLayout(
+				new Rectangle2D.Double(p.getX() - margin, p.getY() - margin, 2.0 * margin, 2.0 * margin));
+	}
+
+	/**
+	 * The inverse is not taken from the layout transformer, since it is not
+	 * updated by setTransform.
+	 */
+	private Rectangle2D toLayout(Rectangle2D rect) {
+		try {
+			return vv.getRenderContext().getMultiLayerTransformer().getTransformer(Layer.LAYOUT).getTransform()
+					.createInverse().createTransformedShape(rect).getBounds2D();
+		} catch (NoninvertibleTransformException e) {
+			return new Rectangle2D.Double(-Double.MAX_VALUE / 2.0, -Double.MAX_VALUE / 2.0, Double.MAX_VALUE,
+					Double.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * Restores the order of the graph (picked elements last), so that the same
+	 * element is picked as without the index, when several are equally close.
+	 */
+	private static <T> void sortAsInGraph(List<T> elements, Map<T, Integer> order, PickedState<T> pickedState) {
+		elements.sort(Comparator.comparing((T t) -> pickedState.isPicked(t)).thenComparing(t -> order.get(t)));
+	}
+
+	private static double getMaxAbs(Rectangle2D bounds) {
+		return Math.max(Math.max(Math.abs(bounds.getMinX()), Math.abs(bounds.getMaxX())),
+				Math.max(Math.abs(bounds.getMinY()), Math.abs(bounds.getMaxY())));
 	}
 
 	private static float getDistanceToLine(float x1, float y1, float x2, float y2, float x, float y) {
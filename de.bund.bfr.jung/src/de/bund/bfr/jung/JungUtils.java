@@ -34,6 +34,7 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +42,9 @@ import java.util.Set;
 
 import org.apache.commons.collections15.Transformer;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import de.bund.bfr.knime.Pair;
 import edu.uci.ics.jung.algorithms.layout.Layout;
 import edu.uci.ics.jung.graph.Graph;
@@ -51,6 +55,11 @@ import edu.uci.ics.jung.visualization.util.ArrowFactory;
 
 public class JungUtils {
 
+	private static final int MAX_MIXED_TEXTURE_PAINTS = 1000;
+
+	private static final Cache<MixedTextureKey, TexturePaint> MIXED_TEXTURE_PAINTS = CacheBuilder.newBuilder()
+			.maximumSize(MAX_MIXED_TEXTURE_PAINTS).build();
+
 	private JungUtils() {
 	}
 
@@ -248,17 +257,67 @@ public class JungUtils {
 					(c.getBlue() + mix.getBlue()) / 2, (c.getAlpha() + mix.getAlpha()) / 2);
 		} else if (paint instanceof TexturePaint) {
 			BufferedImage texture = ((TexturePaint) paint).getImage();
-			BufferedImage mixed = new BufferedImage(texture.getWidth(), texture.getHeight(), texture.getType());
-
-			for (int x = 0; x < texture.getWidth(); x++) {
-				for (int y = 0; y < texture.getHeight(); y++) {
-					mixed.setRGB(x, y, ((Color) mixWith(new Color(texture.getRGB(x, y)), mix)).getRGB());
-				}
+			int width = texture.getWidth();
+			int height = texture.getHeight();
+			MixedTextureKey key = new MixedTextureKey(texture.getRGB(0, 0, width, height, null, 0, width), width,
+					mix.getRGB());
+			TexturePaint mixed = MIXED_TEXTURE_PAINTS.getIfPresent(key);
+
+			if (mixed == null) {
+				mixed = createMixedTexturePaint(key.pixels, width, height, mix);
+				MIXED_TEXTURE_PAINTS.put(key, mixed);
 			}
 
-			return new TexturePaint(mixed, new Rectangle(mixed.getWidth(), mixed.getHeight()));
+			return mixed;
 		} else {
 			return paint;
 		}
 	}
+
+	private static TexturePaint createMixedTexturePaint(int[] pixels, int width, int height, Color mix) {
+		int[] mixedPixels = new int[pixels.length];
+
+		for (int i = 0; i < pixels.length; i++) {
+			mixedPixels[i] = ((Color) mixWith(new Color(pixels[i]), mix)).getRGB();
+		}
+
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+		img.getRaster().setDataElements(0, 0, width, height, mixedPixels);
+
+		return new TexturePaint(img, new Rectangle(width, height));
+	}
+
+	private static final class MixedTextureKey {
+
+		private int[] pixels;
+		private int width;
+		private int mix;
+
+		public MixedTextureKey(int[] pixels, int width, int mix) {
+			this.pixels = pixels;
+			this.width = width;
+			this.mix = mix;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * Arrays.hashCode(pixels) + width) + mix;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			if (obj == null || obj.getClass() != getClass()) {
+				return false;
+			}
+
+			MixedTextureKey other = (MixedTextureKey) obj;
+
+			return Arrays.equals(pixels, other.pixels) && width == other.width && mix == other.mix;
+		}
+	}
 }
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.jung;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * R-tree of rectangles, that is bulk loaded with the sort-tile-recursive
+ * algorithm. An item can be stored with several rectangles (e.g. the pieces of
+ * a long line). Changed items are not inserted into the tree, but kept in a
+ * set, that is searched linearly, until it gets so large, that the tree is
+ * rebuilt.
+ */
+class PickIndex<T> {
+
+	private static final int NODE_SIZE = 16;
+	private static final int MIN_CHANGES_FOR_REBUILD = 256;
+
+	private Map<T, Rectangle2D[]> bounds;
+	private Set<T> changed;
+	private Node root;
+
+	public PickIndex() {
+		bounds = new LinkedHashMap<>();
+		changed = new LinkedHashSet<>();
+		root = null;
+	}
+
+	public Rectangle2D[] getBounds(T item) {
+		return bounds.get(item);
+	}
+
+	public void put(T item, Rectangle2D... itemBounds) {
+		bounds.put(item, itemBounds);
+		changed.add(item);
+		rebuildIfNecessary();
+	}
+
+	public void remove(T item) {
+		if (bounds.remove(item) != null) {
+			changed.add(item);
+			rebuildIfNecessary();
+		}
+	}
+
+	/**
+	 * Replaces all items and rebuilds the tree.
+	 */
+	public void setItems(Map<T, Rectangle2D[]> itemBounds) {
+		bounds = new LinkedHashMap<>(itemBounds);
+		rebuild();
+	}
+
+	/**
+	 * Returns all items with a rectangle, that intersects rect. Rectangles are
+	 * treated as closed, so that points are found as well.
+	 */
+	public Set<T> getItems(Rectangle2D rect) {
+		Set<T> items = new LinkedHashSet<>();
+		double minX = rect.getMinX();
+		double minY = rect.getMinY();
+		double maxX = rect.getMaxX();
+		double maxY = rect.getMaxY();
+
+		if (root != null) {
+			search(root, minX, minY, maxX, maxY, items);
+		}
+
+		for (T item : changed) {
+			Rectangle2D[] itemBounds = bounds.get(item);
+
+			if (itemBounds != null) {
+				for (Rectangle2D r : itemBounds) {
+					if (r.getMinX() <= maxX && r.getMaxX() >= minX && r.getMinY() <= maxY && r.getMaxY() >= minY) {
+						items.add(item);
+						break;
+					}
+				}
+			}
+		}
+
+		return items;
+	}
+
+	private void rebuildIfNecessary() {
+		if (changed.size() > Math.max(MIN_CHANGES_FOR_REBUILD, bounds.size() / 8)) {
+			rebuild();
+		}
+	}
+
+	private void rebuild() {
+		List<Node> nodes = new ArrayList<>();
+
+		bounds.forEach((item, itemBounds) -> {
+			for (Rectangle2D r : itemBounds) {
+				nodes.add(new Node(item, r));
+			}
+		});
+		changed.clear();
+
+		if (nodes.isEmpty()) {
+			root = null;
+			return;
+		}
+
+		List<Node> level = nodes;
+
+		do {
+			level = pack(level);
+		} while (level.size() > 1);
+
+		root = level.get(0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void search(Node node, double minX, double minY, double maxX, double maxY, Set<T> items) {
+		if (node.minX > maxX || node.maxX < minX || node.minY > maxY || node.maxY < minY) {
+			return;
+		}
+
+		if (node.children != null) {
+			for (Node child : node.children) {
+				search(child, minX, minY, maxX, maxY, items);
+			}
+		} else if (!changed.contains(node.item)) {
+			items.add((T) node.item);
+		}
+	}
+
+	/**
+	 * Groups the nodes into parents of NODE_SIZE children, so that the children
+	 * of each parent are close to each other.
+	 */
+	private static List<Node> pack(List<Node> nodes) {
+		int parentCount = (nodes.size() + NODE_SIZE - 1) / NODE_SIZE;
+		int sliceSize = (int) Math.ceil(Math.sqrt(parentCount)) * NODE_SIZE;
+		List<Node> parents = new ArrayList<>(parentCount);
+
+		nodes.sort(Comparator.comparingDouble(n -> n.minX + n.maxX));
+
+		for (int i = 0; i < nodes.size(); i += sliceSize) {
+			List<Node> slice = nodes.subList(i, Math.min(i + sliceSize, nodes.size()));
+
+			slice.sort(Comparator.comparingDouble(n -> n.minY + n.maxY));
+
+			for (int j = 0; j < slice.size(); j += NODE_SIZE) {
+				parents.add(new Node(slice.subList(j, Math.min(j + NODE_SIZE, slice.size()))));
+			}
+		}
+
+		return parents;
+	}
+
+	private static final class Node {
+
+		private double minX;
+		private double minY;
+		private double maxX;
+		private double maxY;
+		private Node[] children;
+		private Object item;
+
+		public Node(Object item, Rectangle2D bounds) {
+			minX = bounds.getMinX();
+			minY = bounds.getMinY();
+			maxX = bounds.getMaxX();
+			maxY = bounds.getMaxY();
+			children = null;
+			this.item = item;
+		}
+
+		public Node(List<Node> children) {
+			minX = Double.POSITIVE_INFINITY;
+			minY = Double.POSITIVE_INFINITY;
+			maxX = Double.NEGATIVE_INFINITY;
+			maxY = Double.NEGATIVE_INFINITY;
+			this.children = children.toArray(new Node[0]);
+			item = null;
+
+			for (Node child : children) {
+				minX = Math.min(minX, child.minX);
+				minY = Math.min(minY, child.minY);
+				maxX = Math.max(maxX, child.maxX);
+				maxY = Math.max(maxY, child.maxY);
+			}
+		}
+	}
+}
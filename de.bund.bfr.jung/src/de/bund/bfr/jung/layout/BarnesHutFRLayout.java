@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.jung.layout;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.DoubleConsumer;
+
+import edu.uci.ics.jung.graph.Graph;
+
+/**
+ * Variant of {@link FRLayout} for large graphs. Positions are held in
+ * primitive arrays, repulsion is approximated with a quadtree (Barnes-Hut) and
+ * both repulsion and attraction are computed in parallel for all nodes.
+ */
+public class BarnesHutFRLayout<V, E> extends Layout<V, E> {
+
+	public static final double DEFAULT_THETA = 0.8;
+
+	private static final double ATTRACTION_MULTIPLIER = 0.75;
+	private static final double REPULSION_MULTIPLIER = 0.75;
+	private static final int MAX_ITERATIONS = 700;
+
+	private double theta;
+
+	private double temperature;
+	private int currentIteration;
+	private double attractionConstant;
+	private double repulsionConstant;
+	private double maxDimension;
+
+	private LayoutGraph layoutGraph;
+
+	public BarnesHutFRLayout(Graph<V, E> graph, Dimension size) {
+		super(graph, size);
+		theta = DEFAULT_THETA;
+	}
+
+	public double getTheta() {
+		return theta;
+	}
+
+	/**
+	 * Sets the opening criterion of the quadtree. A value of 0.0 computes the
+	 * exact repulsion, larger values are faster and less accurate.
+	 */
+	public void setTheta(double theta) {
+		this.theta = theta;
+	}
+
+	@Override
+	public Map<V, Point2D> getNodePositions(Map<V, Point2D> initialPositions, DoubleConsumer progressListener) {
+		Random random = new Random();
+		List<V> vertices = new ArrayList<>(getGraph().getVertices());
+		Map<V, Integer> indices = new LinkedHashMap<>();
+
+		int n = vertices.size();
+
+		for (int i = 0; i < n; i++) {
+			indices.put(vertices.get(i), i);
+		}
+
+		layoutGraph = LayoutGraph.of(getGraph(), vertices, indices);
+
+		for (int i = 0; i < n; i++) {
+			V v = vertices.get(i);
+
+			if (isLocked(v)) {
+				layoutGraph.setLocked(i, true);
+				layoutGraph.setPosition(i, initialPositions.get(v).getX(), initialPositions.get(v).getY());
+			} else {
+				layoutGraph.setPosition(i, random.nextDouble() * size.width, random.nextDouble() * size.height);
+			}
+		}
+
+		double forceConstant = Math.sqrt(size.getHeight() * size.getWidth() / n);
+
+		maxDimension = Math.max(size.height, size.width);
+		currentIteration = 0;
+		temperature = size.getWidth() / 10;
+		attractionConstant = ATTRACTION_MULTIPLIER * forceConstant;
+		repulsionConstant = REPULSION_MULTIPLIER * forceConstant;
+
+		while (!done()) {
+			if (progressListener != null) {
+				progressListener.accept((double) currentIteration / (double) MAX_ITERATIONS);
+			}
+
+			step();
+		}
+
+		Map<V, Point2D> newPositions = new LinkedHashMap<>();
+
+		for (int i = 0; i < n; i++) {
+			newPositions.put(vertices.get(i), new Point2D.Double(layoutGraph.getX(i), layoutGraph.getY(i)));
+		}
+
+		return newPositions;
+	}
+
+	public boolean done() {
+		return currentIteration > MAX_ITERATIONS || temperature < 1.0 / maxDimension;
+	}
+
+	public void step() {
+		currentIteration++;
+		layoutGraph.step(repulsionConstant, attractionConstant, temperature, theta);
+		cool();
+	}
+
+	private void cool() {
+		temperature *= 1.0 - (double) currentIteration / (double) MAX_ITERATIONS;
+	}
+}
@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.jung.layout;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.DoubleConsumer;
+
+import edu.uci.ics.jung.graph.Graph;
+
+/**
+ * Layout that only places the nodes, that are not locked. The locked nodes are
+ * anchors, that keep their initial positions. Each new node is placed at the
+ * barycenter of its already placed neighbors and the positions are refined
+ * with {@link BarnesHutFRLayout} forces, restricted to the nodes within a
+ * number of hops from the new nodes. The refinement stops when the time
+ * budget is used up.
+ */
+public class IncrementalLayout<V, E> extends Layout<V, E> {
+
+	public static final int DEFAULT_HOPS = 2;
+	public static final long DEFAULT_TIME_BUDGET = 200;
+
+	private static final double ATTRACTION_MULTIPLIER = 0.75;
+	private static final double REPULSION_MULTIPLIER = 0.75;
+	private static final int MAX_ITERATIONS = 50;
+	private static final double FINAL_TEMPERATURE_FACTOR = 0.01;
+	private static final double JITTER_FACTOR = 0.1;
+
+	private int hops;
+	private long timeBudget;
+
+	public IncrementalLayout(Graph<V, E> graph, Dimension size) {
+		super(graph, size);
+		hops = DEFAULT_HOPS;
+		timeBudget = DEFAULT_TIME_BUDGET;
+	}
+
+	public int getHops() {
+		return hops;
+	}
+
+	/**
+	 * Sets the number of hops around the new nodes, in which nodes take part in
+	 * the refinement.
+	 */
+	public void setHops(int hops) {
+		this.hops = hops;
+	}
+
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * Sets the maximum time in milliseconds, that is used for the refinement.
+	 */
+	public void setTimeBudget(long timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+	@Override
+	public Map<V, Point2D> getNodePositions(Map<V, Point2D> initialPositions, DoubleConsumer progressListener) {
+		long deadline = System.nanoTime() + timeBudget * 1000000;
+		Random random = new Random();
+		List<V> vertices = new ArrayList<>(getGraph().getVertices());
+		Map<V, Integer> indices = new LinkedHashMap<>();
+		int n = vertices.size();
+
+		for (int i = 0; i < n; i++) {
+			indices.put(vertices.get(i), i);
+		}
+
+		LayoutGraph all = LayoutGraph.of(getGraph(), vertices, indices);
+		boolean[] placed = new boolean[n];
+		int anchorCount = 0;
+
+		for (int i = 0; i < n; i++) {
+			V v = vertices.get(i);
+
+			if (isLocked(v)) {
+				all.setLocked(i, true);
+				all.setPosition(i, initialPositions.get(v).getX(), initialPositions.get(v).getY());
+				placed[i] = true;
+				anchorCount++;
+			}
+		}
+
+		double forceConstant = getForceConstant(all, n);
+
+		seed(all, placed, forceConstant, random);
+
+		if (anchorCount < n) {
+			refine(all, forceConstant, deadline, progressListener);
+		}
+
+		Map<V, Point2D> newPositions = new LinkedHashMap<>();
+
+		for (int i = 0; i < n; i++) {
+			newPositions.put(vertices.get(i), new Point2D.Double(all.getX(i), all.getY(i)));
+		}
+
+		return newPositions;
+	}
+
+	/**
+	 * Returns the force constant of a layout, that has the anchors as nodes and
+	 * their bounds as size, so that new nodes are placed in the scale of the
+	 * existing layout.
+	 */
+	private double getForceConstant(LayoutGraph graph, int n) {
+		Rectangle2D bounds = getAnchorBounds(graph);
+		int anchorCount = 0;
+
+		for (int i = 0; i < graph.size(); i++) {
+			if (graph.isLocked(i)) {
+				anchorCount++;
+			}
+		}
+
+		if (bounds != null && anchorCount > 1 && bounds.getWidth() * bounds.getHeight() > 0.0) {
+			return Math.sqrt(bounds.getWidth() * bounds.getHeight() / anchorCount);
+		}
+
+		return Math.sqrt(size.getHeight() * size.getWidth() / Math.max(n, 1));
+	}
+
+	private static Rectangle2D getAnchorBounds(LayoutGraph graph) {
+		Rectangle2D bounds = null;
+
+		for (int i = 0; i < graph.size(); i++) {
+			if (!graph.isLocked(i)) {
+				continue;
+			} else if (bounds == null) {
+				bounds = new Rectangle2D.Double(graph.getX(i), graph.getY(i), 0.0, 0.0);
+			} else {
+				bounds.add(graph.getX(i), graph.getY(i));
+			}
+		}
+
+		return bounds;
+	}
+
+	/**
+	 * Places the nodes in breadth first order, starting from the anchors. A node
+	 * with one placed neighbor is placed at the distance of the force constant
+	 * in a random direction, a node with more placed neighbors near their
+	 * barycenter. Nodes in components without anchors are started at random
+	 * positions within the bounds of the anchors.
+	 */
+	private void seed(LayoutGraph graph, boolean[] placed, double forceConstant, Random random) {
+		int n = graph.size();
+		boolean[] queued = placed.clone();
+		Deque<Integer> queue = new ArrayDeque<>();
+		Rectangle2D bounds = getAnchorBounds(graph);
+
+		for (int i = 0; i < n; i++) {
+			if (placed[i]) {
+				enqueueNeighbors(graph, i, queued, queue);
+			}
+		}
+
+		if (bounds == null) {
+			bounds = new Rectangle2D.Double(0.0, 0.0, size.width, size.height);
+		}
+
+		for (int start = 0; start < n; start++) {
+			if (!queued[start]) {
+				queued[start] = true;
+				queue.add(start);
+			}
+
+			while (!queue.isEmpty()) {
+				int u = queue.poll();
+				double xSum = 0.0;
+				double ySum = 0.0;
+				int count = 0;
+
+				for (int k = graph.start(u); k < graph.end(u); k++) {
+					int v = graph.target(k);
+
+					if (placed[v]) {
+						xSum += graph.getX(v);
+						ySum += graph.getY(v);
+						count++;
+					}
+				}
+
+				if (count > 0) {
+					double angle = 2.0 * Math.PI * random.nextDouble();
+					double distance = count == 1 ? forceConstant : JITTER_FACTOR * forceConstant;
+
+					graph.setPosition(u, xSum / count + distance * Math.cos(angle),
+							ySum / count + distance * Math.sin(angle));
+				} else {
+					graph.setPosition(u, bounds.getMinX() + random.nextDouble() * bounds.getWidth(),
+							bounds.getMinY() + random.nextDouble() * bounds.getHeight());
+				}
+
+				placed[u] = true;
+				enqueueNeighbors(graph, u, queued, queue);
+			}
+		}
+	}
+
+	private void refine(LayoutGraph all, double forceConstant, long deadline, DoubleConsumer progressListener) {
+		int n = all.size();
+		int[] depth = new int[n];
+		Deque<Integer> queue = new ArrayDeque<>();
+
+		for (int i = 0; i < n; i++) {
+			if (all.isLocked(i)) {
+				depth[i] = -1;
+			} else {
+				queue.add(i);
+			}
+		}
+
+		int[] region = new int[n];
+		int regionSize = 0;
+
+		while (!queue.isEmpty()) {
+			int u = queue.poll();
+
+			region[regionSize++] = u;
+
+			if (depth[u] < hops) {
+				for (int k = all.start(u); k < all.end(u); k++) {
+					int v = all.target(k);
+
+					if (depth[v] == -1) {
+						depth[v] = depth[u] + 1;
+						queue.add(v);
+					}
+				}
+			}
+		}
+
+		region = Arrays.copyOf(region, regionSize);
+
+		LayoutGraph local = all.subgraph(region);
+		double temperature = forceConstant;
+		double cooling = Math.pow(FINAL_TEMPERATURE_FACTOR, 1.0 / MAX_ITERATIONS);
+
+		for (int i = 0; i < MAX_ITERATIONS && System.nanoTime() < deadline; i++) {
+			if (progressListener != null) {
+				progressListener.accept((double) i / (double) MAX_ITERATIONS);
+			}
+
+			local.step(REPULSION_MULTIPLIER * forceConstant, ATTRACTION_MULTIPLIER * forceConstant, temperature,
+					BarnesHutFRLayout.DEFAULT_THETA);
+			temperature *= cooling;
+		}
+
+		for (int i = 0; i < region.length; i++) {
+			all.setPosition(region[i], local.getX(i), local.getY(i));
+		}
+	}
+
+	private static void enqueueNeighbors(LayoutGraph graph, int node, boolean[] queued, Deque<Integer> queue) {
+		for (int k = graph.start(node); k < graph.end(node); k++) {
+			int v = graph.target(k);
+
+			if (!queued[v]) {
+				queued[v] = true;
+				queue.add(v);
+			}
+		}
+	}
+}
@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.jung.layout;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.Pair;
+
+/**
+ * Undirected weighted graph over dense int ids with node positions in
+ * primitive arrays, that are moved by Fruchterman-Reingold forces. The
+ * neighbors of each node are stored in compressed sparse row format, so that
+ * the forces on all nodes can be computed in parallel.
+ */
+final class LayoutGraph {
+
+	private static final double EPSILON = 0.000001;
+
+	private int n;
+	private int[] offsets;
+	private int[] neighbors;
+	private double[] weights;
+	private double[] mass;
+
+	private double[] x;
+	private double[] y;
+	private boolean[] locked;
+
+	private double[] xMove;
+	private double[] yMove;
+
+	private LayoutGraph(int[] offsets, int[] neighbors, double[] weights, double[] mass) {
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+		this.weights = weights;
+		this.mass = mass;
+		n = offsets.length - 1;
+		x = new double[n];
+		y = new double[n];
+		locked = new boolean[n];
+		xMove = new double[n];
+		yMove = new double[n];
+	}
+
+	/**
+	 * Creates the layout graph of the vertices. Parallel edges become one edge
+	 * with a weight equal to their number, self loops are ignored.
+	 */
+	public static <V, E> LayoutGraph of(Graph<V, E> graph, List<V> vertices, Map<V, Integer> indices) {
+		int n = vertices.size();
+		int[] from = new int[graph.getEdgeCount()];
+		int[] to = new int[graph.getEdgeCount()];
+		int edgeCount = 0;
+
+		for (E e : graph.getEdges()) {
+			Pair<V> endpoints = graph.getEndpoints(e);
+			Integer i1 = indices.get(endpoints.getFirst());
+			Integer i2 = indices.get(endpoints.getSecond());
+
+			if (i1 != null && i2 != null && !i1.equals(i2)) {
+				from[edgeCount] = i1;
+				to[edgeCount] = i2;
+				edgeCount++;
+			}
+		}
+
+		double[] mass = new double[n];
+
+		Arrays.fill(mass, 1.0);
+
+		return create(n, from, to, null, edgeCount, mass, true);
+	}
+
+	/**
+	 * Creates the graph, in which the nodes with the same coarse index are
+	 * merged. The mass of a merged node is the sum of the masses, its position
+	 * is their center of mass and edges between the same merged nodes are
+	 * joined by adding their weights.
+	 */
+	public LayoutGraph coarsen(int[] coarseIndex, int coarseCount) {
+		double[] coarseMass = new double[coarseCount];
+
+		for (int i = 0; i < n; i++) {
+			coarseMass[coarseIndex[i]] += mass[i];
+		}
+
+		int[] from = new int[neighbors.length];
+		int[] to = new int[neighbors.length];
+		double[] edgeWeights = new double[neighbors.length];
+		int edgeCount = 0;
+
+		for (int i = 0; i < n; i++) {
+			for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+				from[edgeCount] = coarseIndex[i];
+				to[edgeCount] = coarseIndex[neighbors[k]];
+				edgeWeights[edgeCount] = weights[k];
+				edgeCount++;
+			}
+		}
+
+		LayoutGraph coarse = create(coarseCount, from, to, edgeWeights, edgeCount, coarseMass, false);
+
+		for (int i = 0; i < n; i++) {
+			int c = coarseIndex[i];
+
+			coarse.locked[c] |= locked[i];
+			coarse.x[c] += mass[i] * x[i] / coarseMass[c];
+			coarse.y[c] += mass[i] * y[i] / coarseMass[c];
+		}
+
+		return coarse;
+	}
+
+	/**
+	 * Creates the subgraph induced by the nodes. Node i of the subgraph is
+	 * nodes[i] and keeps its mass, position and locked state.
+	 */
+	public LayoutGraph subgraph(int[] nodes) {
+		int[] index = new int[n];
+		double[] subMass = new double[nodes.length];
+
+		Arrays.fill(index, -1);
+
+		for (int i = 0; i < nodes.length; i++) {
+			index[nodes[i]] = i;
+			subMass[i] = mass[nodes[i]];
+		}
+
+		int[] from = new int[neighbors.length];
+		int[] to = new int[neighbors.length];
+		double[] edgeWeights = new double[neighbors.length];
+		int edgeCount = 0;
+
+		for (int node : nodes) {
+			for (int k = offsets[node]; k < offsets[node + 1]; k++) {
+				if (index[neighbors[k]] != -1) {
+					from[edgeCount] = index[node];
+					to[edgeCount] = index[neighbors[k]];
+					edgeWeights[edgeCount] = weights[k];
+					edgeCount++;
+				}
+			}
+		}
+
+		LayoutGraph sub = create(nodes.length, from, to, edgeWeights, edgeCount, subMass, false);
+
+		for (int i = 0; i < nodes.length; i++) {
+			sub.setPosition(i, x[nodes[i]], y[nodes[i]]);
+			sub.setLocked(i, locked[nodes[i]]);
+		}
+
+		return sub;
+	}
+
+	private static LayoutGraph create(int n, int[] from, int[] to, double[] edgeWeights, int edgeCount,
+			double[] mass, boolean symmetrize) {
+		// edges are grouped by source node, duplicates are detected with the
+		// position of the last occurrence of each target
+		int[] sourceOffsets = new int[n + 1];
+
+		for (int e = 0; e < edgeCount; e++) {
+			sourceOffsets[from[e] + 1]++;
+
+			if (symmetrize) {
+				sourceOffsets[to[e] + 1]++;
+			}
+		}
+
+		for (int i = 0; i < n; i++) {
+			sourceOffsets[i + 1] += sourceOffsets[i];
+		}
+
+		int[] next = sourceOffsets.clone();
+		int[] targets = new int[sourceOffsets[n]];
+		double[] targetWeights = new double[sourceOffsets[n]];
+
+		for (int e = 0; e < edgeCount; e++) {
+			double w = edgeWeights != null ? edgeWeights[e] : 1.0;
+
+			targets[next[from[e]]] = to[e];
+			targetWeights[next[from[e]]++] = w;
+
+			if (symmetrize) {
+				targets[next[to[e]]] = from[e];
+				targetWeights[next[to[e]]++] = w;
+			}
+		}
+
+		int[] offsets = new int[n + 1];
+		int[] neighbors = new int[targets.length];
+		double[] weights = new double[targets.length];
+		int[] position = new int[n];
+		int count = 0;
+
+		Arrays.fill(position, -1);
+
+		for (int i = 0; i < n; i++) {
+			int start = count;
+
+			for (int k = sourceOffsets[i]; k < sourceOffsets[i + 1]; k++) {
+				int j = targets[k];
+
+				if (j == i) {
+					continue;
+				} else if (position[j] >= start) {
+					weights[position[j]] += targetWeights[k];
+				} else {
+					position[j] = count;
+					neighbors[count] = j;
+					weights[count] = targetWeights[k];
+					count++;
+				}
+			}
+
+			offsets[i + 1] = count;
+		}
+
+		return new LayoutGraph(offsets, Arrays.copyOf(neighbors, count), Arrays.copyOf(weights, count), mass);
+	}
+
+	public int size() {
+		return n;
+	}
+
+	public int start(int node) {
+		return offsets[node];
+	}
+
+	public int end(int node) {
+		return offsets[node + 1];
+	}
+
+	public int target(int index) {
+		return neighbors[index];
+	}
+
+	public double weight(int index) {
+		return weights[index];
+	}
+
+	public double getMass(int node) {
+		return mass[node];
+	}
+
+	public double getX(int node) {
+		return x[node];
+	}
+
+	public double getY(int node) {
+		return y[node];
+	}
+
+	public void setPosition(int node, double x, double y) {
+		this.x[node] = x;
+		this.y[node] = y;
+	}
+
+	public boolean isLocked(int node) {
+		return locked[node];
+	}
+
+	public void setLocked(int node, boolean locked) {
+		this.locked[node] = locked;
+	}
+
+	/**
+	 * Moves all nodes, that are not locked, by their repulsive and attractive
+	 * forces, limited to the temperature. Repulsion is approximated with a
+	 * quadtree, see {@link QuadTree}.
+	 */
+	public void step(double repulsionConstant, double attractionConstant, double temperature, double theta) {
+		QuadTree tree = new QuadTree(x, y, mass, n);
+		double repulsionFactor = repulsionConstant * repulsionConstant;
+
+		IntStream.range(0, n).parallel().forEach(i -> {
+			if (locked[i]) {
+				return;
+			}
+
+			double[] force = new double[2];
+
+			tree.addRepulsion(i, repulsionFactor, theta, EPSILON, force);
+
+			double xSum = force[0];
+			double ySum = force[1];
+
+			for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+				int j = neighbors[k];
+				double xDelta = x[i] - x[j];
+				double yDelta = y[i] - y[j];
+				double factor = weights[k] * Math.max(EPSILON, Math.sqrt(xDelta * xDelta + yDelta * yDelta))
+						/ attractionConstant;
+
+				xSum -= xDelta * factor;
+				ySum -= yDelta * factor;
+			}
+
+			xMove[i] = xSum;
+			yMove[i] = ySum;
+		});
+
+		IntStream.range(0, n).parallel().forEach(i -> {
+			if (locked[i]) {
+				return;
+			}
+
+			double deltaLength = Math.max(EPSILON, Math.sqrt(xMove[i] * xMove[i] + yMove[i] * yMove[i]));
+			double factor = Math.min(deltaLength, temperature) / deltaLength;
+
+			x[i] += xMove[i] * factor;
+			y[i] += yMove[i] * factor;
+		});
+	}
+}
@@ -24,8 +24,9 @@ import java.awt.Dimension;
 import edu.uci.ics.jung.graph.Graph;
 
 public enum LayoutType {
-	GRID_LAYOUT("Grid Layout"), CIRCLE_LAYOUT("Circle Layout"), FR_LAYOUT("Fruchterman-Reingold"), ISOM_LAYOUT(
-			"Self-Organizing Map");
+	GRID_LAYOUT("Grid Layout"), CIRCLE_LAYOUT("Circle Layout"), FR_LAYOUT("Fruchterman-Reingold"),
+	BARNES_HUT_FR_LAYOUT("Fruchterman-Reingold (Barnes-Hut)"), MULTILEVEL_LAYOUT("Multilevel Layout"),
+	INCREMENTAL_LAYOUT("Incremental Layout"), ISOM_LAYOUT("Self-Organizing Map");
 
 	private String name;
 
@@ -41,6 +42,12 @@ public enum LayoutType {
 			return new CircleLayout<>(graph, size);
 		case FR_LAYOUT:
 			return new FRLayout<>(graph, size);
+		case BARNES_HUT_FR_LAYOUT:
+			return new BarnesHutFRLayout<>(graph, size);
+		case MULTILEVEL_LAYOUT:
+			return new MultilevelLayout<>(graph, size);
+		case INCREMENTAL_LAYOUT:
+			return new IncrementalLayout<>(graph, size);
 		case ISOM_LAYOUT:
 			return new ISOMLayout<>(graph, size);
 		default:
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.jung.layout;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.DoubleConsumer;
+
+import edu.uci.ics.jung.graph.Graph;
+
+/**
+ * Multilevel variant of {@link BarnesHutFRLayout} for large graphs. The graph
+ * is coarsened by matching neighbors and merging leaves into their neighbor
+ * until it is small, the coarsest graph is laid out from random positions and
+ * the positions are then passed down and refined level by level. Locked nodes
+ * are never merged and keep their initial positions on every level.
+ */
+public class MultilevelLayout<V, E> extends Layout<V, E> {
+
+	private static final double ATTRACTION_MULTIPLIER = 0.75;
+	private static final double REPULSION_MULTIPLIER = 0.75;
+	private static final int MIN_COARSE_SIZE = 20;
+	private static final double MIN_COARSENING_RATIO = 0.9;
+	private static final int COARSEST_ITERATIONS = 300;
+	private static final int REFINE_ITERATIONS = 50;
+	private static final double FINAL_TEMPERATURE_FACTOR = 0.01;
+	private static final double JITTER_FACTOR = 0.1;
+
+	private double theta;
+
+	public MultilevelLayout(Graph<V, E> graph, Dimension size) {
+		super(graph, size);
+		theta = BarnesHutFRLayout.DEFAULT_THETA;
+	}
+
+	public double getTheta() {
+		return theta;
+	}
+
+	public void setTheta(double theta) {
+		this.theta = theta;
+	}
+
+	@Override
+	public Map<V, Point2D> getNodePositions(Map<V, Point2D> initialPositions, DoubleConsumer progressListener) {
+		Random random = new Random();
+		List<V> vertices = new ArrayList<>(getGraph().getVertices());
+		Map<V, Integer> indices = new LinkedHashMap<>();
+		int n = vertices.size();
+
+		for (int i = 0; i < n; i++) {
+			indices.put(vertices.get(i), i);
+		}
+
+		LayoutGraph finest = LayoutGraph.of(getGraph(), vertices, indices);
+
+		for (int i = 0; i < n; i++) {
+			V v = vertices.get(i);
+
+			if (isLocked(v)) {
+				finest.setLocked(i, true);
+				finest.setPosition(i, initialPositions.get(v).getX(), initialPositions.get(v).getY());
+			}
+		}
+
+		List<LayoutGraph> levels = new ArrayList<>();
+		List<int[]> coarseIndices = new ArrayList<>();
+
+		levels.add(finest);
+
+		while (true) {
+			LayoutGraph fine = levels.get(levels.size() - 1);
+
+			if (fine.size() <= MIN_COARSE_SIZE) {
+				break;
+			}
+
+			int[] coarseIndex = new int[fine.size()];
+			int coarseCount = match(fine, coarseIndex);
+
+			if (coarseCount > MIN_COARSENING_RATIO * fine.size()) {
+				break;
+			}
+
+			levels.add(fine.coarsen(coarseIndex, coarseCount));
+			coarseIndices.add(coarseIndex);
+		}
+
+		LayoutGraph coarsest = levels.get(levels.size() - 1);
+
+		for (int i = 0; i < coarsest.size(); i++) {
+			if (!coarsest.isLocked(i)) {
+				coarsest.setPosition(i, random.nextDouble() * size.width, random.nextDouble() * size.height);
+			}
+		}
+
+		double forceConstant = Math.sqrt(size.getHeight() * size.getWidth() / Math.max(n, 1));
+		double attractionConstant = ATTRACTION_MULTIPLIER * forceConstant;
+		double repulsionConstant = REPULSION_MULTIPLIER * forceConstant;
+		double finalTemperature = FINAL_TEMPERATURE_FACTOR * forceConstant;
+		double totalWork = (double) coarsest.size() * COARSEST_ITERATIONS;
+		double work = 0.0;
+
+		for (int level = 0; level < levels.size() - 1; level++) {
+			totalWork += (double) levels.get(level).size() * REFINE_ITERATIONS;
+		}
+
+		for (int level = levels.size() - 1; level >= 0; level--) {
+			LayoutGraph graph = levels.get(level);
+			boolean coarsestLevel = level == levels.size() - 1;
+			int iterations = coarsestLevel ? COARSEST_ITERATIONS : REFINE_ITERATIONS;
+			double temperature = coarsestLevel ? size.getWidth() / 10 : forceConstant;
+			double cooling = Math.pow(finalTemperature / temperature, 1.0 / iterations);
+
+			if (!coarsestLevel) {
+				prolong(levels.get(level + 1), graph, coarseIndices.get(level), JITTER_FACTOR * forceConstant,
+						random);
+			}
+
+			for (int i = 0; i < iterations; i++) {
+				if (progressListener != null) {
+					progressListener.accept(work / totalWork);
+				}
+
+				graph.step(repulsionConstant, attractionConstant, temperature, theta);
+				temperature *= cooling;
+				work += graph.size();
+			}
+		}
+
+		Map<V, Point2D> newPositions = new LinkedHashMap<>();
+
+		for (int i = 0; i < n; i++) {
+			newPositions.put(vertices.get(i), new Point2D.Double(finest.getX(i), finest.getY(i)));
+		}
+
+		return newPositions;
+	}
+
+	/**
+	 * Assigns the index of its merged node to each node and returns the number
+	 * of merged nodes. Nodes are visited by ascending degree and matched with
+	 * the unmatched neighbor with the heaviest edge relative to the masses.
+	 * Remaining leaves are merged into the node of their neighbor.
+	 */
+	private static int match(LayoutGraph graph, int[] coarseIndex) {
+		int n = graph.size();
+		int[] order = sortByDegree(graph);
+		int count = 0;
+
+		Arrays.fill(coarseIndex, -1);
+
+		for (int u : order) {
+			if (coarseIndex[u] != -1 || graph.isLocked(u)) {
+				continue;
+			}
+
+			int best = -1;
+			double bestScore = 0.0;
+
+			for (int k = graph.start(u); k < graph.end(u); k++) {
+				int v = graph.target(k);
+
+				if (coarseIndex[v] == -1 && !graph.isLocked(v)) {
+					double score = graph.weight(k) / (graph.getMass(u) * graph.getMass(v));
+
+					if (score > bestScore) {
+						best = v;
+						bestScore = score;
+					}
+				}
+			}
+
+			if (best != -1) {
+				coarseIndex[u] = count;
+				coarseIndex[best] = count;
+				count++;
+			}
+		}
+
+		for (int i = 0; i < n; i++) {
+			int u = order[i];
+
+			if (coarseIndex[u] != -1) {
+				continue;
+			}
+
+			int v = graph.end(u) - graph.start(u) == 1 ? graph.target(graph.start(u)) : -1;
+
+			if (v != -1 && !graph.isLocked(u) && !graph.isLocked(v) && coarseIndex[v] != -1) {
+				coarseIndex[u] = coarseIndex[v];
+			} else {
+				coarseIndex[u] = count++;
+			}
+		}
+
+		return count;
+	}
+
+	private static int[] sortByDegree(LayoutGraph graph) {
+		int n = graph.size();
+		int maxDegree = 0;
+
+		for (int i = 0; i < n; i++) {
+			maxDegree = Math.max(maxDegree, graph.end(i) - graph.start(i));
+		}
+
+		int[] offsets = new int[maxDegree + 2];
+		int[] order = new int[n];
+
+		for (int i = 0; i < n; i++) {
+			offsets[graph.end(i) - graph.start(i) + 1]++;
+		}
+
+		for (int d = 0; d <= maxDegree; d++) {
+			offsets[d + 1] += offsets[d];
+		}
+
+		for (int i = 0; i < n; i++) {
+			order[offsets[graph.end(i) - graph.start(i)]++] = i;
+		}
+
+		return order;
+	}
+
+	private static void prolong(LayoutGraph coarse, LayoutGraph fine, int[] coarseIndex, double jitter,
+			Random random) {
+		for (int i = 0; i < fine.size(); i++) {
+			if (!fine.isLocked(i)) {
+				int c = coarseIndex[i];
+
+				fine.setPosition(i, coarse.getX(c) + (random.nextDouble() - 0.5) * jitter,
+						coarse.getY(c) + (random.nextDouble() - 0.5) * jitter);
+			}
+		}
+	}
+}
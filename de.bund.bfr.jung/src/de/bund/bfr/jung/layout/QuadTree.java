@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.jung.layout;
+
+import java.util.Arrays;
+
+/**
+ * Array based quadtree over a set of weighted points, that stores the mass of
+ * the points and their center of mass in each cell. Used to approximate the
+ * repulsive forces of force directed layouts (Barnes-Hut).
+ */
+final class QuadTree {
+
+	private static final int MAX_DEPTH = 40;
+
+	private double[] x;
+	private double[] y;
+	private double[] pointMass;
+
+	private double[] cellX;
+	private double[] cellY;
+	private double[] cellSize;
+	private double[] mass;
+	private double[] sumX;
+	private double[] sumY;
+	private int[] firstChild;
+	private int[] firstPoint;
+	private int cellCount;
+
+	private int[] nextPoint;
+
+	/**
+	 * Builds the tree over the first n points. If pointMass is null, all points
+	 * have a mass of 1.0.
+	 */
+	public QuadTree(double[] x, double[] y, double[] pointMass, int n) {
+		this.x = x;
+		this.y = y;
+		this.pointMass = pointMass;
+		nextPoint = new int[n];
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+
+		int capacity = Math.max(16, 2 * n);
+
+		cellX = new double[capacity];
+		cellY = new double[capacity];
+		cellSize = new double[capacity];
+		mass = new double[capacity];
+		sumX = new double[capacity];
+		sumY = new double[capacity];
+		firstChild = new int[capacity];
+		firstPoint = new int[capacity];
+		cellCount = 0;
+
+		newCell(minX, minY, n > 0 ? Math.max(Math.max(maxX - minX, maxY - minY), 1e-9) : 1.0);
+
+		for (int i = 0; i < n; i++) {
+			insert(i);
+		}
+	}
+
+	/**
+	 * Computes the repulsive force of all points except i on point i. The force
+	 * of a point with mass m at distance d is m * factor / d along their
+	 * connecting line. Cells, that appear smaller than theta from the point, are
+	 * approximated by their center of mass.
+	 */
+	public void addRepulsion(int i, double factor, double theta, double epsilon, double[] force) {
+		double px = x[i];
+		double py = y[i];
+		double fx = 0.0;
+		double fy = 0.0;
+		int[] stack = new int[4 * MAX_DEPTH + 4];
+		int top = 0;
+
+		stack[top++] = 0;
+
+		while (top > 0) {
+			int c = stack[--top];
+
+			if (mass[c] == 0.0) {
+				continue;
+			}
+
+			if (firstChild[c] == -1) {
+				for (int j = firstPoint[c]; j != -1; j = nextPoint[j]) {
+					if (j != i) {
+						double xDelta = px - x[j];
+						double yDelta = py - y[j];
+						double length = Math.max(epsilon, Math.sqrt(xDelta * xDelta + yDelta * yDelta));
+						double f = getMass(j) * factor / length / length;
+
+						fx += xDelta * f;
+						fy += yDelta * f;
+					}
+				}
+
+				continue;
+			}
+
+			double xDelta = px - sumX[c] / mass[c];
+			double yDelta = py - sumY[c] / mass[c];
+			double length = Math.sqrt(xDelta * xDelta + yDelta * yDelta);
+
+			if (cellSize[c] < theta * length) {
+				double f = mass[c] * factor / length / length;
+
+				fx += xDelta * f;
+				fy += yDelta * f;
+			} else {
+				for (int k = 0; k < 4; k++) {
+					stack[top++] = firstChild[c] + k;
+				}
+			}
+		}
+
+		force[0] = fx;
+		force[1] = fy;
+	}
+
+	private int newCell(double x, double y, double size) {
+		if (cellCount + 4 > cellX.length) {
+			int capacity = 2 * cellX.length;
+
+			cellX = Arrays.copyOf(cellX, capacity);
+			cellY = Arrays.copyOf(cellY, capacity);
+			cellSize = Arrays.copyOf(cellSize, capacity);
+			mass = Arrays.copyOf(mass, capacity);
+			sumX = Arrays.copyOf(sumX, capacity);
+			sumY = Arrays.copyOf(sumY, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			firstPoint = Arrays.copyOf(firstPoint, capacity);
+		}
+
+		int c = cellCount++;
+
+		cellX[c] = x;
+		cellY[c] = y;
+		cellSize[c] = size;
+		mass[c] = 0.0;
+		sumX[c] = 0.0;
+		sumY[c] = 0.0;
+		firstChild[c] = -1;
+		firstPoint[c] = -1;
+
+		return c;
+	}
+
+	private void insert(int i) {
+		int c = 0;
+
+		double m = getMass(i);
+
+		for (int depth = 0;; depth++) {
+			mass[c] += m;
+			sumX[c] += m * x[i];
+			sumY[c] += m * y[i];
+
+			if (firstChild[c] == -1) {
+				if (firstPoint[c] == -1 || depth >= MAX_DEPTH) {
+					nextPoint[i] = firstPoint[c];
+					firstPoint[c] = i;
+					return;
+				}
+
+				split(c);
+			}
+
+			c = firstChild[c] + getQuadrant(c, x[i], y[i]);
+		}
+	}
+
+	private void split(int c) {
+		double half = cellSize[c] / 2.0;
+		int first = newCell(cellX[c], cellY[c], half);
+
+		newCell(cellX[c] + half, cellY[c], half);
+		newCell(cellX[c], cellY[c] + half, half);
+		newCell(cellX[c] + half, cellY[c] + half, half);
+		firstChild[c] = first;
+
+		for (int j = firstPoint[c]; j != -1;) {
+			int next = nextPoint[j];
+			int child = first + getQuadrant(c, x[j], y[j]);
+
+			double m = getMass(j);
+
+			mass[child] += m;
+			sumX[child] += m * x[j];
+			sumY[child] += m * y[j];
+			nextPoint[j] = firstPoint[child];
+			firstPoint[child] = j;
+			j = next;
+		}
+
+		firstPoint[c] = -1;
+	}
+
+	private double getMass(int i) {
+		return pointMass != null ? pointMass[i] : 1.0;
+	}
+
+	private int getQuadrant(int c, double px, double py) {
+		double half = cellSize[c] / 2.0;
+
+		return (px >= cellX[c] + half ? 1 : 0) + (py >= cellY[c] + half ? 2 : 0);
+	}
+}
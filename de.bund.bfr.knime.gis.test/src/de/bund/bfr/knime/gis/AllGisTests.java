@@ -27,9 +27,13 @@ import de.bund.bfr.knime.gis.views.canvas.highlighting.AndOrHighlightConditionTe
 import de.bund.bfr.knime.gis.views.canvas.highlighting.LogicalHighlightConditionTest;
 import de.bund.bfr.knime.gis.views.canvas.highlighting.LogicalValueHighlightConditionTest;
 import de.bund.bfr.knime.gis.views.canvas.highlighting.ValueHighlightConditionTest;
+import de.bund.bfr.knime.gis.views.canvas.util.PropertyStoreTest;
+import de.bund.bfr.knime.gis.views.canvas.util.TileArchiveTest;
+import de.bund.bfr.knime.gis.views.canvas.util.TileDiskCacheTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({ LogicalHighlightConditionTest.class, AndOrHighlightConditionTest.class,
-		ValueHighlightConditionTest.class, LogicalValueHighlightConditionTest.class })
+		ValueHighlightConditionTest.class, LogicalValueHighlightConditionTest.class, PropertyStoreTest.class,
+		TileDiskCacheTest.class, TileArchiveTest.class })
 public class AllGisTests {
 }
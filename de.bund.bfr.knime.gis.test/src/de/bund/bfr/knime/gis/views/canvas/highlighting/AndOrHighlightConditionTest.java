@@ -19,6 +19,7 @@
  *******************************************************************************/
 package de.bund.bfr.knime.gis.views.canvas.highlighting;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
@@ -145,6 +146,21 @@ public class AndOrHighlightConditionTest {
 		assertEquals(1.0, values.get(element22), 0.0);
 	}
 
+	@Test
+	public void testEvaluate() {
+		AndOrHighlightCondition c11or22 = new AndOrHighlightCondition(
+				Arrays.asList(Arrays.asList(equal11Condition, equal21Condition),
+						Arrays.asList(equal12Condition, equal22Condition)),
+				NAME, SHOW_IN_LEGEND, COLOR, INVISIBLE, USE_THICKNESS, LABEL_PROPERTY, SHAPE);
+		AndOrHighlightCondition c1 = new AndOrHighlightCondition(equal11Condition, NAME, SHOW_IN_LEGEND, COLOR,
+				INVISIBLE, USE_THICKNESS, LABEL_PROPERTY, SHAPE);
+		ElementColumns columns = new ElementColumns(Arrays.asList(element22, element21, element12, element11));
+
+		assertArrayEquals(new double[] { 1.0, 0.0, 0.0, 1.0 }, c11or22.evaluate(columns), 0.0);
+		assertArrayEquals(new double[] { 0.0, 0.0, 1.0, 1.0 }, c1.evaluate(columns), 0.0);
+		assertArrayEquals(new double[0], c11or22.evaluate(new ElementColumns(Arrays.asList())), 0.0);
+	}
+
 	@Test
 	public void testGetValueRange() {
 		assertEquals(new Point2D.Double(0.0, 1.0), new AndOrHighlightCondition().getValueRange(null));
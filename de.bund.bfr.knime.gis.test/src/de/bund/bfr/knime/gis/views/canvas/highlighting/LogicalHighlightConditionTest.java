@@ -19,6 +19,7 @@
  *******************************************************************************/
 package de.bund.bfr.knime.gis.views.canvas.highlighting;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
@@ -110,4 +111,25 @@ public class LogicalHighlightConditionTest {
 		assertEquals(1.0, regexNoCaseValues.get(value1Element), 0.0);
 		assertEquals(1.0, regexNoCaseValues.get(value2Element), 0.0);
 	}
+
+	@Test
+	public void testEvaluate() {
+		final String PROPERTY = "property";
+		LogicalHighlightCondition c = new LogicalHighlightCondition(PROPERTY,
+				LogicalHighlightCondition.Type.REGEX_EQUAL, "value.*");
+		ElementColumns columns = new ElementColumns(
+				Arrays.asList(new GraphNode(null, ImmutableMap.of(PROPERTY, "value1")),
+						new GraphNode(null, ImmutableMap.of(PROPERTY, "other")),
+						new GraphNode(null, ImmutableMap.of(PROPERTY, 1))));
+
+		assertArrayEquals(new double[] { 1.0, 0.0, 0.0 }, c.evaluate(columns), 0.0);
+
+		c.setValue("other");
+
+		assertArrayEquals(new double[] { 0.0, 1.0, 0.0 }, c.evaluate(columns), 0.0);
+
+		c.setType(LogicalHighlightCondition.Type.NOT_EQUAL);
+
+		assertArrayEquals(new double[] { 1.0, 0.0, 1.0 }, c.evaluate(columns), 0.0);
+	}
 }
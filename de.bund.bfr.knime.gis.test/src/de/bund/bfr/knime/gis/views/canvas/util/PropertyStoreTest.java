@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class PropertyStoreTest {
+
+	private static final Map<String, Class<?>> TYPES = ImmutableMap.of("double", Double.class, "int", Integer.class,
+			"boolean", Boolean.class, "string", String.class);
+
+	@Test
+	public void testNewRow() {
+		PropertyStore store = new PropertyStore(TYPES);
+		Map<String, Object> row1 = store.newRow();
+		Map<String, Object> row2 = store.newRow();
+
+		row1.put("double", 1.5);
+		row1.put("int", 2);
+		row1.put("boolean", true);
+		row1.put("string", "a");
+		row2.put("string", null);
+		row2.put("other", 'c');
+
+		Map<String, Object> expected1 = new LinkedHashMap<>();
+		Map<String, Object> expected2 = new LinkedHashMap<>();
+
+		expected1.put("double", 1.5);
+		expected1.put("int", 2);
+		expected1.put("boolean", true);
+		expected1.put("string", "a");
+		expected2.put("string", null);
+		expected2.put("other", 'c');
+
+		assertEquals(2, store.getRowCount());
+		assertEquals(expected1, row1);
+		assertEquals(expected2, row2);
+		assertEquals(expected1.hashCode(), row1.hashCode());
+		assertEquals(expected2.hashCode(), row2.hashCode());
+		assertEquals(expected1.toString(), row1.toString());
+		assertTrue(row2.containsKey("string"));
+		assertFalse(row2.containsKey("double"));
+		assertEquals(Arrays.asList("double", "int", "boolean", "string"), Arrays.asList(row1.keySet().toArray()));
+	}
+
+	@Test
+	public void testPutAndRemove() {
+		PropertyStore store = new PropertyStore(TYPES);
+		Map<String, Object> row1 = store.newRow();
+		Map<String, Object> row2 = store.newRow();
+
+		row1.put("double", 1.0);
+		assertEquals(1.0, row1.put("double", "not a double"));
+		row2.put("double", 2.0);
+
+		assertEquals("not a double", row1.get("double"));
+		assertEquals(2.0, row2.get("double"));
+		assertEquals(2.0, row2.remove("double"));
+		assertNull(row2.get("double"));
+		assertTrue(row2.isEmpty());
+
+		PropertyStore.putDouble(row2, "double", 3.0);
+		PropertyStore.putBoolean(row2, "boolean", true);
+		assertEquals(3.0, row2.get("double"));
+		assertEquals(true, row2.get("boolean"));
+
+		Iterator<Map.Entry<String, Object>> iterator = row2.entrySet().iterator();
+
+		iterator.next().setValue(4.0);
+		iterator.remove();
+		assertEquals(ImmutableMap.of("boolean", true), row2);
+	}
+
+	@Test
+	public void testCopy() {
+		PropertyStore store = new PropertyStore(TYPES);
+		PropertyStore copyStore = new PropertyStore(new LinkedHashMap<>());
+		Map<String, Object> row = store.newRow();
+
+		row.put("int", 1);
+		row.put("string", "a");
+
+		Map<String, Object> copy = copyStore.newRow(row);
+
+		copy.put("int", 2);
+		copy.put("other", 'c');
+		assertEquals(ImmutableMap.of("int", 1, "string", "a"), row);
+		assertEquals(ImmutableMap.of("int", 2, "string", "a", "other", 'c'), copy);
+		assertEquals(1, store.getRowCount());
+		assertEquals(1, copyStore.getRowCount());
+		assertEquals(ImmutableMap.of("a", 1), copyStore.newRow(ImmutableMap.of("a", 1)));
+	}
+
+	@Test
+	public void testCopyManyRows() {
+		PropertyStore store = new PropertyStore(TYPES);
+		PropertyStore copyStore = new PropertyStore(new LinkedHashMap<>());
+		List<Map<String, Object>> rows = new ArrayList<>();
+		List<Map<String, Object>> copies = new ArrayList<>();
+
+		for (int i = 0; i < 1000; i++) {
+			Map<String, Object> row = store.newRow();
+
+			row.put("double", i / 2.0);
+			row.put("boolean", i % 2 == 0);
+			row.put("string", i % 3 == 0 ? null : "s" + i % 5);
+			rows.add(row);
+		}
+
+		for (Map<String, Object> row : rows) {
+			copies.add(copyStore.newRow(row));
+		}
+
+		assertEquals(1000, store.getRowCount());
+		assertEquals(1000, copyStore.getRowCount());
+		assertEquals(rows, copies);
+		assertTrue(copyStore.isDictionaryEncoded("string"));
+
+		PropertyStore.putDouble(copies.get(7), "double", -1.0);
+		assertEquals(3.5, rows.get(7).get("double"));
+		assertEquals(-1.0, copies.get(7).get("double"));
+		assertEquals(Arrays.asList("double", "boolean", "string"), Arrays.asList(copies.get(1).keySet().toArray()));
+	}
+
+	@Test
+	public void testManyStrings() {
+		PropertyStore store = new PropertyStore(TYPES);
+		List<Map<String, Object>> rows = new ArrayList<>();
+
+		for (int i = 0; i < 1024; i++) {
+			Map<String, Object> row = store.newRow();
+
+			row.put("int", i);
+			row.put("string", String.valueOf(i));
+			rows.add(row);
+		}
+
+		assertTrue(store.isDictionaryEncoded("string"));
+
+		for (int i = 1024; i < 5000; i++) {
+			Map<String, Object> row = store.newRow();
+
+			row.put("int", i);
+			row.put("string", String.valueOf(i));
+			rows.add(row);
+		}
+
+		assertFalse(store.isDictionaryEncoded("string"));
+
+		for (int i = 0; i < rows.size(); i++) {
+			assertEquals(String.valueOf(i), rows.get(i).get("string"));
+			assertEquals(Arrays.asList("int", "string"), Arrays.asList(rows.get(i).keySet().toArray()));
+		}
+	}
+}
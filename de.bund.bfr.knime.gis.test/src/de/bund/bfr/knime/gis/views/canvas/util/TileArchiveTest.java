@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TileArchiveTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testPackAndRead() throws IOException {
+		File directory = folder.newFolder("tiles");
+		File file = new File(folder.getRoot(), "tiles.fcltiles");
+
+		writeTile(directory, "0/0/0.png", new byte[] { 1 });
+		writeTile(directory, "2/3/1.png", new byte[] { 2, 3 });
+		writeTile(directory, "2/1/3.tile", new byte[] { 4, 5, 6 });
+		writeTile(directory, "2/1/3.properties", new byte[] { 7 });
+		writeTile(directory, "2/5/0.png", new byte[] { 8 });
+
+		assertEquals(3, TileArchivePacker.pack(directory, file));
+
+		TileArchive archive = new TileArchive(file);
+
+		assertEquals(3, archive.getTileCount());
+		assertArrayEquals(new byte[] { 1 }, archive.getTile(0, 0, 0));
+		assertArrayEquals(new byte[] { 2, 3 }, archive.getTile(2, 3, 1));
+		assertArrayEquals(new byte[] { 4, 5, 6 }, archive.getTile(2, 1, 3));
+		assertNull(archive.getTile(2, 1, 1));
+		assertNull(archive.getTile(1, 0, 0));
+		assertNull(archive.getTile(2, 5, 0));
+		assertNull(archive.getTile(-1, 0, 0));
+	}
+
+	@Test(expected = IOException.class)
+	public void testNoArchive() throws IOException {
+		File file = folder.newFile();
+
+		Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+		new TileArchive(file);
+	}
+
+	private static void writeTile(File directory, String path, byte[] data) throws IOException {
+		File file = new File(directory, path);
+
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), data);
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TileDiskCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testPutAndGet() throws IOException {
+		TileDiskCache cache = new TileDiskCache(folder.getRoot());
+		byte[] data = { 1, 2, 3 };
+		long expires = System.currentTimeMillis() + 1000000;
+
+		assertNull(cache.get("Mapnik", 3, 1, 2));
+
+		cache.put("Mapnik", 3, 1, 2, data, "\"abc\"", expires);
+
+		TileDiskCache.Entry entry = cache.get("Mapnik", 3, 1, 2);
+
+		assertArrayEquals(data, entry.getData());
+		assertEquals("\"abc\"", entry.getETag());
+		assertEquals(expires, entry.getExpires());
+		assertFalse(entry.isExpired());
+		assertNull(cache.get("Mapnik", 3, 2, 1));
+		assertNull(cache.get("Bing", 3, 1, 2));
+		assertTrue(new File(folder.getRoot(), "Mapnik/3/1/2.tile").isFile());
+	}
+
+	@Test
+	public void testUpdateExpires() throws IOException {
+		TileDiskCache cache = new TileDiskCache(folder.getRoot());
+		byte[] data = { 4, 5 };
+
+		cache.put("Mapnik", 0, 0, 0, data, "x", 0);
+		assertTrue(cache.get("Mapnik", 0, 0, 0).isExpired());
+
+		long expires = System.currentTimeMillis() + 1000000;
+
+		cache.updateExpires("Mapnik", 0, 0, 0, expires);
+
+		TileDiskCache.Entry entry = cache.get("Mapnik", 0, 0, 0);
+
+		assertArrayEquals(data, entry.getData());
+		assertEquals("x", entry.getETag());
+		assertEquals(expires, entry.getExpires());
+		assertFalse(entry.isExpired());
+	}
+
+	@Test
+	public void testTileWithoutMetaData() throws IOException {
+		File tileFile = new File(folder.getRoot(), "Mapnik/1/0/1.tile");
+		byte[] data = { 6 };
+
+		tileFile.getParentFile().mkdirs();
+		Files.write(tileFile.toPath(), data);
+
+		TileDiskCache.Entry entry = new TileDiskCache(folder.getRoot()).get("Mapnik", 1, 0, 1);
+
+		assertArrayEquals(data, entry.getData());
+		assertNull(entry.getETag());
+		assertTrue(entry.isExpired());
+	}
+
+	@Test
+	public void testCleanUp() throws IOException {
+		TileDiskCache cache = new TileDiskCache(folder.getRoot(), 350);
+		byte[] data = new byte[100];
+
+		for (int y = 0; y < 3; y++) {
+			cache.put("Mapnik", 2, 0, y, data, null, 0);
+			Files.setLastModifiedTime(new File(folder.getRoot(), "Mapnik/2/0/" + y + ".tile").toPath(),
+					FileTime.fromMillis(1000 * (y + 1)));
+		}
+
+		assertArrayEquals(data, cache.get("Mapnik", 2, 0, 0).getData());
+
+		cache.put("Mapnik", 2, 0, 3, data, null, 0);
+
+		assertArrayEquals(data, cache.get("Mapnik", 2, 0, 0).getData());
+		assertNull(cache.get("Mapnik", 2, 0, 1));
+		assertNull(cache.get("Mapnik", 2, 0, 2));
+		assertArrayEquals(data, cache.get("Mapnik", 2, 0, 3).getData());
+		assertFalse(new File(folder.getRoot(), "Mapnik/2/0/1.properties").exists());
+	}
+}
@@ -49,6 +49,7 @@ import de.bund.bfr.knime.gis.views.canvas.element.GraphNode;
 import de.bund.bfr.knime.gis.views.canvas.element.LocationNode;
 import de.bund.bfr.knime.gis.views.canvas.element.Node;
 import de.bund.bfr.knime.gis.views.canvas.element.RegionNode;
+import de.bund.bfr.knime.gis.views.canvas.util.PropertyStore;
 
 public class ViewUtils {
 
@@ -129,11 +130,12 @@ public class ViewUtils {
 		}
 
 		Map<String, GraphNode> nodes = new LinkedHashMap<>();
+		PropertyStore store = new PropertyStore(nodeProperties);
 
 		for (DataRow row : nodeTable) {
 			String id = IO.getToCleanString(row.getCell(spec.findColumnIndex(nodeIdColumn)));
 			String region = null;
-			Map<String, Object> properties = new LinkedHashMap<>();
+			Map<String, Object> properties = store.newRow();
 
 			if (nodeRegionColumn != null) {
 				region = IO.getToCleanString(row.getCell(spec.findColumnIndex(nodeRegionColumn)));
@@ -234,6 +236,7 @@ public class ViewUtils {
 		}
 
 		Map<String, LocationNode> nodes = new LinkedHashMap<>();
+		PropertyStore store = new PropertyStore(nodeProperties);
 		int index = 0;
 
 		for (DataRow row : nodeTable) {
@@ -252,7 +255,7 @@ public class ViewUtils {
 				continue;
 			}
 
-			Map<String, Object> properties = new LinkedHashMap<>();
+			Map<String, Object> properties = store.newRow();
 
 			ViewUtils.addToProperties(properties, nodeProperties, nodeTable.getSpec(), row);
 			properties.put(nodeIdColumn, id);
@@ -273,6 +276,7 @@ public class ViewUtils {
 		edgeProperties.put(edgeToColumn, String.class);
 
 		List<Edge<V>> edges = new ArrayList<>();
+		PropertyStore store = new PropertyStore(edgeProperties);
 		int index = 0;
 
 		for (DataRow row : edgeTable) {
@@ -288,7 +292,7 @@ public class ViewUtils {
 			V node2 = nodes.get(to);
 
 			if (node1 != null && node2 != null) {
-				Map<String, Object> properties = new LinkedHashMap<>();
+				Map<String, Object> properties = store.newRow();
 
 				ViewUtils.addToProperties(properties, edgeProperties, edgeTable.getSpec(), row);
 				properties.put(edgeFromColumn, from);
@@ -25,6 +25,8 @@ import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
 import org.openstreetmap.gui.jmapviewer.tilesources.BingAerialTileSource;
 import org.openstreetmap.gui.jmapviewer.tilesources.OsmTileSource;
 
+import de.bund.bfr.knime.gis.views.canvas.util.ArchiveTileSource;
+
 public enum GisType {
 	SHAPEFILE("Shapefile", null),
 
@@ -32,7 +34,9 @@ public enum GisType {
 
 	CYCLE_MAP("Cycle Map", new OsmTileSource.CycleMap()),
 
-	BING_AERIAL("Bing Aerial", new BingAerialTileSource());
+	BING_AERIAL("Bing Aerial", new BingAerialTileSource()),
+
+	OFFLINE_ARCHIVE("Offline Archive", new ArchiveTileSource(ArchiveTileSource.getDefaultFile()));
 
 	private String name;
 	private TileSource tileSource;
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import de.bund.bfr.knime.gis.views.canvas.element.Edge;
+import de.bund.bfr.knime.gis.views.canvas.element.Node;
+
+/**
+ * Runs the stages of {@link ICanvas#applyChanges(ApplyStage)} and caches the
+ * nodes and edges, that are the result of each stage. Rerunning from a stage
+ * starts with the cached result of the stage before and the graph of the
+ * viewer is only recreated, if the resulting nodes or edges changed. Nodes,
+ * that were not in the graph before, are passed to
+ * {@link ICanvas#layoutNewNodes(Set)}.
+ */
+public class ApplyPipeline<V extends Node> {
+
+	private ICanvas<V> canvas;
+	private Map<ApplyStage, Runnable> stages;
+	private Map<ApplyStage, Set<V>> nodeResults;
+	private Map<ApplyStage, Set<Edge<V>>> edgeResults;
+	private Set<V> graphNodes;
+	private Set<Edge<V>> graphEdges;
+
+	public ApplyPipeline(ICanvas<V> canvas) {
+		this.canvas = canvas;
+		stages = new EnumMap<>(ApplyStage.class);
+		nodeResults = new EnumMap<>(ApplyStage.class);
+		edgeResults = new EnumMap<>(ApplyStage.class);
+		graphNodes = null;
+		graphEdges = null;
+	}
+
+	public void setStage(ApplyStage stage, Runnable action) {
+		stages.put(stage, action);
+		invalidate();
+	}
+
+	public void invalidate() {
+		nodeResults.clear();
+		edgeResults.clear();
+	}
+
+	public void apply(ApplyStage from) {
+		Set<String> selectedNodeIds = canvas.getSelectedNodeIds();
+		Set<String> selectedEdgeIds = canvas.getSelectedEdgeIds();
+		ApplyStage previous = from.previous();
+
+		if (previous != null && nodeResults.containsKey(previous)) {
+			canvas.getNodes().clear();
+			canvas.getNodes().addAll(nodeResults.get(previous));
+			canvas.getEdges().clear();
+			canvas.getEdges().addAll(edgeResults.get(previous));
+		} else {
+			from = ApplyStage.first();
+		}
+
+		for (ApplyStage stage : ApplyStage.values()) {
+			if (stage.compareTo(from) < 0) {
+				continue;
+			}
+
+			Runnable action = stages.get(stage);
+
+			if (action != null) {
+				action.run();
+			}
+
+			nodeResults.put(stage, ImmutableSet.copyOf(canvas.getNodes()));
+			edgeResults.put(stage, ImmutableSet.copyOf(canvas.getEdges()));
+		}
+
+		if (!canvas.getNodes().equals(graphNodes) || !canvas.getEdges().equals(graphEdges)) {
+			Set<V> oldNodes = graphNodes != null ? graphNodes
+					: ImmutableSet.copyOf(canvas.getViewer().getGraphLayout().getGraph().getVertices());
+			Set<V> newNodes = Sets.difference(canvas.getNodes(), oldNodes).immutableCopy();
+
+			canvas.getViewer().getGraphLayout()
+					.setGraph(CanvasUtils.createGraph(canvas.getViewer(), canvas.getNodes(), canvas.getEdges()));
+			graphNodes = ImmutableSet.copyOf(canvas.getNodes());
+			graphEdges = ImmutableSet.copyOf(canvas.getEdges());
+
+			if (!newNodes.isEmpty()) {
+				canvas.layoutNewNodes(newNodes);
+			}
+		}
+
+		canvas.setSelectedNodeIdsWithoutListener(selectedNodeIds);
+		canvas.setSelectedEdgeIdsWithoutListener(selectedEdgeIds);
+		canvas.getViewer().repaint();
+	}
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas;
+
+/**
+ * Stages of {@link ICanvas#applyChanges(ApplyStage)} in the order, in which
+ * they are run. A change only has to rerun its own stage and the stages after
+ * it.
+ */
+public enum ApplyStage {
+
+	/** All nodes and edges, restricted to the ones in the current time window */
+	NODES_AND_EDGES,
+
+	NODE_COLLAPSE,
+
+	INVISIBILITY,
+
+	JOIN_EDGES_AND_SKIP_EDGELESS,
+
+	/** Properties derived from the visible network (e.g. tracing results) */
+	DERIVED_PROPERTIES,
+
+	SHOW_EDGES_IN_META_NODE,
+
+	HIGHLIGHTS;
+
+	public static ApplyStage first() {
+		return values()[0];
+	}
+
+	public ApplyStage previous() {
+		return this != first() ? values()[ordinal() - 1] : null;
+	}
+}
@@ -126,6 +126,7 @@ public abstract class Canvas<V extends Node> extends JPanel
 
 	private CanvasOptionsPanel optionsPanel;
 	private CanvasPopupMenu popup;
+	private ApplyPipeline<V> pipeline;
 
 	public Canvas(List<V> nodes, List<Edge<V>> edges, NodePropertySchema nodeSchema, EdgePropertySchema edgeSchema,
 			Naming naming) {
@@ -154,6 +155,14 @@ public abstract class Canvas<V extends Node> extends JPanel
 		viewer.addPostRenderPaintable(createZoomingPaintable());
 		viewer.getGraphLayout().setGraph(CanvasUtils.createGraph(viewer, this.nodes, this.edges));
 
+		pipeline = new ApplyPipeline<>(this);
+		pipeline.setStage(ApplyStage.NODES_AND_EDGES, this::resetNodesAndEdges);
+		pipeline.setStage(ApplyStage.NODE_COLLAPSE, this::applyNodeCollapse);
+		pipeline.setStage(ApplyStage.INVISIBILITY, this::applyInvisibility);
+		pipeline.setStage(ApplyStage.JOIN_EDGES_AND_SKIP_EDGELESS, this::applyJoinEdgesAndSkipEdgeless);
+		pipeline.setStage(ApplyStage.SHOW_EDGES_IN_META_NODE, this::applyShowEdgesInMetaNode);
+		pipeline.setStage(ApplyStage.HIGHLIGHTS, this::applyHighlights);
+
 		RenderContext<V, Edge<V>> rc = viewer.getRenderContext();
 
 		rc.setEdgeShapeTransformer(new BetterEdgeShapeTransformer<>(CanvasOptionsPanel.DEFAULT_FONT_SIZE));
@@ -450,8 +459,10 @@ public abstract class Canvas<V extends Node> extends JPanel
 
 	@Override
 	public void setNodeHighlightConditions(HighlightConditionList nodeHighlightConditions) {
+		ApplyStage from = CanvasUtils.getHighlightStage(this.nodeHighlightConditions, nodeHighlightConditions);
+
 		this.nodeHighlightConditions = nodeHighlightConditions;
-		applyChanges();
+		applyChanges(from);
 		call(l -> l.nodeHighlightingChanged(this));
 	}
 
@@ -462,17 +473,22 @@ public abstract class Canvas<V extends Node> extends JPanel
 
 	@Override
 	public void setEdgeHighlightConditions(HighlightConditionList edgeHighlightConditions) {
+		ApplyStage from = CanvasUtils.getHighlightStage(this.edgeHighlightConditions, edgeHighlightConditions);
+
 		this.edgeHighlightConditions = edgeHighlightConditions;
-		applyChanges();
+		applyChanges(from);
 		call(l -> l.edgeHighlightingChanged(this));
 	}
 
 	@Override
 	public void setHighlightConditions(HighlightConditionList nodeHighlightConditions,
 			HighlightConditionList edgeHighlightConditions) {
+		ApplyStage nodeFrom = CanvasUtils.getHighlightStage(this.nodeHighlightConditions, nodeHighlightConditions);
+		ApplyStage edgeFrom = CanvasUtils.getHighlightStage(this.edgeHighlightConditions, edgeHighlightConditions);
+
 		this.nodeHighlightConditions = nodeHighlightConditions;
 		this.edgeHighlightConditions = edgeHighlightConditions;
-		applyChanges();
+		applyChanges(nodeFrom.compareTo(edgeFrom) < 0 ? nodeFrom : edgeFrom);
 		call(l -> l.highlightingChanged(this));
 	}
 
@@ -485,7 +501,7 @@ public abstract class Canvas<V extends Node> extends JPanel
 	public void setCollapsedNodes(Map<String, Set<String>> collapsedNodes) {
 		Sets.difference(this.collapsedNodes.keySet(), collapsedNodes.keySet()).forEach(id -> nodeSaveMap.remove(id));
 		this.collapsedNodes = collapsedNodes;
-		applyChanges();
+		applyChanges(ApplyStage.NODE_COLLAPSE);
 		call(l -> l.collapsedNodesChanged(this));
 	}
 
@@ -846,7 +862,7 @@ public abstract class Canvas<V extends Node> extends JPanel
 		}
 
 		collapsedNodes.put(newId, selectedIds);
-		applyChanges();
+		applyChanges(ApplyStage.NODE_COLLAPSE);
 		setSelectedNodeIdsWithoutListener(new LinkedHashSet<>(Arrays.asList(newId)));
 		call(l -> l.collapsedNodesAndPickingChanged(this));
 	}
@@ -867,7 +883,7 @@ public abstract class Canvas<V extends Node> extends JPanel
 			nodeSaveMap.remove(id);
 		}
 
-		applyChanges();
+		applyChanges(ApplyStage.NODE_COLLAPSE);
 		setSelectedNodeIdsWithoutListener(newIds);
 		call(l -> l.collapsedNodesAndPickingChanged(this));
 	}
@@ -948,7 +964,7 @@ public abstract class Canvas<V extends Node> extends JPanel
 			newCollapsedIds.add(newId);
 		});
 
-		applyChanges();
+		applyChanges(ApplyStage.NODE_COLLAPSE);
 		setSelectedNodeIdsWithoutListener(newCollapsedIds);
 		call(l -> l.collapsedNodesAndPickingChanged(this));
 	}
@@ -957,7 +973,7 @@ public abstract class Canvas<V extends Node> extends JPanel
 	public void clearCollapsedNodesItemClicked() {
 		nodeSaveMap.keySet().removeAll(collapsedNodes.keySet());
 		collapsedNodes.clear();
-		applyChanges();
+		applyChanges(ApplyStage.NODE_COLLAPSE);
 		popup.setNodeSelectionEnabled(false);
 		call(l -> l.collapsedNodesAndPickingChanged(this));
 	}
@@ -976,19 +992,19 @@ public abstract class Canvas<V extends Node> extends JPanel
 
 	@Override
 	public void joinEdgesChanged() {
-		applyChanges();
+		applyChanges(ApplyStage.JOIN_EDGES_AND_SKIP_EDGELESS);
 		call(l -> l.edgeJoinChanged(this));
 	}
 
 	@Override
 	public void skipEdgelessNodesChanged() {
-		applyChanges();
+		applyChanges(ApplyStage.JOIN_EDGES_AND_SKIP_EDGELESS);
 		call(l -> l.skipEdgelessChanged(this));
 	}
 
 	@Override
 	public void showEdgesInMetaNodeChanged() {
-		applyChanges();
+		applyChanges(ApplyStage.SHOW_EDGES_IN_META_NODE);
 		call(l -> l.showEdgesInMetaNodeChanged(this));
 	}
 
@@ -1005,13 +1021,13 @@ public abstract class Canvas<V extends Node> extends JPanel
 
 	@Override
 	public void nodeSizeChanged() {
-		applyChanges();
+		applyChanges(ApplyStage.HIGHLIGHTS);
 		call(l -> l.nodeSizeChanged(this));
 	}
 
 	@Override
 	public void edgeThicknessChanged() {
-		applyChanges();
+		applyChanges(ApplyStage.HIGHLIGHTS);
 		call(l -> l.edgeThicknessChanged(this));
 	}
 
@@ -1088,20 +1104,12 @@ public abstract class Canvas<V extends Node> extends JPanel
 
 	@Override
 	public void applyChanges() {
-		Set<String> selectedNodeIds = getSelectedNodeIds();
-		Set<String> selectedEdgeIds = getSelectedEdgeIds();
-
-		resetNodesAndEdges();
-		applyNodeCollapse();
-		applyInvisibility();
-		applyJoinEdgesAndSkipEdgeless();
-		applyShowEdgesInMetaNode();
-		applyHighlights();
-		viewer.getGraphLayout().setGraph(CanvasUtils.createGraph(viewer, nodes, edges));
-
-		setSelectedNodeIdsWithoutListener(selectedNodeIds);
-		setSelectedEdgeIdsWithoutListener(selectedEdgeIds);
-		viewer.repaint();
+		applyChanges(ApplyStage.first());
+	}
+
+	@Override
+	public void applyChanges(ApplyStage from) {
+		pipeline.apply(from);
 	}
 
 	@Override
@@ -1196,6 +1204,10 @@ public abstract class Canvas<V extends Node> extends JPanel
 		}
 	}
 
+	@Override
+	public void layoutNewNodes(Set<V> newNodes) {
+	}
+
 	protected Map<String, Point2D> getNodePositions(Collection<V> nodes) {
 		Map<String, Point2D> map = new LinkedHashMap<>();
 		Layout<V, Edge<V>> layout = viewer.getGraphLayout();
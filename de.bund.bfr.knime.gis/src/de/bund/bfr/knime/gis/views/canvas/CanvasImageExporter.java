@@ -0,0 +1,352 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.imageio.ImageIO;
+
+import org.apache.batik.dom.svg.SVGDOMImplementation;
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.svggen.SVGGraphics2D;
+import org.apache.batik.svggen.SVGIDGenerator;
+import org.apache.batik.svggen.SVGSyntax;
+import org.knime.base.data.xml.SvgCell;
+import org.knime.base.data.xml.SvgImageContent;
+import org.knime.core.data.image.png.PNGImageContent;
+import org.knime.core.node.port.image.ImagePortObject;
+import org.knime.core.node.port.image.ImagePortObjectSpec;
+import org.w3c.dom.Element;
+import org.w3c.dom.svg.SVGDocument;
+
+/**
+ * Exports several images, that consist of canvases placed side by side, in one
+ * pass. Each canvas is rendered only once into an off-screen image or SVG
+ * document, even if it is part of several images, and different canvases are
+ * rendered concurrently. The images are then combined from these layers. The
+ * execution time and the allocated memory of each image are collected in
+ * {@link #getStatistics()}.
+ */
+public class CanvasImageExporter {
+
+	private static final ExecutorService EXECUTOR = Executors
+			.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+				Thread thread = new Thread(r, "Image Export");
+
+				thread.setDaemon(true);
+
+				return thread;
+			});
+
+	private boolean asSvg;
+	private List<Image> images;
+	private List<String> statistics;
+
+	public CanvasImageExporter(boolean asSvg) {
+		this.asSvg = asSvg;
+		images = new ArrayList<>();
+		statistics = new ArrayList<>();
+	}
+
+	/**
+	 * Adds an image, that shows the canvases side by side. Without canvases the
+	 * image is empty.
+	 */
+	public void addImage(String name, ICanvas<?>... canvas) {
+		images.add(new Image(name, Arrays.asList(canvas)));
+	}
+
+	/**
+	 * Returns the images in the order, in which they were added.
+	 */
+	public List<ImagePortObject> export() throws IOException {
+		long start = System.nanoTime();
+		List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+				.filter(p -> p.getType() == MemoryType.HEAP).collect(Collectors.toList());
+		Map<ICanvas<?>, CompletableFuture<Layer>> layers = new LinkedHashMap<>();
+		List<CompletableFuture<ImagePortObject>> results = new ArrayList<>();
+
+		heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+		for (Image image : images) {
+			for (ICanvas<?> c : image.canvas) {
+				if (!layers.containsKey(c)) {
+					String idPrefix = "canvas" + layers.size() + "_";
+
+					layers.put(c, CompletableFuture.supplyAsync(() -> renderLayer(c, idPrefix), EXECUTOR));
+				}
+			}
+		}
+
+		try {
+			for (Image image : images) {
+				CompletableFuture<Void> rendered = CompletableFuture
+						.allOf(image.canvas.stream().map(layers::get).toArray(CompletableFuture<?>[]::new));
+
+				if (asSvg) {
+					// Batik documents are not thread safe, so the SVG images are combined one after
+					// another
+					rendered.join();
+					results.add(CompletableFuture.completedFuture(createSvgImage(image, layers, start)));
+				} else {
+					results.add(rendered.thenApplyAsync(v -> createPngImage(image, layers, start), EXECUTOR));
+				}
+			}
+
+			List<ImagePortObject> exported = results.stream().map(CompletableFuture::join)
+					.collect(Collectors.toList());
+
+			statistics.clear();
+			images.forEach(i -> statistics.add(i.getStatistics()));
+			statistics.add("Peak heap usage: " + formatBytes(heapPools.stream()
+					.mapToLong(p -> p.getPeakUsage() != null ? p.getPeakUsage().getUsed() : 0).sum()));
+
+			return exported;
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns one line for each image of the last export and one for the peak
+	 * heap usage during the export. Since the images are exported concurrently,
+	 * only the allocated memory can be attributed to single images.
+	 */
+	public List<String> getStatistics() {
+		return statistics;
+	}
+
+	private Layer renderLayer(ICanvas<?> canvas, String idPrefix) {
+		long allocated = getAllocatedBytes();
+		Dimension size = new Dimension(Math.max(canvas.getCanvasSize().width, 1),
+				Math.max(canvas.getCanvasSize().height, 1));
+		Layer layer = new Layer();
+
+		if (asSvg) {
+			SVGDocument document = createSvgDocument();
+			SVGGeneratorContext context = SVGGeneratorContext.createDefault(document);
+
+			// ids must be unique, when the layer is combined with others
+			context.setIDGenerator(new SVGIDGenerator() {
+
+				@Override
+				public String generateID(String prefix) {
+					return super.generateID(idPrefix + prefix);
+				}
+			});
+
+			SVGGraphics2D g = new SVGGraphics2D(context, false);
+
+			g.setSVGCanvasSize(size);
+			canvas.getVisualizationServer(true).paint(g);
+			g.dispose();
+			document.replaceChild(g.getRoot(), document.getDocumentElement());
+
+			Element genericDefs = document.getElementById(SVGSyntax.ID_PREFIX_GENERIC_DEFS);
+
+			if (genericDefs != null) {
+				genericDefs.setAttribute("id", idPrefix + SVGSyntax.ID_PREFIX_GENERIC_DEFS);
+			}
+
+			layer.document = document;
+		} else {
+			BufferedImage img = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = img.createGraphics();
+
+			canvas.getVisualizationServer(false).paint(g);
+			g.dispose();
+			layer.image = img;
+		}
+
+		layer.allocatedBytes = getAllocatedBytesSince(allocated);
+
+		return layer;
+	}
+
+	private ImagePortObject createPngImage(Image image, Map<ICanvas<?>, CompletableFuture<Layer>> layers,
+			long start) {
+		long allocated = getAllocatedBytes();
+		BufferedImage img;
+
+		if (image.canvas.size() == 1) {
+			img = layers.get(image.canvas.get(0)).join().image;
+		} else {
+			Dimension size = getSize(image.canvas);
+
+			img = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+
+			Graphics2D g = img.createGraphics();
+			int x = 0;
+
+			for (ICanvas<?> c : image.canvas) {
+				g.drawImage(layers.get(c).join().image, x, 0, null);
+				x += c.getCanvasSize().width;
+			}
+
+			g.dispose();
+		}
+
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			ImageIO.write(img, "png", out);
+			image.finished(layers, getAllocatedBytesSince(allocated), start);
+
+			return new ImagePortObject(new PNGImageContent(out.toByteArray()),
+					new ImagePortObjectSpec(PNGImageContent.TYPE));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private ImagePortObject createSvgImage(Image image, Map<ICanvas<?>, CompletableFuture<Layer>> layers,
+			long start) {
+		long allocated = getAllocatedBytes();
+		SVGDocument document;
+
+		if (image.canvas.size() == 1) {
+			document = layers.get(image.canvas.get(0)).join().document;
+		} else {
+			document = createSvgDocument();
+
+			SVGGraphics2D g = new SVGGraphics2D(document);
+
+			g.setSVGCanvasSize(getSize(image.canvas));
+
+			Element root = g.getRoot();
+			int x = 0;
+
+			// each layer is nested as svg element, which has its own coordinate system and clip
+			for (ICanvas<?> c : image.canvas) {
+				Element layerRoot = (Element) document
+						.importNode(layers.get(c).join().document.getDocumentElement(), true);
+
+				layerRoot.setAttribute("x", String.valueOf(x));
+				root.appendChild(layerRoot);
+				x += c.getCanvasSize().width;
+			}
+
+			g.dispose();
+			document.replaceChild(root, document.getDocumentElement());
+		}
+
+		image.finished(layers, getAllocatedBytesSince(allocated), start);
+
+		return new ImagePortObject(new SvgImageContent(document), new ImagePortObjectSpec(SvgCell.TYPE));
+	}
+
+	private static SVGDocument createSvgDocument() {
+		return (SVGDocument) new SVGDOMImplementation().createDocument(null, "svg", null);
+	}
+
+	private static Dimension getSize(List<ICanvas<?>> canvas) {
+		return new Dimension(Math.max(canvas.stream().mapToInt(c -> c.getCanvasSize().width).sum(), 1),
+				Math.max(canvas.stream().mapToInt(c -> c.getCanvasSize().height).max().orElse(1), 1));
+	}
+
+	/**
+	 * Returns the bytes allocated by the current thread so far or -1, if the JVM
+	 * does not support it.
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+
+		return -1;
+	}
+
+	private static long getAllocatedBytesSince(long allocated) {
+		return allocated >= 0 ? getAllocatedBytes() - allocated : -1;
+	}
+
+	private static String formatBytes(long bytes) {
+		return String.format(Locale.US, "%.1f MB", bytes / (1024.0 * 1024.0));
+	}
+
+	private static class Layer {
+
+		private BufferedImage image;
+		private SVGDocument document;
+		private long allocatedBytes;
+	}
+
+	private static class Image {
+
+		private String name;
+		private List<ICanvas<?>> canvas;
+		private long time;
+		private long allocatedBytes;
+
+		public Image(String name, List<ICanvas<?>> canvas) {
+			this.name = name;
+			this.canvas = canvas;
+			time = 0;
+			allocatedBytes = 0;
+		}
+
+		public void finished(Map<ICanvas<?>, CompletableFuture<Layer>> layers, long combineAllocatedBytes,
+				long start) {
+			time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			allocatedBytes = combineAllocatedBytes;
+
+			for (ICanvas<?> c : canvas) {
+				long layerAllocatedBytes = layers.get(c).join().allocatedBytes;
+
+				allocatedBytes = layerAllocatedBytes >= 0 && allocatedBytes >= 0
+						? allocatedBytes + layerAllocatedBytes : -1;
+			}
+		}
+
+		public String getStatistics() {
+			return name + " image: " + time + " ms"
+					+ (allocatedBytes >= 0 ? ", " + formatBytes(allocatedBytes) + " allocated" : "");
+		}
+	}
+}
@@ -36,7 +36,6 @@ import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -60,9 +59,9 @@ import org.knime.core.node.port.image.ImagePortObjectSpec;
 import org.w3c.dom.svg.SVGDocument;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.ArrayListMultimap;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.LinkedHashMultimap;
-import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
@@ -77,6 +76,7 @@ import de.bund.bfr.knime.gis.views.canvas.element.Edge;
 import de.bund.bfr.knime.gis.views.canvas.element.Element;
 import de.bund.bfr.knime.gis.views.canvas.element.Node;
 import de.bund.bfr.knime.gis.views.canvas.highlighting.AndOrHighlightCondition;
+import de.bund.bfr.knime.gis.views.canvas.highlighting.ElementColumns;
 import de.bund.bfr.knime.gis.views.canvas.highlighting.HighlightCondition;
 import de.bund.bfr.knime.gis.views.canvas.highlighting.HighlightConditionList;
 import de.bund.bfr.knime.gis.views.canvas.highlighting.LogicalHighlightCondition;
@@ -85,6 +85,7 @@ import de.bund.bfr.knime.gis.views.canvas.highlighting.ValueHighlightCondition;
 import de.bund.bfr.knime.gis.views.canvas.util.EdgePropertySchema;
 import de.bund.bfr.knime.gis.views.canvas.util.NodePropertySchema;
 import de.bund.bfr.knime.gis.views.canvas.util.PropertySchema;
+import de.bund.bfr.knime.gis.views.canvas.util.PropertyStore;
 import de.bund.bfr.knime.gis.views.canvas.util.Transform;
 import edu.uci.ics.jung.graph.Graph;
 import edu.uci.ics.jung.graph.util.Context;
@@ -95,6 +96,7 @@ public class CanvasUtils {
 
 	private static final int NODE_TEXTURE_SIZE = 3;
 	private static final int EDGE_TEXTURE_SIZE = 5;
+	private static final int MAX_TEXTURE_PAINTS = 1000;
 	private static final Color[] COLORS = new Color[] { new Color(255, 85, 85), new Color(85, 85, 255),
 			new Color(85, 255, 85), new Color(255, 85, 255), new Color(85, 255, 255), new Color(255, 175, 175),
 			new Color(128, 128, 128), new Color(192, 0, 0), new Color(0, 0, 192), new Color(0, 192, 0),
@@ -105,6 +107,9 @@ public class CanvasUtils {
 			new Color(255, 128, 128), new Color(128, 128, 255), new Color(128, 255, 128), new Color(255, 128, 255),
 			new Color(128, 255, 255) };
 
+	private static final Cache<TextureKey, TexturePaint> TEXTURE_PAINTS = CacheBuilder.newBuilder()
+			.maximumSize(MAX_TEXTURE_PAINTS).build();
+
 	private CanvasUtils() {
 	}
 
@@ -165,16 +170,19 @@ public class CanvasUtils {
 	public static <V extends Node> void copyNodesAndEdges(Collection<V> nodes, Collection<Edge<V>> edges,
 			Collection<V> newNodes, Collection<Edge<V>> newEdges) {
 		Map<String, V> nodesById = new LinkedHashMap<>();
+		// all copies are rows of two stores, since nodes and edges have different properties
+		PropertyStore nodeStore = new PropertyStore(new LinkedHashMap<>());
+		PropertyStore edgeStore = new PropertyStore(new LinkedHashMap<>());
 
 		for (V node : nodes) {
-			V newNode = (V) node.copy();
+			V newNode = (V) node.copy(nodeStore);
 
 			nodesById.put(node.getId(), newNode);
 			newNodes.add(newNode);
 		}
 
 		for (Edge<V> edge : edges) {
-			newEdges.add(new Edge<>(edge.getId(), new LinkedHashMap<>(edge.getProperties()),
+			newEdges.add(new Edge<>(edge.getId(), edgeStore.newRow(edge.getProperties()),
 					nodesById.get(edge.getFrom().getId()), nodesById.get(edge.getTo().getId())));
 		}
 	}
@@ -279,11 +287,18 @@ public class CanvasUtils {
 
 	public static <T extends Element> Set<T> getHighlightedElements(Collection<T> elements,
 			List<HighlightCondition> highlightConditions) {
+		List<T> elementList = new ArrayList<>(elements);
+		ElementColumns columns = new ElementColumns(elementList);
 		Set<T> highlightedElements = new LinkedHashSet<>();
 
 		for (HighlightCondition condition : highlightConditions) {
-			condition.getValues(elements).entrySet().stream().filter(e -> e.getValue() != 0.0)
-					.forEach(e -> highlightedElements.add(e.getKey()));
+			double[] values = condition.evaluate(columns);
+
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] != 0.0) {
+					highlightedElements.add(elementList.get(i));
+				}
+			}
 		}
 
 		return highlightedElements;
@@ -428,26 +443,17 @@ public class CanvasUtils {
 			return cs.get(0);
 		}
 
-		BufferedImage img;
-		int size = cs.size() * (checkedInsteadOfStriped ? EDGE_TEXTURE_SIZE : NODE_TEXTURE_SIZE);
-
-		if (checkedInsteadOfStriped) {
-			img = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
-
-			for (int x = 0; x < size; x++) {
-				for (int y = 0; y < size; y++) {
-					img.setRGB(x, y, cs.get((x / EDGE_TEXTURE_SIZE + y / EDGE_TEXTURE_SIZE) % cs.size()).getRGB());
-				}
-			}
-		} else {
-			img = new BufferedImage(size, 1, BufferedImage.TYPE_INT_ARGB);
+		// the mixed colors are quantized to 8 bit per channel, so that there are only
+		// few different textures, which can be shared by all elements
+		TextureKey key = new TextureKey(cs.stream().mapToInt(Color::getRGB).toArray(), checkedInsteadOfStriped);
+		TexturePaint paint = TEXTURE_PAINTS.getIfPresent(key);
 
-			for (int x = 0; x < size; x++) {
-				img.setRGB(x, 0, cs.get(x / NODE_TEXTURE_SIZE).getRGB());
-			}
+		if (paint == null) {
+			paint = createTexturePaint(key.colors, checkedInsteadOfStriped);
+			TEXTURE_PAINTS.put(key, paint);
 		}
 
-		return new TexturePaint(img, new Rectangle(img.getWidth(), img.getHeight()));
+		return paint;
 	}
 
 	public static void drawImageWithAlpha(Graphics2D g, BufferedImage img, int alpha) {
@@ -457,17 +463,55 @@ public class CanvasUtils {
 		g.drawImage(img, new RescaleOp(edgeScales, edgeOffsets, null), 0, 0);
 	}
 
+	/**
+	 * Returns the first stage, that has to be rerun, when the highlight conditions
+	 * are replaced. Only invisible conditions change which elements are visible.
+	 */
+	public static ApplyStage getHighlightStage(HighlightConditionList oldConditions,
+			HighlightConditionList newConditions) {
+		if (oldConditions != newConditions
+				&& getInvisibleConditions(oldConditions).equals(getInvisibleConditions(newConditions))) {
+			return ApplyStage.HIGHLIGHTS;
+		}
+
+		return ApplyStage.INVISIBILITY;
+	}
+
+	private static List<HighlightCondition> getInvisibleConditions(HighlightConditionList highlightConditions) {
+		return highlightConditions.getConditions().stream().filter(HighlightCondition::isInvisible)
+				.collect(Collectors.toList());
+	}
+
 	public static <T extends Element> Set<T> removeInvisibleElements(Set<T> elements,
 			HighlightConditionList highlightConditions) {
 		Set<T> removed = new LinkedHashSet<>();
+		List<T> remaining = new ArrayList<>(elements);
+		ElementColumns columns = new ElementColumns(remaining);
 
-		highlightConditions.getConditions().stream().filter(c -> c.isInvisible()).forEach(c -> {
-			Set<T> toRemove = c.getValues(elements).entrySet().stream().filter(e -> e.getValue() != 0.0)
-					.map(e -> e.getKey()).collect(Collectors.toCollection(LinkedHashSet::new));
+		// each condition is evaluated on the elements, that are still visible
+		for (HighlightCondition condition : highlightConditions.getConditions()) {
+			if (!condition.isInvisible()) {
+				continue;
+			}
 
-			elements.removeAll(toRemove);
-			removed.addAll(toRemove);
-		});
+			double[] values = condition.evaluate(columns);
+			List<T> visible = new ArrayList<>();
+
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] != 0.0) {
+					removed.add(remaining.get(i));
+				} else {
+					visible.add(remaining.get(i));
+				}
+			}
+
+			if (visible.size() < remaining.size()) {
+				remaining = visible;
+				columns = new ElementColumns(remaining);
+			}
+		}
+
+		elements.removeAll(removed);
 
 		return removed;
 	}
@@ -575,64 +619,83 @@ public class CanvasUtils {
 
 	private static <E extends Element> HighlightResult<E> getResult(Collection<E> elements,
 			HighlightConditionList highlightConditions) {
+		List<E> elementList = new ArrayList<>(elements);
+		ElementColumns columns = new ElementColumns(elementList);
+		int n = elementList.size();
 		List<Color> colorList = new ArrayList<>();
-		ListMultimap<E, Double> alphaValues = ArrayListMultimap.create();
-		Map<E, Double> thicknessValues = new LinkedHashMap<>();
+		List<double[]> alphaColumns = new ArrayList<>();
+		boolean[] colored = new boolean[n];
+		double[] thicknesses = new double[n];
 		SetMultimap<E, String> labelLists = LinkedHashMultimap.create();
 		Map<E, NamedShape> shapes = new LinkedHashMap<>();
 
-		elements.forEach(e -> thicknessValues.put(e, 0.0));
-
 		for (HighlightCondition condition : highlightConditions.getConditions()) {
 			if (condition.isInvisible()) {
 				continue;
 			}
 
-			Map<E, Double> values = condition.getValues(elements);
+			double[] values = condition.evaluate(columns);
 
 			if (condition.getColor() != null) {
-				colorList.add(condition.getColor());
-
-				for (E e : elements) {
-					List<Double> alphas = alphaValues.get(e);
+				double[] alphas = new double[n];
 
-					if (!highlightConditions.isPrioritizeColors() || alphas.isEmpty()
-							|| Collections.max(alphas) == 0.0) {
-						alphas.add(values.get(e));
-					} else {
-						alphas.add(0.0);
+				for (int i = 0; i < n; i++) {
+					if (!highlightConditions.isPrioritizeColors() || !colored[i]) {
+						alphas[i] = values[i];
+						colored[i] |= values[i] > 0.0;
 					}
 				}
+
+				colorList.add(condition.getColor());
+				alphaColumns.add(alphas);
 			}
 
 			if (condition.isUseThickness()) {
-				elements.forEach(e -> thicknessValues.put(e, thicknessValues.get(e) + values.get(e)));
+				for (int i = 0; i < n; i++) {
+					thicknesses[i] += values[i];
+				}
 			}
 
 			if (condition.getLabelProperty() != null) {
-				String property = condition.getLabelProperty();
+				Object[] labelColumn = columns.getColumn(condition.getLabelProperty());
 
-				for (E e : elements) {
-					if (values.get(e) != 0.0 && e.getProperties().get(property) != null) {
-						labelLists.put(e, toString(e.getProperties().get(property)));
+				for (int i = 0; i < n; i++) {
+					if (values[i] != 0.0 && labelColumn[i] != null) {
+						labelLists.put(elementList.get(i), toString(labelColumn[i]));
 					}
 				}
 			}
 
 			if (condition.getShape() != null) {
-				for (E e : elements) {
-					if (values.get(e) != 0.0 && !shapes.containsKey(e)) {
-						shapes.put(e, condition.getShape());
+				for (int i = 0; i < n; i++) {
+					if (values[i] != 0.0) {
+						shapes.putIfAbsent(elementList.get(i), condition.getShape());
 					}
 				}
 			}
 		}
 
 		Map<E, Paint> colors = new LinkedHashMap<>();
+		Map<E, Double> thicknessValues = new LinkedHashMap<>();
 		Map<E, String> labels = new LinkedHashMap<>();
 
-		Multimaps.asMap(alphaValues).forEach((e, alphas) -> colors.put(e, CanvasUtils
-				.mixColors(e instanceof Edge ? Color.BLACK : Color.WHITE, colorList, alphas, e instanceof Edge)));
+		for (int i = 0; i < n; i++) {
+			E e = elementList.get(i);
+
+			if (!colorList.isEmpty()) {
+				List<Double> alphas = new ArrayList<>(alphaColumns.size());
+
+				for (double[] alphaColumn : alphaColumns) {
+					alphas.add(alphaColumn[i]);
+				}
+
+				colors.put(e, CanvasUtils.mixColors(e instanceof Edge ? Color.BLACK : Color.WHITE, colorList, alphas,
+						e instanceof Edge));
+			}
+
+			thicknessValues.put(e, thicknesses[i]);
+		}
+
 		Multimaps.asMap(labelLists).forEach((e, labelList) -> labels.put(e, Joiner.on("/").join(labelList)));
 
 		HighlightResult<E> result = new HighlightResult<>();
@@ -645,6 +708,26 @@ public class CanvasUtils {
 		return result;
 	}
 
+	private static TexturePaint createTexturePaint(int[] colors, boolean checkedInsteadOfStriped) {
+		int n = colors.length;
+		int width = n * (checkedInsteadOfStriped ? EDGE_TEXTURE_SIZE : NODE_TEXTURE_SIZE);
+		int height = checkedInsteadOfStriped ? width : 1;
+		int[] pixels = new int[width * height];
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				pixels[y * width + x] = checkedInsteadOfStriped
+						? colors[(x / EDGE_TEXTURE_SIZE + y / EDGE_TEXTURE_SIZE) % n] : colors[x / NODE_TEXTURE_SIZE];
+			}
+		}
+
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+		img.getRaster().setDataElements(0, 0, width, height, pixels);
+
+		return new TexturePaint(img, new Rectangle(width, height));
+	}
+
 	private static class HighlightResult<E extends Element> {
 
 		private Map<E, Paint> colors;
@@ -652,4 +735,35 @@ public class CanvasUtils {
 		private Map<E, String> labels;
 		private Map<E, NamedShape> shapes;
 	}
+
+	private static final class TextureKey {
+
+		private int[] colors;
+		private boolean checkedInsteadOfStriped;
+
+		public TextureKey(int[] colors, boolean checkedInsteadOfStriped) {
+			this.colors = colors;
+			this.checkedInsteadOfStriped = checkedInsteadOfStriped;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Arrays.hashCode(colors) + Boolean.hashCode(checkedInsteadOfStriped);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			if (obj == null || obj.getClass() != getClass()) {
+				return false;
+			}
+
+			TextureKey other = (TextureKey) obj;
+
+			return Arrays.equals(colors, other.colors) && checkedInsteadOfStriped == other.checkedInsteadOfStriped;
+		}
+	}
 }
@@ -19,9 +19,9 @@
  *******************************************************************************/
 package de.bund.bfr.knime.gis.views.canvas;
 
+import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
 import java.util.List;
 
 import de.bund.bfr.jung.BetterPickingGraphMousePlugin;
@@ -34,6 +34,8 @@ import de.bund.bfr.knime.gis.views.canvas.element.Node;
 import de.bund.bfr.knime.gis.views.canvas.util.EdgePropertySchema;
 import de.bund.bfr.knime.gis.views.canvas.util.Naming;
 import de.bund.bfr.knime.gis.views.canvas.util.NodePropertySchema;
+import de.bund.bfr.knime.gis.views.canvas.util.RasterTileCache;
+import de.bund.bfr.knime.gis.views.canvas.util.Transform;
 import edu.uci.ics.jung.visualization.VisualizationImageServer;
 import edu.uci.ics.jung.visualization.VisualizationServer.Paintable;
 
@@ -41,14 +43,16 @@ public abstract class GisCanvas<V extends Node> extends Canvas<V> implements IGi
 
 	private static final long serialVersionUID = 1L;
 
-	private BufferedImage image;
+	private RasterTileCache tileCache;
+	private RasterTileCache.TileRenderer tileRenderer;
 
 	public GisCanvas(List<V> nodes, List<Edge<V>> edges, NodePropertySchema nodeSchema, EdgePropertySchema edgeSchema,
 			Naming naming) {
 		super(nodes, edges, nodeSchema, edgeSchema, naming);
-		image = null;
+		tileCache = new RasterTileCache(() -> viewer.repaint());
+		tileRenderer = null;
 
-		viewer.addPreRenderPaintable(new PrePaintable(false));
+		viewer.addPreRenderPaintable(new TilePaintable());
 	}
 
 	@Override
@@ -64,11 +68,31 @@ public abstract class GisCanvas<V extends Node> extends Canvas<V> implements IGi
 		return server;
 	}
 
+	/**
+	 * Removes all rendered tiles of the GIS layer. Must be called, when its content
+	 * changes. Changes of the transform do not require this. The next repaint
+	 * takes a new snapshot of the content with {@link #createGisLayer()}.
+	 */
 	protected void flushImage() {
-		if (image != null) {
-			image.flush();
-			image = null;
-		}
+		tileRenderer = null;
+		tileCache.flush();
+	}
+
+	/**
+	 * Removes the rendered tiles, for which {@link GisLayer#isComplete} returned
+	 * false.
+	 */
+	protected void flushIncompleteImage() {
+		tileCache.flushIncomplete();
+	}
+
+	/**
+	 * Renders the tiles again, that were painted, while the simplified polygons of
+	 * the regions were still being built. Is called from background threads.
+	 */
+	protected void simplificationFinished() {
+		flushIncompleteImage();
+		viewer.repaint();
 	}
 
 	@Override
@@ -90,19 +114,51 @@ public abstract class GisCanvas<V extends Node> extends Canvas<V> implements IGi
 		return zoom;
 	}
 
-	protected abstract void paintGis(Graphics2D g, boolean toSvg, boolean onWhiteBackground);
+	/**
+	 * Returns a snapshot of the current content of the GIS layer. Is called on the
+	 * event dispatch thread. The layer must not read the state of the canvas
+	 * later, since it is painted from background threads to render tiles.
+	 */
+	protected abstract GisLayer createGisLayer();
+
+	protected interface GisLayer {
+
+		/**
+		 * Paints the area [0, size.width] x [0, size.height] with transform.
+		 */
+		void paint(Graphics2D g, Transform transform, Dimension size, boolean toSvg, boolean onWhiteBackground);
+
+		/**
+		 * Returns false, if painting the area now would give an incomplete result.
+		 */
+		default boolean isComplete(Transform transform, Dimension size) {
+			return true;
+		}
+	}
 
-	private void paintGisImage(Graphics2D g) {
-		int width = getCanvasSize().width;
-		int height = getCanvasSize().height;
+	private class TilePaintable implements Paintable {
 
-		if (image == null || image.getWidth() != width || image.getHeight() != height) {
-			flushImage();
-			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-			paintGis(image.createGraphics(), false, true);
+		@Override
+		public boolean useTransform() {
+			return false;
 		}
 
-		g.drawImage(image, 0, 0, null);
+		@Override
+		public void paint(Graphics g) {
+			if (tileRenderer == null) {
+				GisLayer layer = createGisLayer();
+
+				tileRenderer = (g2, t, size) -> {
+					boolean complete = layer.isComplete(t, size);
+
+					layer.paint(g2, t, size, false, true);
+
+					return complete;
+				};
+			}
+
+			tileCache.paint((Graphics2D) g, tileRenderer, transform, getCanvasSize());
+		}
 	}
 
 	private class PrePaintable implements Paintable {
@@ -120,11 +176,7 @@ public abstract class GisCanvas<V extends Node> extends Canvas<V> implements IGi
 
 		@Override
 		public void paint(Graphics g) {
-			if (toSvg) {
-				paintGis((Graphics2D) g, true, true);
-			} else {
-				paintGisImage((Graphics2D) g);
-			}
+			createGisLayer().paint((Graphics2D) g, transform, getCanvasSize(), toSvg, true);
 		}
 	}
 }
@@ -42,6 +42,7 @@ import javax.swing.WindowConstants;
 import com.google.common.collect.Sets;
 
 import de.bund.bfr.jung.JungUtils;
+import de.bund.bfr.jung.layout.IncrementalLayout;
 import de.bund.bfr.jung.layout.Layout;
 import de.bund.bfr.jung.layout.LayoutType;
 import de.bund.bfr.knime.PointUtils;
@@ -63,6 +64,8 @@ public class GraphCanvas extends Canvas<GraphNode> {
 
 	private static final long serialVersionUID = 1L;
 
+	private Set<String> nodesWithoutPositions;
+
 	public GraphCanvas(boolean allowCollapse, Naming naming) {
 		this(new ArrayList<>(0), new ArrayList<>(0), new NodePropertySchema(), new EdgePropertySchema(), naming,
 				allowCollapse);
@@ -71,6 +74,7 @@ public class GraphCanvas extends Canvas<GraphNode> {
 	public GraphCanvas(List<GraphNode> nodes, List<Edge<GraphNode>> edges, NodePropertySchema nodeSchema,
 			EdgePropertySchema edgeSchema, Naming naming, boolean allowCollapse) {
 		super(nodes, edges, nodeSchema, edgeSchema, naming);
+		nodesWithoutPositions = new LinkedHashSet<>();
 
 		setPopupMenu(new CanvasPopupMenu(this, true, true, allowCollapse));
 		setOptionsPanel(new CanvasOptionsPanel(this, true, true, false, false));
@@ -123,6 +127,10 @@ public class GraphCanvas extends Canvas<GraphNode> {
 
 			viewer.getGraphLayout().setLocation(nodesWithoutPos.get(i), new Point2D.Double(x, upperLeft.getY()));
 		}
+
+		nodesWithoutPositions.clear();
+		nodesWithoutPositions.addAll(CanvasUtils.getElementIds(nodesWithoutPos));
+		layoutNewNodes(Sets.filter(nodes, n -> nodesWithoutPositions.contains(n.getId())));
 	}
 
 	@Override
@@ -164,6 +172,12 @@ public class GraphCanvas extends Canvas<GraphNode> {
 			return;
 		}
 
+		if (layoutType == LayoutType.INCREMENTAL_LAYOUT && nodesForLayout.size() == nodes.size()) {
+			Dialogs.showErrorMessage(this, "The " + layoutType + " can only be applied on selected "
+					+ naming.nodes() + ". All other " + naming.nodes() + " keep their positions.");
+			return;
+		}
+
 		applyLayout(layoutType, nodesForLayout, true);
 	}
 
@@ -185,6 +199,38 @@ public class GraphCanvas extends Canvas<GraphNode> {
 		super.clearCollapsedNodesItemClicked();
 	}
 
+	/**
+	 * Places the new nodes, that never had a position, with an
+	 * {@link IncrementalLayout}, that keeps all other nodes in place. The other
+	 * new nodes keep their previous positions.
+	 */
+	@Override
+	public void layoutNewNodes(Set<GraphNode> newNodes) {
+		Set<GraphNode> nodesToPlace = newNodes.stream().filter(n -> nodesWithoutPositions.contains(n.getId()))
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+
+		if (nodesToPlace.isEmpty() || nodesToPlace.size() == nodes.size()) {
+			return;
+		}
+
+		Layout<GraphNode, Edge<GraphNode>> layout = LayoutType.INCREMENTAL_LAYOUT
+				.create(viewer.getGraphLayout().getGraph(), viewer.getSize());
+		Map<GraphNode, Point2D> initialPositions = new LinkedHashMap<>();
+
+		for (GraphNode node : nodes) {
+			initialPositions.put(node, viewer.getGraphLayout().transform(node));
+			layout.setLocked(node, !nodesToPlace.contains(node));
+		}
+
+		Map<GraphNode, Point2D> layoutResult = layout.getNodePositions(initialPositions, null);
+
+		for (GraphNode node : nodesToPlace) {
+			viewer.getGraphLayout().setLocation(node, layoutResult.get(node));
+		}
+
+		nodesWithoutPositions.removeAll(CanvasUtils.getElementIds(nodesToPlace));
+	}
+
 	@Override
 	public void editingModeChanged() {
 		super.editingModeChanged();
@@ -252,6 +298,8 @@ public class GraphCanvas extends Canvas<GraphNode> {
 				Sets.difference(nodeSaveMap.keySet(), collapsedNodes.values().stream().flatMap(Set::stream)
 						.collect(Collectors.toCollection(LinkedHashSet::new))));
 
+		nodesWithoutPositions.removeAll(CanvasUtils.getElementIds(layoutResult.keySet()));
+
 		for (GraphNode node : nonCollapsedNodes) {
 			if (layoutResult.containsKey(node)) {
 				viewer.getGraphLayout().setLocation(node, layoutResult.get(node));
@@ -262,7 +310,8 @@ public class GraphCanvas extends Canvas<GraphNode> {
 			}
 		}
 
-		if (layoutType == LayoutType.FR_LAYOUT) {
+		if (layoutType == LayoutType.FR_LAYOUT || layoutType == LayoutType.BARNES_HUT_FR_LAYOUT
+				|| layoutType == LayoutType.MULTILEVEL_LAYOUT) {
 			setTransform(CanvasUtils.getTransformForBounds(getCanvasSize(), PointUtils.getBounds(layoutResult.values()),
 					null));
 		} else {
@@ -171,6 +171,8 @@ public interface ICanvas<V extends Node> {
 
 	void applyChanges();
 
+	void applyChanges(ApplyStage from);
+
 	void resetNodesAndEdges();
 
 	void applyNodeCollapse();
@@ -183,5 +185,7 @@ public interface ICanvas<V extends Node> {
 
 	void applyShowEdgesInMetaNode();
 
+	void layoutNewNodes(Set<V> newNodes);
+
 	JPanel getComponent();
-}
\ No newline at end of file
+}
\ No newline at end of file
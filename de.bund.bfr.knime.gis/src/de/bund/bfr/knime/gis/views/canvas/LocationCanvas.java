@@ -19,6 +19,7 @@
  *******************************************************************************/
 package de.bund.bfr.knime.gis.views.canvas;
 
+import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
@@ -38,6 +39,7 @@ import de.bund.bfr.knime.gis.views.canvas.util.CanvasPopupMenu;
 import de.bund.bfr.knime.gis.views.canvas.util.EdgePropertySchema;
 import de.bund.bfr.knime.gis.views.canvas.util.Naming;
 import de.bund.bfr.knime.gis.views.canvas.util.NodePropertySchema;
+import de.bund.bfr.knime.gis.views.canvas.util.Transform;
 
 public class LocationCanvas extends ShapefileCanvas<LocationNode> {
 
@@ -82,6 +84,7 @@ public class LocationCanvas extends ShapefileCanvas<LocationNode> {
 
 		for (RegionNode region : this.regions) {
 			region.updatePolygon(GisUtils.latLonToViz(region.getPolygon()));
+			region.setSimplificationListener(this::simplificationFinished);
 		}
 
 		invalidArea = LocationCanvasUtils.placeNodes(this.nodes, this.edges, viewer.getGraphLayout());
@@ -123,13 +126,27 @@ public class LocationCanvas extends ShapefileCanvas<LocationNode> {
 	}
 
 	@Override
-	protected void paintGis(Graphics2D g, boolean toSvg, boolean onWhiteBackground) {
-		super.paintGis(g, toSvg, onWhiteBackground);
+	protected GisLayer createGisLayer() {
+		GisLayer borders = super.createGisLayer();
+		Polygon area = invalidArea;
 
-		if (invalidArea != null) {
-			LocationCanvasUtils.paintNonLatLonArea(g, getCanvasSize().width, getCanvasSize().height,
-					transform.apply(invalidArea));
-		}
+		return new GisLayer() {
+
+			@Override
+			public void paint(Graphics2D g, Transform transform, Dimension size, boolean toSvg,
+					boolean onWhiteBackground) {
+				borders.paint(g, transform, size, toSvg, onWhiteBackground);
+
+				if (area != null) {
+					LocationCanvasUtils.paintNonLatLonArea(g, size.width, size.height, transform.apply(area));
+				}
+			}
+
+			@Override
+			public boolean isComplete(Transform transform, Dimension size) {
+				return borders.isComplete(transform, size);
+			}
+		};
 	}
 
 	@Override
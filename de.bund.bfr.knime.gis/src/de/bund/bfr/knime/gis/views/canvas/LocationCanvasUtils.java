@@ -29,12 +29,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.SetMultimap;
@@ -50,6 +52,8 @@ import edu.uci.ics.jung.algorithms.layout.Layout;
 
 public class LocationCanvasUtils {
 
+	private static final long PARALLEL_THRESHOLD = 100000;
+
 	private LocationCanvasUtils() {
 	}
 
@@ -63,56 +67,21 @@ public class LocationCanvasUtils {
 			return;
 		}
 
-		Map<LocationNode, Point2D> positions = new LinkedHashMap<>();
+		List<LocationNode> nodeList = new ArrayList<>(nodes);
+		int n = nodeList.size();
+		double[] x = new double[n];
+		double[] y = new double[n];
 
-		for (LocationNode n : nodes) {
-			positions.put(n, n.getCenter());
+		for (int i = 0; i < n; i++) {
+			x[i] = nodeList.get(i).getCenter().getX();
+			y[i] = nodeList.get(i).getCenter().getY();
 		}
 
-		double s = nodeSize / transform.getScaleX();
-		double d = s / 5.0;
-		Random rand = new Random(0);
-
-		for (LocationNode n1 : nodes) {
-			Point2D p1 = positions.get(n1);
-			List<Point2D> neighbors = new ArrayList<>();
-
-			for (LocationNode n2 : nodes) {
-				Point2D p2 = positions.get(n2);
-
-				if (n1 != n2 && p1.distance(p2) < 2 * s) {
-					neighbors.add(p2);
-				}
-			}
-
-			double randX = rand.nextDouble();
-			double randY = rand.nextDouble();
-			double x1 = p1.getX() - s;
-			double x2 = p1.getX() + s;
-			double y1 = p1.getY() - s;
-			double y2 = p1.getY() + s;
-			double bestDistance = 0.0;
-			Point2D bestPoint = null;
-
-			for (double x = x1 + randX * d; x <= x2; x += d) {
-				for (double y = y1 + randY * d; y <= y2; y += d) {
-					double distance = Double.POSITIVE_INFINITY;
-
-					for (Point2D p : neighbors) {
-						distance = Math.min(distance, p.distance(x, y));
-					}
+		avoidOverlay(x, y, nodeSize / transform.getScaleX());
 
-					if (distance > bestDistance) {
-						bestDistance = distance;
-						bestPoint = new Point2D.Double(x, y);
-					}
-				}
-			}
-
-			positions.put(n1, bestPoint);
+		for (int i = 0; i < n; i++) {
+			layout.setLocation(nodeList.get(i), new Point2D.Double(x[i], y[i]));
 		}
-
-		positions.forEach((node, pos) -> layout.setLocation(node, pos));
 	}
 
 	public static Polygon placeNodes(Collection<LocationNode> nodes, Collection<Edge<LocationNode>> edges,
@@ -254,6 +223,145 @@ public class LocationCanvasUtils {
 		return newNode;
 	}
 
+	/**
+	 * Moves each node, in the given order, to the candidate position within
+	 * distance s of its center, that is furthest away from all nodes within
+	 * distance 2 * s. Neighbors are found with a spatial hash with cell size 2 *
+	 * s, that is updated, when a node is moved, since later nodes have to see
+	 * the new positions of earlier nodes. Therefore the nodes are processed one
+	 * after another and only the candidates of nodes with many neighbors are
+	 * evaluated in parallel.
+	 */
+	private static void avoidOverlay(double[] x, double[] y, double s) {
+		int n = x.length;
+		double cellSize = 2 * s;
+		double d = s / 5.0;
+		Random rand = new Random(0);
+		Map<Long, List<Integer>> grid = new HashMap<>();
+
+		for (int i = 0; i < n; i++) {
+			grid.computeIfAbsent(getCell(x[i], y[i], cellSize, 0, 0), k -> new ArrayList<>()).add(i);
+		}
+
+		double[] neighborX = new double[16];
+		double[] neighborY = new double[16];
+
+		for (int i = 0; i < n; i++) {
+			int neighborCount = 0;
+
+			for (int dx = -1; dx <= 1; dx++) {
+				for (int dy = -1; dy <= 1; dy++) {
+					List<Integer> cell = grid.get(getCell(x[i], y[i], cellSize, dx, dy));
+
+					if (cell == null) {
+						continue;
+					}
+
+					for (int j : cell) {
+						if (i != j && Point2D.distance(x[i], y[i], x[j], y[j]) < 2 * s) {
+							if (neighborCount == neighborX.length) {
+								neighborX = Arrays.copyOf(neighborX, 2 * neighborCount);
+								neighborY = Arrays.copyOf(neighborY, 2 * neighborCount);
+							}
+
+							neighborX[neighborCount] = x[j];
+							neighborY[neighborCount] = y[j];
+							neighborCount++;
+						}
+					}
+				}
+			}
+
+			double randX = rand.nextDouble();
+			double randY = rand.nextDouble();
+			double[] xs = getCandidates(x[i] - s + randX * d, x[i] + s, d);
+			double[] ys = getCandidates(y[i] - s + randY * d, y[i] + s, d);
+			Point2D bestPoint = findFreePosition(xs, ys,
+					new NeighborGrid(neighborX, neighborY, neighborCount, x[i], y[i], s));
+
+			if (bestPoint != null) {
+				grid.get(getCell(x[i], y[i], cellSize, 0, 0)).remove((Integer) i);
+				x[i] = bestPoint.getX();
+				y[i] = bestPoint.getY();
+				grid.computeIfAbsent(getCell(x[i], y[i], cellSize, 0, 0), k -> new ArrayList<>()).add(i);
+			}
+		}
+	}
+
+	private static long getCell(double x, double y, double cellSize, int dx, int dy) {
+		long cellX = (long) Math.floor(x / cellSize) + dx;
+		long cellY = (long) Math.floor(y / cellSize) + dy;
+
+		// collisions only add nodes, that are filtered by their distance
+		return cellX * 0x9E3779B97F4A7C15L + cellY;
+	}
+
+	private static double[] getCandidates(double start, double end, double step) {
+		int count = 0;
+
+		for (double v = start; v <= end; v += step) {
+			count++;
+		}
+
+		double[] candidates = new double[count];
+		int i = 0;
+
+		for (double v = start; v <= end; v += step) {
+			candidates[i++] = v;
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Returns the first candidate with the largest distance to its closest
+	 * neighbor.
+	 */
+	private static Point2D findFreePosition(double[] xs, double[] ys, NeighborGrid neighbors) {
+		IntFunction<double[]> bestInRow = row -> {
+			double cx = xs[row];
+			double bestSq = 0.0;
+			double bestDistance = 0.0;
+			double bestY = Double.NaN;
+
+			for (double cy : ys) {
+				double minSq = neighbors.getMinDistanceSq(cx, cy, bestSq);
+				double distance = Math.sqrt(minSq);
+
+				if (distance > bestDistance) {
+					bestSq = minSq;
+					bestDistance = distance;
+					bestY = cy;
+				}
+			}
+
+			return new double[] { bestDistance, cx, bestY };
+		};
+		double[][] rowResults;
+
+		if ((long) neighbors.size() * xs.length * ys.length >= PARALLEL_THRESHOLD) {
+			rowResults = IntStream.range(0, xs.length).parallel().mapToObj(bestInRow).toArray(double[][]::new);
+		} else {
+			rowResults = new double[xs.length][];
+
+			for (int row = 0; row < xs.length; row++) {
+				rowResults[row] = bestInRow.apply(row);
+			}
+		}
+
+		double bestDistance = 0.0;
+		Point2D bestPoint = null;
+
+		for (double[] result : rowResults) {
+			if (result[0] > bestDistance) {
+				bestDistance = result[0];
+				bestPoint = new Point2D.Double(result[1], result[2]);
+			}
+		}
+
+		return bestPoint;
+	}
+
 	private static Point2D getClosestPointOnRect(Point2D pointInRect, Rectangle2D rect) {
 		double dx1 = Math.abs(pointInRect.getX() - rect.getMinX());
 		double dx2 = Math.abs(pointInRect.getX() - rect.getMaxX());
@@ -273,4 +381,122 @@ public class LocationCanvasUtils {
 
 		throw new RuntimeException("This should not happen");
 	}
+
+	/**
+	 * Neighbors of a node sorted into cells of size s / 2 around the node
+	 * center. The closest neighbor of a candidate is searched in rings of cells
+	 * around the candidate. Few neighbors are just searched linearly.
+	 */
+	private static final class NeighborGrid {
+
+		private static final int CELLS = 12;
+		private static final int LINEAR_SEARCH_LIMIT = 16;
+
+		private int size;
+		private double minX;
+		private double minY;
+		private double cellSize;
+		private int[] cellStarts;
+		private double[] sortedX;
+		private double[] sortedY;
+
+		public NeighborGrid(double[] x, double[] y, int size, double centerX, double centerY, double s) {
+			this.size = size;
+
+			if (size <= LINEAR_SEARCH_LIMIT) {
+				sortedX = x;
+				sortedY = y;
+				return;
+			}
+
+			cellSize = s / 2.0;
+			minX = centerX - CELLS / 2 * cellSize;
+			minY = centerY - CELLS / 2 * cellSize;
+			cellStarts = new int[CELLS * CELLS + 1];
+			sortedX = new double[size];
+			sortedY = new double[size];
+
+			int[] cells = new int[size];
+
+			for (int k = 0; k < size; k++) {
+				cells[k] = getIndex(getCell(x[k], minX), getCell(y[k], minY));
+				cellStarts[cells[k] + 1]++;
+			}
+
+			for (int c = 0; c < CELLS * CELLS; c++) {
+				cellStarts[c + 1] += cellStarts[c];
+			}
+
+			int[] next = Arrays.copyOf(cellStarts, CELLS * CELLS);
+
+			for (int k = 0; k < size; k++) {
+				sortedX[next[cells[k]]] = x[k];
+				sortedY[next[cells[k]]++] = y[k];
+			}
+		}
+
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Returns the squared distance from (x, y) to the closest neighbor. The
+		 * search stops early, if the result is less than or equal to bound, since
+		 * the candidate cannot be better than the one with that distance.
+		 */
+		public double getMinDistanceSq(double x, double y, double bound) {
+			if (size <= LINEAR_SEARCH_LIMIT) {
+				double minSq = Double.POSITIVE_INFINITY;
+
+				for (int k = 0; k < size && minSq > bound; k++) {
+					double dx = sortedX[k] - x;
+					double dy = sortedY[k] - y;
+
+					minSq = Math.min(minSq, dx * dx + dy * dy);
+				}
+
+				return minSq;
+			}
+
+			int cellX = getCell(x, minX);
+			int cellY = getCell(y, minY);
+			double minSq = Double.POSITIVE_INFINITY;
+
+			for (int ring = 0; ring < CELLS; ring++) {
+				for (int i = Math.max(cellX - ring, 0); i <= Math.min(cellX + ring, CELLS - 1); i++) {
+					boolean border = i == cellX - ring || i == cellX + ring;
+
+					for (int j = Math.max(cellY - ring, 0); j <= Math.min(cellY + ring, CELLS - 1); j++) {
+						if (!border && j != cellY - ring && j != cellY + ring) {
+							continue;
+						}
+
+						for (int k = cellStarts[getIndex(i, j)]; k < cellStarts[getIndex(i, j) + 1]; k++) {
+							double dx = sortedX[k] - x;
+							double dy = sortedY[k] - y;
+
+							minSq = Math.min(minSq, dx * dx + dy * dy);
+						}
+					}
+				}
+
+				// neighbors in the next rings are at least ring * cellSize away
+				double ringDistance = ring * cellSize;
+
+				if (minSq <= bound || minSq <= ringDistance * ringDistance) {
+					break;
+				}
+			}
+
+			return minSq;
+		}
+
+		private int getCell(double value, double min) {
+			return Math.max(Math.min((int) Math.floor((value - min) / cellSize), CELLS - 1), 0);
+		}
+
+		private static int getIndex(int cellX, int cellY) {
+			return cellX * CELLS + cellY;
+		}
+	}
 }
@@ -19,6 +19,7 @@
  *******************************************************************************/
 package de.bund.bfr.knime.gis.views.canvas;
 
+import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
@@ -37,6 +38,7 @@ import de.bund.bfr.knime.gis.views.canvas.util.CanvasPopupMenu;
 import de.bund.bfr.knime.gis.views.canvas.util.EdgePropertySchema;
 import de.bund.bfr.knime.gis.views.canvas.util.Naming;
 import de.bund.bfr.knime.gis.views.canvas.util.NodePropertySchema;
+import de.bund.bfr.knime.gis.views.canvas.util.Transform;
 
 public class LocationOsmCanvas extends OsmCanvas<LocationNode> {
 
@@ -110,13 +112,27 @@ public class LocationOsmCanvas extends OsmCanvas<LocationNode> {
 	}
 
 	@Override
-	protected void paintGis(Graphics2D g, boolean toSvg, boolean onWhiteBackground) {
-		super.paintGis(g, toSvg, onWhiteBackground);
+	protected GisLayer createGisLayer() {
+		GisLayer tiles = super.createGisLayer();
+		Polygon area = invalidArea;
 
-		if (invalidArea != null) {
-			LocationCanvasUtils.paintNonLatLonArea(g, getCanvasSize().width, getCanvasSize().height,
-					transform.apply(invalidArea));
-		}
+		return new GisLayer() {
+
+			@Override
+			public void paint(Graphics2D g, Transform transform, Dimension size, boolean toSvg,
+					boolean onWhiteBackground) {
+				tiles.paint(g, transform, size, toSvg, onWhiteBackground);
+
+				if (area != null) {
+					LocationCanvasUtils.paintNonLatLonArea(g, size.width, size.height, transform.apply(area));
+				}
+			}
+
+			@Override
+			public boolean isComplete(Transform transform, Dimension size) {
+				return tiles.isComplete(transform, size);
+			}
+		};
 	}
 
 	@Override
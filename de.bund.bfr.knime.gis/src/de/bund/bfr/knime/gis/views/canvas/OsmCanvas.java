@@ -20,6 +20,7 @@
 package de.bund.bfr.knime.gis.views.canvas;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
@@ -32,13 +33,16 @@ import java.awt.event.MouseMotionListener;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.openstreetmap.gui.jmapviewer.Coordinate;
 import org.openstreetmap.gui.jmapviewer.FeatureAdapter;
 import org.openstreetmap.gui.jmapviewer.MemoryTileCache;
 import org.openstreetmap.gui.jmapviewer.OsmMercator;
 import org.openstreetmap.gui.jmapviewer.Tile;
-import org.openstreetmap.gui.jmapviewer.TileController;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileLoaderListener;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
 import org.openstreetmap.gui.jmapviewer.tilesources.OsmTileSource;
@@ -52,6 +56,9 @@ import de.bund.bfr.knime.gis.views.canvas.element.Node;
 import de.bund.bfr.knime.gis.views.canvas.util.EdgePropertySchema;
 import de.bund.bfr.knime.gis.views.canvas.util.Naming;
 import de.bund.bfr.knime.gis.views.canvas.util.NodePropertySchema;
+import de.bund.bfr.knime.gis.views.canvas.util.TileDiskCache;
+import de.bund.bfr.knime.gis.views.canvas.util.TileStore;
+import de.bund.bfr.knime.gis.views.canvas.util.Transform;
 import edu.uci.ics.jung.visualization.VisualizationImageServer;
 import edu.uci.ics.jung.visualization.VisualizationServer.Paintable;
 
@@ -59,43 +66,63 @@ public abstract class OsmCanvas<V extends Node> extends GisCanvas<V> implements
 
 	private static final long serialVersionUID = 1L;
 
-	private TileController tileController;
+	private static final int PREFETCH_MARGIN = 1;
+	private static final long LOAD_TIMEOUT = TimeUnit.MINUTES.toMillis(2);
 
-	private int lastZoom;
-	private Coordinate lastTopLeft;
-	private Coordinate lastBottomRight;
+	private TileStore tileStore;
 
 	public OsmCanvas(List<V> nodes, List<Edge<V>> edges, NodePropertySchema nodeSchema, EdgePropertySchema edgeSchema,
 			Naming naming) {
 		super(nodes, edges, nodeSchema, edgeSchema, naming);
-		tileController = new TileController(new OsmTileSource.Mapnik(), new MemoryTileCache(), this);
-		lastZoom = -1;
-		lastTopLeft = null;
-		lastBottomRight = null;
+		tileStore = new TileStore(new OsmTileSource.Mapnik(), new TileDiskCache(TileDiskCache.getDefaultDirectory()),
+				this);
 		viewer.addPostRenderPaintable(new PostPaintable());
 	}
 
 	public TileSource getTileSource() {
-		return tileController.getTileSource();
+		return tileStore.getTileSource();
 	}
 
 	public void setTileSource(TileSource tileSource) {
-		tileController.cancelOutstandingJobs();
-		tileController.setTileSource(tileSource);
+		tileStore.setTileSource(tileSource);
+		flushImage();
 	}
 
+	/**
+	 * Loads all tiles, that are visible with the current transform, and returns
+	 * when they are available. Tiles, that are not loaded after LOAD_TIMEOUT or
+	 * whose loading failed, are painted as errors.
+	 */
 	public void loadAllTiles() {
-		int tileSize = tileController.getTileSource().getTileSize();
-		int maxTiles = (getCanvasSize().width / tileSize + 2) * (getCanvasSize().height / tileSize + 2);
-		MemoryTileCache tileCache = (MemoryTileCache) tileController.getTileCache();
+		int zoom = getZoom(transform);
+
+		if (!transform.isValid() || zoom < 0) {
+			return;
+		}
+
+		Rectangle range = getTileRange(tileStore.getTileSource().getTileSize(), transform, getCanvasSize(), 0);
+		MemoryTileCache tileCache = tileStore.getMemoryCache();
+
+		tileCache.setCacheSize(Math.max(tileCache.getCacheSize(), range.width * range.height));
 
-		tileCache.setCacheSize(Math.max(tileCache.getCacheSize(), maxTiles));
-		getTiles(true);
+		try {
+			tileStore.loadTiles(zoom, range).get(LOAD_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | CancellationException | TimeoutException e) {
+		}
+
+		for (Tile tile : getTiles(tileStore.getTileSource(), transform, getCanvasSize()).values()) {
+			if (!tile.isLoaded()) {
+				tile.setError("Tile could not be loaded");
+				tile.setLoaded(true);
+			}
+		}
 	}
 
 	@Override
 	public void tileLoadingFinished(Tile tile, boolean success) {
-		flushImage();
+		flushIncompleteImage();
 		viewer.repaint();
 	}
 
@@ -110,69 +137,87 @@ public abstract class OsmCanvas<V extends Node> extends GisCanvas<V> implements
 
 	@Override
 	protected void applyTransform() {
-		flushImage();
+		int zoom = getZoom(transform);
+
+		if (transform.isValid() && zoom >= 0) {
+			int tileSize = tileStore.getTileSource().getTileSize();
+
+			tileStore.loadTiles(zoom, getTileRange(tileSize, transform, getCanvasSize(), PREFETCH_MARGIN));
+		}
+
 		viewer.repaint();
 	}
 
 	@Override
-	protected void paintGis(Graphics2D g, boolean toSvg, boolean onWhiteBackground) {
-		getTiles(false).forEach((pos, tile) -> tile.paint(g, pos.x, pos.y));
+	protected GisLayer createGisLayer() {
+		TileSource tileSource = tileStore.getTileSource();
 
-		int size = (int) (Math.pow(2.0, lastZoom) * tileController.getTileSource().getTileSize());
-		Color currentColor = g.getColor();
+		return new GisLayer() {
 
-		g.setColor(Color.BLACK);
-		g.drawRect((int) transform.getTranslationX(), (int) transform.getTranslationY(), size, size);
-		g.setColor(currentColor);
-	}
+			@Override
+			public void paint(Graphics2D g, Transform transform, Dimension size, boolean toSvg,
+					boolean onWhiteBackground) {
+				getTiles(tileSource, transform, size).forEach((pos, tile) -> tile.paint(g, pos.x, pos.y));
 
-	private Map<Point, Tile> getTiles(boolean waitForLoading) {
-		int w = getCanvasSize().width;
-		int h = getCanvasSize().height;
-		int tileSize = tileController.getTileSource().getTileSize();
-		int zoom = (int) Math.round(Math.log(transform.getScaleX()) / Math.log(2.0));
-		double x = -transform.getTranslationX();
-		double y = -transform.getTranslationY();
-		int startX = Math.max(0, (int) x / tileSize);
-		int startY = Math.max(0, (int) y / tileSize);
-		int dx = (int) Math.round(startX * tileSize - x);
-		int dy = (int) Math.round(startY * tileSize - y);
-		int max = (int) Math.round(Math.pow(2.0, zoom)) - 1;
-		int maxX = Math.min(max, startX + (w - dx) / tileSize);
-		int maxY = Math.min(max, startY + (h - dy) / tileSize);
+				int worldSize = (int) (Math.pow(2.0, getZoom(transform)) * tileSource.getTileSize());
+				Color currentColor = g.getColor();
 
-		lastZoom = zoom;
-		lastTopLeft = new Coordinate(new OsmMercator().yToLat(startY * tileSize, zoom),
-				new OsmMercator().xToLon(startY * tileSize, zoom));
-		lastBottomRight = new Coordinate(new OsmMercator().yToLat((maxY + 1) * tileSize, zoom),
-				new OsmMercator().xToLon((maxX + 1) * tileSize, zoom));
+				g.setColor(Color.BLACK);
+				g.drawRect((int) transform.getTranslationX(), (int) transform.getTranslationY(), worldSize,
+						worldSize);
+				g.setColor(currentColor);
+			}
 
+			@Override
+			public boolean isComplete(Transform transform, Dimension size) {
+				return getTiles(tileSource, transform, size).values().stream().allMatch(Tile::isLoaded);
+			}
+		};
+	}
+
+	private static int getZoom(Transform transform) {
+		return (int) Math.round(Math.log(transform.getScaleX()) / Math.log(2.0));
+	}
+
+	private Map<Point, Tile> getTiles(TileSource tileSource, Transform transform, Dimension size) {
+		int tileSize = tileSource.getTileSize();
+		int zoom = getZoom(transform);
 		Map<Point, Tile> tiles = new LinkedHashMap<>();
 
 		if (zoom < 0) {
 			return tiles;
 		}
 
-		for (int ix = startX; ix <= maxX; ix++) {
-			for (int iy = startY; iy <= maxY; iy++) {
-				Tile tile = tileController.getTile(ix, iy, zoom);
-
-				if (waitForLoading) {
-					while (!tile.isLoaded()) {
-						try {
-							Thread.sleep(10);
-						} catch (InterruptedException e) {
-						}
-					}
-				}
+		Rectangle range = getTileRange(tileSize, transform, size, 0);
+		int max = (int) Math.round(Math.pow(2.0, zoom)) - 1;
+
+		for (int ix = Math.max(range.x, 0); ix <= Math.min(range.x + range.width - 1, max); ix++) {
+			for (int iy = Math.max(range.y, 0); iy <= Math.min(range.y + range.height - 1, max); iy++) {
+				Point p = new Point((int) Math.round(ix * tileSize + transform.getTranslationX()),
+						(int) Math.round(iy * tileSize + transform.getTranslationY()));
 
-				tiles.put(new Point((ix - startX) * tileSize + dx, (iy - startY) * tileSize + dy), tile);
+				tiles.put(p, tileStore.getTile(tileSource, ix, iy, zoom));
 			}
 		}
 
 		return tiles;
 	}
 
+	/**
+	 * Returns the indices of the tiles, that cover the area [0, size.width] x [0,
+	 * size.height] with margin additional tiles in each direction.
+	 */
+	private static Rectangle getTileRange(int tileSize, Transform transform, Dimension size, int margin) {
+		double x = -transform.getTranslationX();
+		double y = -transform.getTranslationY();
+		int minX = (int) Math.floor(x / tileSize) - margin;
+		int minY = (int) Math.floor(y / tileSize) - margin;
+		int maxX = (int) Math.floor((x + size.width) / tileSize) + margin;
+		int maxY = (int) Math.floor((y + size.height) / tileSize) + margin;
+
+		return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+	}
+
 	private class PostPaintable implements Paintable, MouseMotionListener, MouseListener {
 
 		private Rectangle textRect;
@@ -196,12 +241,19 @@ public abstract class OsmCanvas<V extends Node> extends GisCanvas<V> implements
 			textRect = null;
 			imgRect = null;
 
-			if (lastZoom < 0) {
+			int zoom = getZoom(transform);
+
+			if (zoom < 0) {
 				return;
 			}
 
-			String text = tileController.getTileSource().getAttributionText(lastZoom, lastTopLeft, lastBottomRight);
-			Image img = tileController.getTileSource().getAttributionImage();
+			int x = (int) -transform.getTranslationX();
+			int y = (int) -transform.getTranslationY();
+			Coordinate topLeft = new Coordinate(new OsmMercator().yToLat(y, zoom), new OsmMercator().xToLon(x, zoom));
+			Coordinate bottomRight = new Coordinate(new OsmMercator().yToLat(y + getCanvasSize().height, zoom),
+					new OsmMercator().xToLon(x + getCanvasSize().width, zoom));
+			String text = tileStore.getTileSource().getAttributionText(zoom, topLeft, bottomRight);
+			Image img = tileStore.getTileSource().getAttributionImage();
 			int startY = 0;
 			Graphics2D g = (Graphics2D) graphics;
 			Color currentColor = g.getColor();
@@ -262,8 +314,8 @@ public abstract class OsmCanvas<V extends Node> extends GisCanvas<V> implements
 
 		@Override
 		public void mouseClicked(MouseEvent e) {
-			String textLink = tileController.getTileSource().getAttributionLinkURL();
-			String imgLink = tileController.getTileSource().getAttributionImageURL();
+			String textLink = tileStore.getTileSource().getAttributionLinkURL();
+			String imgLink = tileStore.getTileSource().getAttributionImageURL();
 
 			if (e.getButton() == MouseEvent.BUTTON1) {
 				if (textFocused && textLink != null) {
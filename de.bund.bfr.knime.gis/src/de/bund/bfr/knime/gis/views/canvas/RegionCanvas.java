@@ -20,10 +20,13 @@
 package de.bund.bfr.knime.gis.views.canvas;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.awt.Paint;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import de.bund.bfr.jung.BetterPickingGraphMousePlugin;
 import de.bund.bfr.jung.JungUtils;
@@ -36,6 +39,8 @@ import de.bund.bfr.knime.gis.views.canvas.util.CanvasPopupMenu;
 import de.bund.bfr.knime.gis.views.canvas.util.EdgePropertySchema;
 import de.bund.bfr.knime.gis.views.canvas.util.Naming;
 import de.bund.bfr.knime.gis.views.canvas.util.NodePropertySchema;
+import de.bund.bfr.knime.gis.views.canvas.util.RegionIndex;
+import de.bund.bfr.knime.gis.views.canvas.util.Transform;
 import edu.uci.ics.jung.visualization.renderers.Renderer.VertexLabel.Position;
 
 /**
@@ -45,6 +50,8 @@ public class RegionCanvas extends ShapefileCanvas<RegionNode> {
 
 	private static final long serialVersionUID = 1L;
 
+	private RegionIndex regionIndex;
+
 	public RegionCanvas(boolean allowEdges, Naming naming) {
 		this(new ArrayList<>(0), new ArrayList<>(0), new NodePropertySchema(), new EdgePropertySchema(), naming,
 				allowEdges);
@@ -76,6 +83,7 @@ public class RegionCanvas extends ShapefileCanvas<RegionNode> {
 
 		for (RegionNode node : this.nodes) {
 			node.updatePolygon(GisUtils.latLonToViz(node.getPolygon()));
+			node.setSimplificationListener(this::simplificationFinished);
 		}
 
 		for (RegionNode node : this.nodes) {
@@ -88,10 +96,19 @@ public class RegionCanvas extends ShapefileCanvas<RegionNode> {
 		return nodes;
 	}
 
+	public RegionIndex getRegionIndex() {
+		if (regionIndex == null) {
+			regionIndex = new RegionIndex(nodes);
+		}
+
+		return regionIndex;
+	}
+
 	@Override
-	public void applyChanges() {
+	public void applyChanges(ApplyStage from) {
+		regionIndex = null;
+		super.applyChanges(from);
 		flushImage();
-		super.applyChanges();
 	}
 
 	@Override
@@ -103,13 +120,29 @@ public class RegionCanvas extends ShapefileCanvas<RegionNode> {
 
 	@Override
 	protected BetterPickingGraphMousePlugin<RegionNode, Edge<RegionNode>> createPickingPlugin() {
-		return RegionCanvasUtils.createPickingPlugin(this);
+		return RegionCanvasUtils.createPickingPlugin(this, this::getRegionIndex);
 	}
 
 	@Override
-	protected void paintGis(Graphics2D g, boolean toSvg, boolean onWhiteBackground) {
-		RegionCanvasUtils.paintRegions(g, nodes, getSelectedNodes(), nodeHighlightConditions);
-		super.paintGis(g, toSvg, false);
+	protected GisLayer createGisLayer() {
+		GisLayer borders = super.createGisLayer();
+		Map<RegionNode, Paint> regionPaints = RegionCanvasUtils.getRegionPaints(nodes, getSelectedNodes(),
+				nodeHighlightConditions);
+
+		return new GisLayer() {
+
+			@Override
+			public void paint(Graphics2D g, Transform transform, Dimension size, boolean toSvg,
+					boolean onWhiteBackground) {
+				RegionCanvasUtils.paintRegions(g, transform, size, regionPaints);
+				borders.paint(g, transform, size, toSvg, false);
+			}
+
+			@Override
+			public boolean isComplete(Transform transform, Dimension size) {
+				return borders.isComplete(transform, size);
+			}
+		};
 	}
 
 	@Override
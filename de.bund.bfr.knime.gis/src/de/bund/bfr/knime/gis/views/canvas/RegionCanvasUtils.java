@@ -20,34 +20,42 @@
 package de.bund.bfr.knime.gis.views.canvas;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Paint;
+import java.awt.Shape;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ListMultimap;
+import com.vividsolutions.jts.geom.Envelope;
 
 import de.bund.bfr.jung.BetterPickingGraphMousePlugin;
 import de.bund.bfr.knime.gis.views.canvas.element.Edge;
 import de.bund.bfr.knime.gis.views.canvas.element.RegionNode;
+import de.bund.bfr.knime.gis.views.canvas.highlighting.ElementColumns;
 import de.bund.bfr.knime.gis.views.canvas.highlighting.HighlightCondition;
 import de.bund.bfr.knime.gis.views.canvas.highlighting.HighlightConditionList;
+import de.bund.bfr.knime.gis.views.canvas.util.RegionIndex;
+import de.bund.bfr.knime.gis.views.canvas.util.Transform;
 
 public class RegionCanvasUtils {
 
+	private static final int VIEWPORT_MARGIN = 10;
+
 	private RegionCanvasUtils() {
 	}
 
 	public static BetterPickingGraphMousePlugin<RegionNode, Edge<RegionNode>> createPickingPlugin(
-			GisCanvas<RegionNode> canvas) {
+			GisCanvas<RegionNode> canvas, Supplier<RegionIndex> regionIndex) {
 		return new BetterPickingGraphMousePlugin<RegionNode, Edge<RegionNode>>(false) {
 
 			@Override
@@ -62,7 +70,7 @@ public class RegionCanvasUtils {
 
 				Point2D p = canvas.getTransform().applyInverse(e.getX(), e.getY());
 
-				return canvas.getNodes().stream().filter(n -> n.containsPoint(p)).findAny().orElse(null);
+				return regionIndex.get().getRegion(p);
 			}
 		};
 	}
@@ -77,44 +85,105 @@ public class RegionCanvasUtils {
 		return bounds;
 	}
 
-	public static void paintRegions(Graphics2D g, Collection<RegionNode> nodes, Set<RegionNode> selectedNodes,
+	/**
+	 * Returns the transformed polygons of the nodes clipped to the area [0,
+	 * size.width] x [0, size.height].
+	 */
+	public static List<Shape> getTransformedPolygons(Collection<RegionNode> nodes, Transform transform,
+			Dimension size) {
+		Envelope viewport = getViewport(transform, size);
+
+		return nodes.stream().map(n -> n.getTransformedPolygon(transform, viewport)).collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns false, if some of the nodes in the area [0, size.width] x [0,
+	 * size.height] are not yet simplified for the scale of transform.
+	 */
+	public static boolean isSimplified(Collection<RegionNode> nodes, Transform transform, Dimension size) {
+		Envelope viewport = getViewport(transform, size);
+
+		return nodes.stream()
+				.filter(n -> viewport == null || viewport.intersects(n.getPolygon().getEnvelopeInternal()))
+				.allMatch(n -> n.isSimplified(transform));
+	}
+
+	/**
+	 * Returns the fill paints of the selected and the highlighted nodes. All other
+	 * nodes are not filled.
+	 */
+	public static Map<RegionNode, Paint> getRegionPaints(Collection<RegionNode> nodes, Set<RegionNode> selectedNodes,
 			HighlightConditionList nodeHighlightConditions) {
-		Paint currentPaint = g.getPaint();
+		Map<RegionNode, Paint> paints = new LinkedHashMap<>();
 
-		g.setPaint(Color.BLUE);
-		selectedNodes.forEach(n -> g.fill(n.getTransformedPolygon()));
+		selectedNodes.forEach(n -> paints.put(n, Color.BLUE));
 
+		List<RegionNode> nodeList = new ArrayList<>(nodes);
+		ElementColumns columns = new ElementColumns(nodeList);
 		List<Color> nodeColors = new ArrayList<>();
-		ListMultimap<RegionNode, Double> nodeAlphas = ArrayListMultimap.create();
+		List<double[]> nodeAlphas = new ArrayList<>();
+		boolean[] colored = new boolean[nodeList.size()];
 		boolean prioritize = nodeHighlightConditions.isPrioritizeColors();
 
 		for (HighlightCondition condition : nodeHighlightConditions.getConditions()) {
-			Map<RegionNode, Double> values = condition.getValues(nodes);
-
-			if (condition.getColor() != null) {
-				nodeColors.add(condition.getColor());
+			if (condition.getColor() == null) {
+				continue;
+			}
 
-				for (RegionNode node : nodes) {
-					List<Double> alphas = nodeAlphas.get(node);
+			double[] values = condition.evaluate(columns);
+			double[] alphas = new double[values.length];
 
-					if (!prioritize || alphas.isEmpty() || Collections.max(alphas) == 0.0) {
-						alphas.add(values.get(node));
-					} else {
-						alphas.add(0.0);
-					}
+			for (int i = 0; i < values.length; i++) {
+				if (!prioritize || !colored[i]) {
+					alphas[i] = values[i];
+					colored[i] |= values[i] > 0.0;
 				}
 			}
+
+			nodeColors.add(condition.getColor());
+			nodeAlphas.add(alphas);
 		}
 
-		for (RegionNode node : nodes) {
-			Paint color = CanvasUtils.mixColors(Color.WHITE, nodeColors, nodeAlphas.get(node), false);
+		for (int i = 0; i < nodeList.size(); i++) {
+			RegionNode node = nodeList.get(i);
+			List<Double> alphas = new ArrayList<>(nodeAlphas.size());
+
+			for (double[] a : nodeAlphas) {
+				alphas.add(a[i]);
+			}
+
+			Paint color = CanvasUtils.mixColors(Color.WHITE, nodeColors, alphas, false);
 
 			if (!color.equals(Color.WHITE) && !selectedNodes.contains(node)) {
-				g.setPaint(color);
-				g.fill(node.getTransformedPolygon());
+				paints.put(node, color);
 			}
 		}
 
+		return paints;
+	}
+
+	public static void paintRegions(Graphics2D g, Transform transform, Dimension size,
+			Map<RegionNode, Paint> regionPaints) {
+		Envelope viewport = getViewport(transform, size);
+		Paint currentPaint = g.getPaint();
+
+		regionPaints.forEach((node, paint) -> {
+			g.setPaint(paint);
+			g.fill(node.getTransformedPolygon(transform, viewport));
+		});
+
 		g.setPaint(currentPaint);
 	}
+
+	private static Envelope getViewport(Transform transform, Dimension size) {
+		if (!transform.isValid() || transform.getScaleX() == 0.0 || transform.getScaleY() == 0.0 || size.width <= 0
+				|| size.height <= 0) {
+			return null;
+		}
+
+		Point2D p1 = transform.applyInverse(-VIEWPORT_MARGIN, -VIEWPORT_MARGIN);
+		Point2D p2 = transform.applyInverse(size.width + VIEWPORT_MARGIN, size.height + VIEWPORT_MARGIN);
+
+		return new Envelope(p1.getX(), p2.getX(), p1.getY(), p2.getY());
+	}
 }
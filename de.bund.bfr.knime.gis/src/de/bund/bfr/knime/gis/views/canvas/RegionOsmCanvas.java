@@ -20,11 +20,14 @@
 package de.bund.bfr.knime.gis.views.canvas;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.awt.Paint;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import de.bund.bfr.jung.BetterPickingGraphMousePlugin;
 import de.bund.bfr.jung.JungUtils;
@@ -37,12 +40,16 @@ import de.bund.bfr.knime.gis.views.canvas.util.CanvasPopupMenu;
 import de.bund.bfr.knime.gis.views.canvas.util.EdgePropertySchema;
 import de.bund.bfr.knime.gis.views.canvas.util.Naming;
 import de.bund.bfr.knime.gis.views.canvas.util.NodePropertySchema;
+import de.bund.bfr.knime.gis.views.canvas.util.RegionIndex;
+import de.bund.bfr.knime.gis.views.canvas.util.Transform;
 import edu.uci.ics.jung.visualization.renderers.Renderer.VertexLabel.Position;
 
 public class RegionOsmCanvas extends OsmCanvas<RegionNode> {
 
 	private static final long serialVersionUID = 1L;
 
+	private RegionIndex regionIndex;
+
 	public RegionOsmCanvas(boolean allowEdges, Naming naming) {
 		this(new ArrayList<>(0), new ArrayList<>(0), new NodePropertySchema(), new EdgePropertySchema(), naming,
 				allowEdges);
@@ -74,6 +81,7 @@ public class RegionOsmCanvas extends OsmCanvas<RegionNode> {
 
 		for (RegionNode node : this.nodes) {
 			node.updatePolygon(GisUtils.latLonToViz(node.getPolygon()));
+			node.setSimplificationListener(this::simplificationFinished);
 		}
 
 		for (RegionNode node : this.nodes) {
@@ -93,10 +101,19 @@ public class RegionOsmCanvas extends OsmCanvas<RegionNode> {
 		}
 	}
 
+	public RegionIndex getRegionIndex() {
+		if (regionIndex == null) {
+			regionIndex = new RegionIndex(nodes);
+		}
+
+		return regionIndex;
+	}
+
 	@Override
-	public void applyChanges() {
+	public void applyChanges(ApplyStage from) {
+		regionIndex = null;
+		super.applyChanges(from);
 		flushImage();
-		super.applyChanges();
 	}
 
 	@Override
@@ -108,24 +125,35 @@ public class RegionOsmCanvas extends OsmCanvas<RegionNode> {
 
 	@Override
 	protected void applyTransform() {
-		flushImage();
-
-		for (RegionNode node : nodes) {
-			node.createTransformedPolygons(transform);
-		}
-
 		viewer.repaint();
 	}
 
 	@Override
 	protected BetterPickingGraphMousePlugin<RegionNode, Edge<RegionNode>> createPickingPlugin() {
-		return RegionCanvasUtils.createPickingPlugin(this);
+		return RegionCanvasUtils.createPickingPlugin(this, this::getRegionIndex);
 	}
 
 	@Override
-	protected void paintGis(Graphics2D g, boolean toSvg, boolean onWhiteBackground) {
-		super.paintGis(g, toSvg, onWhiteBackground);
-		RegionCanvasUtils.paintRegions(g, nodes, getSelectedNodes(), nodeHighlightConditions);
+	protected GisLayer createGisLayer() {
+		GisLayer tiles = super.createGisLayer();
+		Map<RegionNode, Paint> regionPaints = RegionCanvasUtils.getRegionPaints(nodes, getSelectedNodes(),
+				nodeHighlightConditions);
+
+		return new GisLayer() {
+
+			@Override
+			public void paint(Graphics2D g, Transform transform, Dimension size, boolean toSvg,
+					boolean onWhiteBackground) {
+				tiles.paint(g, transform, size, toSvg, onWhiteBackground);
+				RegionCanvasUtils.paintRegions(g, transform, size, regionPaints);
+			}
+
+			@Override
+			public boolean isComplete(Transform transform, Dimension size) {
+				return tiles.isComplete(transform, size) && RegionCanvasUtils.isSimplified(regionPaints.keySet(),
+						transform, size);
+			}
+		};
 	}
 
 	@Override
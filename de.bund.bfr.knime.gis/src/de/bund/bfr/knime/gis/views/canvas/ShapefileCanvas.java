@@ -20,9 +20,12 @@
 package de.bund.bfr.knime.gis.views.canvas;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -32,6 +35,7 @@ import de.bund.bfr.knime.gis.views.canvas.element.RegionNode;
 import de.bund.bfr.knime.gis.views.canvas.util.EdgePropertySchema;
 import de.bund.bfr.knime.gis.views.canvas.util.Naming;
 import de.bund.bfr.knime.gis.views.canvas.util.NodePropertySchema;
+import de.bund.bfr.knime.gis.views.canvas.util.Transform;
 
 public abstract class ShapefileCanvas<V extends Node> extends GisCanvas<V> {
 
@@ -65,43 +69,57 @@ public abstract class ShapefileCanvas<V extends Node> extends GisCanvas<V> {
 
 	@Override
 	protected void applyTransform() {
-		flushImage();
-
-		for (RegionNode node : getRegions()) {
-			node.createTransformedPolygons(transform);
-		}
-
 		viewer.repaint();
 	}
 
 	@Override
-	protected void paintGis(Graphics2D g, boolean toSvg, boolean onWhiteBackground) {
+	protected GisLayer createGisLayer() {
+		List<RegionNode> regions = new ArrayList<>(getRegions());
+		int borderAlpha = getBorderAlpha();
+
+		return new GisLayer() {
+
+			@Override
+			public void paint(Graphics2D g, Transform transform, Dimension size, boolean toSvg,
+					boolean onWhiteBackground) {
+				paintBorders(g, transform, size, toSvg, onWhiteBackground, regions, borderAlpha);
+			}
+
+			@Override
+			public boolean isComplete(Transform transform, Dimension size) {
+				return RegionCanvasUtils.isSimplified(regions, transform, size);
+			}
+		};
+	}
+
+	private static void paintBorders(Graphics2D g, Transform transform, Dimension size, boolean toSvg,
+			boolean onWhiteBackground, List<RegionNode> regions, int borderAlpha) {
+		List<Shape> polygons = RegionCanvasUtils.getTransformedPolygons(regions, transform, size);
 		Color currentColor = g.getColor();
 
 		if (onWhiteBackground) {
-			g.setColor(new Color(255 - getBorderAlpha(), 255 - getBorderAlpha(), 255 - getBorderAlpha()));
+			g.setColor(new Color(255 - borderAlpha, 255 - borderAlpha, 255 - borderAlpha));
 
-			for (RegionNode node : getRegions()) {
-				g.draw(node.getTransformedPolygon());
+			for (Shape polygon : polygons) {
+				g.draw(polygon);
 			}
-		} else if (toSvg || getBorderAlpha() == 255) {
-			g.setColor(new Color(0, 0, 0, getBorderAlpha()));
+		} else if (toSvg || borderAlpha == 255) {
+			g.setColor(new Color(0, 0, 0, borderAlpha));
 
-			for (RegionNode node : getRegions()) {
-				g.draw(node.getTransformedPolygon());
+			for (Shape polygon : polygons) {
+				g.draw(polygon);
 			}
 		} else {
-			BufferedImage borderImage = new BufferedImage(getCanvasSize().width, getCanvasSize().height,
-					BufferedImage.TYPE_INT_ARGB);
+			BufferedImage borderImage = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
 			Graphics2D borderGraphics = borderImage.createGraphics();
 
 			borderGraphics.setColor(Color.BLACK);
 
-			for (RegionNode node : getRegions()) {
-				borderGraphics.draw(node.getTransformedPolygon());
+			for (Shape polygon : polygons) {
+				borderGraphics.draw(polygon);
 			}
 
-			CanvasUtils.drawImageWithAlpha(g, borderImage, getBorderAlpha());
+			CanvasUtils.drawImageWithAlpha(g, borderImage, borderAlpha);
 			borderImage.flush();
 		}
 
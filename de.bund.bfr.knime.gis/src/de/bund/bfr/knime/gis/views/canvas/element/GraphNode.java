@@ -19,9 +19,10 @@
  *******************************************************************************/
 package de.bund.bfr.knime.gis.views.canvas.element;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
 
+import de.bund.bfr.knime.gis.views.canvas.util.PropertyStore;
+
 public class GraphNode extends Node {
 
 	private String region;
@@ -40,7 +41,7 @@ public class GraphNode extends Node {
 	}
 
 	@Override
-	public GraphNode copy() {
-		return new GraphNode(getId(), new LinkedHashMap<>(getProperties()), region);
+	public GraphNode copy(PropertyStore store) {
+		return new GraphNode(getId(), store.newRow(getProperties()), region);
 	}
 }
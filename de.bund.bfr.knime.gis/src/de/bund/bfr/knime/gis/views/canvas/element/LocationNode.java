@@ -20,9 +20,10 @@
 package de.bund.bfr.knime.gis.views.canvas.element;
 
 import java.awt.geom.Point2D;
-import java.util.LinkedHashMap;
 import java.util.Map;
 
+import de.bund.bfr.knime.gis.views.canvas.util.PropertyStore;
+
 public class LocationNode extends Node {
 
 	private Point2D center;
@@ -41,7 +42,7 @@ public class LocationNode extends Node {
 	}
 
 	@Override
-	public LocationNode copy() {
-		return new LocationNode(getId(), new LinkedHashMap<>(getProperties()), center);
+	public LocationNode copy(PropertyStore store) {
+		return new LocationNode(getId(), store.newRow(getProperties()), center);
 	}
 }
@@ -21,11 +21,16 @@ package de.bund.bfr.knime.gis.views.canvas.element;
 
 import java.util.Map;
 
+import de.bund.bfr.knime.gis.views.canvas.util.PropertyStore;
+
 public abstract class Node extends Element {
 
 	public Node(String id, Map<String, Object> properties) {
 		super(id, properties);
 	}
 
-	public abstract Node copy();
+	/**
+	 * Returns a copy of this node, whose properties are a new row of store.
+	 */
+	public abstract Node copy(PropertyStore store);
 }
@@ -20,25 +20,33 @@
 package de.bund.bfr.knime.gis.views.canvas.element;
 
 import java.awt.Shape;
+import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.geotools.geometry.jts.GeometryClipper;
+
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.TopologyException;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
 
 import de.bund.bfr.knime.gis.GisUtils;
+import de.bund.bfr.knime.gis.views.canvas.util.PropertyStore;
+import de.bund.bfr.knime.gis.views.canvas.util.SimplifiedPolygonCache;
 import de.bund.bfr.knime.gis.views.canvas.util.Transform;
 
 public class RegionNode extends Node {
 
 	private MultiPolygon polygon;
+	private PreparedGeometry preparedPolygon;
+	private SimplifiedPolygonCache simplifiedPolygons;
 	private Point2D center;
-
-	private Shape transformedPolygon;
+	private volatile Runnable simplificationListener;
 
 	public RegionNode(String id, Map<String, Object> properties, MultiPolygon polygon) {
 		super(id, properties);
@@ -51,8 +59,15 @@ public class RegionNode extends Node {
 
 	public void updatePolygon(MultiPolygon polygon) {
 		this.polygon = polygon;
+		preparedPolygon = null;
+		simplifiedPolygons = new SimplifiedPolygonCache(polygon, () -> {
+			Runnable listener = simplificationListener;
+
+			if (listener != null) {
+				listener.run();
+			}
+		});
 		center = GisUtils.getCenterOfLargestPolygon(polygon);
-		transformedPolygon = null;
 	}
 
 	public Point2D getCenter() {
@@ -65,24 +80,70 @@ public class RegionNode extends Node {
 		return new Rectangle2D.Double(bounds.getMinX(), bounds.getMinY(), bounds.getWidth(), bounds.getHeight());
 	}
 
-	public Shape getTransformedPolygon() {
-		return transformedPolygon;
+	/**
+	 * Returns the polygon simplified for the scale of transform and transformed.
+	 * If viewport is not null, the polygon is clipped to it first.
+	 */
+	public Shape getTransformedPolygon(Transform transform, Envelope viewport) {
+		Geometry g = simplifiedPolygons.getPolygon(getScale(transform));
+
+		if (viewport != null && !viewport.contains(g.getEnvelopeInternal())) {
+			g = viewport.intersects(g.getEnvelopeInternal()) ? new GeometryClipper(viewport).clip(g, false) : null;
+		}
+
+		return g != null ? transform.apply(g) : new Path2D.Double();
+	}
+
+	/**
+	 * Returns false, if {@link #getTransformedPolygon} does not use the polygon
+	 * simplified for the scale of transform yet, because it is still being built.
+	 */
+	public boolean isSimplified(Transform transform) {
+		return simplifiedPolygons.isAvailable(getScale(transform));
 	}
 
-	public void createTransformedPolygons(Transform transform) {
-		transformedPolygon = transform.apply(polygon);
+	/**
+	 * Sets the listener, that is called from a background thread, whenever a
+	 * simplified polygon of this node has been built.
+	 */
+	public void setSimplificationListener(Runnable simplificationListener) {
+		this.simplificationListener = simplificationListener;
 	}
 
 	public boolean containsPoint(Point2D point) {
 		try {
-			return polygon.contains(polygon.getFactory().createPoint(new Coordinate(point.getX(), point.getY())));
+			return getPreparedPolygon()
+					.contains(polygon.getFactory().createPoint(new Coordinate(point.getX(), point.getY())));
 		} catch (TopologyException e) {
 			return false;
 		}
 	}
 
+	/**
+	 * The prepared polygon builds its point locator on the first query, which
+	 * is done here, so that it can afterwards be used from several threads.
+	 */
+	private synchronized PreparedGeometry getPreparedPolygon() {
+		if (preparedPolygon == null) {
+			PreparedGeometry prepared = PreparedGeometryFactory.prepare(polygon);
+
+			try {
+				prepared.contains(polygon.getFactory().createPoint(polygon.getEnvelopeInternal().centre()));
+			} catch (TopologyException e) {
+			}
+
+			preparedPolygon = prepared;
+		}
+
+		return preparedPolygon;
+	}
+
+	private static double getScale(Transform transform) {
+		return Math.max(Math.abs(transform.getScaleX()), Math.abs(transform.getScaleY()));
+	}
+
 	@Override
-	public RegionNode copy() {
-		return new RegionNode(getId(), new LinkedHashMap<>(getProperties()), polygon);
+	public RegionNode copy(PropertyStore store) {
+		return new RegionNode(getId(), store.newRow(getProperties()), polygon);
 	}
 }
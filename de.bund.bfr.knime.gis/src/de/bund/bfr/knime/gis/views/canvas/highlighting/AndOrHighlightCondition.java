@@ -25,9 +25,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -144,31 +142,32 @@ public class AndOrHighlightCondition implements HighlightCondition, Serializable
 		return conditions.stream().mapToInt(c -> c.size()).sum();
 	}
 
+	/**
+	 * The conditions of an and-list are only evaluated for elements, that
+	 * fulfilled all previous conditions of the list and no previous and-list.
+	 */
 	@Override
-	public <T extends Element> Map<T, Double> getValues(Collection<? extends T> elements) {
-		List<List<Map<? extends T, Double>>> valuesList = new ArrayList<>();
+	public double[] evaluate(ElementColumns columns) {
+		double[] values = new double[columns.size()];
+		boolean[] matches = new boolean[values.length];
 
-		for (List<LogicalHighlightCondition> andLists : conditions) {
-			valuesList.add(
-					andLists.stream().map(c -> c.getValues(elements)).collect(Collectors.toCollection(ArrayList::new)));
-		}
-
-		Map<T, Double> returnValues = new LinkedHashMap<>();
+		for (List<LogicalHighlightCondition> andList : conditions) {
+			for (int i = 0; i < values.length; i++) {
+				matches[i] = values[i] == 0.0;
+			}
 
-		for (T element : elements) {
-			boolean allFalse = true;
+			for (LogicalHighlightCondition condition : andList) {
+				condition.retainMatches(columns, matches);
+			}
 
-			for (List<Map<? extends T, Double>> andValues : valuesList) {
-				if (andValues.stream().allMatch(values -> values.get(element) == 1.0)) {
-					allFalse = false;
-					break;
+			for (int i = 0; i < values.length; i++) {
+				if (matches[i]) {
+					values[i] = 1.0;
 				}
 			}
-
-			returnValues.put(element, allFalse ? 0.0 : 1.0);
 		}
 
-		return returnValues;
+		return values;
 	}
 
 	@Override
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.highlighting;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import de.bund.bfr.knime.gis.views.canvas.element.Element;
+
+/**
+ * Property values of a list of elements. Each property is read from the
+ * elements only once, so that many highlight conditions can be evaluated on the
+ * same columns. All arrays are aligned with the list of elements.
+ */
+public class ElementColumns {
+
+	private List<? extends Element> elements;
+	private Map<String, Object[]> columns;
+
+	public ElementColumns(List<? extends Element> elements) {
+		this.elements = elements;
+		columns = new HashMap<>();
+	}
+
+	public int size() {
+		return elements.size();
+	}
+
+	/**
+	 * Returns the values of the property for all elements. The returned array is
+	 * shared and must not be modified.
+	 */
+	public Object[] getColumn(String property) {
+		Object[] column = columns.get(property);
+
+		if (column == null) {
+			column = new Object[elements.size()];
+
+			for (int i = 0; i < column.length; i++) {
+				column[i] = elements.get(i).getProperties().get(property);
+			}
+
+			columns.put(property, column);
+		}
+
+		return column;
+	}
+
+	/**
+	 * Applies {@code evaluator} to the columns of the elements and returns the
+	 * resulting value for each element.
+	 */
+	public static <T extends Element> Map<T, Double> getValues(Collection<? extends T> elements,
+			Function<ElementColumns, double[]> evaluator) {
+		List<T> elementList = new ArrayList<>(elements);
+		double[] values = evaluator.apply(new ElementColumns(elementList));
+		Map<T, Double> result = new LinkedHashMap<>();
+
+		for (int i = 0; i < values.length; i++) {
+			result.put(elementList.get(i), values[i]);
+		}
+
+		return result;
+	}
+}
@@ -43,7 +43,15 @@ public interface HighlightCondition {
 
 	NamedShape getShape();
 
-	<T extends Element> Map<T, Double> getValues(Collection<? extends T> elements);
+	/**
+	 * Returns the value of each element in {@link ElementColumns}, in the same
+	 * order as the elements.
+	 */
+	double[] evaluate(ElementColumns columns);
+
+	default <T extends Element> Map<T, Double> getValues(Collection<? extends T> elements) {
+		return ElementColumns.getValues(elements, this::evaluate);
+	}
 
 	Point2D getValueRange(Collection<? extends Element> elements);
 
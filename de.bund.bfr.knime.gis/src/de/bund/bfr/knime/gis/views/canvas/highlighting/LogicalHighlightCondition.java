@@ -20,14 +20,16 @@
 package de.bund.bfr.knime.gis.views.canvas.highlighting;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Matcher;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.primitives.Doubles;
 
 import de.bund.bfr.knime.gis.views.canvas.element.Element;
@@ -59,8 +61,7 @@ public class LogicalHighlightCondition implements Serializable {
 	private Type type;
 	private String value;
 
-	private transient Double doubleValue;
-	private transient Boolean booleanValue;
+	private transient Predicate<Object> predicate;
 
 	public LogicalHighlightCondition() {
 		this(null, null, null);
@@ -78,6 +79,7 @@ public class LogicalHighlightCondition implements Serializable {
 
 	public void setProperty(String property) {
 		this.property = property;
+		predicate = null;
 	}
 
 	public Type getType() {
@@ -86,6 +88,7 @@ public class LogicalHighlightCondition implements Serializable {
 
 	public void setType(Type type) {
 		this.type = type;
+		predicate = null;
 	}
 
 	public String getValue() {
@@ -94,26 +97,44 @@ public class LogicalHighlightCondition implements Serializable {
 
 	public void setValue(String value) {
 		this.value = value;
+		predicate = null;
 	}
 
 	public <T extends Element> Map<T, Double> getValues(Collection<? extends T> elements) {
-		doubleValue = value != null ? Doubles.tryParse(value) : null;
+		return ElementColumns.getValues(elements, this::evaluate);
+	}
 
-		if (value == null) {
-			booleanValue = null;
-		} else if (value.equalsIgnoreCase("true") || value.equals("1")) {
-			booleanValue = true;
-		} else if (value.equalsIgnoreCase("false") || value.equals("0")) {
-			booleanValue = false;
-		} else {
-			booleanValue = null;
+	public double[] evaluate(ElementColumns columns) {
+		boolean[] matches = new boolean[columns.size()];
+		double[] values = new double[matches.length];
+
+		Arrays.fill(matches, true);
+		retainMatches(columns, matches);
+
+		for (int i = 0; i < matches.length; i++) {
+			values[i] = matches[i] ? 1.0 : 0.0;
 		}
 
-		Map<T, Double> result = new LinkedHashMap<>();
+		return values;
+	}
+
+	/**
+	 * Sets matches[i] to false for all elements, that do not fulfill the
+	 * condition. Elements with matches[i] == false are not evaluated.
+	 */
+	void retainMatches(ElementColumns columns, boolean[] matches) {
+		if (columns.size() == 0) {
+			return;
+		}
 
-		elements.forEach(e -> result.put(e, evaluate(e)));
+		Object[] column = columns.getColumn(property);
+		Predicate<Object> p = getPredicate();
 
-		return result;
+		for (int i = 0; i < column.length; i++) {
+			if (matches[i] && !p.test(column[i])) {
+				matches[i] = false;
+			}
+		}
 	}
 
 	@Override
@@ -136,32 +157,56 @@ public class LogicalHighlightCondition implements Serializable {
 		return Objects.equals(property, other.property) && type == other.type && Objects.equals(value, other.value);
 	}
 
-	private double evaluate(Element element) {
-		Object nodeValue = element.getProperties().get(property);
+	private Predicate<Object> getPredicate() {
+		if (predicate == null) {
+			predicate = compile();
+		}
+
+		return predicate;
+	}
+
+	/**
+	 * The value is parsed and the regular expression compiled only once for all
+	 * elements. Like before, an invalid regular expression only fails, when there
+	 * is a string to match.
+	 */
+	private Predicate<Object> compile() {
+		Double doubleValue = value != null ? Doubles.tryParse(value) : null;
+		Boolean booleanValue;
+
+		if (value == null) {
+			booleanValue = null;
+		} else if (value.equalsIgnoreCase("true") || value.equals("1")) {
+			booleanValue = true;
+		} else if (value.equalsIgnoreCase("false") || value.equals("0")) {
+			booleanValue = false;
+		} else {
+			booleanValue = null;
+		}
 
 		switch (type) {
 		case EQUAL:
-			return isEqual(nodeValue) ? 1.0 : 0.0;
+			return v -> isEqual(v, doubleValue, booleanValue);
 		case NOT_EQUAL:
-			return isEqual(nodeValue) ? 0.0 : 1.0;
+			return v -> !isEqual(v, doubleValue, booleanValue);
 		case GREATER:
-			return isGreater(nodeValue) ? 1.0 : 0.0;
+			return v -> v instanceof Number && doubleValue != null && ((Number) v).doubleValue() > doubleValue;
 		case LESS:
-			return isLess(nodeValue) ? 1.0 : 0.0;
+			return v -> v instanceof Number && doubleValue != null && ((Number) v).doubleValue() < doubleValue;
 		case REGEX_EQUAL:
-			return isEqualRegex(nodeValue, false) ? 1.0 : 0.0;
+			return newRegexPredicate(0, true);
 		case REGEX_NOT_EQUAL:
-			return isEqualRegex(nodeValue, false) ? 0.0 : 1.0;
+			return newRegexPredicate(0, false);
 		case REGEX_EQUAL_IGNORE_CASE:
-			return isEqualRegex(nodeValue, true) ? 1.0 : 0.0;
+			return newRegexPredicate(Pattern.CASE_INSENSITIVE, true);
 		case REGEX_NOT_EQUAL_IGNORE_CASE:
-			return isEqualRegex(nodeValue, true) ? 0.0 : 1.0;
+			return newRegexPredicate(Pattern.CASE_INSENSITIVE, false);
 		default:
 			throw new RuntimeException("Unknown type of LogicalHighlightCondition: " + type);
 		}
 	}
 
-	private boolean isEqual(Object nodeValue) {
+	private boolean isEqual(Object nodeValue, Double doubleValue, Boolean booleanValue) {
 		if (nodeValue instanceof Boolean && booleanValue != null) {
 			return ((Boolean) nodeValue).booleanValue() == booleanValue;
 		} else if (nodeValue instanceof Number && doubleValue != null) {
@@ -175,28 +220,15 @@ public class LogicalHighlightCondition implements Serializable {
 		}
 	}
 
-	private boolean isGreater(Object nodeValue) {
-		if (nodeValue instanceof Number && doubleValue != null) {
-			return ((Number) nodeValue).doubleValue() > doubleValue;
-		}
-
-		return false;
-	}
-
-	private boolean isLess(Object nodeValue) {
-		if (nodeValue instanceof Number && doubleValue != null) {
-			return ((Number) nodeValue).doubleValue() < doubleValue;
-		}
+	private Predicate<Object> newRegexPredicate(int flags, boolean equal) {
+		Supplier<Pattern> pattern = value != null ? Suppliers.memoize(() -> Pattern.compile(value, flags)) : null;
 
-		return false;
+		return v -> isEqualRegex(v, pattern) == equal;
 	}
 
-	private boolean isEqualRegex(Object nodeValue, boolean ignoreCase) {
-		if (nodeValue instanceof String && value != null) {
-			int flags = ignoreCase ? Pattern.CASE_INSENSITIVE : 0;
-			Matcher matcher = Pattern.compile(value, flags).matcher((String) nodeValue);
-
-			return matcher.matches();
+	private boolean isEqualRegex(Object nodeValue, Supplier<Pattern> pattern) {
+		if (nodeValue instanceof String && pattern != null) {
+			return pattern.get().matcher((String) nodeValue).matches();
 		} else if (nodeValue == null || nodeValue.equals("")) {
 			return Strings.isNullOrEmpty(value);
 		} else {
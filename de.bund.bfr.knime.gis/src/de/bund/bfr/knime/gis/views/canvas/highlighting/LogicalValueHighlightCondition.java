@@ -22,15 +22,11 @@ package de.bund.bfr.knime.gis.views.canvas.highlighting;
 import java.awt.Color;
 import java.awt.geom.Point2D;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.DoubleSummaryStatistics;
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.Objects;
 
 import de.bund.bfr.jung.NamedShape;
-import de.bund.bfr.knime.gis.views.canvas.CanvasUtils;
 import de.bund.bfr.knime.gis.views.canvas.element.Element;
 
 public class LogicalValueHighlightCondition implements HighlightCondition, Serializable {
@@ -102,61 +98,32 @@ public class LogicalValueHighlightCondition implements HighlightCondition, Seria
 	}
 
 	@Override
-	public <T extends Element> Map<T, Double> getValues(Collection<? extends T> elements) {
-		Map<T, Double> logicalValues = logicalCondition.getValues(elements);
-		Map<T, Double> values = new LinkedHashMap<>();
-		Map<T, Double> zeroValues = new LinkedHashMap<>();
-
-		for (T element : elements) {
-			if (logicalValues.get(element) != 0.0) {
-				values.put(element,
-						CanvasUtils.toPositiveDouble(element.getProperties().get(valueCondition.getProperty())));
-			} else {
-				zeroValues.put(element, 0.0);
-			}
-		}
+	public double[] evaluate(ElementColumns columns) {
+		double[] values = ValueHighlightCondition.toPositiveDoubles(columns.getColumn(valueCondition.getProperty()));
 
-		if (values.isEmpty()) {
-			return zeroValues;
-		}
+		valueCondition.normalize(values, getSelected(columns));
 
-		double min = valueCondition.isZeroAsMinimum() ? 0.0 : Collections.min(values.values());
+		return values;
+	}
 
-		if (min != 0.0) {
-			for (Map.Entry<T, Double> entry : values.entrySet()) {
-				entry.setValue(entry.getValue() - min);
-			}
-		}
+	@Override
+	public Point2D getValueRange(Collection<? extends Element> elements) {
+		ElementColumns columns = new ElementColumns(new ArrayList<>(elements));
 
-		double max = Collections.max(values.values());
+		return valueCondition.getValueRange(
+				ValueHighlightCondition.toPositiveDoubles(columns.getColumn(valueCondition.getProperty())),
+				getSelected(columns));
+	}
 
-		if (max != 0.0) {
-			for (Map.Entry<T, Double> entry : values.entrySet()) {
-				entry.setValue(entry.getValue() / max);
-			}
-		}
+	private boolean[] getSelected(ElementColumns columns) {
+		double[] logicalValues = logicalCondition.evaluate(columns);
+		boolean[] selected = new boolean[logicalValues.length];
 
-		if (valueCondition.getType() == ValueHighlightCondition.Type.LOG_VALUE) {
-			for (Map.Entry<T, Double> entry : values.entrySet()) {
-				entry.setValue(Math.log10(entry.getValue() * 9.0 + 1.0));
-			}
+		for (int i = 0; i < logicalValues.length; i++) {
+			selected[i] = logicalValues[i] != 0.0;
 		}
 
-		values.putAll(zeroValues);
-
-		return values;
-	}
-
-	@Override
-	public Point2D getValueRange(Collection<? extends Element> elements) {
-		Map<? extends Element, Double> logicalValues = logicalCondition.getValues(elements);
-		DoubleSummaryStatistics stats = elements.stream().filter(e -> logicalValues.get(e) != 0.0)
-				.mapToDouble(e -> CanvasUtils.toPositiveDouble(e.getProperties().get(valueCondition.getProperty())))
-				.summaryStatistics();
-		double min = valueCondition.isZeroAsMinimum() || stats.getCount() == 0 ? 0.0 : stats.getMin();
-		double max = stats.getCount() == 0 ? 1.0 : stats.getMax();
-
-		return new Point2D.Double(min, max);
+		return selected;
 	}
 
 	@Override
@@ -22,11 +22,9 @@ package de.bund.bfr.knime.gis.views.canvas.highlighting;
 import java.awt.Color;
 import java.awt.geom.Point2D;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.DoubleSummaryStatistics;
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.Objects;
 
 import de.bund.bfr.jung.NamedShape;
@@ -169,46 +167,85 @@ public class ValueHighlightCondition implements HighlightCondition, Serializable
 	}
 
 	@Override
-	public <T extends Element> Map<T, Double> getValues(Collection<? extends T> elements) {
-		Map<T, Double> values = new LinkedHashMap<>();
+	public double[] evaluate(ElementColumns columns) {
+		double[] values = toPositiveDoubles(columns.getColumn(property));
 
-		for (T element : elements) {
-			values.put(element, CanvasUtils.toPositiveDouble(element.getProperties().get(property)));
-		}
+		normalize(values, null);
+
+		return values;
+	}
+
+	@Override
+	public Point2D getValueRange(Collection<? extends Element> elements) {
+		return getValueRange(toPositiveDoubles(new ElementColumns(new ArrayList<>(elements)).getColumn(property)),
+				null);
+	}
+
+	static double[] toPositiveDoubles(Object[] column) {
+		double[] values = new double[column.length];
 
-		if (values.isEmpty()) {
-			return values;
+		for (int i = 0; i < column.length; i++) {
+			values[i] = CanvasUtils.toPositiveDouble(column[i]);
 		}
 
-		double min = zeroAsMinimum ? 0.0 : Collections.min(values.values());
+		return values;
+	}
 
-		if (min != 0.0) {
-			for (Map.Entry<T, Double> entry : values.entrySet()) {
-				entry.setValue(entry.getValue() - min);
+	/**
+	 * Scales the selected values (all values, if selected is null) to [0, 1]. The
+	 * other values are set to 0.
+	 */
+	void normalize(double[] values, boolean[] selected) {
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		int count = 0;
+
+		for (int i = 0; i < values.length; i++) {
+			if (selected == null || selected[i]) {
+				min = Math.min(min, values[i]);
+				count++;
+			} else {
+				values[i] = 0.0;
 			}
 		}
 
-		double max = Collections.max(values.values());
+		if (count == 0) {
+			return;
+		}
 
-		if (max != 0.0) {
-			for (Map.Entry<T, Double> entry : values.entrySet()) {
-				entry.setValue(entry.getValue() / max);
-			}
+		if (zeroAsMinimum) {
+			min = 0.0;
 		}
 
-		if (type == Type.LOG_VALUE) {
-			for (Map.Entry<T, Double> entry : values.entrySet()) {
-				entry.setValue(Math.log10(entry.getValue() * 9.0 + 1.0));
+		for (int i = 0; i < values.length; i++) {
+			if (selected == null || selected[i]) {
+				values[i] -= min;
+				max = Math.max(max, values[i]);
 			}
 		}
 
-		return values;
+		for (int i = 0; i < values.length; i++) {
+			if (selected == null || selected[i]) {
+				if (max != 0.0) {
+					values[i] /= max;
+				}
+
+				if (type == Type.LOG_VALUE) {
+					values[i] = Math.log10(values[i] * 9.0 + 1.0);
+				}
+			}
+		}
 	}
 
-	@Override
-	public Point2D getValueRange(Collection<? extends Element> elements) {
-		DoubleSummaryStatistics stats = elements.stream()
-				.mapToDouble(e -> CanvasUtils.toPositiveDouble(e.getProperties().get(property))).summaryStatistics();
+	Point2D getValueRange(double[] values, boolean[] selected) {
+		DoubleSummaryStatistics stats = new DoubleSummaryStatistics();
+
+		for (int i = 0; i < values.length; i++) {
+			if (selected == null || selected[i]) {
+				stats.accept(values[i]);
+			}
+		}
+
 		double min = zeroAsMinimum || stats.getCount() == 0 ? 0.0 : stats.getMin();
 		double max = stats.getCount() == 0 ? 1.0 : stats.getMax();
 
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.openstreetmap.gui.jmapviewer.tilesources.AbstractOsmTileSource;
+
+/**
+ * Tile source for machines without internet access. The tiles are read from a
+ * {@link TileArchive}, that is opened, when the first tile is requested.
+ */
+public class ArchiveTileSource extends AbstractOsmTileSource {
+
+	private static final String FILE_PROPERTY = "de.bund.bfr.knime.gis.tileArchive";
+
+	private File file;
+	private TileArchive archive;
+
+	public ArchiveTileSource(File file) {
+		super("Offline Archive", file.toURI().toString(), "OFFLINE_ARCHIVE");
+		this.file = file;
+		archive = null;
+	}
+
+	/**
+	 * Returns the file given by the system property
+	 * "de.bund.bfr.knime.gis.tileArchive" or a file in the user home.
+	 */
+	public static File getDefaultFile() {
+		String file = System.getProperty(FILE_PROPERTY);
+
+		if (file != null) {
+			return new File(file);
+		}
+
+		return new File(System.getProperty("user.home"), ".localHSH" + File.separator + "BfR" + File.separator
+				+ "tiles.fcltiles");
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public byte[] getTileData(int zoom, int x, int y) throws IOException {
+		byte[] data = getArchive().getTile(zoom, x, y);
+
+		if (data == null) {
+			throw new IOException("Tile " + zoom + "/" + x + "/" + y + " is not contained in " + file);
+		}
+
+		return data;
+	}
+
+	private synchronized TileArchive getArchive() throws IOException {
+		if (archive == null) {
+			archive = new TileArchive(file);
+		}
+
+		return archive;
+	}
+}
@@ -0,0 +1,546 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Column store for the properties of many elements. Each property of the
+ * schema is held in one typed column (double, int, bit set or dictionary
+ * encoded String) and each element is a row index. {@link #newRow()} returns a
+ * lightweight {@link Map} view onto a row, that can be used as
+ * {@link de.bund.bfr.knime.gis.views.canvas.element.Element} properties.
+ * Properties that are not in the schema or values that do not match the
+ * column type are stored in a generic Object column. Not thread-safe for
+ * writes.
+ */
+public class PropertyStore {
+
+	private static final int MIN_DICTIONARY_FALLBACK = 1024;
+
+	private Map<String, Column> columns;
+	private int rowCount;
+
+	public PropertyStore(PropertySchema schema) {
+		this(schema.getMap());
+	}
+
+	public PropertyStore(Map<String, Class<?>> types) {
+		columns = new LinkedHashMap<>();
+		rowCount = 0;
+		types.forEach((property, type) -> columns.put(property, createColumn(type)));
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public Map<String, Object> newRow() {
+		return new Row(rowCount++);
+	}
+
+	/**
+	 * Appends a row with a copy of properties, which may be a row of another
+	 * store or any other map. Changes of the copy do not affect properties.
+	 */
+	public Map<String, Object> newRow(Map<String, Object> properties) {
+		int index = rowCount++;
+
+		if (properties instanceof Row) {
+			Row row = (Row) properties;
+
+			row.getStore().columns.forEach((property, column) -> {
+				if (column.contains(row.index)) {
+					columns.computeIfAbsent(property, p -> createColumn(column.getType()));
+					put(property, index, column.get(row.index));
+				}
+			});
+		} else {
+			properties.forEach((property, value) -> put(property, index, value));
+		}
+
+		return new Row(index);
+	}
+
+	/**
+	 * Same as {@code properties.put(property, value)}, but writes the primitive
+	 * value directly into a double column without boxing.
+	 */
+	public static void putDouble(Map<String, Object> properties, String property, double value) {
+		if (properties instanceof Row && ((Row) properties).putDouble(property, value)) {
+			return;
+		}
+
+		properties.put(property, value);
+	}
+
+	/**
+	 * Same as {@code properties.put(property, value)}, but writes the primitive
+	 * value directly into a boolean column without boxing.
+	 */
+	public static void putBoolean(Map<String, Object> properties, String property, boolean value) {
+		if (properties instanceof Row && ((Row) properties).putBoolean(property, value)) {
+			return;
+		}
+
+		properties.put(property, value);
+	}
+
+	/**
+	 * Returns whether property is stored as dictionary encoded strings.
+	 */
+	boolean isDictionaryEncoded(String property) {
+		return columns.get(property) instanceof StringColumn;
+	}
+
+	private Column put(String property, int index, Object value) {
+		Column column = columns.get(property);
+
+		if (column == null) {
+			column = createColumn(value != null ? value.getClass() : Object.class);
+			columns.put(property, column);
+		}
+
+		if (!column.set(index, value)) {
+			column = new ObjectColumn(column, rowCount);
+			columns.put(property, column);
+			column.set(index, value);
+		}
+
+		return column;
+	}
+
+	private static Column createColumn(Class<?> type) {
+		if (type == Double.class) {
+			return new DoubleColumn();
+		} else if (type == Integer.class) {
+			return new IntColumn();
+		} else if (type == Boolean.class) {
+			return new BooleanColumn();
+		} else if (type == String.class) {
+			return new StringColumn();
+		}
+
+		return new ObjectColumn();
+	}
+
+	private class Row extends AbstractMap<String, Object> {
+
+		private int index;
+
+		private Row(int index) {
+			this.index = index;
+		}
+
+		private PropertyStore getStore() {
+			return PropertyStore.this;
+		}
+
+		private boolean putDouble(String property, double value) {
+			Column column = columns.get(property);
+
+			if (!(column instanceof DoubleColumn)) {
+				return false;
+			}
+
+			((DoubleColumn) column).setDouble(index, value);
+			return true;
+		}
+
+		private boolean putBoolean(String property, boolean value) {
+			Column column = columns.get(property);
+
+			if (!(column instanceof BooleanColumn)) {
+				return false;
+			}
+
+			((BooleanColumn) column).setBoolean(index, value);
+			return true;
+		}
+
+		@Override
+		public Object get(Object key) {
+			Column column = columns.get(key);
+
+			return column != null ? column.get(index) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			Column column = columns.get(key);
+
+			return column != null && column.contains(index);
+		}
+
+		@Override
+		public Object put(String key, Object value) {
+			Object old = get(key);
+
+			PropertyStore.this.put(key, index, value);
+
+			return old;
+		}
+
+		@Override
+		public Object remove(Object key) {
+			Column column = columns.get(key);
+
+			if (column == null) {
+				return null;
+			}
+
+			Object old = column.get(index);
+
+			column.remove(index);
+
+			return old;
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			return new AbstractSet<Map.Entry<String, Object>>() {
+
+				@Override
+				public Iterator<Map.Entry<String, Object>> iterator() {
+					return new EntryIterator();
+				}
+
+				@Override
+				public int size() {
+					int size = 0;
+
+					for (Column column : columns.values()) {
+						if (column.contains(index)) {
+							size++;
+						}
+					}
+
+					return size;
+				}
+			};
+		}
+
+		private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+			private Iterator<String> properties;
+			private String next;
+			private String last;
+
+			private EntryIterator() {
+				properties = new ArrayList<>(columns.keySet()).iterator();
+				next = findNext();
+				last = null;
+			}
+
+			private String findNext() {
+				while (properties.hasNext()) {
+					String property = properties.next();
+
+					if (containsKey(property)) {
+						return property;
+					}
+				}
+
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public Map.Entry<String, Object> next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+
+				last = next;
+				next = findNext();
+
+				String property = last;
+
+				return new AbstractMap.SimpleEntry<String, Object>(property, get(property)) {
+
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					public Object setValue(Object value) {
+						put(property, value);
+
+						return super.setValue(value);
+					}
+				};
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+
+				Row.this.remove(last);
+				last = null;
+			}
+		}
+	}
+
+	private static abstract class Column {
+
+		protected BitSet keys;
+		protected BitSet nulls;
+
+		protected Column() {
+			keys = new BitSet();
+			nulls = new BitSet();
+		}
+
+		public boolean contains(int index) {
+			return keys.get(index);
+		}
+
+		public Object get(int index) {
+			return keys.get(index) && !nulls.get(index) ? getValue(index) : null;
+		}
+
+		public boolean set(int index, Object value) {
+			if (value == null) {
+				keys.set(index);
+				nulls.set(index);
+				return true;
+			} else if (setValue(index, value)) {
+				keys.set(index);
+				nulls.clear(index);
+				return true;
+			}
+
+			return false;
+		}
+
+		public void remove(int index) {
+			keys.clear(index);
+			nulls.clear(index);
+		}
+
+		protected abstract Class<?> getType();
+
+		protected abstract Object getValue(int index);
+
+		protected abstract boolean setValue(int index, Object value);
+
+		protected static int grow(int length, int index) {
+			return Math.max(2 * length, index + 1);
+		}
+	}
+
+	private static class DoubleColumn extends Column {
+
+		private double[] values = new double[0];
+
+		@Override
+		protected Class<?> getType() {
+			return Double.class;
+		}
+
+		public void setDouble(int index, double value) {
+			if (index >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, index));
+			}
+
+			values[index] = value;
+			keys.set(index);
+			nulls.clear(index);
+		}
+
+		@Override
+		protected Object getValue(int index) {
+			return values[index];
+		}
+
+		@Override
+		protected boolean setValue(int index, Object value) {
+			if (!(value instanceof Double)) {
+				return false;
+			}
+
+			setDouble(index, (Double) value);
+			return true;
+		}
+	}
+
+	private static class IntColumn extends Column {
+
+		private int[] values = new int[0];
+
+		@Override
+		protected Class<?> getType() {
+			return Integer.class;
+		}
+
+		@Override
+		protected Object getValue(int index) {
+			return values[index];
+		}
+
+		@Override
+		protected boolean setValue(int index, Object value) {
+			if (!(value instanceof Integer)) {
+				return false;
+			}
+
+			if (index >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, index));
+			}
+
+			values[index] = (Integer) value;
+			return true;
+		}
+	}
+
+	private static class BooleanColumn extends Column {
+
+		private BitSet values = new BitSet();
+
+		@Override
+		protected Class<?> getType() {
+			return Boolean.class;
+		}
+
+		public void setBoolean(int index, boolean value) {
+			values.set(index, value);
+			keys.set(index);
+			nulls.clear(index);
+		}
+
+		@Override
+		protected Object getValue(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		protected boolean setValue(int index, Object value) {
+			if (!(value instanceof Boolean)) {
+				return false;
+			}
+
+			values.set(index, (Boolean) value);
+			return true;
+		}
+	}
+
+	/**
+	 * Strings are stored as codes into a dictionary. Once the dictionary holds
+	 * more than half as many strings as there are values (e.g. ids), setValue
+	 * fails and the column is replaced by an {@link ObjectColumn}.
+	 */
+	private static class StringColumn extends Column {
+
+		private int[] codes = new int[0];
+		private List<String> dictionary = new ArrayList<>();
+		private Map<String, Integer> codesByValue = new HashMap<>();
+
+		@Override
+		protected Class<?> getType() {
+			return String.class;
+		}
+
+		@Override
+		protected Object getValue(int index) {
+			return dictionary.get(codes[index]);
+		}
+
+		@Override
+		protected boolean setValue(int index, Object value) {
+			if (!(value instanceof String)) {
+				return false;
+			}
+
+			Integer code = codesByValue.get(value);
+
+			if (code == null) {
+				if (dictionary.size() >= MIN_DICTIONARY_FALLBACK && 2 * dictionary.size() > keys.cardinality()) {
+					return false;
+				}
+
+				code = dictionary.size();
+				dictionary.add((String) value);
+				codesByValue.put((String) value, code);
+			}
+
+			if (index >= codes.length) {
+				codes = Arrays.copyOf(codes, grow(codes.length, index));
+			}
+
+			codes[index] = code;
+			return true;
+		}
+	}
+
+	private static class ObjectColumn extends Column {
+
+		private Object[] values;
+
+		private ObjectColumn() {
+			values = new Object[0];
+		}
+
+		private ObjectColumn(Column column, int rowCount) {
+			values = new Object[rowCount];
+
+			for (int i = column.keys.nextSetBit(0); i >= 0; i = column.keys.nextSetBit(i + 1)) {
+				values[i] = column.get(i);
+			}
+
+			keys = column.keys;
+			nulls = column.nulls;
+		}
+
+		@Override
+		protected Class<?> getType() {
+			return Object.class;
+		}
+
+		@Override
+		protected Object getValue(int index) {
+			return values[index];
+		}
+
+		@Override
+		protected boolean setValue(int index, Object value) {
+			if (index >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, index));
+			}
+
+			values[index] = value;
+			return true;
+		}
+	}
+}
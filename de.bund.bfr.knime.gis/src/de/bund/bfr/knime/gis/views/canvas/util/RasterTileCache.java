@@ -0,0 +1,326 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.util;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache for a raster layer, that is split into tiles of TILE_SIZE x TILE_SIZE
+ * pixels. Tiles are identified by the scale of the transform and their
+ * position relative to the origin, so that they can be reused, when the
+ * transform is only translated. Missing tiles are rendered on a worker pool.
+ * The least recently used tiles are removed, when the memory budget is
+ * exceeded.
+ */
+public class RasterTileCache {
+
+	public static final int TILE_SIZE = 256;
+	public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024L * 1024L;
+
+	private static final int BYTES_PER_TILE = TILE_SIZE * TILE_SIZE * 4;
+
+	private static final ExecutorService EXECUTOR = Executors
+			.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+				Thread thread = new Thread(r, "GIS Tile Rendering");
+
+				thread.setDaemon(true);
+
+				return thread;
+			});
+
+	/**
+	 * Renders tiles in background threads. It must only use immutable data, e.g. a
+	 * snapshot of the content taken on the event dispatch thread.
+	 */
+	public interface TileRenderer {
+
+		/**
+		 * Renders the area [0, size.width] x [0, size.height] with transform.
+		 * Returns false, if the result is incomplete (e.g. because some data is
+		 * still loading) and should be rendered again after flushIncomplete.
+		 */
+		boolean render(Graphics2D g, Transform transform, Dimension size);
+	}
+
+	private Runnable tileRendered;
+	private long memoryBudget;
+
+	private Map<TileKey, BufferedImage> tiles;
+	private Set<TileKey> incompleteTiles;
+	private Set<TileKey> pendingTiles;
+	private long generation;
+	private long incompleteGeneration;
+
+	private Transform lastTransform;
+	private Dimension lastSize;
+	private Transform fallbackTransform;
+
+	public RasterTileCache(Runnable tileRendered) {
+		this(tileRendered, DEFAULT_MEMORY_BUDGET);
+	}
+
+	public RasterTileCache(Runnable tileRendered, long memoryBudget) {
+		this.tileRendered = tileRendered;
+		this.memoryBudget = memoryBudget;
+		tiles = new LinkedHashMap<>(16, 0.75f, true);
+		incompleteTiles = new HashSet<>();
+		pendingTiles = new HashSet<>();
+		generation = 0;
+		incompleteGeneration = 0;
+		lastTransform = null;
+		lastSize = null;
+		fallbackTransform = null;
+	}
+
+	/**
+	 * Draws all cached tiles in the area [0, size.width] x [0, size.height] and
+	 * requests the missing ones from renderer. Until they are available, tiles of
+	 * the last completely drawn scale are drawn scaled instead. The renderer must
+	 * show the content, that was current, when the cache was flushed last.
+	 */
+	public void paint(Graphics2D g, TileRenderer renderer, Transform transform, Dimension size) {
+		if (!transform.isValid() || transform.getScaleX() == 0.0 || transform.getScaleY() == 0.0) {
+			return;
+		}
+
+		Transform fallback;
+
+		synchronized (this) {
+			lastTransform = transform;
+			lastSize = new Dimension(size);
+			fallback = fallbackTransform;
+		}
+
+		boolean scaleChanged = fallback != null && !hasSameScale(fallback, transform);
+
+		if (scaleChanged && !drawTiles(null, null, transform, size, null)) {
+			drawTiles(g, null, transform, size, fallback);
+		}
+
+		if (drawTiles(g, renderer, transform, size, null)) {
+			synchronized (this) {
+				fallbackTransform = transform;
+			}
+		}
+	}
+
+	/**
+	 * Removes all tiles. Must be called, when the content of the layer changes.
+	 */
+	public synchronized void flush() {
+		tiles.values().forEach(BufferedImage::flush);
+		tiles.clear();
+		incompleteTiles.clear();
+		fallbackTransform = null;
+		generation++;
+	}
+
+	/**
+	 * Removes the tiles, for which the renderer returned false.
+	 */
+	public synchronized void flushIncomplete() {
+		for (TileKey key : incompleteTiles) {
+			BufferedImage image = tiles.remove(key);
+
+			if (image != null) {
+				image.flush();
+			}
+		}
+
+		incompleteTiles.clear();
+		incompleteGeneration++;
+	}
+
+	/**
+	 * Returns true, if all tiles are available. If source is not null, the tiles
+	 * with the scale of source are drawn scaled to transform. If g is null, the
+	 * tiles are not drawn. If renderer is not null, missing tiles are requested.
+	 */
+	private boolean drawTiles(Graphics2D g, TileRenderer renderer, Transform transform, Dimension size,
+			Transform source) {
+		Transform tileTransform = source != null ? source : transform;
+		double ratioX = transform.getScaleX() / tileTransform.getScaleX();
+		double ratioY = transform.getScaleY() / tileTransform.getScaleY();
+		long translationX = Math.round(transform.getTranslationX());
+		long translationY = Math.round(transform.getTranslationY());
+		double x1 = -translationX / ratioX;
+		double x2 = (size.width - translationX) / ratioX;
+		double y1 = -translationY / ratioY;
+		double y2 = (size.height - translationY) / ratioY;
+		int minX = (int) Math.floor(Math.min(x1, x2) / TILE_SIZE);
+		int maxX = (int) Math.floor(Math.max(x1, x2) / TILE_SIZE);
+		int minY = (int) Math.floor(Math.min(y1, y2) / TILE_SIZE);
+		int maxY = (int) Math.floor(Math.max(y1, y2) / TILE_SIZE);
+		AffineTransform at = new AffineTransform();
+		boolean complete = true;
+
+		at.translate(translationX, translationY);
+		at.scale(ratioX, ratioY);
+
+		for (int x = minX; x <= maxX; x++) {
+			for (int y = minY; y <= maxY; y++) {
+				BufferedImage image;
+				TileKey key;
+
+				synchronized (this) {
+					key = new TileKey(tileTransform, x, y, generation);
+					image = tiles.get(key);
+
+					if (image == null && renderer != null && pendingTiles.add(key)) {
+						long incomplete = incompleteGeneration;
+
+						EXECUTOR.execute(() -> renderTile(renderer, key, incomplete));
+					}
+				}
+
+				if (image != null && g != null) {
+					AffineTransform tileAt = new AffineTransform(at);
+
+					tileAt.translate(x * TILE_SIZE, y * TILE_SIZE);
+					g.drawImage(image, tileAt, null);
+				} else if (image == null) {
+					complete = false;
+				}
+			}
+		}
+
+		return complete;
+	}
+
+	private void renderTile(TileRenderer renderer, TileKey key, long incomplete) {
+		try {
+			if (!isVisible(key)) {
+				return;
+			}
+
+			BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = image.createGraphics();
+			Transform transform = new Transform(key.scaleX, key.scaleY, -key.x * TILE_SIZE, -key.y * TILE_SIZE);
+			boolean complete;
+
+			try {
+				complete = renderer.render(g, transform, new Dimension(TILE_SIZE, TILE_SIZE));
+			} finally {
+				g.dispose();
+			}
+
+			synchronized (this) {
+				if (key.generation != generation || !complete && incomplete != incompleteGeneration) {
+					image.flush();
+				} else {
+					tiles.put(key, image);
+
+					if (!complete) {
+						incompleteTiles.add(key);
+					}
+
+					removeLeastRecentlyUsed();
+				}
+			}
+
+			tileRendered.run();
+		} finally {
+			synchronized (this) {
+				pendingTiles.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Tiles of an outdated scale or outside of the area, that was painted last,
+	 * are not rendered anymore.
+	 */
+	private synchronized boolean isVisible(TileKey key) {
+		if (key.generation != generation || lastTransform == null || key.scaleX != lastTransform.getScaleX()
+				|| key.scaleY != lastTransform.getScaleY()) {
+			return false;
+		}
+
+		double minX = key.x * TILE_SIZE + Math.round(lastTransform.getTranslationX());
+		double minY = key.y * TILE_SIZE + Math.round(lastTransform.getTranslationY());
+
+		return minX < lastSize.width && minX + TILE_SIZE > 0 && minY < lastSize.height && minY + TILE_SIZE > 0;
+	}
+
+	private void removeLeastRecentlyUsed() {
+		Iterator<Map.Entry<TileKey, BufferedImage>> iterator = tiles.entrySet().iterator();
+
+		while ((long) tiles.size() * BYTES_PER_TILE > memoryBudget && iterator.hasNext()) {
+			Map.Entry<TileKey, BufferedImage> entry = iterator.next();
+
+			entry.getValue().flush();
+			incompleteTiles.remove(entry.getKey());
+			iterator.remove();
+		}
+	}
+
+	private static boolean hasSameScale(Transform t1, Transform t2) {
+		return t1.getScaleX() == t2.getScaleX() && t1.getScaleY() == t2.getScaleY();
+	}
+
+	private static final class TileKey {
+
+		private double scaleX;
+		private double scaleY;
+		private int x;
+		private int y;
+		private long generation;
+
+		public TileKey(Transform transform, int x, int y, long generation) {
+			scaleX = transform.getScaleX();
+			scaleY = transform.getScaleY();
+			this.x = x;
+			this.y = y;
+			this.generation = generation;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(scaleX, scaleY, x, y, generation);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			if (obj == null || obj.getClass() != getClass()) {
+				return false;
+			}
+
+			TileKey other = (TileKey) obj;
+
+			return scaleX == other.scaleX && scaleY == other.scaleY && x == other.x && y == other.y
+					&& generation == other.generation;
+		}
+	}
+}
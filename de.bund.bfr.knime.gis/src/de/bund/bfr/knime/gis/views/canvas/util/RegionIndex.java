@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.util;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+import de.bund.bfr.knime.gis.views.canvas.element.RegionNode;
+
+/**
+ * Spatial index over the envelopes of regions. Only the regions, whose
+ * envelope contains a point, are tested with
+ * {@link RegionNode#containsPoint(Point2D)}. The index is immutable and can be
+ * queried from several threads.
+ */
+public class RegionIndex {
+
+	private List<RegionNode> regions;
+	private STRtree tree;
+
+	public RegionIndex(Collection<RegionNode> regions) {
+		this.regions = new ArrayList<>(regions);
+		tree = new STRtree();
+
+		for (int i = 0; i < this.regions.size(); i++) {
+			tree.insert(this.regions.get(i).getPolygon().getEnvelopeInternal(), i);
+		}
+
+		tree.build();
+	}
+
+	public List<RegionNode> getRegions() {
+		return regions;
+	}
+
+	/**
+	 * Returns the region, that contains the point. If several regions contain
+	 * the point, the first one in the order of the regions is returned and
+	 * null, if there is none.
+	 */
+	public RegionNode getRegion(Point2D point) {
+		@SuppressWarnings("unchecked")
+		List<Integer> candidates = tree.query(new Envelope(point.getX(), point.getX(), point.getY(), point.getY()));
+		RegionNode region = null;
+		int regionIndex = Integer.MAX_VALUE;
+
+		for (int i : candidates) {
+			if (i < regionIndex && regions.get(i).containsPoint(point)) {
+				region = regions.get(i);
+				regionIndex = i;
+			}
+		}
+
+		return region;
+	}
+
+	/**
+	 * Returns the region of each point as in {@link #getRegion(Point2D)}. The
+	 * points are assigned in parallel.
+	 */
+	public List<RegionNode> getRegions(List<Point2D> points) {
+		return points.parallelStream().map(p -> p != null ? getRegion(p) : null).collect(Collectors.toList());
+	}
+}
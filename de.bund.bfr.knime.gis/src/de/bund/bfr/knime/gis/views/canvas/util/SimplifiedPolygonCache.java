@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.util;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.simplify.TopologyPreservingSimplifier;
+
+/**
+ * Topology preserving simplifications of a polygon for the tolerances 2^level.
+ * The level for a scale is chosen, so that the simplification is not visible
+ * on screen. Levels are built in background threads when they are first
+ * requested. Until then the closest finer level or the original polygon is
+ * returned. levelBuilt is called, whenever a level has been built.
+ */
+public class SimplifiedPolygonCache {
+
+	private static final double PIXEL_TOLERANCE = 0.5;
+	private static final double MIN_REDUCTION = 0.8;
+
+	private static final ExecutorService EXECUTOR = Executors
+			.newFixedThreadPool(Math.max(Runtime.getRuntime().availableProcessors() - 1, 1), r -> {
+				Thread thread = new Thread(r, "Polygon Simplification");
+
+				thread.setDaemon(true);
+
+				return thread;
+			});
+
+	private Geometry polygon;
+	private Runnable levelBuilt;
+	private Map<Integer, Geometry> levels;
+	private Set<Integer> pendingLevels;
+	private volatile int maxOriginalLevel;
+
+	public SimplifiedPolygonCache(Geometry polygon, Runnable levelBuilt) {
+		this.polygon = polygon;
+		this.levelBuilt = levelBuilt;
+		levels = new ConcurrentHashMap<>();
+		pendingLevels = ConcurrentHashMap.newKeySet();
+		maxOriginalLevel = Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Returns the polygon simplified for drawing with the scale. If the level is
+	 * not available yet, it is built in the background.
+	 */
+	public Geometry getPolygon(double scale) {
+		if (!Double.isFinite(scale) || scale <= 0.0) {
+			return polygon;
+		}
+
+		int level = getLevel(scale);
+
+		if (level <= maxOriginalLevel) {
+			return polygon;
+		}
+
+		Geometry simplified = levels.get(level);
+
+		if (simplified != null) {
+			return simplified;
+		}
+
+		if (pendingLevels.add(level)) {
+			EXECUTOR.execute(() -> {
+				buildLevel(level);
+				pendingLevels.remove(level);
+				levelBuilt.run();
+			});
+		}
+
+		return levels.entrySet().stream().filter(e -> e.getKey() < level).max(Map.Entry.comparingByKey())
+				.map(Map.Entry::getValue).orElse(polygon);
+	}
+
+	/**
+	 * Returns false, if {@link #getPolygon(double)} does not return the level for
+	 * the scale yet, because it is still being built.
+	 */
+	public boolean isAvailable(double scale) {
+		if (!Double.isFinite(scale) || scale <= 0.0) {
+			return true;
+		}
+
+		int level = getLevel(scale);
+
+		return level <= maxOriginalLevel || levels.containsKey(level);
+	}
+
+	private static int getLevel(double scale) {
+		return (int) Math.floor(Math.log(PIXEL_TOLERANCE / scale) / Math.log(2.0));
+	}
+
+	private void buildLevel(int level) {
+		Geometry simplified = TopologyPreservingSimplifier.simplify(polygon, Math.pow(2.0, level));
+
+		// finer levels would not reduce the polygon either
+		if (simplified.getNumPoints() > MIN_REDUCTION * polygon.getNumPoints()) {
+			synchronized (this) {
+				maxOriginalLevel = Math.max(maxOriginalLevel, level);
+			}
+		} else {
+			levels.put(level, simplified);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read only access to a tile archive created by {@link TileArchivePacker}. The
+ * archive consists of a header, an index of (key, offset, length) entries
+ * sorted by key and the tile data. Index and data are memory-mapped, so tiles
+ * are looked up by binary search without any file access and the archive can
+ * be read by several threads at once. The data is split into segments of
+ * SEGMENT_SIZE bytes, that are mapped separately. No tile crosses a segment
+ * boundary. The mappings are released, when the archive is garbage
+ * collected.
+ */
+public class TileArchive {
+
+	public static final byte[] MAGIC = "FCLTILES".getBytes(StandardCharsets.US_ASCII);
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = MAGIC.length + 8;
+	public static final int INDEX_ENTRY_SIZE = 20;
+	public static final int SEGMENT_SIZE = 1 << 30;
+	public static final int MAX_ZOOM = 29;
+	public static final int MAX_TILE_COUNT = Integer.MAX_VALUE / INDEX_ENTRY_SIZE;
+
+	private File file;
+	private int tileCount;
+	private MappedByteBuffer index;
+	private MappedByteBuffer[] segments;
+
+	public TileArchive(File file) throws IOException {
+		this.file = file;
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+			while (header.hasRemaining() && channel.read(header) != -1) {
+			}
+
+			byte[] magic = new byte[MAGIC.length];
+
+			header.flip();
+
+			if (header.remaining() < HEADER_SIZE) {
+				throw new IOException(file + " is not a tile archive");
+			}
+
+			header.get(magic);
+
+			if (!Arrays.equals(magic, MAGIC)) {
+				throw new IOException(file + " is not a tile archive");
+			}
+
+			int version = header.getInt();
+
+			if (version != VERSION) {
+				throw new IOException("Unsupported version " + version + " of tile archive " + file);
+			}
+
+			tileCount = header.getInt();
+
+			long dataStart = getDataStart(tileCount);
+			long dataSize = channel.size() - dataStart;
+
+			if (tileCount < 0 || tileCount > MAX_TILE_COUNT || dataSize < 0) {
+				throw new IOException("Tile archive " + file + " is corrupt");
+			}
+
+			index = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) tileCount * INDEX_ENTRY_SIZE);
+			segments = new MappedByteBuffer[(int) ((dataSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i * SEGMENT_SIZE;
+
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + start,
+						Math.min(SEGMENT_SIZE, dataSize - start));
+			}
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getTileCount() {
+		return tileCount;
+	}
+
+	/**
+	 * Returns the data of the tile or null, if it is not in the archive.
+	 */
+	public byte[] getTile(int zoom, int x, int y) {
+		if (zoom < 0 || zoom > MAX_ZOOM || x < 0 || y < 0 || x >= 1 << zoom || y >= 1 << zoom) {
+			return null;
+		}
+
+		long key = getKey(zoom, x, y);
+		int low = 0;
+		int high = tileCount - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int position = mid * INDEX_ENTRY_SIZE;
+			long midKey = index.getLong(position);
+
+			if (midKey < key) {
+				low = mid + 1;
+			} else if (midKey > key) {
+				high = mid - 1;
+			} else {
+				long offset = index.getLong(position + 8);
+				int length = index.getInt(position + 16);
+				ByteBuffer segment = segments[(int) (offset / SEGMENT_SIZE)].duplicate();
+				byte[] data = new byte[length];
+
+				segment.position((int) (offset % SEGMENT_SIZE));
+				segment.get(data);
+
+				return data;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the key, by which the index is sorted. Sorting by key sorts the
+	 * tiles by zoom, x and y.
+	 */
+	public static long getKey(int zoom, int x, int y) {
+		return (long) zoom << 58 | (long) x << 29 | y;
+	}
+
+	public static long getDataStart(int tileCount) {
+		return HEADER_SIZE + (long) tileCount * INDEX_ENTRY_SIZE;
+	}
+}
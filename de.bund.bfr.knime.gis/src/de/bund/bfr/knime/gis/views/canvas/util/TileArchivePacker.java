@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Packs a directory of tiles into a {@link TileArchive}. The directory must
+ * have the usual zoom/x/y.png layout. Besides png, jpg and the tile files of a
+ * {@link TileDiskCache} are supported, so that a cache filled on a machine
+ * with internet access can be moved to a machine without.
+ *
+ * <pre>
+ * java de.bund.bfr.knime.gis.views.canvas.util.TileArchivePacker &lt;directory&gt; &lt;archive&gt;
+ * </pre>
+ *
+ * The exit status is 0, if the archive was written, and 1 otherwise.
+ */
+public class TileArchivePacker {
+
+	private static final Pattern TILE_FILE = Pattern.compile("(\\d+)\\.(png|jpg|jpeg|tile)",
+			Pattern.CASE_INSENSITIVE);
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: TileArchivePacker <directory> <archive>");
+			System.exit(1);
+		}
+
+		try {
+			pack(new File(args[0]), new File(args[1]));
+		} catch (IOException e) {
+			System.err.println(e);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Writes all tiles in directory to archive and returns the number of tiles.
+	 */
+	public static int pack(File directory, File archive) throws IOException {
+		List<TileFile> tiles = getTileFiles(directory.toPath());
+
+		if (tiles.size() > TileArchive.MAX_TILE_COUNT) {
+			throw new IOException("Too many tiles: " + tiles.size());
+		}
+
+		tiles.sort(Comparator.comparingLong(t -> t.key));
+
+		long offset = 0;
+
+		for (TileFile tile : tiles) {
+			long length = Files.size(tile.path);
+
+			if (length > TileArchive.SEGMENT_SIZE) {
+				throw new IOException("Tile too large: " + tile.path);
+			}
+
+			if (offset % TileArchive.SEGMENT_SIZE + length > TileArchive.SEGMENT_SIZE) {
+				offset += TileArchive.SEGMENT_SIZE - offset % TileArchive.SEGMENT_SIZE;
+			}
+
+			tile.offset = offset;
+			tile.length = (int) length;
+			offset += length;
+		}
+
+		Path tempFile = Files.createTempFile(archive.getAbsoluteFile().getParentFile().toPath(), null, ".tmp");
+
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				out.write(TileArchive.MAGIC);
+				out.writeInt(TileArchive.VERSION);
+				out.writeInt(tiles.size());
+
+				for (TileFile tile : tiles) {
+					out.writeLong(tile.key);
+					out.writeLong(tile.offset);
+					out.writeInt(tile.length);
+				}
+
+				long position = 0;
+
+				for (TileFile tile : tiles) {
+					for (; position < tile.offset; position++) {
+						out.write(0);
+					}
+
+					byte[] data = Files.readAllBytes(tile.path);
+
+					if (data.length != tile.length) {
+						throw new IOException(tile.path + " was modified while packing");
+					}
+
+					out.write(data);
+					position += data.length;
+				}
+			}
+
+			Files.move(tempFile, archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+
+		return tiles.size();
+	}
+
+	private static List<TileFile> getTileFiles(Path directory) throws IOException {
+		List<TileFile> tiles = new ArrayList<>();
+
+		for (Path zoomDir : getNumberedDirectories(directory)) {
+			int zoom = Integer.parseInt(zoomDir.getFileName().toString());
+
+			if (zoom > TileArchive.MAX_ZOOM) {
+				continue;
+			}
+
+			for (Path xDir : getNumberedDirectories(zoomDir)) {
+				int x = Integer.parseInt(xDir.getFileName().toString());
+
+				try (Stream<Path> files = Files.list(xDir)) {
+					for (Path file : (Iterable<Path>) files::iterator) {
+						Matcher matcher = TILE_FILE.matcher(file.getFileName().toString());
+
+						if (!matcher.matches() || !Files.isRegularFile(file)) {
+							continue;
+						}
+
+						int y = Integer.parseInt(matcher.group(1));
+
+						if (x < 1 << zoom && y < 1 << zoom) {
+							tiles.add(new TileFile(TileArchive.getKey(zoom, x, y), file));
+						}
+					}
+				}
+			}
+		}
+
+		long distinctKeys = tiles.stream().mapToLong(t -> t.key).distinct().count();
+
+		if (distinctKeys != tiles.size()) {
+			throw new IOException("Directory " + directory + " contains several files for the same tile");
+		}
+
+		return tiles;
+	}
+
+	private static List<Path> getNumberedDirectories(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(f -> Files.isDirectory(f) && f.getFileName().toString().matches("\\d{1,9}"))
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static final class TileFile {
+
+		private long key;
+		private Path path;
+		private long offset;
+		private int length;
+
+		public TileFile(long key, Path path) {
+			this.key = key;
+			this.path = path;
+		}
+	}
+}
@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persistent store for map tiles in a directory pyramid
+ * (source/zoom/x/y.tile). The ETag and the expiry time of each tile are
+ * stored next to it in a properties file. Files are replaced atomically, so
+ * that the directory can be shared by several canvases. When the tiles exceed
+ * the maximum size, the least recently used ones are deleted, until three
+ * quarters of the maximum size are left. The modification time of a tile file
+ * is its last access.
+ */
+public class TileDiskCache {
+
+	public static final long DEFAULT_EXPIRY = TimeUnit.DAYS.toMillis(7);
+	public static final long DEFAULT_MAX_SIZE = 512L * 1024L * 1024L;
+
+	private static final String DIRECTORY_PROPERTY = "de.bund.bfr.knime.gis.tileCache";
+	private static final String ETAG = "etag";
+	private static final String EXPIRES = "expires";
+
+	private Path directory;
+	private long maxSize;
+
+	private long size;
+	private AtomicBoolean cleaningUp;
+
+	public TileDiskCache(File directory) {
+		this(directory, DEFAULT_MAX_SIZE);
+	}
+
+	public TileDiskCache(File directory, long maxSize) {
+		this.directory = directory.toPath();
+		this.maxSize = maxSize;
+		size = -1;
+		cleaningUp = new AtomicBoolean(false);
+	}
+
+	/**
+	 * Returns the directory given by the system property
+	 * "de.bund.bfr.knime.gis.tileCache" or a directory in the user home.
+	 */
+	public static File getDefaultDirectory() {
+		String directory = System.getProperty(DIRECTORY_PROPERTY);
+
+		if (directory != null) {
+			return new File(directory);
+		}
+
+		return new File(System.getProperty("user.home"), ".localHSH" + File.separator + "BfR" + File.separator
+				+ "tiles");
+	}
+
+	public File getDirectory() {
+		return directory.toFile();
+	}
+
+	/**
+	 * Returns the stored tile or null, if it is not in the cache.
+	 */
+	public Entry get(String source, int zoom, int x, int y) throws IOException {
+		Path tileFile = getTileFile(source, zoom, x, y);
+		byte[] data;
+
+		try {
+			data = Files.readAllBytes(tileFile);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+
+		try {
+			Files.setLastModifiedTime(tileFile, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// the tile is only more likely to be removed by cleanUp
+		}
+
+		Properties metaData = readMetaData(getMetaDataFile(tileFile));
+		String expires = metaData.getProperty(EXPIRES);
+
+		return new Entry(data, metaData.getProperty(ETAG), expires != null ? Long.parseLong(expires) : 0);
+	}
+
+	public void put(String source, int zoom, int x, int y, byte[] data, String etag, long expires)
+			throws IOException {
+		Path tileFile = getTileFile(source, zoom, x, y);
+
+		Files.createDirectories(tileFile.getParent());
+		writeAtomically(tileFile, data);
+		writeMetaData(getMetaDataFile(tileFile), etag, expires);
+
+		if (addSize(data.length) && cleaningUp.compareAndSet(false, true)) {
+			try {
+				cleanUp();
+			} finally {
+				cleaningUp.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the least recently used tiles, until they take less than three
+	 * quarters of the maximum size.
+	 */
+	public void cleanUp() throws IOException {
+		List<TileFile> tileFiles = getTileFiles();
+		long total = tileFiles.stream().mapToLong(t -> t.size).sum();
+
+		tileFiles.sort(Comparator.comparingLong(t -> t.lastAccess));
+
+		for (TileFile tileFile : tileFiles) {
+			if (total <= maxSize / 4 * 3) {
+				break;
+			}
+
+			Files.deleteIfExists(tileFile.path);
+			Files.deleteIfExists(getMetaDataFile(tileFile.path));
+			total -= tileFile.size;
+		}
+
+		synchronized (this) {
+			size = total;
+		}
+	}
+
+	/**
+	 * Returns true, if the tiles exceed the maximum size afterwards. Tiles, that
+	 * are replaced, are counted twice until the next cleanUp.
+	 */
+	private synchronized boolean addSize(long bytes) throws IOException {
+		if (size < 0) {
+			size = getTileFiles().stream().mapToLong(t -> t.size).sum();
+		} else {
+			size += bytes;
+		}
+
+		return size > maxSize;
+	}
+
+	private List<TileFile> getTileFiles() throws IOException {
+		List<TileFile> tileFiles = new ArrayList<>();
+
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile() && file.getFileName().toString().endsWith(".tile")) {
+					tileFiles.add(new TileFile(file, attrs.size(), attrs.lastModifiedTime().toMillis()));
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				// the file was removed by another cache in the meantime
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		return tileFiles;
+	}
+
+	/**
+	 * Sets a new expiry time for a stored tile, e.g. after the server confirmed,
+	 * that the tile was not modified.
+	 */
+	public void updateExpires(String source, int zoom, int x, int y, long expires) throws IOException {
+		Path metaDataFile = getMetaDataFile(getTileFile(source, zoom, x, y));
+
+		writeMetaData(metaDataFile, readMetaData(metaDataFile).getProperty(ETAG), expires);
+	}
+
+	private Path getTileFile(String source, int zoom, int x, int y) {
+		return directory.resolve(source.replaceAll("[^A-Za-z0-9._-]", "_")).resolve(String.valueOf(zoom))
+				.resolve(String.valueOf(x)).resolve(y + ".tile");
+	}
+
+	private static Path getMetaDataFile(Path tileFile) {
+		String name = tileFile.getFileName().toString();
+
+		return tileFile.resolveSibling(name.substring(0, name.lastIndexOf('.')) + ".properties");
+	}
+
+	private static Properties readMetaData(Path metaDataFile) throws IOException {
+		Properties metaData = new Properties();
+
+		try (InputStream in = Files.newInputStream(metaDataFile)) {
+			metaData.load(in);
+		} catch (NoSuchFileException e) {
+		}
+
+		return metaData;
+	}
+
+	private static void writeMetaData(Path metaDataFile, String etag, long expires) throws IOException {
+		Properties metaData = new Properties();
+
+		if (etag != null) {
+			metaData.setProperty(ETAG, etag);
+		}
+
+		metaData.setProperty(EXPIRES, String.valueOf(expires));
+
+		Path tempFile = Files.createTempFile(metaDataFile.getParent(), null, ".tmp");
+
+		try (OutputStream out = Files.newOutputStream(tempFile)) {
+			metaData.store(out, null);
+		}
+
+		move(tempFile, metaDataFile);
+	}
+
+	private static void writeAtomically(Path file, byte[] data) throws IOException {
+		Path tempFile = Files.createTempFile(file.getParent(), null, ".tmp");
+
+		Files.write(tempFile, data);
+		move(tempFile, file);
+	}
+
+	private static void move(Path from, Path to) throws IOException {
+		try {
+			Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static class TileFile {
+
+		private Path path;
+		private long size;
+		private long lastAccess;
+
+		public TileFile(Path path, long size, long lastAccess) {
+			this.path = path;
+			this.size = size;
+			this.lastAccess = lastAccess;
+		}
+	}
+
+	public static class Entry {
+
+		private byte[] data;
+		private String etag;
+		private long expires;
+
+		public Entry(byte[] data, String etag, long expires) {
+			this.data = data;
+			this.etag = etag;
+			this.expires = expires;
+		}
+
+		public byte[] getData() {
+			return data;
+		}
+
+		public String getETag() {
+			return etag;
+		}
+
+		public long getExpires() {
+			return expires;
+		}
+
+		public boolean isExpired() {
+			return System.currentTimeMillis() >= expires;
+		}
+	}
+}
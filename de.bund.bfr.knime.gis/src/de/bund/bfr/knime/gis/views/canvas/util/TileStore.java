@@ -0,0 +1,326 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.gis.views.canvas.util;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import org.knime.core.node.NodeLogger;
+import org.openstreetmap.gui.jmapviewer.MemoryTileCache;
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileLoaderListener;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Two level cache for map tiles. Tiles are kept in a memory LRU cache and
+ * persisted in a {@link TileDiskCache}. Only missing or expired tiles are
+ * downloaded, expired tiles are revalidated with their ETag. Tiles of an
+ * {@link ArchiveTileSource} are read from the archive instead. Loading is done
+ * by a bounded worker pool and signaled by futures and the listener.
+ */
+public class TileStore {
+
+	private static final int THREADS = 4;
+	private static final int MAX_CONNECTIONS = 2;
+	private static final int TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
+	private static final String USER_AGENT = "FoodChain-Lab";
+	private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(TileStore.class);
+
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, r -> {
+		Thread thread = new Thread(r, "Map Tile Loading");
+
+		thread.setDaemon(true);
+
+		return thread;
+	});
+	private static final Semaphore CONNECTIONS = new Semaphore(MAX_CONNECTIONS);
+
+	private TileSource tileSource;
+	private MemoryTileCache memoryCache;
+	private TileDiskCache diskCache;
+	private TileLoaderListener listener;
+
+	private Map<Tile, CompletableFuture<Tile>> loadingTiles;
+
+	public TileStore(TileSource tileSource, TileDiskCache diskCache, TileLoaderListener listener) {
+		this.tileSource = tileSource;
+		this.diskCache = diskCache;
+		this.listener = listener;
+		memoryCache = new MemoryTileCache();
+		loadingTiles = new ConcurrentHashMap<>();
+	}
+
+	public TileSource getTileSource() {
+		return tileSource;
+	}
+
+	public void setTileSource(TileSource tileSource) {
+		cancelOutstandingJobs();
+		this.tileSource = tileSource;
+	}
+
+	public MemoryTileCache getMemoryCache() {
+		return memoryCache;
+	}
+
+	/**
+	 * Returns the tile from the memory cache. If it is not loaded yet, loading is
+	 * started and the tile shows a placeholder until then.
+	 */
+	public Tile getTile(int x, int y, int zoom) {
+		return getTile(tileSource, x, y, zoom, true);
+	}
+
+	/**
+	 * Same as {@link #getTile(int, int, int)} for the given tile source, e.g. the
+	 * one of a snapshot, that is rendered in a background thread.
+	 */
+	public Tile getTile(TileSource source, int x, int y, int zoom) {
+		return getTile(source, x, y, zoom, true);
+	}
+
+	/**
+	 * Returns a future, that is completed when the tile is loaded.
+	 */
+	public CompletableFuture<Tile> loadTile(int x, int y, int zoom) {
+		TileSource source = tileSource;
+		Tile tile = getTile(source, x, y, zoom, false);
+
+		return tile.isLoaded() ? CompletableFuture.completedFuture(tile) : startLoading(source, tile);
+	}
+
+	/**
+	 * Loads all tiles of the zoom level in the range of tile indices, e.g. to
+	 * prefetch the viewport and a margin around it.
+	 */
+	public CompletableFuture<Void> loadTiles(int zoom, Rectangle range) {
+		int max = (1 << zoom) - 1;
+		List<CompletableFuture<Tile>> futures = new ArrayList<>();
+
+		for (int x = Math.max(range.x, 0); x <= Math.min(range.x + range.width - 1, max); x++) {
+			for (int y = Math.max(range.y, 0); y <= Math.min(range.y + range.height - 1, max); y++) {
+				futures.add(loadTile(x, y, zoom));
+			}
+		}
+
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+	}
+
+	/**
+	 * Tiles, whose loading has not started yet, are not loaded anymore.
+	 */
+	public void cancelOutstandingJobs() {
+		loadingTiles.values().forEach(f -> f.cancel(false));
+	}
+
+	private Tile getTile(TileSource source, int x, int y, int zoom, boolean load) {
+		Tile tile;
+
+		synchronized (memoryCache) {
+			tile = memoryCache.getTile(source, x, y, zoom);
+
+			if (tile == null) {
+				tile = new Tile(source, x, y, zoom);
+				memoryCache.addTile(tile);
+			}
+		}
+
+		if (load && !tile.isLoaded()) {
+			startLoading(source, tile);
+		}
+
+		return tile;
+	}
+
+	private CompletableFuture<Tile> startLoading(TileSource source, Tile tile) {
+		return loadingTiles.compute(tile, (t, loading) -> {
+			if (loading != null && !loading.isCancelled()) {
+				return loading;
+			}
+
+			CompletableFuture<Tile> future = new CompletableFuture<>();
+
+			EXECUTOR.execute(() -> {
+				try {
+					if (!future.isCancelled()) {
+						load(source, t);
+						future.complete(t);
+					}
+				} catch (RuntimeException e) {
+					future.completeExceptionally(e);
+				} finally {
+					loadingTiles.remove(t, future);
+				}
+			});
+
+			return future;
+		});
+	}
+
+	private void load(TileSource source, Tile tile) {
+		String sourceName = source.getName();
+		int zoom = tile.getZoom();
+		int x = tile.getXtile();
+		int y = tile.getYtile();
+		boolean success = false;
+		TileDiskCache.Entry entry = null;
+
+		try {
+			if (source instanceof ArchiveTileSource) {
+				setImage(tile, ((ArchiveTileSource) source).getTileData(zoom, x, y));
+			} else {
+				entry = diskCache.get(sourceName, zoom, x, y);
+
+				if (entry == null || entry.isExpired()) {
+					entry = download(source, tile, entry);
+				}
+
+				setImage(tile, entry.getData());
+			}
+
+			success = true;
+		} catch (IOException e) {
+			if (entry != null) {
+				try {
+					// the cached tile is outdated, but better than nothing
+					setImage(tile, entry.getData());
+					success = true;
+				} catch (IOException e1) {
+					tile.setError(e1.getMessage());
+				}
+			} else {
+				tile.setError(e.getMessage());
+			}
+		} finally {
+			tile.setLoaded(true);
+			listener.tileLoadingFinished(tile, success);
+		}
+	}
+
+	private TileDiskCache.Entry download(TileSource source, Tile tile, TileDiskCache.Entry cached)
+			throws IOException {
+		String sourceName = source.getName();
+		int zoom = tile.getZoom();
+		int x = tile.getXtile();
+		int y = tile.getYtile();
+
+		CONNECTIONS.acquireUninterruptibly();
+
+		try {
+			URLConnection connection = new URL(source.getTileUrl(zoom, x, y)).openConnection();
+
+			connection.setConnectTimeout(TIMEOUT);
+			connection.setReadTimeout(TIMEOUT);
+			connection.setRequestProperty("User-Agent", USER_AGENT);
+
+			if (cached != null && cached.getETag() != null) {
+				connection.setRequestProperty("If-None-Match", cached.getETag());
+			}
+
+			if (connection instanceof HttpURLConnection) {
+				int code = ((HttpURLConnection) connection).getResponseCode();
+
+				if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+					long expires = getExpires(connection);
+
+					try {
+						diskCache.updateExpires(sourceName, zoom, x, y, expires);
+					} catch (IOException e) {
+						LOGGER.warn("Tile cache could not be updated: " + e.getMessage());
+					}
+
+					return new TileDiskCache.Entry(cached.getData(), cached.getETag(), expires);
+				} else if (code != HttpURLConnection.HTTP_OK) {
+					throw new IOException("Server returned " + code + " for tile " + zoom + "/" + x + "/" + y);
+				}
+			}
+
+			byte[] data;
+
+			try (InputStream in = connection.getInputStream()) {
+				data = ByteStreams.toByteArray(in);
+			}
+
+			String etag = connection.getHeaderField("ETag");
+			long expires = getExpires(connection);
+
+			try {
+				diskCache.put(sourceName, zoom, x, y, data, etag, expires);
+			} catch (IOException e) {
+				// the downloaded tile can still be used
+				LOGGER.warn("Tile could not be written to cache: " + e.getMessage());
+			}
+
+			return new TileDiskCache.Entry(data, etag, expires);
+		} finally {
+			CONNECTIONS.release();
+		}
+	}
+
+	private static long getExpires(URLConnection connection) {
+		String cacheControl = connection.getHeaderField("Cache-Control");
+
+		if (cacheControl != null) {
+			Matcher matcher = MAX_AGE.matcher(cacheControl);
+
+			if (matcher.find()) {
+				return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(1)));
+			}
+		}
+
+		long expires = connection.getExpiration();
+
+		return expires > System.currentTimeMillis() ? expires
+				: System.currentTimeMillis() + TileDiskCache.DEFAULT_EXPIRY;
+	}
+
+	private static void setImage(Tile tile, byte[] data) throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+
+		if (image == null) {
+			throw new IOException(
+					"Unknown image format for tile " + tile.getZoom() + "/" + tile.getXtile() + "/" + tile.getYtile());
+		}
+
+		tile.setImage(image);
+	}
+}
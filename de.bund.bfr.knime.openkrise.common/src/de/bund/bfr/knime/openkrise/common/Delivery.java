@@ -26,12 +26,9 @@ public class Delivery {
 
 	private String id;
 	private String supplierId, recipientId;
-	private Integer departureDay;
-	private Integer departureMonth;
-	private Integer departureYear;
-	private Integer arrivalDay;
-	private Integer arrivalMonth;
-	private Integer arrivalYear;
+	private int departureDate;
+	private int arrivalDate;
+	private int lastDepartureDay;
 	private String lotNumber;
 	private Double amount;
 	private String unit;
@@ -43,15 +40,17 @@ public class Delivery {
 	public Delivery(String id, String supplierId, String recipientId, Integer departureDay, Integer departureMonth,
 			Integer departureYear, Integer arrivalDay, Integer arrivalMonth, Integer arrivalYear, String lotNumber,
 			Double amount, String unit, Double amountInKg) {
+		this(id, supplierId, recipientId, PackedDate.of(departureYear, departureMonth, departureDay),
+				PackedDate.of(arrivalYear, arrivalMonth, arrivalDay), lotNumber, amount, unit, amountInKg);
+	}
+
+	public Delivery(String id, String supplierId, String recipientId, int departureDate, int arrivalDate,
+			String lotNumber, Double amount, String unit, Double amountInKg) {
 		this.id = id;
 		this.supplierId = supplierId;
 		this.recipientId = recipientId;
-		this.departureDay = departureDay;
-		this.departureMonth = departureMonth;
-		this.departureYear = departureYear;
-		this.arrivalDay = arrivalDay;
-		this.arrivalMonth = arrivalMonth;
-		this.arrivalYear = arrivalYear;
+		this.departureDate = departureDate;
+		this.arrivalDate = arrivalDate;
 		this.lotNumber = lotNumber;
 		this.amount = amount;
 		this.unit = unit;
@@ -61,15 +60,13 @@ public class Delivery {
 		allPreviousIds = new LinkedHashSet<>();
 
 		// if one of the dates is missing, just use the other date
-		if (this.arrivalYear == null) {
-			this.arrivalDay = this.departureDay;
-			this.arrivalMonth = this.departureMonth;
-			this.arrivalYear = this.departureYear;
-		} else if (this.departureYear == null) {
-			this.departureDay = this.arrivalDay;
-			this.departureMonth = this.arrivalMonth;
-			this.departureYear = this.arrivalYear;
+		if (this.arrivalDate == PackedDate.UNKNOWN) {
+			this.arrivalDate = this.departureDate;
+		} else if (this.departureDate == PackedDate.UNKNOWN) {
+			this.departureDate = this.arrivalDate;
 		}
+
+		lastDepartureDay = PackedDate.getLastDay(this.departureDate);
 	}
 
 	public Delivery(String id, String supplierId, String recipientId, Integer departureDay, Integer departureMonth,
@@ -78,6 +75,10 @@ public class Delivery {
 				arrivalYear, null, null, null, null);
 	}
 
+	public Delivery(String id, String supplierId, String recipientId, int departureDate, int arrivalDate) {
+		this(id, supplierId, recipientId, departureDate, arrivalDate, null, null, null, null);
+	}
+
 	public String getSupplierId() {
 		return supplierId;
 	}
@@ -98,28 +99,36 @@ public class Delivery {
 		return id;
 	}
 
+	public int getDepartureDate() {
+		return departureDate;
+	}
+
+	public int getArrivalDate() {
+		return arrivalDate;
+	}
+
 	public Integer getDepartureDay() {
-		return departureDay;
+		return PackedDate.getDay(departureDate);
 	}
 
 	public Integer getDepartureMonth() {
-		return departureMonth;
+		return PackedDate.getMonth(departureDate);
 	}
 
 	public Integer getDepartureYear() {
-		return departureYear;
+		return PackedDate.getYear(departureDate);
 	}
 
 	public Integer getArrivalDay() {
-		return arrivalDay;
+		return PackedDate.getDay(arrivalDate);
 	}
 
 	public Integer getArrivalMonth() {
-		return arrivalMonth;
+		return PackedDate.getMonth(arrivalDate);
 	}
 
 	public Integer getArrivalYear() {
-		return arrivalYear;
+		return PackedDate.getYear(arrivalDate);
 	}
 
 	public String getLotNumber() {
@@ -147,8 +156,8 @@ public class Delivery {
 	}
 
 	public Delivery copy() {
-		Delivery copy = new Delivery(id, supplierId, recipientId, departureDay, departureMonth, departureYear,
-				arrivalDay, arrivalMonth, arrivalYear, lotNumber, amount, unit, amountInKg);
+		Delivery copy = new Delivery(id, supplierId, recipientId, departureDate, arrivalDate, lotNumber, amount, unit,
+				amountInKg);
 
 		copy.allNextIds = new LinkedHashSet<>(allNextIds);
 		copy.allPreviousIds = new LinkedHashSet<>(allPreviousIds);
@@ -158,28 +167,7 @@ public class Delivery {
 
 	// e.g. Jan 2012 vs. 18.Jan 2012 - be generous
 	public boolean isBefore(Delivery next) {
-		if (arrivalYear == null || next.departureYear == null) {
-			return true;
-		} else if (next.departureYear > arrivalYear) {
-			return true;
-		} else if (next.departureYear < arrivalYear) {
-			return false;
-		}
-
-		if (arrivalMonth == null || next.departureMonth == null) {
-			return true;
-		} else if (next.departureMonth > arrivalMonth) {
-			return true;
-		} else if (next.departureMonth < arrivalMonth) {
-			return false;
-		}
-
-		if (arrivalDay == null || next.departureDay == null) {
-			return true;
-		} else if (next.departureDay >= arrivalDay) {
-			return true;
-		}
-
-		return false;
+		return arrivalDate == PackedDate.UNKNOWN || next.departureDate == PackedDate.UNKNOWN
+				|| next.lastDepartureDay >= PackedDate.getFirstDay(arrivalDate);
 	}
 }
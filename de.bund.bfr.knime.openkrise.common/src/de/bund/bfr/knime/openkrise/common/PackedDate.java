@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise.common;
+
+import java.time.LocalDate;
+import java.util.GregorianCalendar;
+
+/**
+ * Partial dates packed into a single int as {@code firstDay << 2 | precision},
+ * where firstDay is the epoch day of the first day of the year, month or day.
+ * Packed dates with the same precision order like the dates they represent.
+ */
+public class PackedDate {
+
+	public static final int UNKNOWN = 0;
+
+	public static final int YEAR = 1;
+	public static final int MONTH = 2;
+	public static final int DAY = 3;
+
+	private static final int MAX_YEAR = 1000000;
+	private static final long MIN_DAY = Integer.MIN_VALUE >> 2;
+	private static final long MAX_DAY = Integer.MAX_VALUE >> 2;
+
+	private PackedDate() {
+	}
+
+	/**
+	 * A missing month makes the day irrelevant. Invalid months and days are
+	 * normalized like in a lenient {@link GregorianCalendar}, e.g. February 30
+	 * becomes March 2.
+	 */
+	public static int of(Integer year, Integer month, Integer day) {
+		if (year == null) {
+			return UNKNOWN;
+		}
+
+		LocalDate date = LocalDate.of(Math.max(-MAX_YEAR, Math.min(MAX_YEAR, year)), 1, 1);
+
+		if (month == null) {
+			return pack(date.toEpochDay(), YEAR);
+		}
+
+		date = date.plusMonths(month - 1L);
+
+		if (day == null) {
+			return pack(date.toEpochDay(), MONTH);
+		}
+
+		return pack(date.toEpochDay() + day - 1L, DAY);
+	}
+
+	public static int ofEpochDay(long epochDay) {
+		return pack(epochDay, DAY);
+	}
+
+	public static int getPrecision(int date) {
+		return date & 3;
+	}
+
+	public static int getFirstDay(int date) {
+		return date >> 2;
+	}
+
+	public static int getLastDay(int date) {
+		switch (getPrecision(date)) {
+		case YEAR:
+			return getFirstDay(date) + LocalDate.ofEpochDay(getFirstDay(date)).lengthOfYear() - 1;
+		case MONTH:
+			return getFirstDay(date) + LocalDate.ofEpochDay(getFirstDay(date)).lengthOfMonth() - 1;
+		default:
+			return getFirstDay(date);
+		}
+	}
+
+	public static Integer getYear(int date) {
+		return getPrecision(date) >= YEAR ? LocalDate.ofEpochDay(getFirstDay(date)).getYear() : null;
+	}
+
+	public static Integer getMonth(int date) {
+		return getPrecision(date) >= MONTH ? LocalDate.ofEpochDay(getFirstDay(date)).getMonthValue() : null;
+	}
+
+	public static Integer getDay(int date) {
+		return getPrecision(date) >= DAY ? LocalDate.ofEpochDay(getFirstDay(date)).getDayOfMonth() : null;
+	}
+
+	public static GregorianCalendar toCalendar(int epochDay) {
+		LocalDate date = LocalDate.ofEpochDay(epochDay);
+
+		return new GregorianCalendar(date.getYear(), date.getMonthValue() - 1, date.getDayOfMonth());
+	}
+
+	public static int toEpochDay(GregorianCalendar c) {
+		return (int) LocalDate.of(c.get(GregorianCalendar.YEAR), c.get(GregorianCalendar.MONTH) + 1,
+				c.get(GregorianCalendar.DAY_OF_MONTH)).toEpochDay();
+	}
+
+	private static int pack(long epochDay, int precision) {
+		return (int) Math.max(MIN_DAY, Math.min(MAX_DAY, epochDay)) << 2 | precision;
+	}
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import de.bund.bfr.knime.openkrise.common.Delivery;
+
+public class BatchTracingTest {
+
+	private static final double EPSILON = 1e-12;
+
+	private static final List<String> STATIONS = Arrays.asList("A", "B", "C", "X");
+	private static final List<String> DELIVERIES = Arrays.asList("d1", "d2");
+
+	@Test
+	public void testIsolatedStation() {
+		Map<String, Double> stationWeights = ImmutableMap.of("A", 1.0, "C", -0.5, "X", 2.0);
+		Map<String, Double> deliveryWeights = ImmutableMap.of("d2", 0.5);
+
+		assertSameScores(stationWeights, deliveryWeights);
+	}
+
+	@Test
+	public void testNegativeIsolatedStation() {
+		Map<String, Double> stationWeights = ImmutableMap.of("B", 1.0, "X", -3.0);
+		Map<String, Double> deliveryWeights = ImmutableMap.of("d1", 0.25);
+
+		assertSameScores(stationWeights, deliveryWeights);
+	}
+
+	@Test
+	public void testTopStations() {
+		Map<String, Double> stationWeights = ImmutableMap.of("A", 1.0, "C", 1.0, "X", 2.0);
+		Tracing tracing = createTracing();
+
+		stationWeights.forEach((id, w) -> tracing.setStationWeight(id, w));
+
+		Tracing.Result result = tracing.getResult(false);
+		Map<String, Double> top = tracing.getTopStations(false, 2);
+
+		assertEquals(Arrays.asList("A", "B"), Arrays.asList(top.keySet().toArray()));
+
+		for (Map.Entry<String, Double> entry : top.entrySet()) {
+			assertEquals(result.getStationScore(entry.getKey()), entry.getValue(), EPSILON);
+		}
+	}
+
+	private static void assertSameScores(Map<String, Double> stationWeights, Map<String, Double> deliveryWeights) {
+		Tracing tracing = createTracing();
+
+		stationWeights.forEach((id, w) -> tracing.setStationWeight(id, w));
+		deliveryWeights.forEach((id, w) -> tracing.setDeliveryWeight(id, w));
+
+		Tracing.Result result = tracing.getResult(false);
+		BatchTracing.Scores scores = createTracing().getBatchTracing(false).getScores(
+				Arrays.asList(new LinkedHashMap<>(), stationWeights),
+				Arrays.asList(new LinkedHashMap<>(), deliveryWeights));
+
+		for (String id : STATIONS) {
+			assertEquals(id, result.getStationScore(id), scores.getStationScore(1, id), EPSILON);
+			assertEquals(id, result.getStationNormalizedScore(id), scores.getStationNormalizedScore(1, id), EPSILON);
+			assertEquals(id, result.getStationPositiveScore(id), scores.getStationPositiveScore(1, id), EPSILON);
+			assertEquals(id, result.getStationNegativeScore(id), scores.getStationNegativeScore(1, id), EPSILON);
+		}
+
+		for (String id : DELIVERIES) {
+			assertEquals(id, result.getDeliveryScore(id), scores.getDeliveryScore(1, id), EPSILON);
+			assertEquals(id, result.getDeliveryNormalizedScore(id), scores.getDeliveryNormalizedScore(1, id),
+					EPSILON);
+			assertEquals(id, result.getDeliveryPositiveScore(id), scores.getDeliveryPositiveScore(1, id), EPSILON);
+			assertEquals(id, result.getDeliveryNegativeScore(id), scores.getDeliveryNegativeScore(1, id), EPSILON);
+		}
+	}
+
+	/**
+	 * A -> B -> C and the station X, that has no deliveries.
+	 */
+	private static Tracing createTracing() {
+		Delivery d1 = new Delivery("d1", "A", "B", 1, 1, 2016, 2, 1, 2016);
+		Delivery d2 = new Delivery("d2", "B", "C", 3, 1, 2016, 4, 1, 2016);
+
+		d1.getAllNextIds().add("d2");
+		d2.getAllPreviousIds().add("d1");
+
+		return new Tracing(Arrays.asList(d1, d2));
+	}
+}
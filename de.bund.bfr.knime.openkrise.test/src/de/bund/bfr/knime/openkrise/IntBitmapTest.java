@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class IntBitmapTest {
+
+	private static final int ARRAY_LIMIT = 4096;
+
+	@Test
+	public void testArrayToBitmap() {
+		IntBitmap bitmap = new IntBitmap();
+		TreeSet<Integer> expected = new TreeSet<>();
+
+		for (int i = 0; i < ARRAY_LIMIT; i++) {
+			bitmap.add(3 * i);
+			expected.add(3 * i);
+		}
+
+		assertSameValues(expected, bitmap);
+
+		bitmap.add(3 * ARRAY_LIMIT);
+		bitmap.add(0);
+		expected.add(3 * ARRAY_LIMIT);
+
+		assertSameValues(expected, bitmap);
+		assertFalse(bitmap.contains(1));
+		assertTrue(bitmap.contains(3 * ARRAY_LIMIT));
+	}
+
+	@Test
+	public void testRemove() {
+		IntBitmap bitmap = new IntBitmap();
+		TreeSet<Integer> expected = new TreeSet<>();
+
+		for (int i = 0; i <= ARRAY_LIMIT; i++) {
+			bitmap.add(i);
+			expected.add(i);
+		}
+
+		for (int i = 0; i <= ARRAY_LIMIT; i += 2) {
+			bitmap.remove(i);
+			expected.remove(i);
+		}
+
+		bitmap.remove(1 << 20);
+		bitmap.remove(ARRAY_LIMIT + 1);
+
+		assertSameValues(expected, bitmap);
+
+		IntBitmap array = new IntBitmap();
+
+		array.add(5);
+		array.add(7);
+		array.remove(5);
+		array.remove(6);
+
+		assertEquals(1, array.cardinality());
+		assertFalse(array.contains(5));
+		assertTrue(array.contains(7));
+
+		array.remove(7);
+
+		assertTrue(array.isEmpty());
+		assertFalse(array.iterator().hasNext());
+	}
+
+	@Test
+	public void testOr() {
+		Random random = new Random(1);
+		IntBitmap sparse = new IntBitmap();
+		IntBitmap dense = new IntBitmap();
+		TreeSet<Integer> sparseValues = new TreeSet<>();
+		TreeSet<Integer> denseValues = new TreeSet<>();
+
+		for (int i = 0; i < 1000; i++) {
+			int value = random.nextInt(3 << 16);
+
+			sparse.add(value);
+			sparseValues.add(value);
+		}
+
+		for (int i = 0; i < 3 * ARRAY_LIMIT; i++) {
+			int value = (1 << 16) + random.nextInt(1 << 16);
+
+			dense.add(value);
+			denseValues.add(value);
+		}
+
+		TreeSet<Integer> union = new TreeSet<>(sparseValues);
+
+		union.addAll(denseValues);
+
+		// array chunks into bitmap chunks and bitmap chunks into array chunks
+		IntBitmap sparseOrDense = copy(sparse);
+		IntBitmap denseOrSparse = copy(dense);
+
+		sparseOrDense.or(dense);
+		denseOrSparse.or(sparse);
+
+		assertSameValues(union, sparseOrDense);
+		assertSameValues(union, denseOrSparse);
+		assertSameValues(sparseValues, sparse);
+		assertSameValues(denseValues, dense);
+
+		// two array chunks, whose union is larger than the array limit
+		IntBitmap evens = new IntBitmap();
+		IntBitmap odds = new IntBitmap();
+		TreeSet<Integer> all = new TreeSet<>();
+
+		for (int i = 0; i < ARRAY_LIMIT; i++) {
+			evens.add(2 * i);
+			odds.add(2 * i + 1);
+			all.add(2 * i);
+			all.add(2 * i + 1);
+		}
+
+		evens.or(odds);
+
+		assertSameValues(all, evens);
+	}
+
+	@Test
+	public void testIteratorAcrossChunks() {
+		IntBitmap bitmap = new IntBitmap();
+		TreeSet<Integer> expected = new TreeSet<>();
+
+		for (int chunk : new int[] { 7, 0, 3, 1 << 14 }) {
+			int high = chunk << 16;
+			int count = chunk == 3 ? 2 * ARRAY_LIMIT : 10;
+
+			for (int i = 0; i < count; i++) {
+				bitmap.add(high | 7 * i);
+				expected.add(high | 7 * i);
+			}
+
+			bitmap.add(high | 0xffff);
+			expected.add(high | 0xffff);
+		}
+
+		assertSameValues(expected, bitmap);
+
+		bitmap.clear();
+
+		assertTrue(bitmap.isEmpty());
+		assertFalse(bitmap.iterator().hasNext());
+	}
+
+	private static IntBitmap copy(IntBitmap bitmap) {
+		IntBitmap copy = new IntBitmap();
+
+		copy.or(bitmap);
+
+		return copy;
+	}
+
+	private static void assertSameValues(TreeSet<Integer> expected, IntBitmap bitmap) {
+		List<Integer> iterated = new ArrayList<>();
+		List<Integer> visited = new ArrayList<>();
+
+		for (PrimitiveIterator.OfInt it = bitmap.iterator(); it.hasNext();) {
+			iterated.add(it.nextInt());
+		}
+
+		bitmap.forEach(visited::add);
+
+		assertEquals(new ArrayList<>(expected), iterated);
+		assertEquals(new ArrayList<>(expected), visited);
+		assertEquals(expected.size(), bitmap.cardinality());
+
+		for (int value : expected) {
+			assertTrue(bitmap.contains(value));
+		}
+	}
+}
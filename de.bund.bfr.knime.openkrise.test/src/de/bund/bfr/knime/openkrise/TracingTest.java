@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
+
+import de.bund.bfr.knime.openkrise.common.Delivery;
+
+public class TracingTest {
+
+	private static final double EPSILON = 1e-12;
+
+	@Test
+	public void testNoContamination() {
+		Tracing.Result result = createHub().getResult(false);
+
+		assertStationScores(result, 0.5, 1.0, 0.5, 0.5, 0.5, 0.5);
+		assertEquals(ImmutableSet.of("B", "C"), result.getForwardStationsByStation().get("A"));
+		assertEquals(ImmutableSet.of("d1", "d3"), result.getForwardDeliveriesByStation().get("A"));
+		assertEquals(ImmutableSet.of("A", "B", "Y"), result.getBackwardStationsByStation().get("C"));
+		assertEquals(ImmutableSet.of("d1", "d3", "d5"), result.getBackwardDeliveriesByStation().get("C"));
+		assertEquals(ImmutableSet.of("d3"), result.getForwardDeliveriesByDelivery().get("d1"));
+		assertEquals(ImmutableSet.of("d2"), result.getBackwardDeliveriesByDelivery().get("d4"));
+	}
+
+	@Test
+	public void testStationCrossContamination() {
+		Tracing tracing = createHub();
+
+		tracing.setCrossContaminationOfStation("B", true);
+
+		Tracing.Result result = tracing.getResult(false);
+
+		assertStationScores(result, 1.0, 1.0, 0.5, 0.5, 1.0, 1.0);
+		assertEquals(ImmutableSet.of("B", "C", "D"), result.getForwardStationsByStation().get("X"));
+		assertEquals(ImmutableSet.of("A", "B", "X", "Y"), result.getBackwardStationsByStation().get("C"));
+		assertEquals(ImmutableSet.of("d3", "d4"), result.getForwardDeliveriesByDelivery().get("d2"));
+		assertEquals(ImmutableSet.of("d1", "d2", "d5"), result.getBackwardDeliveriesByDelivery().get("d3"));
+	}
+
+	@Test
+	public void testStationCrossContaminationWithTemporalOrder() {
+		Tracing tracing = createHub();
+
+		tracing.setCrossContaminationOfStation("B", true);
+
+		Tracing.Result result = tracing.getResult(true);
+
+		// d2 arrives at B after d3 has left, so X cannot have contaminated C
+		assertStationScores(result, 1.0, 1.0, 0.5, 0.5, 0.5, 1.0);
+		assertEquals(ImmutableSet.of("B", "D"), result.getForwardStationsByStation().get("X"));
+		assertEquals(ImmutableSet.of("A", "B", "Y"), result.getBackwardStationsByStation().get("C"));
+		assertEquals(ImmutableSet.of("A", "B", "X", "Y"), result.getBackwardStationsByStation().get("D"));
+		assertEquals(ImmutableSet.of("d4"), result.getForwardDeliveriesByDelivery().get("d2"));
+		assertEquals(ImmutableSet.of("d1", "d2", "d5"), result.getBackwardDeliveriesByDelivery().get("d4"));
+	}
+
+	@Test
+	public void testDeliveryCrossContamination() {
+		Tracing tracing = createHub();
+
+		tracing.setCrossContaminationOfDelivery("d1", true);
+		tracing.setCrossContaminationOfDelivery("d2", true);
+
+		Tracing.Result result = tracing.getResult(false);
+
+		// d5 is not cross contaminated and is still only linked to d3
+		assertStationScores(result, 1.0, 1.0, 0.5, 0.5, 1.0, 0.5);
+		assertEquals(ImmutableSet.of("B", "C", "D"), result.getForwardStationsByStation().get("X"));
+		assertEquals(ImmutableSet.of("B", "C"), result.getForwardStationsByStation().get("Y"));
+		assertEquals(ImmutableSet.of("A", "B", "X"), result.getBackwardStationsByStation().get("D"));
+		assertEquals(ImmutableSet.of("d3", "d4"), result.getForwardDeliveriesByDelivery().get("d2"));
+		assertEquals(ImmutableSet.of("d3"), result.getForwardDeliveriesByDelivery().get("d5"));
+	}
+
+	@Test
+	public void testDeliveryCrossContaminationWithTemporalOrder() {
+		Tracing tracing = createHub();
+
+		tracing.setCrossContaminationOfDelivery("d1", true);
+		tracing.setCrossContaminationOfDelivery("d2", true);
+
+		Tracing.Result result = tracing.getResult(true);
+
+		assertStationScores(result, 1.0, 1.0, 0.5, 0.5, 0.5, 0.5);
+		assertEquals(ImmutableSet.of("B", "C", "D"), result.getForwardStationsByStation().get("A"));
+		assertEquals(ImmutableSet.of("B", "D"), result.getForwardStationsByStation().get("X"));
+		assertEquals(ImmutableSet.of("d3", "d4"), result.getForwardDeliveriesByDelivery().get("d1"));
+		assertEquals(ImmutableSet.of("d4"), result.getForwardDeliveriesByDelivery().get("d2"));
+	}
+
+	@Test
+	public void testStationKillContamination() {
+		Tracing tracing = createHub();
+
+		tracing.setKillContaminationOfStation("B", true);
+
+		Tracing.Result result = tracing.getResult(false);
+
+		assertStationScores(result, 0.0, 0.0, 0.5, 0.5, 0.0, 0.0);
+		assertEquals(1.0, result.getStationNormalizedScore("C"), EPSILON);
+		assertEquals(ImmutableSet.of("B"), result.getForwardStationsByStation().get("A"));
+		assertEquals(ImmutableSet.of("d1"), result.getForwardDeliveriesByStation().get("A"));
+		assertEquals(ImmutableSet.of(), result.getForwardStationsByStation().get("B"));
+		assertEquals(ImmutableSet.of("A", "X", "Y"), result.getBackwardStationsByStation().get("B"));
+		assertEquals(ImmutableSet.of(), result.getBackwardStationsByStation().get("C"));
+		assertEquals(ImmutableSet.of("d3"), result.getBackwardDeliveriesByStation().get("C"));
+		assertEquals(ImmutableSet.of(), result.getForwardDeliveriesByDelivery().get("d1"));
+		assertEquals(0.5, result.getDeliveryScore("d3"), EPSILON);
+		assertEquals(0.0, result.getDeliveryScore("d1"), EPSILON);
+	}
+
+	@Test
+	public void testDeliveryKillContamination() {
+		Tracing tracing = createHub();
+
+		tracing.setKillContaminationOfDelivery("d3", true);
+
+		Tracing.Result result = tracing.getResult(false);
+
+		assertStationScores(result, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5);
+		assertEquals(ImmutableSet.of("B", "C"), result.getForwardStationsByStation().get("A"));
+		assertEquals(ImmutableSet.of("D"), result.getForwardStationsByStation().get("B"));
+		assertEquals(ImmutableSet.of("d3", "d4"), result.getForwardDeliveriesByStation().get("B"));
+		assertEquals(ImmutableSet.of(), result.getBackwardStationsByStation().get("C"));
+		assertEquals(ImmutableSet.of(), result.getForwardStationsByDelivery().get("d3"));
+		assertEquals(ImmutableSet.of("A", "B", "Y"), result.getBackwardStationsByDelivery().get("d3"));
+		assertEquals(0.0, result.getDeliveryScore("d3"), EPSILON);
+		assertEquals(0.5, result.getDeliveryScore("d1"), EPSILON);
+	}
+
+	@Test
+	public void testCycle() {
+		Tracing.Result result = createCycle().getResult(false);
+
+		assertEquals(2.0 / 3.0, result.getStationScore("A"), EPSILON);
+		assertEquals(1.0, result.getStationPositiveScore("A"), EPSILON);
+		assertEquals(1.0, result.getStationNegativeScore("A"), EPSILON);
+		assertEquals(2.0 / 3.0, result.getStationScore("B"), EPSILON);
+		assertEquals(2.0 / 3.0, result.getStationScore("C"), EPSILON);
+		assertEquals(0.0, result.getStationNegativeScore("C"), EPSILON);
+		assertEquals(1.0, result.getDeliveryScore("d1"), EPSILON);
+		assertEquals(2.0 / 3.0, result.getDeliveryScore("d2"), EPSILON);
+		assertEquals(2.0 / 3.0, result.getDeliveryScore("d3"), EPSILON);
+
+		// B and C are in the same strongly connected component and reach each other
+		assertEquals(ImmutableSet.of("B", "C", "D"), result.getForwardStationsByStation().get("A"));
+		assertEquals(ImmutableSet.of("B", "C", "D"), result.getForwardStationsByStation().get("B"));
+		assertEquals(ImmutableSet.of("A", "B", "C"), result.getBackwardStationsByStation().get("C"));
+		assertEquals(ImmutableSet.of("d2", "d3", "d4"), result.getForwardDeliveriesByStation().get("C"));
+		assertEquals(ImmutableSet.of("d1", "d2", "d3"), result.getBackwardDeliveriesByStation().get("B"));
+		assertEquals(ImmutableSet.of("d3", "d4"), result.getForwardDeliveriesByDelivery().get("d2"));
+		assertEquals(ImmutableSet.of("d2", "d4"), result.getForwardDeliveriesByDelivery().get("d3"));
+		assertEquals(ImmutableSet.of("d1", "d2"), result.getBackwardDeliveriesByDelivery().get("d3"));
+		assertEquals(ImmutableSet.of("d1", "d2", "d3"), result.getBackwardDeliveriesByDelivery().get("d4"));
+		assertEquals(ImmutableSet.of("A", "B", "C"), result.getBackwardStationsByDelivery().get("d4"));
+	}
+
+	@Test
+	public void testParallelism() {
+		for (boolean enforceTemporalOrder : Arrays.asList(false, true)) {
+			Tracing serial = createRandom(new Random(1));
+			Tracing parallel = createRandom(new Random(1));
+
+			parallel.setParallelism(4);
+
+			assertSameResult(serial.getResult(enforceTemporalOrder), parallel.getResult(enforceTemporalOrder));
+		}
+	}
+
+	private static void assertStationScores(Tracing.Result result, double a, double b, double c, double d, double x,
+			double y) {
+		assertEquals("A", a, result.getStationScore("A"), EPSILON);
+		assertEquals("B", b, result.getStationScore("B"), EPSILON);
+		assertEquals("C", c, result.getStationScore("C"), EPSILON);
+		assertEquals("D", d, result.getStationScore("D"), EPSILON);
+		assertEquals("X", x, result.getStationScore("X"), EPSILON);
+		assertEquals("Y", y, result.getStationScore("Y"), EPSILON);
+	}
+
+	private static void assertSameResult(Tracing.Result expected, Tracing.Result actual) {
+		Set<String> stationIds = expected.getForwardStationsByStation().keySet();
+		Set<String> deliveryIds = expected.getForwardStationsByDelivery().keySet();
+
+		for (String id : stationIds) {
+			assertEquals(id, expected.getStationScore(id), actual.getStationScore(id), 0.0);
+			assertEquals(id, expected.getStationNormalizedScore(id), actual.getStationNormalizedScore(id), 0.0);
+			assertEquals(id, expected.getStationPositiveScore(id), actual.getStationPositiveScore(id), 0.0);
+			assertEquals(id, expected.getStationNegativeScore(id), actual.getStationNegativeScore(id), 0.0);
+		}
+
+		for (String id : deliveryIds) {
+			assertEquals(id, expected.getDeliveryScore(id), actual.getDeliveryScore(id), 0.0);
+			assertEquals(id, expected.getDeliveryNormalizedScore(id), actual.getDeliveryNormalizedScore(id), 0.0);
+			assertEquals(id, expected.getDeliveryPositiveScore(id), actual.getDeliveryPositiveScore(id), 0.0);
+			assertEquals(id, expected.getDeliveryNegativeScore(id), actual.getDeliveryNegativeScore(id), 0.0);
+		}
+
+		assertSameMultimap(expected.getForwardStationsByStation(), actual.getForwardStationsByStation());
+		assertSameMultimap(expected.getBackwardStationsByStation(), actual.getBackwardStationsByStation());
+		assertSameMultimap(expected.getForwardDeliveriesByStation(), actual.getForwardDeliveriesByStation());
+		assertSameMultimap(expected.getBackwardDeliveriesByStation(), actual.getBackwardDeliveriesByStation());
+		assertSameMultimap(expected.getForwardStationsByDelivery(), actual.getForwardStationsByDelivery());
+		assertSameMultimap(expected.getBackwardStationsByDelivery(), actual.getBackwardStationsByDelivery());
+		assertSameMultimap(expected.getForwardDeliveriesByDelivery(), actual.getForwardDeliveriesByDelivery());
+		assertSameMultimap(expected.getBackwardDeliveriesByDelivery(), actual.getBackwardDeliveriesByDelivery());
+	}
+
+	private static void assertSameMultimap(SetMultimap<String, String> expected, SetMultimap<String, String> actual) {
+		assertEquals(expected.keySet(), actual.keySet());
+
+		for (String id : expected.keySet()) {
+			assertEquals(id, expected.get(id), actual.get(id));
+		}
+	}
+
+	/**
+	 * A, X and Y deliver to B, which delivers to C and D. d1 and d5 are used for
+	 * d3 and d2 for d4. d2 arrives at B after d3 has left. C and D have a weight of
+	 * 1.
+	 */
+	private static Tracing createHub() {
+		Map<String, Delivery> deliveries = new LinkedHashMap<>();
+
+		deliveries.put("d1", new Delivery("d1", "A", "B", 1, 1, 2016, 2, 1, 2016));
+		deliveries.put("d2", new Delivery("d2", "X", "B", 5, 1, 2016, 6, 1, 2016));
+		deliveries.put("d5", new Delivery("d5", "Y", "B", 1, 1, 2016, 2, 1, 2016));
+		deliveries.put("d3", new Delivery("d3", "B", "C", 3, 1, 2016, 4, 1, 2016));
+		deliveries.put("d4", new Delivery("d4", "B", "D", 7, 1, 2016, 8, 1, 2016));
+		link(deliveries, "d1", "d3");
+		link(deliveries, "d5", "d3");
+		link(deliveries, "d2", "d4");
+
+		Tracing tracing = new Tracing(deliveries.values());
+
+		tracing.setStationWeight("C", 1.0);
+		tracing.setStationWeight("D", 1.0);
+
+		return tracing;
+	}
+
+	/**
+	 * A -> B -> C -> B and C -> D, where d2 (B -> C) and d3 (C -> B) are used for
+	 * each other.
+	 */
+	private static Tracing createCycle() {
+		Map<String, Delivery> deliveries = new LinkedHashMap<>();
+
+		deliveries.put("d1", new Delivery("d1", "A", "B", 1, 1, 2016, 2, 1, 2016));
+		deliveries.put("d2", new Delivery("d2", "B", "C", 3, 1, 2016, 4, 1, 2016));
+		deliveries.put("d3", new Delivery("d3", "C", "B", 5, 1, 2016, 6, 1, 2016));
+		deliveries.put("d4", new Delivery("d4", "C", "D", 7, 1, 2016, 8, 1, 2016));
+		link(deliveries, "d1", "d2");
+		link(deliveries, "d2", "d3");
+		link(deliveries, "d3", "d2");
+		link(deliveries, "d2", "d4");
+
+		Tracing tracing = new Tracing(deliveries.values());
+
+		tracing.setStationWeight("D", 1.0);
+		tracing.setStationWeight("A", -0.5);
+		tracing.setDeliveryWeight("d1", 0.5);
+
+		return tracing;
+	}
+
+	private static Tracing createRandom(Random random) {
+		int stationCount = 40;
+		List<Delivery> deliveries = new ArrayList<>();
+
+		for (int i = 0; i < 300; i++) {
+			int supplier = random.nextInt(stationCount);
+			int recipient = random.nextInt(stationCount);
+			int day = random.nextInt(20) + 1;
+
+			deliveries.add(new Delivery("d" + i, "S" + supplier, "S" + recipient, day, 1, 2016, day + 1, 1, 2016));
+		}
+
+		for (Delivery d : deliveries) {
+			for (Delivery next : deliveries) {
+				if (d.getRecipientId().equals(next.getSupplierId()) && random.nextInt(4) == 0) {
+					d.getAllNextIds().add(next.getId());
+					next.getAllPreviousIds().add(d.getId());
+				}
+			}
+		}
+
+		Tracing tracing = new Tracing(deliveries);
+
+		for (int i = 0; i < stationCount; i++) {
+			tracing.setStationWeight("S" + i, random.nextInt(5) == 0 ? random.nextDouble() - 0.25 : 0.0);
+		}
+
+		for (Delivery d : deliveries) {
+			int r = random.nextInt(20);
+
+			if (r == 0) {
+				tracing.setCrossContaminationOfDelivery(d.getId(), true);
+			} else if (r == 1) {
+				tracing.setKillContaminationOfDelivery(d.getId(), true);
+			} else if (r == 2) {
+				tracing.setDeliveryWeight(d.getId(), random.nextDouble());
+			}
+		}
+
+		tracing.setCrossContaminationOfStation("S0", true);
+		tracing.setKillContaminationOfStation("S1", true);
+
+		return tracing;
+	}
+
+	private static void link(Map<String, Delivery> deliveries, String id, String nextId) {
+		deliveries.get(id).getAllNextIds().add(nextId);
+		deliveries.get(nextId).getAllPreviousIds().add(id);
+	}
+}
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise.util.scenario;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+
+import de.bund.bfr.knime.IO;
+import de.bund.bfr.knime.gis.views.canvas.element.Edge;
+import de.bund.bfr.knime.gis.views.canvas.element.Element;
+import de.bund.bfr.knime.gis.views.canvas.element.GraphNode;
+import de.bund.bfr.knime.gis.views.canvas.util.EdgePropertySchema;
+import de.bund.bfr.knime.gis.views.canvas.util.NodePropertySchema;
+import de.bund.bfr.knime.openkrise.BatchTracing;
+import de.bund.bfr.knime.openkrise.Tracing;
+import de.bund.bfr.knime.openkrise.TracingColumns;
+import de.bund.bfr.knime.openkrise.TracingUtils;
+import de.bund.bfr.knime.openkrise.common.Delivery;
+
+/**
+ * This is the model implementation of TracingScenarios.
+ * 
+ *
+ * @author Christian Thoens
+ */
+public class TracingScenariosNodeModel extends NodeModel {
+
+	protected static final String CFG_ENFORCE_TEMPORAL_ORDER = "EnforceTemporalOrder";
+
+	private SettingsModelBoolean enforceTemporalOrder;
+
+	/**
+	 * Constructor for the node model.
+	 */
+	protected TracingScenariosNodeModel() {
+		super(4, 1);
+		enforceTemporalOrder = new SettingsModelBoolean(CFG_ENFORCE_TEMPORAL_ORDER, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
+			throws Exception {
+		BufferedDataTable nodeTable = inData[0];
+		BufferedDataTable edgeTable = inData[1];
+		BufferedDataTable tracingTable = inData[2];
+		BufferedDataTable scenarioTable = inData[3];
+		NodePropertySchema nodeSchema = new NodePropertySchema(TracingUtils.getTableColumns(nodeTable.getSpec()),
+				TracingColumns.ID);
+		EdgePropertySchema edgeSchema = new EdgePropertySchema(TracingUtils.getTableColumns(edgeTable.getSpec()),
+				TracingColumns.ID, TracingColumns.FROM, TracingColumns.TO);
+		Set<RowKey> skippedEdgeRows = new LinkedHashSet<>();
+		Set<RowKey> skippedTracingRows = new LinkedHashSet<>();
+
+		Map<String, GraphNode> nodes = TracingUtils.readGraphNodes(nodeTable, nodeSchema);
+		List<Edge<GraphNode>> edges = TracingUtils.readEdges(edgeTable, edgeSchema, nodes, skippedEdgeRows);
+		Map<String, Delivery> deliveries = TracingUtils.readDeliveries(tracingTable, edges, skippedTracingRows);
+		Tracing tracing = new Tracing(deliveries.values());
+
+		tracing.setParallelism(Runtime.getRuntime().availableProcessors());
+
+		for (RowKey key : skippedEdgeRows) {
+			setWarningMessage("Delivery Table: Row " + key.getString() + " skipped");
+		}
+
+		for (RowKey key : skippedTracingRows) {
+			setWarningMessage("Tracing Table: Row " + key.getString() + " skipped");
+		}
+
+		for (GraphNode node : nodes.values()) {
+			tracing.setCrossContaminationOfStation(node.getId(), isSet(node, TracingColumns.CROSS_CONTAMINATION));
+			tracing.setKillContaminationOfStation(node.getId(), isSet(node, TracingColumns.KILL_CONTAMINATION));
+		}
+
+		for (Edge<GraphNode> edge : edges) {
+			tracing.setCrossContaminationOfDelivery(edge.getId(), isSet(edge, TracingColumns.CROSS_CONTAMINATION));
+			tracing.setKillContaminationOfDelivery(edge.getId(), isSet(edge, TracingColumns.KILL_CONTAMINATION));
+		}
+
+		Map<String, Map<String, Double>> stationWeights = new LinkedHashMap<>();
+		Map<String, Map<String, Double>> deliveryWeights = new LinkedHashMap<>();
+
+		readScenarios(scenarioTable, stationWeights, deliveryWeights);
+
+		BatchTracing.Scores scores = tracing.getBatchTracing(enforceTemporalOrder.getBooleanValue())
+				.getScores(new ArrayList<>(stationWeights.values()), new ArrayList<>(deliveryWeights.values()));
+		BufferedDataContainer container = exec.createDataContainer(createOutSpec());
+		int scenario = 0;
+		long rowIndex = 0;
+
+		for (String name : stationWeights.keySet()) {
+			for (String id : nodes.keySet()) {
+				container.addRowToTable(new DefaultRow(RowKey.createRowKey(rowIndex++), IO.createCell(name),
+						IO.createCell(id), DataType.getMissingCell(),
+						IO.createCell(scores.getStationScore(scenario, id)),
+						IO.createCell(scores.getStationNormalizedScore(scenario, id)),
+						IO.createCell(scores.getStationPositiveScore(scenario, id)),
+						IO.createCell(scores.getStationNegativeScore(scenario, id))));
+			}
+
+			for (Edge<GraphNode> edge : edges) {
+				String id = edge.getId();
+
+				container.addRowToTable(new DefaultRow(RowKey.createRowKey(rowIndex++), IO.createCell(name),
+						DataType.getMissingCell(), IO.createCell(id),
+						IO.createCell(scores.getDeliveryScore(scenario, id)),
+						IO.createCell(scores.getDeliveryNormalizedScore(scenario, id)),
+						IO.createCell(scores.getDeliveryPositiveScore(scenario, id)),
+						IO.createCell(scores.getDeliveryNegativeScore(scenario, id))));
+			}
+
+			exec.checkCanceled();
+			exec.setProgress((double) (scenario + 1) / (double) stationWeights.size());
+			scenario++;
+		}
+
+		container.close();
+
+		return new BufferedDataTable[] { container.getTable() };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected DataTableSpec[] configure(DataTableSpec[] inSpecs) throws InvalidSettingsException {
+		assertScenarioColumns(inSpecs[3]);
+
+		return new DataTableSpec[] { createOutSpec() };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) {
+		enforceTemporalOrder.saveSettingsTo(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		enforceTemporalOrder.loadSettingsFrom(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+		enforceTemporalOrder.validateSettings(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	private static DataTableSpec createOutSpec() {
+		return new DataTableSpec(new DataColumnSpecCreator(TracingColumns.SCENARIO, StringCell.TYPE).createSpec(),
+				new DataColumnSpecCreator(TracingColumns.STATION_ID, StringCell.TYPE).createSpec(),
+				new DataColumnSpecCreator(TracingColumns.DELIVERY_ID, StringCell.TYPE).createSpec(),
+				new DataColumnSpecCreator(TracingColumns.SCORE, DoubleCell.TYPE).createSpec(),
+				new DataColumnSpecCreator(TracingColumns.NORMALIZED_SCORE, DoubleCell.TYPE).createSpec(),
+				new DataColumnSpecCreator(TracingColumns.POSITIVE_SCORE, DoubleCell.TYPE).createSpec(),
+				new DataColumnSpecCreator(TracingColumns.NEGATIVE_SCORE, DoubleCell.TYPE).createSpec());
+	}
+
+	private static void assertScenarioColumns(DataTableSpec spec) throws InvalidSettingsException {
+		if (!spec.containsName(TracingColumns.SCENARIO) || !spec.containsName(TracingColumns.WEIGHT)) {
+			throw new InvalidSettingsException("Scenario Table: Columns \"" + TracingColumns.SCENARIO + "\" and \""
+					+ TracingColumns.WEIGHT + "\" are required");
+		}
+
+		if (!spec.containsName(TracingColumns.STATION_ID) && !spec.containsName(TracingColumns.DELIVERY_ID)) {
+			throw new InvalidSettingsException("Scenario Table: Column \"" + TracingColumns.STATION_ID + "\" or \""
+					+ TracingColumns.DELIVERY_ID + "\" is required");
+		}
+	}
+
+	/**
+	 * Each row of the scenario table sets the weight of one station or delivery in
+	 * one scenario. Elements without a row have the weight 0 in that scenario.
+	 */
+	private void readScenarios(BufferedDataTable table, Map<String, Map<String, Double>> stationWeights,
+			Map<String, Map<String, Double>> deliveryWeights) throws InvalidSettingsException {
+		DataTableSpec spec = table.getSpec();
+		int scenarioIndex = spec.findColumnIndex(TracingColumns.SCENARIO);
+		int stationIndex = spec.findColumnIndex(TracingColumns.STATION_ID);
+		int deliveryIndex = spec.findColumnIndex(TracingColumns.DELIVERY_ID);
+		int weightIndex = spec.findColumnIndex(TracingColumns.WEIGHT);
+
+		assertScenarioColumns(spec);
+
+		for (DataRow row : table) {
+			String scenario = IO.getToCleanString(row.getCell(scenarioIndex));
+			String stationId = stationIndex != -1 ? IO.getToCleanString(row.getCell(stationIndex)) : null;
+			String deliveryId = deliveryIndex != -1 ? IO.getToCleanString(row.getCell(deliveryIndex)) : null;
+			Double weight = IO.getDouble(row.getCell(weightIndex));
+
+			if (scenario == null) {
+				setWarningMessage("Scenario Table: Row " + row.getKey().getString() + " skipped");
+				continue;
+			}
+
+			Map<String, Double> scenarioStationWeights = stationWeights.computeIfAbsent(scenario,
+					s -> new LinkedHashMap<>());
+			Map<String, Double> scenarioDeliveryWeights = deliveryWeights.computeIfAbsent(scenario,
+					s -> new LinkedHashMap<>());
+
+			if (weight == null) {
+				continue;
+			}
+
+			if (stationId != null) {
+				scenarioStationWeights.put(stationId, weight);
+			}
+
+			if (deliveryId != null) {
+				scenarioDeliveryWeights.put(deliveryId, weight);
+			}
+		}
+	}
+
+	private static boolean isSet(Element element, String property) {
+		return Boolean.TRUE.equals(element.getProperties().get(property));
+	}
+}
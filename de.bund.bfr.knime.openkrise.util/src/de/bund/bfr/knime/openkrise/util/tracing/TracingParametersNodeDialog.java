@@ -19,12 +19,14 @@
  *******************************************************************************/
 package de.bund.bfr.knime.openkrise.util.tracing;
 
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.swing.JCheckBox;
+import javax.swing.JLabel;
 import javax.swing.JTabbedPane;
 
 import org.knime.core.data.RowKey;
@@ -45,6 +47,7 @@ import de.bund.bfr.knime.gis.views.canvas.util.NodePropertySchema;
 import de.bund.bfr.knime.openkrise.TracingColumns;
 import de.bund.bfr.knime.openkrise.TracingUtils;
 import de.bund.bfr.knime.ui.Dialogs;
+import de.bund.bfr.knime.ui.IntTextField;
 
 /**
  * <code>NodeDialog</code> for the "TracingVisualizer" Node.
@@ -64,6 +67,7 @@ public class TracingParametersNodeDialog extends DataAwareNodeDialogPane {
 	private TableInputPanel<Boolean> nodeFilterPanel;
 	private TableInputPanel<Boolean> edgeFilterPanel;
 	private JCheckBox enforceTempBox;
+	private IntTextField topSourcesField;
 
 	private JTabbedPane nodePane;
 	private JTabbedPane edgePane;
@@ -82,6 +86,8 @@ public class TracingParametersNodeDialog extends DataAwareNodeDialogPane {
 		nodeFilterPanel = new TableInputPanel<>(Boolean.class, TableInputPanel.Type.NODE);
 		edgeFilterPanel = new TableInputPanel<>(Boolean.class, TableInputPanel.Type.EDGE);
 		enforceTempBox = new JCheckBox("Enforce Temporal Order");
+		topSourcesField = new IntTextField(true, 5);
+		topSourcesField.setMinValue(1);
 
 		nodePane = new JTabbedPane();
 		nodePane.addTab(TracingColumns.WEIGHT, nodeWeightPanel);
@@ -95,7 +101,9 @@ public class TracingParametersNodeDialog extends DataAwareNodeDialogPane {
 		edgePane.addTab(TracingColumns.KILL_CONTAMINATION, edgeKillPanel);
 		edgePane.addTab(TracingColumns.OBSERVED, edgeFilterPanel);
 
-		addTab("Options", UI.createNorthPanel(UI.createBorderPanel(enforceTempBox)));
+		addTab("Options",
+				UI.createNorthPanel(UI.createOptionsPanel(Arrays.asList(enforceTempBox, new JLabel("Top-k Sources:")),
+						Arrays.asList(new JLabel(), topSourcesField))));
 		addTab(createNodeTabTitle(false), nodePane);
 		addTab(createEdgeTabTitle(false), edgePane);
 	}
@@ -148,6 +156,7 @@ public class TracingParametersNodeDialog extends DataAwareNodeDialogPane {
 		edgeFilterPanel.update(edges, edgeSchema, set.getObservedEdges(), set.getObservedEdgesCondition(),
 				set.getObservedEdgesConditionValue());
 		enforceTempBox.setSelected(set.isEnforeTemporalOrder());
+		topSourcesField.setValue(set.getTopSources());
 
 		String warning = !skippedEdgeRows.isEmpty() ? "Some rows from the delivery table could not be imported."
 				+ " Execute the Tracing View for more information." : null;
@@ -199,7 +208,12 @@ public class TracingParametersNodeDialog extends DataAwareNodeDialogPane {
 		set.setObservedEdgesCondition(edgeFilterPanel.getCondition());
 		set.setObservedEdgesConditionValue(edgeFilterPanel.getValueForAll());
 
+		if (!topSourcesField.isValueValid()) {
+			throw new InvalidSettingsException("Invalid: Top-k Sources");
+		}
+
 		set.setEnforeTemporalOrder(enforceTempBox.isSelected());
+		set.setTopSources(topSourcesField.getValue());
 
 		set.saveSettings(settings);
 	}
@@ -28,6 +28,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
@@ -36,6 +37,7 @@ import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.RowKey;
 import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
@@ -97,6 +99,8 @@ public class TracingParametersNodeModel extends NodeModel {
 		Map<String, Delivery> deliveries = TracingUtils.readDeliveries(tracingTable, edges, skippedTracingRows);
 		Tracing tracing = new Tracing(deliveries.values());
 
+		tracing.setParallelism(Runtime.getRuntime().availableProcessors());
+
 		for (RowKey key : skippedEdgeRows) {
 			setWarningMessage("Delivery Table: Row " + key.getString() + " skipped");
 		}
@@ -130,31 +134,22 @@ public class TracingParametersNodeModel extends NodeModel {
 				set.getObservedNodesConditionValue(), false, set.getObservedNodes());
 		Map<String, Boolean> observedEdges = createValueMap(edges, set.getObservedEdgesCondition(),
 				set.getObservedEdgesConditionValue(), false, set.getObservedEdges());
-		Set<String> backwardNodes = new LinkedHashSet<>();
-		Set<String> forwardNodes = new LinkedHashSet<>();
-		Set<String> backwardEdges = new LinkedHashSet<>();
-		Set<String> forwardEdges = new LinkedHashSet<>();
-
-		observedNodes.forEach((stationId, observed) -> {
-			if (observed) {
-				backwardNodes.addAll(result.getBackwardStationsByStation().get(stationId));
-				forwardNodes.addAll(result.getForwardStationsByStation().get(stationId));
-				backwardEdges.addAll(result.getBackwardDeliveriesByStation().get(stationId));
-				forwardEdges.addAll(result.getForwardDeliveriesByStation().get(stationId));
-			}
-		});
-
-		observedEdges.forEach((deliveryId, observed) -> {
-			if (observed) {
-				backwardNodes.addAll(result.getBackwardStationsByDelivery().get(deliveryId));
-				forwardNodes.addAll(result.getForwardStationsByDelivery().get(deliveryId));
-				backwardEdges.addAll(result.getBackwardDeliveriesByDelivery().get(deliveryId));
-				forwardEdges.addAll(result.getForwardDeliveriesByDelivery().get(deliveryId));
+		Tracing.ObservedClosure closure = result.getObservedClosure(getTrueKeys(observedNodes),
+				getTrueKeys(observedEdges));
+		Set<String> backwardNodes = closure.getBackwardStations();
+		Set<String> forwardNodes = closure.getForwardStations();
+		Set<String> backwardEdges = closure.getBackwardDeliveries();
+		Set<String> forwardEdges = closure.getForwardDeliveries();
+		Map<String, Integer> sourceRanks = new LinkedHashMap<>();
+
+		if (set.getTopSources() != null) {
+			for (String id : tracing.getTopStations(set.isEnforeTemporalOrder(), set.getTopSources()).keySet()) {
+				sourceRanks.put(id, sourceRanks.size() + 1);
 			}
-		});
+		}
 
 		int index = 0;
-		DataTableSpec nodeOutSpec = createOutSpec(nodeTable.getSpec());
+		DataTableSpec nodeOutSpec = createNodeOutSpec(nodeTable.getSpec());
 		BufferedDataContainer nodeContainer = exec.createDataContainer(nodeOutSpec);
 
 		for (DataRow row : nodeTable) {
@@ -183,6 +178,10 @@ public class TracingParametersNodeModel extends NodeModel {
 			cells[nodeOutSpec.findColumnIndex(TracingColumns.BACKWARD)] = IO.createCell(backwardNodes.contains(id));
 			cells[nodeOutSpec.findColumnIndex(TracingColumns.FORWARD)] = IO.createCell(forwardNodes.contains(id));
 
+			if (set.getTopSources() != null) {
+				cells[nodeOutSpec.findColumnIndex(TracingColumns.SOURCE_RANK)] = IO.createCell(sourceRanks.get(id));
+			}
+
 			nodeContainer.addRowToTable(new DefaultRow(row.getKey(), cells));
 			exec.checkCanceled();
 			exec.setProgress((double) index / (double) (nodeTable.size() + edgeTable.size()));
@@ -243,7 +242,7 @@ public class TracingParametersNodeModel extends NodeModel {
 	 */
 	@Override
 	protected DataTableSpec[] configure(DataTableSpec[] inSpecs) throws InvalidSettingsException {
-		return new DataTableSpec[] { createOutSpec(inSpecs[0]), createOutSpec(inSpecs[1]) };
+		return new DataTableSpec[] { createNodeOutSpec(inSpecs[0]), createOutSpec(inSpecs[1]) };
 	}
 
 	/**
@@ -303,6 +302,26 @@ public class TracingParametersNodeModel extends NodeModel {
 		return new DataTableSpec(outSpec.toArray(new DataColumnSpec[0]));
 	}
 
+	/**
+	 * With the "Top-k Sources" option the station table gets an additional column
+	 * with the rank of the k stations with the highest scores.
+	 */
+	private DataTableSpec createNodeOutSpec(DataTableSpec spec) throws InvalidSettingsException {
+		DataTableSpec outSpec = createOutSpec(spec);
+
+		if (set.getTopSources() == null) {
+			return outSpec;
+		}
+
+		if (spec.containsName(TracingColumns.SOURCE_RANK)) {
+			throw new InvalidSettingsException(
+					"Column name \"" + TracingColumns.SOURCE_RANK + "\" is not allowed in input table");
+		}
+
+		return new DataTableSpec(outSpec,
+				new DataTableSpec(new DataColumnSpecCreator(TracingColumns.SOURCE_RANK, IntCell.TYPE).createSpec()));
+	}
+
 	private static <T> Map<String, T> createValueMap(Collection<? extends Element> elements,
 			AndOrHighlightCondition condition, T inValue, T outValue, Map<String, T> defaultValues) {
 		Map<String, T> result = new LinkedHashMap<>();
@@ -324,4 +343,8 @@ public class TracingParametersNodeModel extends NodeModel {
 
 		return result;
 	}
+
+	private static List<String> getTrueKeys(Map<String, Boolean> map) {
+		return map.entrySet().stream().filter(e -> e.getValue()).map(e -> e.getKey()).collect(Collectors.toList());
+	}
 }
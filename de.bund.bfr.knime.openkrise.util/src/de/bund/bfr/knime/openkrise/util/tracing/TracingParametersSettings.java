@@ -61,6 +61,7 @@ public class TracingParametersSettings extends NodeSettings {
 	private static final String CFG_OBSERVED_NODES_CONDITION_VALUE = "FilterConditionValue";
 	private static final String CFG_OBSERVED_EDGES_CONDITION_VALUE = "EdgeFilterConditionValue";
 	private static final String CFG_ENFORCE_TEMPORAL_ORDER = "EnforceTemporalOrder";
+	private static final String CFG_TOP_SOURCES = "TopSources";
 
 	private Map<String, Double> nodeWeights;
 	private Map<String, Double> edgeWeights;
@@ -87,6 +88,7 @@ public class TracingParametersSettings extends NodeSettings {
 	private Boolean observedNodesConditionValue;
 	private Boolean observedEdgesConditionValue;
 	private boolean enforeTemporalOrder;
+	private Integer topSources;
 
 	public TracingParametersSettings() {
 		nodeWeights = new LinkedHashMap<>();
@@ -114,6 +116,7 @@ public class TracingParametersSettings extends NodeSettings {
 		observedNodesConditionValue = null;
 		observedEdgesConditionValue = null;
 		enforeTemporalOrder = true;
+		topSources = null;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -255,6 +258,11 @@ public class TracingParametersSettings extends NodeSettings {
 			enforeTemporalOrder = settings.getBoolean(CFG_ENFORCE_TEMPORAL_ORDER);
 		} catch (InvalidSettingsException e) {
 		}
+
+		try {
+			topSources = minusOneToNull(settings.getInt(CFG_TOP_SOURCES));
+		} catch (InvalidSettingsException e) {
+		}
 	}
 
 	@Override
@@ -284,6 +292,7 @@ public class TracingParametersSettings extends NodeSettings {
 		settings.addBoolean(CFG_OBSERVED_NODES_CONDITION_VALUE, nullToFalse(observedNodesConditionValue));
 		settings.addBoolean(CFG_OBSERVED_EDGES_CONDITION_VALUE, nullToFalse(observedEdgesConditionValue));
 		settings.addBoolean(CFG_ENFORCE_TEMPORAL_ORDER, enforeTemporalOrder);
+		settings.addInt(CFG_TOP_SOURCES, nullToMinusOne(topSources));
 	}
 
 	public Map<String, Double> getNodeWeights() {
@@ -485,4 +494,12 @@ public class TracingParametersSettings extends NodeSettings {
 	public void setEnforeTemporalOrder(boolean enforeTemporalOrder) {
 		this.enforeTemporalOrder = enforeTemporalOrder;
 	}
+
+	public Integer getTopSources() {
+		return topSources;
+	}
+
+	public void setTopSources(Integer topSources) {
+		this.topSources = topSources;
+	}
 }
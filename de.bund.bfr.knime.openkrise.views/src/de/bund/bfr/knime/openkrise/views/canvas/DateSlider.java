@@ -35,6 +35,8 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JSlider;
 
+import de.bund.bfr.knime.openkrise.common.PackedDate;
+
 public class DateSlider extends JPanel {
 
 	private static final long serialVersionUID = 1L;
@@ -140,25 +142,7 @@ public class DateSlider extends JPanel {
 	}
 
 	private static int getDifferenceInDays(GregorianCalendar c1, GregorianCalendar c2) {
-		if (c2.before(c1)) {
-			return 0;
-		}
-
-		GregorianCalendar c = new GregorianCalendar(c1.get(Calendar.YEAR), c1.get(Calendar.MONTH),
-				c1.get(Calendar.DAY_OF_MONTH));
-
-		for (int i = 0;; i++) {
-			if (equal(c, c2)) {
-				return i;
-			}
-
-			c.add(Calendar.DAY_OF_MONTH, 1);
-		}
-	}
-
-	private static boolean equal(GregorianCalendar c1, GregorianCalendar c2) {
-		return c1.get(Calendar.YEAR) == c2.get(Calendar.YEAR) && c1.get(Calendar.MONTH) == c2.get(Calendar.MONTH)
-				&& c1.get(Calendar.DAY_OF_MONTH) == c2.get(Calendar.DAY_OF_MONTH);
+		return Math.max(PackedDate.toEpochDay(c2) - PackedDate.toEpochDay(c1), 0);
 	}
 
 	public static interface DateListener extends EventListener {
@@ -29,12 +29,11 @@ import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -50,6 +49,8 @@ import com.google.common.collect.Sets;
 
 import de.bund.bfr.jung.ZoomingPaintable;
 import de.bund.bfr.knime.Pair;
+import de.bund.bfr.knime.gis.views.canvas.ApplyPipeline;
+import de.bund.bfr.knime.gis.views.canvas.ApplyStage;
 import de.bund.bfr.knime.gis.views.canvas.CanvasUtils;
 import de.bund.bfr.knime.gis.views.canvas.ICanvas;
 import de.bund.bfr.knime.gis.views.canvas.dialogs.HighlightConditionChecker;
@@ -59,9 +60,11 @@ import de.bund.bfr.knime.gis.views.canvas.element.Edge;
 import de.bund.bfr.knime.gis.views.canvas.element.Element;
 import de.bund.bfr.knime.gis.views.canvas.element.Node;
 import de.bund.bfr.knime.gis.views.canvas.highlighting.HighlightCondition;
+import de.bund.bfr.knime.gis.views.canvas.util.PropertyStore;
 import de.bund.bfr.knime.openkrise.Tracing;
 import de.bund.bfr.knime.openkrise.TracingColumns;
 import de.bund.bfr.knime.openkrise.common.Delivery;
+import de.bund.bfr.knime.openkrise.common.PackedDate;
 import edu.uci.ics.jung.visualization.VisualizationServer.Paintable;
 
 public class TracingDelegate<V extends Node> {
@@ -76,7 +79,12 @@ public class TracingDelegate<V extends Node> {
 	private Map<Edge<V>, Set<Edge<V>>> joinMap;
 	private Map<String, Delivery> deliveries;
 
+	private TracingSession tracingSession;
+	private TracingSession forwardSessionWithCC;
+	private TracingSession forwardSessionWithoutCC;
+
 	private boolean performTracing;
+	private ApplyPipeline<V> pipeline;
 
 	private JCheckBox enforceTemporalOrderBox;
 	private JCheckBox showForwardBox;
@@ -90,13 +98,28 @@ public class TracingDelegate<V extends Node> {
 		this.joinMap = joinMap;
 		this.deliveries = deliveries;
 
+		tracingSession = new TracingSession();
+		forwardSessionWithCC = new TracingSession();
+		forwardSessionWithoutCC = new TracingSession();
 		performTracing = DEFAULT_PERFORM_TRACING;
 
+		pipeline = new ApplyPipeline<>(canvas);
+		pipeline.setStage(ApplyStage.NODES_AND_EDGES, () -> {
+			canvas.resetNodesAndEdges();
+			applyTimeWindow();
+		});
+		pipeline.setStage(ApplyStage.NODE_COLLAPSE, canvas::applyNodeCollapse);
+		pipeline.setStage(ApplyStage.INVISIBILITY, this::applyInvisibility);
+		pipeline.setStage(ApplyStage.JOIN_EDGES_AND_SKIP_EDGELESS, canvas::applyJoinEdgesAndSkipEdgeless);
+		pipeline.setStage(ApplyStage.DERIVED_PROPERTIES, this::applyTracing);
+		pipeline.setStage(ApplyStage.SHOW_EDGES_IN_META_NODE, canvas::applyShowEdgesInMetaNode);
+		pipeline.setStage(ApplyStage.HIGHLIGHTS, canvas::applyHighlights);
+
 		enforceTemporalOrderBox = new JCheckBox("Activate");
 		enforceTemporalOrderBox.setSelected(DEFAULT_ENFORCE_TEMPORAL_ORDER);
 		enforceTemporalOrderBox.addItemListener(e -> {
 			if (performTracing) {
-				canvas.applyChanges();
+				canvas.applyChanges(getTracingStage(false, true));
 			}
 
 			call(l -> l.enforceTemporalOrderChanged(canvas));
@@ -106,7 +129,7 @@ public class TracingDelegate<V extends Node> {
 		showForwardBox.setSelected(DEFAULT_SHOW_FORWARD);
 		showForwardBox.addItemListener(e -> {
 			if (performTracing) {
-				canvas.applyChanges();
+				canvas.applyChanges(ApplyStage.INVISIBILITY);
 			}
 
 			call(l -> l.showForwardChanged(canvas));
@@ -178,7 +201,7 @@ public class TracingDelegate<V extends Node> {
 		setDoublePropertyValues(nodeSaveMap.values(), TracingColumns.WEIGHT, nodeWeights);
 
 		if (performTracing) {
-			canvas.applyChanges();
+			canvas.applyChanges(getTracingStage(false, false));
 		}
 
 		call(l -> l.nodeWeightsChanged(canvas));
@@ -192,7 +215,7 @@ public class TracingDelegate<V extends Node> {
 		setDoublePropertyValues(edgeSaveMap.values(), TracingColumns.WEIGHT, edgeWeights);
 
 		if (performTracing) {
-			canvas.applyChanges();
+			canvas.applyChanges(getTracingStage(true, false));
 		}
 
 		call(l -> l.edgeWeightsChanged(canvas));
@@ -206,7 +229,7 @@ public class TracingDelegate<V extends Node> {
 		setBooleanPropertyValues(nodeSaveMap.values(), TracingColumns.CROSS_CONTAMINATION, nodeCrossContaminations);
 
 		if (performTracing) {
-			canvas.applyChanges();
+			canvas.applyChanges(getTracingStage(false, true));
 		}
 
 		call(l -> l.nodeCrossContaminationsChanged(canvas));
@@ -220,7 +243,7 @@ public class TracingDelegate<V extends Node> {
 		setBooleanPropertyValues(edgeSaveMap.values(), TracingColumns.CROSS_CONTAMINATION, edgeCrossContaminations);
 
 		if (performTracing) {
-			canvas.applyChanges();
+			canvas.applyChanges(getTracingStage(true, true));
 		}
 
 		call(l -> l.edgeCrossContaminationsChanged(canvas));
@@ -234,7 +257,7 @@ public class TracingDelegate<V extends Node> {
 		setBooleanPropertyValues(nodeSaveMap.values(), TracingColumns.KILL_CONTAMINATION, nodeKillContaminations);
 
 		if (performTracing) {
-			canvas.applyChanges();
+			canvas.applyChanges(getTracingStage(false, true));
 		}
 
 		call(l -> l.nodeKillContaminationsChanged(canvas));
@@ -248,7 +271,7 @@ public class TracingDelegate<V extends Node> {
 		setBooleanPropertyValues(edgeSaveMap.values(), TracingColumns.KILL_CONTAMINATION, edgeKillContaminations);
 
 		if (performTracing) {
-			canvas.applyChanges();
+			canvas.applyChanges(getTracingStage(true, true));
 		}
 
 		call(l -> l.edgeKillContaminationsChanged(canvas));
@@ -262,7 +285,7 @@ public class TracingDelegate<V extends Node> {
 		setBooleanPropertyValues(nodeSaveMap.values(), TracingColumns.OBSERVED, observedNodes);
 
 		if (performTracing) {
-			canvas.applyChanges();
+			canvas.applyChanges(getTracingStage(false, false));
 		}
 
 		call(l -> l.observedNodesChanged(canvas));
@@ -276,7 +299,7 @@ public class TracingDelegate<V extends Node> {
 		setBooleanPropertyValues(edgeSaveMap.values(), TracingColumns.OBSERVED, observedEdges);
 
 		if (performTracing) {
-			canvas.applyChanges();
+			canvas.applyChanges(getTracingStage(true, false));
 		}
 
 		call(l -> l.observedEdgesChanged(canvas));
@@ -326,7 +349,7 @@ public class TracingDelegate<V extends Node> {
 		this.performTracing = performTracing;
 
 		if (performTracing) {
-			canvas.applyChanges();
+			canvas.applyChanges(ApplyStage.DERIVED_PROPERTIES);
 		}
 	}
 
@@ -384,23 +407,11 @@ public class TracingDelegate<V extends Node> {
 	}
 
 	public void applyChanges() {
-		Set<String> selectedNodeIds = canvas.getSelectedNodeIds();
-		Set<String> selectedEdgeIds = canvas.getSelectedEdgeIds();
-
-		canvas.resetNodesAndEdges();
-		applyTimeWindow();
-		canvas.applyNodeCollapse();
-		applyInvisibility();
-		canvas.applyJoinEdgesAndSkipEdgeless();
-		applyTracing();
-		canvas.applyShowEdgesInMetaNode();
-		canvas.applyHighlights();
-		canvas.getViewer().getGraphLayout()
-				.setGraph(CanvasUtils.createGraph(canvas.getViewer(), canvas.getNodes(), canvas.getEdges()));
+		applyChanges(ApplyStage.first());
+	}
 
-		canvas.setSelectedNodeIdsWithoutListener(selectedNodeIds);
-		canvas.setSelectedEdgeIdsWithoutListener(selectedEdgeIds);
-		canvas.getViewer().repaint();
+	public void applyChanges(ApplyStage from) {
+		pipeline.apply(from);
 	}
 
 	public void doubleClickedOn(Object obj) {
@@ -436,6 +447,27 @@ public class TracingDelegate<V extends Node> {
 		}
 	}
 
+	/**
+	 * Returns the first stage, that has to be rerun, when tracing properties of
+	 * nodes or edges change. Invisible highlight conditions might use them,
+	 * joined edges contain the properties of their edges and the show forward
+	 * option depends on cross and kill contaminations.
+	 */
+	private ApplyStage getTracingStage(boolean edgeProperty, boolean usedForShowForward) {
+		boolean hasInvisibleConditions = Stream
+				.concat(canvas.getNodeHighlightConditions().getConditions().stream(),
+						canvas.getEdgeHighlightConditions().getConditions().stream())
+				.anyMatch(HighlightCondition::isInvisible);
+
+		if (hasInvisibleConditions || (usedForShowForward && isShowForward())) {
+			return ApplyStage.INVISIBILITY;
+		} else if (edgeProperty && canvas.isJoinEdges()) {
+			return ApplyStage.JOIN_EDGES_AND_SKIP_EDGELESS;
+		}
+
+		return ApplyStage.DERIVED_PROPERTIES;
+	}
+
 	private void applyTimeWindow() {
 		if (dateSlider == null) {
 			return;
@@ -448,13 +480,13 @@ public class TracingDelegate<V extends Node> {
 			return;
 		}
 
-		Delivery afterDelivery = createDeliveryFromDate(to);
+		int toDate = to != null ? PackedDate.ofEpochDay(PackedDate.toEpochDay(to)) : PackedDate.UNKNOWN;
+		Delivery afterDelivery = new Delivery(null, null, null, toDate, PackedDate.UNKNOWN);
 
 		for (Edge<V> edge : new LinkedHashSet<>(canvas.getEdges())) {
 			Delivery d = deliveries.get(edge.getId());
 
-			if ((d.getDepartureYear() == null && d.getArrivalYear() == null && !showEdgesWithoutDate)
-					|| !d.isBefore(afterDelivery)) {
+			if ((d.getDepartureDate() == PackedDate.UNKNOWN && !showEdgesWithoutDate) || !d.isBefore(afterDelivery)) {
 				canvas.getEdges().remove(edge);
 			}
 		}
@@ -466,8 +498,8 @@ public class TracingDelegate<V extends Node> {
 			return;
 		}
 
-		Tracing.Result tracingWithCC = createTracing(canvas.getEdges(), true);
-		Tracing.Result tracingWithoutCC = createTracing(canvas.getEdges(), false);
+		Tracing.Result tracingWithCC = createTracing(forwardSessionWithCC, canvas.getEdges(), true);
+		Tracing.Result tracingWithoutCC = createTracing(forwardSessionWithoutCC, canvas.getEdges(), false);
 		Set<Edge<V>> removedEdges = new LinkedHashSet<>();
 
 		CanvasUtils.removeInvisibleElements(canvas.getNodes(), canvas.getNodeHighlightConditions());
@@ -475,15 +507,12 @@ public class TracingDelegate<V extends Node> {
 				.addAll(CanvasUtils.removeInvisibleElements(canvas.getEdges(), canvas.getEdgeHighlightConditions()));
 		removedEdges.addAll(CanvasUtils.removeNodelessEdges(canvas.getEdges(), canvas.getNodes()));
 
-		Set<String> forwardEdges = new LinkedHashSet<>();
-
-		for (Edge<V> edge : canvas.getEdges()) {
-			forwardEdges.addAll(tracingWithCC.getForwardDeliveriesByDelivery().get(edge.getId()));
-		}
+		Set<String> edgeIds = CanvasUtils.getElementIds(canvas.getEdges());
+		Set<String> forwardEdges = new LinkedHashSet<>(
+				tracingWithCC.getObservedClosure(Collections.emptySet(), edgeIds).getForwardDeliveries());
 
-		for (Edge<V> edge : canvas.getEdges()) {
-			forwardEdges.removeAll(tracingWithoutCC.getForwardDeliveriesByDelivery().get(edge.getId()));
-		}
+		forwardEdges.removeAll(
+				tracingWithoutCC.getObservedClosure(Collections.emptySet(), edgeIds).getForwardDeliveries());
 
 		for (Edge<V> edge : removedEdges) {
 			if (forwardEdges.contains(edge.getId())) {
@@ -509,47 +538,53 @@ public class TracingDelegate<V extends Node> {
 			}
 		}
 
-		Tracing.Result tracing = createTracing(edges, true);
+		Tracing.Result tracing = createTracing(tracingSession, edges, true);
 
-		Set<String> backwardNodes = new LinkedHashSet<>();
-		Set<String> forwardNodes = new LinkedHashSet<>();
-		Set<String> backwardEdges = new LinkedHashSet<>();
-		Set<String> forwardEdges = new LinkedHashSet<>();
+		Set<String> observedNodes = new LinkedHashSet<>();
+		Set<String> observedEdges = new LinkedHashSet<>();
 
 		for (V node : canvas.getNodes()) {
 			if (Boolean.TRUE.equals(node.getProperties().get(TracingColumns.OBSERVED))) {
-				backwardNodes.addAll(tracing.getBackwardStationsByStation().get(node.getId()));
-				forwardNodes.addAll(tracing.getForwardStationsByStation().get(node.getId()));
-				backwardEdges.addAll(tracing.getBackwardDeliveriesByStation().get(node.getId()));
-				forwardEdges.addAll(tracing.getForwardDeliveriesByStation().get(node.getId()));
+				observedNodes.add(node.getId());
 			}
 		}
 
 		for (Edge<V> edge : edges) {
 			if (Boolean.TRUE.equals(edge.getProperties().get(TracingColumns.OBSERVED))) {
-				backwardNodes.addAll(tracing.getBackwardStationsByDelivery().get(edge.getId()));
-				forwardNodes.addAll(tracing.getForwardStationsByDelivery().get(edge.getId()));
-				backwardEdges.addAll(tracing.getBackwardDeliveriesByDelivery().get(edge.getId()));
-				forwardEdges.addAll(tracing.getForwardDeliveriesByDelivery().get(edge.getId()));
+				observedEdges.add(edge.getId());
 			}
 		}
 
+		Tracing.ObservedClosure closure = tracing.getObservedClosure(observedNodes, observedEdges);
+		Set<String> backwardNodes = closure.getBackwardStations();
+		Set<String> forwardNodes = closure.getForwardStations();
+		Set<String> backwardEdges = closure.getBackwardDeliveries();
+		Set<String> forwardEdges = closure.getForwardDeliveries();
+
 		for (V node : canvas.getNodes()) {
-			node.getProperties().put(TracingColumns.SCORE, tracing.getStationScore(node.getId()));
-			node.getProperties().put(TracingColumns.NORMALIZED_SCORE, tracing.getStationNormalizedScore(node.getId()));
-			node.getProperties().put(TracingColumns.POSITIVE_SCORE, tracing.getStationPositiveScore(node.getId()));
-			node.getProperties().put(TracingColumns.NEGATIVE_SCORE, tracing.getStationNegativeScore(node.getId()));
-			node.getProperties().put(TracingColumns.BACKWARD, backwardNodes.contains(node.getId()));
-			node.getProperties().put(TracingColumns.FORWARD, forwardNodes.contains(node.getId()));
+			Map<String, Object> properties = node.getProperties();
+			String id = node.getId();
+
+			PropertyStore.putDouble(properties, TracingColumns.SCORE, tracing.getStationScore(id));
+			PropertyStore.putDouble(properties, TracingColumns.NORMALIZED_SCORE,
+					tracing.getStationNormalizedScore(id));
+			PropertyStore.putDouble(properties, TracingColumns.POSITIVE_SCORE, tracing.getStationPositiveScore(id));
+			PropertyStore.putDouble(properties, TracingColumns.NEGATIVE_SCORE, tracing.getStationNegativeScore(id));
+			PropertyStore.putBoolean(properties, TracingColumns.BACKWARD, backwardNodes.contains(id));
+			PropertyStore.putBoolean(properties, TracingColumns.FORWARD, forwardNodes.contains(id));
 		}
 
 		for (Edge<V> edge : edges) {
-			edge.getProperties().put(TracingColumns.SCORE, tracing.getDeliveryScore(edge.getId()));
-			edge.getProperties().put(TracingColumns.NORMALIZED_SCORE, tracing.getDeliveryNormalizedScore(edge.getId()));
-			edge.getProperties().put(TracingColumns.POSITIVE_SCORE, tracing.getDeliveryPositiveScore(edge.getId()));
-			edge.getProperties().put(TracingColumns.NEGATIVE_SCORE, tracing.getDeliveryNegativeScore(edge.getId()));
-			edge.getProperties().put(TracingColumns.BACKWARD, backwardEdges.contains(edge.getId()));
-			edge.getProperties().put(TracingColumns.FORWARD, forwardEdges.contains(edge.getId()));
+			Map<String, Object> properties = edge.getProperties();
+			String id = edge.getId();
+
+			PropertyStore.putDouble(properties, TracingColumns.SCORE, tracing.getDeliveryScore(id));
+			PropertyStore.putDouble(properties, TracingColumns.NORMALIZED_SCORE,
+					tracing.getDeliveryNormalizedScore(id));
+			PropertyStore.putDouble(properties, TracingColumns.POSITIVE_SCORE, tracing.getDeliveryPositiveScore(id));
+			PropertyStore.putDouble(properties, TracingColumns.NEGATIVE_SCORE, tracing.getDeliveryNegativeScore(id));
+			PropertyStore.putBoolean(properties, TracingColumns.BACKWARD, backwardEdges.contains(id));
+			PropertyStore.putBoolean(properties, TracingColumns.FORWARD, forwardEdges.contains(id));
 		}
 
 		if (canvas.isJoinEdges()) {
@@ -579,16 +614,31 @@ public class TracingDelegate<V extends Node> {
 		}
 	}
 
-	private Tracing.Result createTracing(Set<Edge<V>> edges, boolean useCrossContamination) {
-		Map<String, Delivery> activeDeliveries = new LinkedHashMap<>();
+	private Tracing.Result createTracing(TracingSession session, Set<Edge<V>> edges,
+			boolean useCrossContamination) {
+		Set<String> edgeIds = CanvasUtils.getElementIds(edges);
+		Set<String> nodeIds = CanvasUtils.getElementIds(canvas.getNodes());
+		Map<String, Set<String>> collapsedNodes = canvas.getCollapsedNodes();
 
-		for (Edge<V> edge : edges) {
-			activeDeliveries.put(edge.getId(), deliveries.get(edge.getId()));
-		}
+		if (session.tracing == null || !edgeIds.equals(session.deliveryIds) || !nodeIds.equals(session.stationIds)
+				|| !collapsedNodes.equals(session.collapsedNodes)) {
+			Map<String, Delivery> activeDeliveries = new LinkedHashMap<>();
 
-		Tracing tracing = new Tracing(activeDeliveries.values());
+			for (Edge<V> edge : edges) {
+				activeDeliveries.put(edge.getId(), deliveries.get(edge.getId()));
+			}
+
+			session.tracing = new Tracing(activeDeliveries.values());
+			session.tracing.setParallelism(Runtime.getRuntime().availableProcessors());
+			collapsedNodes.forEach((metaId, containedIds) -> session.tracing.mergeStations(containedIds, metaId));
+			session.deliveryIds = edgeIds;
+			session.stationIds = nodeIds;
+			session.collapsedNodes = new LinkedHashMap<>();
+			collapsedNodes.forEach((metaId, containedIds) -> session.collapsedNodes.put(metaId,
+					new LinkedHashSet<>(containedIds)));
+		}
 
-		canvas.getCollapsedNodes().forEach((metaId, containedIds) -> tracing.mergeStations(containedIds, metaId));
+		Tracing tracing = session.tracing;
 
 		for (V node : canvas.getNodes()) {
 			tracing.setStationWeight(node.getId(), node.getProperties().get(TracingColumns.WEIGHT) instanceof Double
@@ -616,39 +666,17 @@ public class TracingDelegate<V extends Node> {
 	}
 
 	private static Pair<GregorianCalendar, GregorianCalendar> getDateRange(Collection<Delivery> deliveries) {
-		Optional<GregorianCalendar> from = deliveries.stream().map(d -> createDateFromDelivery(d, false))
-				.filter(Objects::nonNull).min(GregorianCalendar::compareTo);
-		Optional<GregorianCalendar> to = deliveries.stream().map(d -> createDateFromDelivery(d, true))
-				.filter(Objects::nonNull).max(GregorianCalendar::compareTo);
+		int from = Integer.MAX_VALUE;
+		int to = Integer.MIN_VALUE;
 
-		return from.isPresent() && to.isPresent() ? new Pair<>(from.get(), to.get()) : null;
-	}
-
-	private static Delivery createDeliveryFromDate(GregorianCalendar c) {
-		return c != null
-				? new Delivery(null, null, null, c.get(Calendar.DAY_OF_MONTH), c.get(Calendar.MONTH) + 1,
-						c.get(Calendar.YEAR), null, null, null)
-				: new Delivery(null, null, null, null, null, null, null, null, null);
-	}
-
-	private static GregorianCalendar createDateFromDelivery(Delivery d, boolean arrival) {
-		Integer year = arrival ? d.getArrivalYear() : d.getDepartureYear();
-		Integer month = arrival ? d.getArrivalMonth() : d.getDepartureMonth();
-		Integer day = arrival ? d.getArrivalDay() : d.getDepartureDay();
-
-		if (year == null) {
-			return null;
-		}
-
-		if (month == null) {
-			month = arrival ? 12 : 1;
-		}
-
-		if (day == null) {
-			day = arrival ? new GregorianCalendar(year, month - 1, 1).get(Calendar.DAY_OF_MONTH) : 1;
+		for (Delivery d : deliveries) {
+			if (d.getDepartureDate() != PackedDate.UNKNOWN) {
+				from = Math.min(from, PackedDate.getFirstDay(d.getDepartureDate()));
+				to = Math.max(to, PackedDate.getLastDay(d.getArrivalDate()));
+			}
 		}
 
-		return new GregorianCalendar(year, month - 1, day);
+		return from <= to ? new Pair<>(PackedDate.toCalendar(from), PackedDate.toCalendar(to)) : null;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -684,6 +712,19 @@ public class TracingDelegate<V extends Node> {
 		}
 	}
 
+	/**
+	 * Keeps a {@link Tracing} as long as the visible deliveries, stations and
+	 * collapsed stations stay the same. Changes of weights, contaminations or
+	 * observed elements then only update the affected parts of the last result.
+	 */
+	private static class TracingSession {
+
+		private Set<String> deliveryIds;
+		private Set<String> stationIds;
+		private Map<String, Set<String>> collapsedNodes;
+		private Tracing tracing;
+	}
+
 	public static class HighlightChecker implements HighlightConditionChecker {
 
 		@Override
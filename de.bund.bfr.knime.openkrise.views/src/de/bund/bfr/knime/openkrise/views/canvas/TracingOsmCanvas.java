@@ -25,6 +25,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import de.bund.bfr.knime.gis.views.canvas.ApplyStage;
 import de.bund.bfr.knime.gis.views.canvas.LocationOsmCanvas;
 import de.bund.bfr.knime.gis.views.canvas.dialogs.HighlightListDialog;
 import de.bund.bfr.knime.gis.views.canvas.dialogs.PropertySelectorCreator;
@@ -219,8 +220,8 @@ public class TracingOsmCanvas extends LocationOsmCanvas implements ITracingGisCa
 	}
 
 	@Override
-	public void applyChanges() {
-		tracing.applyChanges();
+	public void applyChanges(ApplyStage from) {
+		tracing.applyChanges(from);
 	}
 
 	@Override
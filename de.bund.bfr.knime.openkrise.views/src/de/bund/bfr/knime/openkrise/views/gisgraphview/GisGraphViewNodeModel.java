@@ -21,6 +21,7 @@ package de.bund.bfr.knime.openkrise.views.gisgraphview;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
@@ -35,6 +36,7 @@ import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.port.PortType;
 import org.knime.core.node.port.image.ImagePortObject;
 
+import de.bund.bfr.knime.gis.views.canvas.CanvasImageExporter;
 import de.bund.bfr.knime.gis.views.canvas.CanvasUtils;
 import de.bund.bfr.knime.gis.views.canvas.GraphCanvas;
 import de.bund.bfr.knime.gis.views.canvas.LocationCanvas;
@@ -70,9 +72,17 @@ public class GisGraphViewNodeModel extends NodeModel {
 		GraphCanvas graphCanvas = creator.createGraphCanvas();
 		LocationCanvas gisCanvas = creator.createGisCanvas();
 
-		return new PortObject[] { CanvasUtils.getImage(set.isExportAsSvg(), graphCanvas),
-				CanvasUtils.getImage(set.isExportAsSvg(), gisCanvas),
-				CanvasUtils.getImage(set.isExportAsSvg(), graphCanvas, gisCanvas) };
+		CanvasImageExporter exporter = new CanvasImageExporter(set.isExportAsSvg());
+
+		exporter.addImage("Graph", graphCanvas);
+		exporter.addImage("GIS", gisCanvas);
+		exporter.addImage("Combined", graphCanvas, gisCanvas);
+
+		List<ImagePortObject> images = exporter.export();
+
+		exporter.getStatistics().forEach(s -> getLogger().info(s));
+
+		return images.toArray(new PortObject[0]);
 	}
 
 	/**
@@ -51,6 +51,7 @@ import org.knime.core.node.port.image.ImagePortObject;
 
 import de.bund.bfr.knime.IO;
 import de.bund.bfr.knime.gis.GisType;
+import de.bund.bfr.knime.gis.views.canvas.CanvasImageExporter;
 import de.bund.bfr.knime.gis.views.canvas.CanvasUtils;
 import de.bund.bfr.knime.gis.views.canvas.element.Element;
 import de.bund.bfr.knime.openkrise.TracingColumns;
@@ -101,9 +102,9 @@ public class TracingViewNodeModel extends NodeModel {
 		TracingViewCanvasCreator creator = new TracingViewCanvasCreator(nodeTable, edgeTable, tracingTable, shapeTable,
 				set);
 		TracingGraphCanvas graphCanvas = creator.createGraphCanvas();
-		ImagePortObject graphImage = CanvasUtils.getImage(set.isExportAsSvg(), graphCanvas);
-		ImagePortObject gisImage;
-		ImagePortObject combinedImage;
+		CanvasImageExporter exporter = new CanvasImageExporter(set.isExportAsSvg());
+
+		exporter.addImage("Graph", graphCanvas);
 
 		if (creator.hasGisCoordinates()) {
 			ITracingGisCanvas<?> gisCanvas = creator.createGisCanvas();
@@ -112,13 +113,17 @@ public class TracingViewNodeModel extends NodeModel {
 				((TracingOsmCanvas) gisCanvas).loadAllTiles();
 			}
 
-			gisImage = CanvasUtils.getImage(set.isExportAsSvg(), gisCanvas);
-			combinedImage = CanvasUtils.getImage(set.isExportAsSvg(), graphCanvas, gisCanvas);
+			exporter.addImage("GIS", gisCanvas);
+			exporter.addImage("Combined", graphCanvas, gisCanvas);
 		} else {
-			gisImage = CanvasUtils.getImage(set.isExportAsSvg());
-			combinedImage = CanvasUtils.getImage(set.isExportAsSvg());
+			exporter.addImage("GIS");
+			exporter.addImage("Combined");
 		}
 
+		List<ImagePortObject> images = exporter.export();
+
+		exporter.getStatistics().forEach(s -> getLogger().info(s));
+
 		set.setGisType(originalGisType);
 
 		for (RowKey key : creator.getSkippedEdgeRows()) {
@@ -143,7 +148,7 @@ public class TracingViewNodeModel extends NodeModel {
 		BufferedDataTable edgeOutTable = createTable(graphCanvas.getEdges(), graphCanvas.getEdgeSchema().getMap(),
 				createEdgeOutSpec(edgeTable.getSpec()), exec);
 
-		return new PortObject[] { nodeOutTable, edgeOutTable, graphImage, gisImage, combinedImage };
+		return new PortObject[] { nodeOutTable, edgeOutTable, images.get(0), images.get(1), images.get(2) };
 	}
 
 	/**
@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.Iterables;
+
+/**
+ * Scores for many weight scenarios with the same links. The scores are linear
+ * in the weights, so the forward set of each station and delivery is collected
+ * only once and then multiplied with the weights of all scenarios. As in
+ * {@link Tracing}, the weights of stations without deliveries are part of the
+ * denominators.
+ */
+public class BatchTracing {
+
+	private static final int COMBINED = 0;
+	private static final int POSITIVE = 1;
+	private static final int NEGATIVE = 2;
+
+	private TracingGraph graph;
+	private Condensation forwardReachable;
+	private int parallelism;
+
+	BatchTracing(TracingGraph graph, Condensation forwardReachable, int parallelism) {
+		this.graph = graph;
+		this.forwardReachable = forwardReachable;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * stationWeights.get(k) contains the station weights of scenario k by station
+	 * id, deliveryWeights.get(k) the delivery weights by delivery id. Missing ids
+	 * have the weight 0.
+	 */
+	public Scores getScores(List<Map<String, Double>> stationWeights, List<Map<String, Double>> deliveryWeights) {
+		if (stationWeights.size() != deliveryWeights.size()) {
+			throw new IllegalArgumentException("Station and delivery weights must have the same number of scenarios");
+		}
+
+		int scenarioCount = stationWeights.size();
+		int stationCount = graph.getStationCount();
+		int deliveryCount = graph.getDeliveryCount();
+		double[] stationMatrix = transpose(stationWeights, graph.getStationIds(), stationCount);
+		double[] deliveryMatrix = transpose(deliveryWeights, graph.getDeliveryIds(), deliveryCount);
+		Scores scores = new Scores(graph, scenarioCount);
+		ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+
+		try {
+			RangeTask.forEach(pool, 0, stationCount, s -> {
+				IntBitmap reachedStations = new IntBitmap();
+				IntBitmap reachedDeliveries = new IntBitmap();
+
+				Tracing.collect(graph, graph.getOutgoing(), s, forwardReachable, true, reachedStations,
+						reachedDeliveries);
+				multiply(stationMatrix, s, reachedStations, stationMatrix, reachedDeliveries, deliveryMatrix,
+						scenarioCount, scores.stationSums, s);
+			});
+
+			RangeTask.forEach(pool, 0, deliveryCount, d -> {
+				IntBitmap reachedStations = new IntBitmap();
+				IntBitmap reachedDeliveries = new IntBitmap();
+
+				Tracing.collect(graph, d, forwardReachable, true, reachedStations, reachedDeliveries);
+				multiply(deliveryMatrix, d, reachedStations, stationMatrix, reachedDeliveries, deliveryMatrix,
+						scenarioCount, scores.deliverySums, d);
+			});
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+
+		for (int k = 0; k < scenarioCount; k++) {
+			double[] denoms = getDenoms(stationWeights.get(k), deliveryWeights.get(k));
+
+			scores.denoms[COMBINED][k] = denoms[COMBINED];
+			scores.denoms[POSITIVE][k] = denoms[POSITIVE];
+			scores.denoms[NEGATIVE][k] = denoms[NEGATIVE];
+		}
+
+		scores.updateNormalizers();
+
+		return scores;
+	}
+
+	/**
+	 * Returns the k stations with the highest scores for the given weights (in the
+	 * same format as one scenario of {@link #getScores(List, List)}), ordered by
+	 * score. Stations with the same score as the k-th station may be left out.
+	 */
+	public Map<String, Double> getTopStations(Map<String, Double> stationWeightMap,
+			Map<String, Double> deliveryWeightMap, int k) {
+		return getTopStations(toArray(stationWeightMap, graph.getStationIds()),
+				toArray(deliveryWeightMap, graph.getDeliveryIds()), k,
+				getDenoms(stationWeightMap, deliveryWeightMap)[COMBINED]);
+	}
+
+	/**
+	 * The stations are visited in the order of an upper bound of their score and
+	 * the search stops, when the bound of the next station cannot beat the k-th
+	 * best score found so far. The bound of a station is its own positive weight
+	 * plus the positive weights of the components, that its deliveries lead to,
+	 * including everything reachable from them.
+	 */
+	private Map<String, Double> getTopStations(double[] stationWeights, double[] deliveryWeights, int k,
+			double denom) {
+		int stationCount = graph.getStationCount();
+		double[] bounds = getUpperBounds(stationWeights, deliveryWeights);
+		int[] candidates = IntStream.range(0, stationCount).boxed()
+				.sorted(Comparator.comparingDouble((Integer s) -> -bounds[s]).thenComparingInt(s -> s))
+				.mapToInt(s -> s).toArray();
+		double[] sums = new double[stationCount];
+		PriorityQueue<Integer> top = new PriorityQueue<>(Math.max(k, 1),
+				Comparator.comparingDouble((Integer s) -> sums[s]).thenComparing(Comparator.reverseOrder()));
+		int blockSize = Math.max(k, 64 * parallelism);
+		ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+
+		try {
+			for (int from = 0; from < stationCount && k > 0; from += blockSize) {
+				if (top.size() == k && bounds[candidates[from]] <= sums[top.peek()]) {
+					break;
+				}
+
+				int to = Math.min(from + blockSize, stationCount);
+
+				RangeTask.forEach(pool, from, to, i -> {
+					int s = candidates[i];
+					IntBitmap reachedStations = new IntBitmap();
+					IntBitmap reachedDeliveries = new IntBitmap();
+
+					Tracing.collect(graph, graph.getOutgoing(), s, forwardReachable, true, reachedStations,
+							reachedDeliveries);
+					sums[s] = stationWeights[s] + sum(reachedStations, stationWeights)
+							+ sum(reachedDeliveries, deliveryWeights);
+				});
+
+				for (int i = from; i < to; i++) {
+					top.add(candidates[i]);
+
+					if (top.size() > k) {
+						top.poll();
+					}
+				}
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+
+		Integer[] ranked = top.toArray(new Integer[0]);
+		Map<String, Double> scores = new LinkedHashMap<>();
+
+		Arrays.sort(ranked, top.comparator().reversed());
+
+		for (int s : ranked) {
+			scores.put(graph.getStationId(s), denom != 0.0 ? sums[s] / denom : 0.0);
+		}
+
+		return scores;
+	}
+
+	private double[] getUpperBounds(double[] stationWeights, double[] deliveryWeights) {
+		double total = 0.0;
+
+		for (double[] weights : new double[][] { stationWeights, deliveryWeights }) {
+			for (double w : weights) {
+				total += Math.max(w, 0.0);
+			}
+		}
+
+		// successors have smaller numbers, so they are done before their predecessors
+		IntGraph members = forwardReachable.getMembers();
+		IntGraph successors = forwardReachable.getSuccessors();
+		double[] componentBounds = new double[forwardReachable.getComponentCount()];
+
+		for (int c = 0; c < componentBounds.length; c++) {
+			double bound = 0.0;
+
+			for (int i = members.start(c); i < members.end(c); i++) {
+				int d = members.target(i);
+
+				bound += Math.max(deliveryWeights[d], 0.0) + Math.max(stationWeights[graph.getRecipient(d)], 0.0);
+			}
+
+			for (int i = successors.start(c); i < successors.end(c); i++) {
+				bound += componentBounds[successors.target(i)];
+			}
+
+			componentBounds[c] = Math.min(bound, total);
+		}
+
+		IntGraph outgoing = graph.getOutgoing();
+		double[] bounds = new double[graph.getStationCount()];
+
+		for (int s = 0; s < bounds.length; s++) {
+			double reachable = 0.0;
+
+			for (int i = outgoing.start(s); i < outgoing.end(s); i++) {
+				reachable += componentBounds[forwardReachable.getComponent(outgoing.target(i))];
+			}
+
+			bounds[s] = Math.max(stationWeights[s], 0.0) + Math.min(reachable, total);
+		}
+
+		return bounds;
+	}
+
+	private static double sum(IntBitmap indices, double[] weights) {
+		double[] sum = new double[1];
+
+		indices.forEach(i -> sum[0] += weights[i]);
+
+		return sum[0];
+	}
+
+	/**
+	 * Returns the combined, positive and negative denominator. Like in
+	 * {@link Tracing} all weights count, not only the ones of elements in the graph.
+	 */
+	private static double[] getDenoms(Map<String, Double> stationWeights, Map<String, Double> deliveryWeights) {
+		double positiveWeightSum = 0.0;
+		double negativeWeightSum = 0.0;
+
+		for (double w : Iterables.concat(stationWeights.values(), deliveryWeights.values())) {
+			if (w > 0.0) {
+				positiveWeightSum += w;
+			} else {
+				negativeWeightSum -= w;
+			}
+		}
+
+		return new double[] { Math.max(positiveWeightSum, negativeWeightSum), positiveWeightSum,
+				negativeWeightSum };
+	}
+
+	private static double[] toArray(Map<String, Double> weights, Collection<String> ids) {
+		return ids.stream().mapToDouble(id -> weights.getOrDefault(id, 0.0)).toArray();
+	}
+
+	/**
+	 * Returns the weights with the scenarios of one element next to each other.
+	 */
+	private static double[] transpose(List<Map<String, Double>> weights, Collection<String> ids, int elementCount) {
+		int scenarioCount = weights.size();
+		double[] matrix = new double[elementCount * scenarioCount];
+
+		for (int k = 0; k < scenarioCount; k++) {
+			double[] scenarioWeights = toArray(weights.get(k), ids);
+
+			for (int i = 0; i < elementCount; i++) {
+				matrix[i * scenarioCount + k] = scenarioWeights[i];
+			}
+		}
+
+		return matrix;
+	}
+
+	private static void multiply(double[] selfMatrix, int self, IntBitmap stations, double[] stationMatrix,
+			IntBitmap deliveries, double[] deliveryMatrix, int scenarioCount, double[][] sums, int index) {
+		double[] combined = new double[scenarioCount];
+		double[] positive = new double[scenarioCount];
+		double[] negative = new double[scenarioCount];
+
+		addRow(selfMatrix, self, scenarioCount, combined, positive, negative);
+		stations.forEach(s -> addRow(stationMatrix, s, scenarioCount, combined, positive, negative));
+		deliveries.forEach(d -> addRow(deliveryMatrix, d, scenarioCount, combined, positive, negative));
+
+		System.arraycopy(combined, 0, sums[COMBINED], index * scenarioCount, scenarioCount);
+		System.arraycopy(positive, 0, sums[POSITIVE], index * scenarioCount, scenarioCount);
+		System.arraycopy(negative, 0, sums[NEGATIVE], index * scenarioCount, scenarioCount);
+	}
+
+	private static void addRow(double[] matrix, int row, int scenarioCount, double[] combined, double[] positive,
+			double[] negative) {
+		int offset = row * scenarioCount;
+
+		for (int k = 0; k < scenarioCount; k++) {
+			double w = matrix[offset + k];
+
+			combined[k] += w;
+
+			if (w > 0.0) {
+				positive[k] += w;
+			} else {
+				negative[k] -= w;
+			}
+		}
+	}
+
+	/**
+	 * Scores of all stations and deliveries for each scenario. The scores of one
+	 * scenario are the same as the ones of a {@link Tracing.Result} with the
+	 * weights of the scenario.
+	 */
+	public static final class Scores {
+
+		private TracingGraph graph;
+		private int scenarioCount;
+
+		private double[][] stationSums;
+		private double[][] deliverySums;
+		private double[][] denoms;
+		private double[] scoreNormalizers;
+
+		private Scores(TracingGraph graph, int scenarioCount) {
+			this.graph = graph;
+			this.scenarioCount = scenarioCount;
+			stationSums = new double[3][graph.getStationCount() * scenarioCount];
+			deliverySums = new double[3][graph.getDeliveryCount() * scenarioCount];
+			denoms = new double[3][scenarioCount];
+			scoreNormalizers = new double[scenarioCount];
+		}
+
+		public int getScenarioCount() {
+			return scenarioCount;
+		}
+
+		public double getStationScore(int scenario, String id) {
+			return getScore(stationSums, COMBINED, scenario, graph.getStationIndex(id));
+		}
+
+		public double getStationNormalizedScore(int scenario, String id) {
+			return getStationScore(scenario, id) / scoreNormalizers[scenario];
+		}
+
+		public double getStationPositiveScore(int scenario, String id) {
+			return getScore(stationSums, POSITIVE, scenario, graph.getStationIndex(id));
+		}
+
+		public double getStationNegativeScore(int scenario, String id) {
+			return getScore(stationSums, NEGATIVE, scenario, graph.getStationIndex(id));
+		}
+
+		public double getDeliveryScore(int scenario, String id) {
+			return getScore(deliverySums, COMBINED, scenario, graph.getDeliveryIndex(id));
+		}
+
+		public double getDeliveryNormalizedScore(int scenario, String id) {
+			return getDeliveryScore(scenario, id) / scoreNormalizers[scenario];
+		}
+
+		public double getDeliveryPositiveScore(int scenario, String id) {
+			return getScore(deliverySums, POSITIVE, scenario, graph.getDeliveryIndex(id));
+		}
+
+		public double getDeliveryNegativeScore(int scenario, String id) {
+			return getScore(deliverySums, NEGATIVE, scenario, graph.getDeliveryIndex(id));
+		}
+
+		private void updateNormalizers() {
+			for (int k = 0; k < scenarioCount; k++) {
+				double maxAbs = Math.max(getMaxAbsScore(stationSums, k, graph.getStationCount()),
+						getMaxAbsScore(deliverySums, k, graph.getDeliveryCount()));
+
+				scoreNormalizers[k] = maxAbs > 0.0 ? maxAbs : 1.0;
+			}
+		}
+
+		private double getMaxAbsScore(double[][] sums, int scenario, int count) {
+			double maxAbs = 0.0;
+
+			for (int i = 0; i < count; i++) {
+				maxAbs = Math.max(maxAbs, Math.abs(getScore(sums, COMBINED, scenario, i)));
+			}
+
+			return maxAbs;
+		}
+
+		private double getScore(double[][] sums, int type, int scenario, Integer index) {
+			if (index == null) {
+				return 0.0;
+			}
+
+			double denom = denoms[type][scenario];
+
+			return denom != 0.0 ? sums[type][index * scenarioCount + scenario] / denom : 0.0;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Read-only set view of an {@link IntBitmap}, that translates the int indices to
+ * ids and back.
+ */
+final class BitmapSet<T> extends AbstractSet<T> {
+
+	private IntBitmap bitmap;
+	private IntFunction<T> toElement;
+	private Function<Object, Integer> toIndex;
+	private int size;
+
+	public BitmapSet(IntBitmap bitmap, IntFunction<T> toElement, Function<Object, Integer> toIndex) {
+		this.bitmap = bitmap;
+		this.toElement = toElement;
+		this.toIndex = toIndex;
+		size = bitmap.cardinality();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		Integer index = toIndex.apply(o);
+
+		return index != null && bitmap.contains(index);
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		PrimitiveIterator.OfInt indices = bitmap.iterator();
+
+		return new Iterator<T>() {
+
+			@Override
+			public boolean hasNext() {
+				return indices.hasNext();
+			}
+
+			@Override
+			public T next() {
+				return toElement.apply(indices.nextInt());
+			}
+		};
+	}
+}
@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Strongly connected components of an {@link IntGraph}. The components are
+ * numbered in reverse topological order, i.e. all successors of a component
+ * have a smaller number than the component itself. Every node has a label (e.g.
+ * the station a delivery leads to) and the descendants of each component and
+ * their labels are kept as {@link IntBitmap}s.
+ */
+final class Condensation {
+
+	private int[] components;
+	private IntGraph members;
+	private IntGraph successors;
+	private IntGraph predecessors;
+	private IntUnaryOperator labels;
+	private IntBitmap[] memberSets;
+	private IntBitmap[] memberLabels;
+	private IntBitmap[] descendants;
+	private IntBitmap[] descendantLabels;
+
+	public Condensation(IntGraph graph, IntUnaryOperator labels) {
+		this(graph, labels, null);
+	}
+
+	public Condensation(IntGraph graph, IntUnaryOperator labels, ForkJoinPool pool) {
+		int n = graph.size();
+		int[] index = new int[n];
+		int[] lowLink = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int[] callStack = new int[n];
+		int[] edgeStack = new int[n];
+		int stackSize = 0;
+		int counter = 0;
+		int componentCount = 0;
+
+		components = new int[n];
+		Arrays.fill(index, -1);
+
+		// Tarjan's algorithm with an explicit call stack, so that long delivery
+		// chains cannot overflow the thread stack
+		for (int root = 0; root < n; root++) {
+			if (index[root] != -1) {
+				continue;
+			}
+
+			int depth = 0;
+
+			index[root] = lowLink[root] = counter++;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+			callStack[depth] = root;
+			edgeStack[depth] = graph.start(root);
+			depth++;
+
+			while (depth > 0) {
+				int v = callStack[depth - 1];
+
+				if (edgeStack[depth - 1] < graph.end(v)) {
+					int w = graph.target(edgeStack[depth - 1]++);
+
+					if (index[w] == -1) {
+						index[w] = lowLink[w] = counter++;
+						stack[stackSize++] = w;
+						onStack[w] = true;
+						callStack[depth] = w;
+						edgeStack[depth] = graph.start(w);
+						depth++;
+					} else if (onStack[w]) {
+						lowLink[v] = Math.min(lowLink[v], index[w]);
+					}
+
+					continue;
+				}
+
+				depth--;
+
+				if (lowLink[v] == index[v]) {
+					int w;
+
+					do {
+						w = stack[--stackSize];
+						onStack[w] = false;
+						components[w] = componentCount;
+					} while (w != v);
+
+					componentCount++;
+				}
+
+				if (depth > 0) {
+					int u = callStack[depth - 1];
+
+					lowLink[u] = Math.min(lowLink[u], lowLink[v]);
+				}
+			}
+		}
+
+		IntGraph.Builder membersBuilder = new IntGraph.Builder(componentCount);
+		IntGraph.Builder successorsBuilder = new IntGraph.Builder(componentCount);
+		IntGraph.Builder predecessorsBuilder = new IntGraph.Builder(componentCount);
+
+		for (int v = 0; v < n; v++) {
+			membersBuilder.add(components[v], v);
+
+			for (int i = graph.start(v); i < graph.end(v); i++) {
+				int w = graph.target(i);
+
+				if (components[v] != components[w]) {
+					successorsBuilder.add(components[v], components[w]);
+					predecessorsBuilder.add(components[w], components[v]);
+				}
+			}
+		}
+
+		members = membersBuilder.build();
+		successors = successorsBuilder.build();
+		predecessors = predecessorsBuilder.build();
+		this.labels = labels;
+		memberSets = new IntBitmap[componentCount];
+		memberLabels = new IntBitmap[componentCount];
+		descendants = new IntBitmap[componentCount];
+		descendantLabels = new IntBitmap[componentCount];
+
+		// components on the same level only depend on components on lower levels
+		// and are computed in parallel
+		int[] levels = new int[componentCount];
+		int levelCount = 0;
+
+		for (int c = 0; c < componentCount; c++) {
+			for (int i = successors.start(c); i < successors.end(c); i++) {
+				levels[c] = Math.max(levels[c], levels[successors.target(i)] + 1);
+			}
+
+			levelCount = Math.max(levelCount, levels[c] + 1);
+		}
+
+		IntGraph.Builder levelsBuilder = new IntGraph.Builder(levelCount);
+
+		for (int c = 0; c < componentCount; c++) {
+			levelsBuilder.add(levels[c], c);
+		}
+
+		IntGraph componentsByLevel = levelsBuilder.build();
+
+		for (int c = 0; c < componentCount; c++) {
+			memberSets[c] = new IntBitmap();
+			memberLabels[c] = new IntBitmap();
+
+			for (int i = members.start(c); i < members.end(c); i++) {
+				memberSets[c].add(members.target(i));
+				memberLabels[c].add(labels.applyAsInt(members.target(i)));
+			}
+		}
+
+		for (int level = 0; level < levelCount; level++) {
+			RangeTask.forEach(pool, componentsByLevel.start(level), componentsByLevel.end(level),
+					i -> computeDescendants(componentsByLevel.target(i)));
+		}
+	}
+
+	public int getComponentCount() {
+		return successors.size();
+	}
+
+	public int getComponent(int node) {
+		return components[node];
+	}
+
+	public IntGraph getMembers() {
+		return members;
+	}
+
+	public IntGraph getSuccessors() {
+		return successors;
+	}
+
+	public IntBitmap getMemberSet(int component) {
+		return memberSets[component];
+	}
+
+	public IntBitmap getMemberLabels(int component) {
+		return memberLabels[component];
+	}
+
+	/**
+	 * Returns all nodes, that can be reached from the members of the component,
+	 * without the members themselves.
+	 */
+	public IntBitmap getDescendants(int component) {
+		return descendants[component];
+	}
+
+	/**
+	 * Returns the labels of all nodes in {@link #getDescendants(int)}.
+	 */
+	public IntBitmap getDescendantLabels(int component) {
+		return descendantLabels[component];
+	}
+
+	/**
+	 * Returns all components, from which at least one of the given components can
+	 * be reached. A given component is only contained, if it can be reached from
+	 * another component.
+	 */
+	public IntBitmap getAncestors(IntBitmap components) {
+		IntBitmap ancestors = new IntBitmap();
+		boolean[] reached = new boolean[getComponentCount()];
+		int[] queue = new int[2 * getComponentCount()];
+		int queueSize = 0;
+
+		for (PrimitiveIterator.OfInt it = components.iterator(); it.hasNext();) {
+			queue[queueSize++] = it.nextInt();
+		}
+
+		for (int i = 0; i < queueSize; i++) {
+			int c = queue[i];
+
+			for (int j = predecessors.start(c); j < predecessors.end(c); j++) {
+				int p = predecessors.target(j);
+
+				if (!reached[p]) {
+					reached[p] = true;
+					ancestors.add(p);
+					queue[queueSize++] = p;
+				}
+			}
+		}
+
+		return ancestors;
+	}
+
+	public int getLabel(int node) {
+		return labels.applyAsInt(node);
+	}
+
+	private void computeDescendants(int component) {
+		IntBitmap nodes = new IntBitmap();
+		IntBitmap nodeLabels = new IntBitmap();
+
+		for (int i = successors.start(component); i < successors.end(component); i++) {
+			int s = successors.target(i);
+
+			nodes.or(memberSets[s]);
+			nodeLabels.or(memberLabels[s]);
+			nodes.or(descendants[s]);
+			nodeLabels.or(descendantLabels[s]);
+		}
+
+		descendants[component] = nodes;
+		descendantLabels[component] = nodeLabels;
+	}
+}
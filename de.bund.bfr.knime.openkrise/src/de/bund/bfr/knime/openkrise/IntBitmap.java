@@ -0,0 +1,360 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints in the style of a roaring bitmap. The
+ * values are split into chunks of 2^16 by their upper 16 bits. Each chunk is
+ * stored as a sorted array while it is sparse and as a plain bitmap once it
+ * holds more than {@value #ARRAY_LIMIT} values, so that unions of dense sets
+ * are word-wise ORs.
+ */
+final class IntBitmap {
+
+	private static final int ARRAY_LIMIT = 4096;
+	private static final int BITMAP_WORDS = 1 << 10;
+
+	private int[] keys;
+	private char[][] arrays;
+	private long[][] bitmaps;
+	private int[] sizes;
+	private int count;
+
+	public IntBitmap() {
+		clear();
+	}
+
+	public void clear() {
+		keys = new int[1];
+		arrays = new char[1][];
+		bitmaps = new long[1][];
+		sizes = new int[1];
+		count = 0;
+	}
+
+	public boolean isEmpty() {
+		return cardinality() == 0;
+	}
+
+	public int cardinality() {
+		int cardinality = 0;
+
+		for (int i = 0; i < count; i++) {
+			cardinality += sizes[i];
+		}
+
+		return cardinality;
+	}
+
+	public boolean contains(int value) {
+		int i = Arrays.binarySearch(keys, 0, count, value >>> 16);
+
+		if (i < 0) {
+			return false;
+		}
+
+		char low = (char) value;
+
+		if (bitmaps[i] != null) {
+			return (bitmaps[i][low >>> 6] & 1L << low) != 0;
+		}
+
+		return Arrays.binarySearch(arrays[i], 0, sizes[i], low) >= 0;
+	}
+
+	public void add(int value) {
+		int i = getOrCreateChunk(value >>> 16);
+		char low = (char) value;
+
+		if (bitmaps[i] != null) {
+			setBit(i, low);
+			return;
+		}
+
+		int size = sizes[i];
+		int pos = size == 0 || arrays[i][size - 1] < low ? -size - 1 : Arrays.binarySearch(arrays[i], 0, size, low);
+
+		if (pos >= 0) {
+			return;
+		}
+
+		pos = -pos - 1;
+
+		if (size == arrays[i].length) {
+			arrays[i] = Arrays.copyOf(arrays[i], Math.max(4, 2 * size));
+		}
+
+		System.arraycopy(arrays[i], pos, arrays[i], pos + 1, size - pos);
+		arrays[i][pos] = low;
+		sizes[i]++;
+
+		if (sizes[i] > ARRAY_LIMIT) {
+			toBitmap(i);
+		}
+	}
+
+	public void remove(int value) {
+		int i = Arrays.binarySearch(keys, 0, count, value >>> 16);
+
+		if (i < 0) {
+			return;
+		}
+
+		char low = (char) value;
+
+		if (bitmaps[i] != null) {
+			long bit = 1L << low;
+
+			if ((bitmaps[i][low >>> 6] & bit) != 0) {
+				bitmaps[i][low >>> 6] &= ~bit;
+				sizes[i]--;
+			}
+
+			return;
+		}
+
+		int pos = Arrays.binarySearch(arrays[i], 0, sizes[i], low);
+
+		if (pos >= 0) {
+			System.arraycopy(arrays[i], pos + 1, arrays[i], pos, sizes[i] - pos - 1);
+			sizes[i]--;
+		}
+	}
+
+	/**
+	 * Adds all values of {@code other} to this set.
+	 */
+	public void or(IntBitmap other) {
+		for (int j = 0; j < other.count; j++) {
+			int i = getOrCreateChunk(other.keys[j]);
+
+			if (other.bitmaps[j] != null) {
+				if (bitmaps[i] == null) {
+					char[] array = arrays[i];
+					int size = sizes[i];
+
+					arrays[i] = null;
+					bitmaps[i] = other.bitmaps[j].clone();
+					sizes[i] = other.sizes[j];
+
+					for (int k = 0; k < size; k++) {
+						setBit(i, array[k]);
+					}
+				} else {
+					long[] words = bitmaps[i];
+					long[] otherWords = other.bitmaps[j];
+					int size = 0;
+
+					for (int k = 0; k < BITMAP_WORDS; k++) {
+						words[k] |= otherWords[k];
+						size += Long.bitCount(words[k]);
+					}
+
+					sizes[i] = size;
+				}
+			} else if (bitmaps[i] != null) {
+				for (int k = 0; k < other.sizes[j]; k++) {
+					setBit(i, other.arrays[j][k]);
+				}
+			} else {
+				mergeArrays(i, other.arrays[j], other.sizes[j]);
+			}
+		}
+	}
+
+	public void forEach(IntConsumer action) {
+		for (int i = 0; i < count; i++) {
+			int high = keys[i] << 16;
+
+			if (bitmaps[i] != null) {
+				for (int w = 0; w < BITMAP_WORDS; w++) {
+					for (long word = bitmaps[i][w]; word != 0; word &= word - 1) {
+						action.accept(high | w << 6 | Long.numberOfTrailingZeros(word));
+					}
+				}
+			} else {
+				for (int k = 0; k < sizes[i]; k++) {
+					action.accept(high | arrays[i][k]);
+				}
+			}
+		}
+	}
+
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+
+			private int chunk = 0;
+			private int index = -1;
+			private int low;
+
+			{
+				advance();
+			}
+
+			@Override
+			public boolean hasNext() {
+				return chunk < count;
+			}
+
+			@Override
+			public int nextInt() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				int value = keys[chunk] << 16 | low;
+
+				advance();
+
+				return value;
+			}
+
+			private void advance() {
+				while (chunk < count) {
+					if (bitmaps[chunk] != null) {
+						index = nextSetBit(bitmaps[chunk], index + 1);
+
+						if (index != -1) {
+							low = index;
+							return;
+						}
+					} else if (++index < sizes[chunk]) {
+						low = arrays[chunk][index];
+						return;
+					}
+
+					chunk++;
+					index = -1;
+				}
+			}
+		};
+	}
+
+	private int getOrCreateChunk(int key) {
+		int i = Arrays.binarySearch(keys, 0, count, key);
+
+		if (i >= 0) {
+			return i;
+		}
+
+		i = -i - 1;
+
+		if (count == keys.length) {
+			int capacity = 2 * count;
+
+			keys = Arrays.copyOf(keys, capacity);
+			arrays = Arrays.copyOf(arrays, capacity);
+			bitmaps = Arrays.copyOf(bitmaps, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+		}
+
+		System.arraycopy(keys, i, keys, i + 1, count - i);
+		System.arraycopy(arrays, i, arrays, i + 1, count - i);
+		System.arraycopy(bitmaps, i, bitmaps, i + 1, count - i);
+		System.arraycopy(sizes, i, sizes, i + 1, count - i);
+		keys[i] = key;
+		arrays[i] = new char[4];
+		bitmaps[i] = null;
+		sizes[i] = 0;
+		count++;
+
+		return i;
+	}
+
+	private void setBit(int i, char low) {
+		long bit = 1L << low;
+
+		if ((bitmaps[i][low >>> 6] & bit) == 0) {
+			bitmaps[i][low >>> 6] |= bit;
+			sizes[i]++;
+		}
+	}
+
+	private void mergeArrays(int i, char[] other, int otherSize) {
+		char[] array = arrays[i];
+		int size = sizes[i];
+		char[] merged = new char[size + otherSize];
+		int n = 0;
+		int a = 0;
+		int b = 0;
+
+		while (a < size && b < otherSize) {
+			if (array[a] < other[b]) {
+				merged[n++] = array[a++];
+			} else if (array[a] > other[b]) {
+				merged[n++] = other[b++];
+			} else {
+				merged[n++] = array[a++];
+				b++;
+			}
+		}
+
+		while (a < size) {
+			merged[n++] = array[a++];
+		}
+
+		while (b < otherSize) {
+			merged[n++] = other[b++];
+		}
+
+		arrays[i] = merged;
+		sizes[i] = n;
+
+		if (n > ARRAY_LIMIT) {
+			toBitmap(i);
+		}
+	}
+
+	private void toBitmap(int i) {
+		long[] words = new long[BITMAP_WORDS];
+
+		for (int k = 0; k < sizes[i]; k++) {
+			words[arrays[i][k] >>> 6] |= 1L << arrays[i][k];
+		}
+
+		arrays[i] = null;
+		bitmaps[i] = words;
+	}
+
+	private static int nextSetBit(long[] words, int from) {
+		int w = from >>> 6;
+
+		if (w >= BITMAP_WORDS) {
+			return -1;
+		}
+
+		long word = words[w] & -1L << from;
+
+		while (word == 0) {
+			if (++w == BITMAP_WORDS) {
+				return -1;
+			}
+
+			word = words[w];
+		}
+
+		return w << 6 | Long.numberOfTrailingZeros(word);
+	}
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise;
+
+import java.util.Arrays;
+
+/**
+ * Immutable adjacency lists over dense int ids in compressed sparse row format.
+ * The targets of each source are sorted and free of duplicates.
+ */
+final class IntGraph {
+
+	private int[] offsets;
+	private int[] targets;
+
+	private IntGraph(int[] offsets, int[] targets) {
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	public int start(int source) {
+		return offsets[source];
+	}
+
+	public int end(int source) {
+		return offsets[source + 1];
+	}
+
+	public int target(int index) {
+		return targets[index];
+	}
+
+	public boolean contains(int source, int target) {
+		return Arrays.binarySearch(targets, offsets[source], offsets[source + 1], target) >= 0;
+	}
+
+	public static final class Builder {
+
+		private int size;
+		private long[] edges;
+		private int edgeCount;
+
+		public Builder(int size) {
+			this.size = size;
+			edges = new long[16];
+			edgeCount = 0;
+		}
+
+		public void add(int source, int target) {
+			if (edgeCount == edges.length) {
+				edges = Arrays.copyOf(edges, 2 * edges.length);
+			}
+
+			edges[edgeCount++] = (long) source << 32 | target;
+		}
+
+		public IntGraph build() {
+			Arrays.sort(edges, 0, edgeCount);
+
+			int[] offsets = new int[size + 1];
+			int[] targets = new int[edgeCount];
+			int n = 0;
+
+			for (int i = 0; i < edgeCount; i++) {
+				if (i > 0 && edges[i] == edges[i - 1]) {
+					continue;
+				}
+
+				offsets[(int) (edges[i] >>> 32) + 1]++;
+				targets[n++] = (int) edges[i];
+			}
+
+			for (int i = 0; i < size; i++) {
+				offsets[i + 1] += offsets[i];
+			}
+
+			return new IntGraph(offsets, n < targets.length ? Arrays.copyOf(targets, n) : targets);
+		}
+	}
+}
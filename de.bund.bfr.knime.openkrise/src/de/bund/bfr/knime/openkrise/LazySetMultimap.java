@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.google.common.collect.ForwardingSetMultimap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+
+/**
+ * Read-only multimap, whose values are computed key by key on first access and
+ * memoized. Only {@link #get(Object)} works on single keys, all other methods
+ * compute the values for all keys first.
+ */
+final class LazySetMultimap<K, V> extends ForwardingSetMultimap<K, V> {
+
+	private Collection<K> keys;
+	private Function<K, Set<V>> valueFunction;
+	private Map<K, Set<V>> computedValues;
+	private SetMultimap<K, V> delegate;
+
+	public LazySetMultimap(Collection<K> keys, Function<K, Set<V>> valueFunction) {
+		this.keys = keys;
+		this.valueFunction = valueFunction;
+		computedValues = new HashMap<>();
+		delegate = null;
+	}
+
+	@Override
+	public synchronized Set<V> get(K key) {
+		if (delegate != null) {
+			return delegate.get(key);
+		}
+
+		return Collections.unmodifiableSet(computedValues.computeIfAbsent(key,
+				k -> keys.contains(k) ? valueFunction.apply(k) : Collections.emptySet()));
+	}
+
+	@Override
+	protected synchronized SetMultimap<K, V> delegate() {
+		if (delegate == null) {
+			SetMultimap<K, V> all = LinkedHashMultimap.create();
+
+			for (K key : keys) {
+				Set<V> values = computedValues.get(key);
+
+				all.putAll(key, values != null ? values : valueFunction.apply(key));
+			}
+
+			delegate = Multimaps.unmodifiableSetMultimap(all);
+			computedValues = null;
+		}
+
+		return delegate;
+	}
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+final class RangeTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int MIN_RANGE = 64;
+
+	private int from;
+	private int to;
+	private int minRange;
+	private IntConsumer action;
+
+	private RangeTask(int from, int to, int minRange, IntConsumer action) {
+		this.from = from;
+		this.to = to;
+		this.minRange = minRange;
+		this.action = action;
+	}
+
+	/**
+	 * Calls the action for every index in [from, to). If pool is null or the range
+	 * is small, this happens sequentially in the calling thread.
+	 */
+	public static void forEach(ForkJoinPool pool, int from, int to, IntConsumer action) {
+		if (pool == null || to - from <= MIN_RANGE) {
+			for (int i = from; i < to; i++) {
+				action.accept(i);
+			}
+		} else {
+			int minRange = Math.max((to - from) / (4 * pool.getParallelism()), MIN_RANGE);
+
+			pool.invoke(new RangeTask(from, to, minRange, action));
+		}
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from <= minRange) {
+			for (int i = from; i < to; i++) {
+				action.accept(i);
+			}
+		} else {
+			int middle = (from + to) >>> 1;
+
+			invokeAll(new RangeTask(from, middle, minRange, action), new RangeTask(middle, to, minRange, action));
+		}
+	}
+}
@@ -26,11 +26,15 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 import com.google.common.collect.Iterables;
-import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Doubles;
 
 import de.bund.bfr.knime.openkrise.common.Delivery;
 
@@ -40,6 +44,8 @@ public class Tracing {
 		COMBINED, POSITIVE, NEGATIVE
 	}
 
+	private static final int MAX_INCREMENTAL_WEIGHT_CHANGES = 64;
+
 	private List<Delivery> deliveries;
 	private Map<String, Double> stationWeights;
 	private Map<String, Double> deliveryWeights;
@@ -48,13 +54,12 @@ public class Tracing {
 	private Set<String> killContaminationStations;
 	private Set<String> killContaminationDeliveries;
 
-	private transient Map<String, Delivery> deliveryMap;
-	private transient SetMultimap<String, String> incomingDeliveries;
-	private transient SetMultimap<String, String> outgoingDeliveries;
-	private transient Map<String, Set<String>> backwardDeliveries;
-	private transient Map<String, Set<String>> forwardDeliveries;
+	private int parallelism;
+
 	private transient double positiveWeightSum;
 	private transient double negativeWeightSum;
+	private transient Result result;
+	private transient ResultInput resultInput;
 
 	public Tracing(Collection<Delivery> deliveries) {
 		Set<String> allIds = new LinkedHashSet<>();
@@ -79,6 +84,7 @@ public class Tracing {
 		ccDeliveries = new LinkedHashSet<>();
 		killContaminationStations = new LinkedHashSet<>();
 		killContaminationDeliveries = new LinkedHashSet<>();
+		parallelism = 1;
 	}
 
 	public void setStationWeight(String stationId, double weight) {
@@ -129,23 +135,37 @@ public class Tracing {
 		}
 	}
 
+	/**
+	 * Sets the number of threads used by {@link #getResult(boolean)}. With a
+	 * parallelism of 1 (the default) everything is computed in the calling
+	 * thread. The result is the same for every parallelism.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(parallelism, 1);
+	}
+
 	public void mergeStations(Set<String> toBeMerged, String mergedStationId) {
 		for (Delivery d : deliveries) {
 			if (toBeMerged.contains(d.getSupplierId())) {
 				d.setSupplierId(mergedStationId);
+				result = null;
 			}
 
 			if (toBeMerged.contains(d.getRecipientId())) {
 				d.setRecipientId(mergedStationId);
+				result = null;
 			}
 		}
 	}
 
+	/**
+	 * Returns the result for the current settings. The previous result is reused
+	 * as far as possible: If only weights were changed since the last call, only
+	 * the scores of the elements, whose forward sets contain a changed element, are
+	 * updated. The links and closures are only recomputed after changes of cross
+	 * contamination, kill contamination, merged stations or the temporal order.
+	 */
 	public Result getResult(boolean enforceTemporalOrder) {
-		if (deliveries.isEmpty()) {
-			return new Result();
-		}
-
 		positiveWeightSum = 0.0;
 		negativeWeightSum = 0.0;
 
@@ -157,173 +177,217 @@ public class Tracing {
 			}
 		}
 
-		Set<String> stationIds = new LinkedHashSet<>();
+		if (result == null || !resultInput.hasSameLinks(enforceTemporalOrder)) {
+			result = createResult(enforceTemporalOrder);
+		} else if (!resultInput.hasSameWeights()) {
+			result = updateResult(result, resultInput);
+		}
 
-		deliveryMap = new LinkedHashMap<>();
-		incomingDeliveries = LinkedHashMultimap.create();
-		outgoingDeliveries = LinkedHashMultimap.create();
+		resultInput = new ResultInput(enforceTemporalOrder);
 
-		for (Delivery d : deliveries) {
-			stationIds.add(d.getRecipientId());
-			stationIds.add(d.getSupplierId());
-			deliveryMap.put(d.getId(), d.copy());
-			incomingDeliveries.put(d.getRecipientId(), d.getId());
-			outgoingDeliveries.put(d.getSupplierId(), d.getId());
+		return result;
+	}
+
+	/**
+	 * Returns a {@link BatchTracing} for the current cross and kill contamination
+	 * settings, which computes the scores for many weight scenarios at once. The
+	 * weights set in this object are ignored.
+	 */
+	public BatchTracing getBatchTracing(boolean enforceTemporalOrder) {
+		if (result != null && resultInput.hasSameLinks(enforceTemporalOrder)) {
+			return new BatchTracing(result.graph, result.forwardReachable, parallelism);
+		}
+
+		TracingGraph graph = new TracingGraph(deliveries, ccStations, ccDeliveries, killContaminationStations,
+				killContaminationDeliveries, enforceTemporalOrder);
+		ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+
+		try {
+			return new BatchTracing(graph, new Condensation(graph.getNext(), graph::getRecipient, pool),
+					parallelism);
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
 		}
+	}
 
-		for (String stationId : ccStations) {
-			for (String inId : incomingDeliveries.get(stationId)) {
-				Delivery in = deliveryMap.get(inId);
+	/**
+	 * Returns the k stations with the highest scores for the current settings,
+	 * ordered by score. Unlike {@link #getResult(boolean)} only the scores of
+	 * stations, that might belong to the top k, are computed.
+	 */
+	public Map<String, Double> getTopStations(boolean enforceTemporalOrder, int k) {
+		return getBatchTracing(enforceTemporalOrder).getTopStations(stationWeights, deliveryWeights, k);
+	}
 
-				for (String outId : outgoingDeliveries.get(stationId)) {
-					if (inId.equals(outId)) {
-						continue;
-					}
+	private Result createResult(boolean enforceTemporalOrder) {
+		TracingGraph graph = new TracingGraph(deliveries, ccStations, ccDeliveries, killContaminationStations,
+				killContaminationDeliveries, enforceTemporalOrder);
+		ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
 
-					Delivery out = deliveryMap.get(outId);
+		try {
+			Result result = new Result(graph, new Condensation(graph.getNext(), graph::getRecipient, pool),
+					new Condensation(graph.getPrevious(), graph::getSupplier, pool));
 
-					if (!enforceTemporalOrder || in.isBefore(out)) {
-						in.getAllNextIds().add(outId);
-						out.getAllPreviousIds().add(inId);
-					}
-				}
+			computeWeightSums(result, pool);
+			result.updateScores(getDenoms());
+
+			return result;
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
 			}
 		}
+	}
 
-		// delivery cc: all incoming-ccs are mixed
-		for (String in1Id : ccDeliveries) {
-			Delivery in1 = deliveryMap.get(in1Id);
+	private Result updateResult(Result previous, ResultInput previousInput) {
+		Result result = new Result(previous);
+		TracingGraph graph = result.graph;
+		Condensation reachable = result.forwardReachable;
+		Set<String> changedStations = getChangedKeys(previousInput.stationWeights, stationWeights);
+		Set<String> changedDeliveries = getChangedKeys(previousInput.deliveryWeights, deliveryWeights);
+
+		if (changedStations.size() + changedDeliveries.size() > MAX_INCREMENTAL_WEIGHT_CHANGES) {
+			ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+
+			try {
+				computeWeightSums(result, pool);
+			} finally {
+				if (pool != null) {
+					pool.shutdown();
+				}
+			}
+		} else {
+			for (String id : changedStations) {
+				Integer s = graph.getStationIndex(id);
 
-			for (String in2Id : ccDeliveries) {
-				if (in1Id.equals(in2Id)) {
+				if (s == null) {
 					continue;
 				}
 
-				Delivery in2 = deliveryMap.get(in2Id);
+				double[] delta = getWeightSums(nullToZero(stationWeights.get(id)));
+				double[] oldSums = getWeightSums(nullToZero(previousInput.stationWeights.get(id)));
+				IntBitmap received = new IntBitmap();
+				IntBitmap reaching = new IntBitmap();
 
-				if (!in1.getRecipientId().equals(in2.getRecipientId())) {
-					continue;
+				for (int i = 0; i < delta.length; i++) {
+					delta[i] -= oldSums[i];
 				}
 
-				for (String out1Id : in1.getAllNextIds()) {
-					Delivery out1 = deliveryMap.get(out1Id);
+				for (int d = 0; d < graph.getDeliveryCount(); d++) {
+					if (graph.getRecipient(d) == s) {
+						received.add(d);
 
-					if (!enforceTemporalOrder || in2.isBefore(out1)) {
-						in2.getAllNextIds().add(out1Id);
-						out1.getAllPreviousIds().add(in2Id);
+						if (!graph.isKilledDelivery(d)) {
+							reaching.add(d);
+						}
 					}
 				}
 
-				for (String out2Id : in2.getAllNextIds()) {
-					Delivery out2 = deliveryMap.get(out2Id);
+				reaching.or(getReachingDeliveries(reachable, received));
+				addSums(result.stationSums, s, delta);
+				reaching.forEach(d -> addSums(result.deliverySums, d, delta));
+				getSuppliers(graph, reaching).forEach(st -> addSums(result.stationSums, st, delta));
+			}
 
-					if (!enforceTemporalOrder || in1.isBefore(out2)) {
-						in1.getAllNextIds().add(out2Id);
-						out2.getAllPreviousIds().add(in1Id);
-					}
+			for (String id : changedDeliveries) {
+				Integer d = graph.getDeliveryIndex(id);
+
+				if (d == null) {
+					continue;
 				}
-			}
-		}
 
-		for (String stationId : killContaminationStations) {
-			for (String inId : incomingDeliveries.get(stationId)) {
-				deliveryMap.get(inId).getAllNextIds().clear();
-			}
+				double[] delta = getWeightSums(nullToZero(deliveryWeights.get(id)));
+				double[] oldSums = getWeightSums(nullToZero(previousInput.deliveryWeights.get(id)));
+				IntBitmap delivery = new IntBitmap();
 
-			for (String outId : outgoingDeliveries.get(stationId)) {
-				deliveryMap.get(outId).getAllPreviousIds().clear();
-			}
+				for (int i = 0; i < delta.length; i++) {
+					delta[i] -= oldSums[i];
+				}
 
-			outgoingDeliveries.removeAll(stationId);
-		}
+				delivery.add(d);
 
-		for (String deliveryId : killContaminationDeliveries) {
-			Delivery d = deliveryMap.get(deliveryId);
+				IntBitmap reaching = getReachingDeliveries(reachable, delivery);
 
-			for (String next : d.getAllNextIds()) {
-				deliveryMap.get(next).getAllPreviousIds().remove(deliveryId);
+				addSums(result.deliverySums, d, delta);
+				reaching.forEach(e -> addSums(result.deliverySums, e, delta));
+				reaching.add(d);
+				getSuppliers(graph, reaching).forEach(s -> addSums(result.stationSums, s, delta));
 			}
-
-			d.getAllNextIds().clear();
-			incomingDeliveries.get(d.getRecipientId()).remove(deliveryId);
 		}
 
-		Result result = new Result();
+		result.updateScores(getDenoms());
 
-		backwardDeliveries = new LinkedHashMap<>();
-		forwardDeliveries = new LinkedHashMap<>();
+		return result;
+	}
 
-		for (String stationId : stationIds) {
-			result.stationScores.put(stationId, getStationScore(stationId, ScoreType.COMBINED));
-			result.stationPositiveScores.put(stationId, getStationScore(stationId, ScoreType.POSITIVE));
-			result.stationNegativeScores.put(stationId, getStationScore(stationId, ScoreType.NEGATIVE));
-			result.forwardStationsByStation.putAll(stationId, getForwardStations(stationId));
-			result.backwardStationsByStation.putAll(stationId, getBackwardStations(stationId));
-			result.forwardDeliveriesByStation.putAll(stationId, getForwardDeliveries(stationId));
-			result.backwardDeliveriesByStation.putAll(stationId, getBackwardDeliveries(stationId));
-		}
+	private void computeWeightSums(Result result, ForkJoinPool pool) {
+		TracingGraph graph = result.graph;
+		int stationCount = graph.getStationCount();
+		int deliveryCount = graph.getDeliveryCount();
+		double[] stationWeightArray = new double[stationCount];
+		double[] deliveryWeightArray = new double[deliveryCount];
 
-		for (Delivery d : deliveryMap.values()) {
-			result.deliveryScores.put(d.getId(), getDeliveryScore(d, ScoreType.COMBINED));
-			result.deliveryPositiveScores.put(d.getId(), getDeliveryScore(d, ScoreType.POSITIVE));
-			result.deliveryNegativeScores.put(d.getId(), getDeliveryScore(d, ScoreType.NEGATIVE));
-			result.forwardStationsByDelivery.putAll(d.getId(), getForwardStations(d));
-			result.backwardStationsByDelivery.putAll(d.getId(), getBackwardStations(d));
-			result.forwardDeliveriesByDelivery.putAll(d.getId(), getForwardDeliveries(d));
-			result.backwardDeliveriesByDelivery.putAll(d.getId(), getBackwardDeliveries(d));
+		for (int s = 0; s < stationCount; s++) {
+			stationWeightArray[s] = nullToZero(stationWeights.get(graph.getStationId(s)));
 		}
 
-		double maxScore = Math.max(Collections.max(result.stationScores.values()),
-				Collections.max(result.deliveryScores.values()));
-		double minScore = Math.min(Collections.min(result.stationScores.values()),
-				Collections.min(result.deliveryScores.values()));
-		double maxAbs = Math.max(maxScore, -minScore);
-
-		if (maxAbs > 0.0) {
-			result.scoreNormalizer = maxAbs;
+		for (int d = 0; d < deliveryCount; d++) {
+			deliveryWeightArray[d] = nullToZero(deliveryWeights.get(graph.getDeliveryId(d)));
 		}
 
-		return result;
-	}
+		// only the scores are computed here, the closures are computed on demand
+		RangeTask.forEach(pool, 0, stationCount, s -> {
+			IntBitmap reachedStations = new IntBitmap();
+			IntBitmap reachedDeliveries = new IntBitmap();
 
-	private double getStationScore(String id, ScoreType type) {
-		double denom = getDenom(type);
+			collect(graph, graph.getOutgoing(), s, result.forwardReachable, true, reachedStations,
+					reachedDeliveries);
+			setSums(result.stationSums, s, getWeightSums(stationWeightArray[s], reachedStations,
+					stationWeightArray, reachedDeliveries, deliveryWeightArray));
+		});
 
-		if (denom == 0.0) {
-			return 0.0;
-		}
+		RangeTask.forEach(pool, 0, deliveryCount, d -> {
+			IntBitmap reachedStations = new IntBitmap();
+			IntBitmap reachedDeliveries = new IntBitmap();
 
-		double sum = getWeight(stationWeights.get(id), type);
+			collect(graph, d, result.forwardReachable, true, reachedStations, reachedDeliveries);
+			setSums(result.deliverySums, d, getWeightSums(deliveryWeightArray[d], reachedStations,
+					stationWeightArray, reachedDeliveries, deliveryWeightArray));
+		});
+	}
 
-		for (String stationId : getForwardStations(id)) {
-			sum += getWeight(stationWeights.get(stationId), type);
-		}
+	/**
+	 * Returns the weight sums for all {@link ScoreType}s indexed by their ordinal,
+	 * so that the reached elements are only iterated once.
+	 */
+	private static double[] getWeightSums(double weight, IntBitmap stations, double[] stationWeights,
+			IntBitmap deliveries, double[] deliveryWeights) {
+		double[] sums = getWeightSums(weight);
 
-		for (String deliveryId : getForwardDeliveries(id)) {
-			sum += getWeight(deliveryWeights.get(deliveryId), type);
-		}
+		stations.forEach(s -> addWeight(sums, stationWeights[s]));
+		deliveries.forEach(d -> addWeight(sums, deliveryWeights[d]));
 
-		return sum / denom;
+		return sums;
 	}
 
-	private double getDeliveryScore(Delivery d, ScoreType type) {
-		double denom = getDenom(type);
+	private static double[] getWeightSums(double weight) {
+		double[] sums = new double[ScoreType.values().length];
 
-		if (denom == 0.0) {
-			return 0.0;
-		}
+		addWeight(sums, weight);
 
-		double sum = getWeight(deliveryWeights.get(d.getId()), type);
+		return sums;
+	}
 
-		for (String stationId : getForwardStations(d)) {
-			sum += getWeight(stationWeights.get(stationId), type);
-		}
+	private double[] getDenoms() {
+		double[] denoms = new double[ScoreType.values().length];
 
-		for (String deliveryId : getForwardDeliveries(d)) {
-			sum += getWeight(deliveryWeights.get(deliveryId), type);
+		for (ScoreType type : ScoreType.values()) {
+			denoms[type.ordinal()] = getDenom(type);
 		}
 
-		return sum / denom;
+		return denoms;
 	}
 
 	private double getDenom(ScoreType type) {
@@ -339,123 +403,134 @@ public class Tracing {
 		}
 	}
 
-	private Set<String> getForwardStations(String stationID) {
-		Set<String> stations = new LinkedHashSet<>();
+	static void collect(TracingGraph graph, IntGraph stationDeliveries, int station,
+			Condensation reachable, boolean forward, IntBitmap stations, IntBitmap deliveries) {
+		for (int i = stationDeliveries.start(station); i < stationDeliveries.end(station); i++) {
+			int d = stationDeliveries.target(i);
 
-		for (String id : outgoingDeliveries.get(stationID)) {
-			stations.addAll(getForwardStations(deliveryMap.get(id)));
+			deliveries.add(d);
+			collect(graph, d, reachable, forward, stations, deliveries);
 		}
-
-		return stations;
 	}
 
-	private Set<String> getBackwardStations(String stationID) {
-		Set<String> stations = new LinkedHashSet<>();
+	static void collect(TracingGraph graph, int delivery, Condensation reachable, boolean forward,
+			IntBitmap stations, IntBitmap deliveries) {
+		boolean labelReached = forward ? !graph.isKilledDelivery(delivery)
+				: !graph.isKilledStation(graph.getSupplier(delivery));
 
-		for (String id : incomingDeliveries.get(stationID)) {
-			stations.addAll(getBackwardStations(deliveryMap.get(id)));
+		if (labelReached) {
+			stations.add(reachable.getLabel(delivery));
 		}
 
-		return stations;
-	}
+		int component = reachable.getComponent(delivery);
+		IntGraph members = reachable.getMembers();
 
-	private Set<String> getForwardDeliveries(String stationID) {
-		Set<String> forward = new LinkedHashSet<>();
+		// in a cycle all other members of the component are reachable as well
+		if (members.end(component) - members.start(component) > 1) {
+			boolean deliveryReached = deliveries.contains(delivery);
 
-		for (String id : outgoingDeliveries.get(stationID)) {
-			forward.add(id);
-			forward.addAll(getForwardDeliveries(deliveryMap.get(id)));
-		}
-
-		return forward;
-	}
+			deliveries.or(reachable.getMemberSet(component));
 
-	private Set<String> getBackwardDeliveries(String stationID) {
-		Set<String> backward = new LinkedHashSet<>();
+			if (!deliveryReached) {
+				deliveries.remove(delivery);
+			}
 
-		for (String id : incomingDeliveries.get(stationID)) {
-			backward.add(id);
-			backward.addAll(getBackwardDeliveries(deliveryMap.get(id)));
+			if (labelReached) {
+				stations.or(reachable.getMemberLabels(component));
+			} else {
+				for (int i = members.start(component); i < members.end(component); i++) {
+					if (members.target(i) != delivery) {
+						stations.add(reachable.getLabel(members.target(i)));
+					}
+				}
+			}
 		}
 
-		return backward;
+		deliveries.or(reachable.getDescendants(component));
+		stations.or(reachable.getDescendantLabels(component));
 	}
 
-	private Set<String> getBackwardDeliveries(Delivery d) {
-		Set<String> backward = backwardDeliveries.get(d.getId());
+	/**
+	 * Returns all deliveries, whose forward deliveries contain at least one of the
+	 * given deliveries.
+	 */
+	private static IntBitmap getReachingDeliveries(Condensation reachable, IntBitmap deliveries) {
+		IntBitmap reaching = new IntBitmap();
+		IntBitmap components = new IntBitmap();
+		IntGraph members = reachable.getMembers();
 
-		if (backward != null) {
-			return backward;
-		}
+		deliveries.forEach(d -> {
+			int component = reachable.getComponent(d);
 
-		backward = new LinkedHashSet<>();
+			components.add(component);
 
-		for (String prev : d.getAllPreviousIds()) {
-			if (!prev.equals(d.getId())) {
-				backward.add(prev);
-				backward.addAll(getBackwardDeliveries(deliveryMap.get(prev)));
-			}
-		}
+			if (members.end(component) - members.start(component) > 1) {
+				boolean reached = reaching.contains(d);
 
-		backwardDeliveries.put(d.getId(), backward);
+				reaching.or(reachable.getMemberSet(component));
 
-		return backward;
-	}
+				if (!reached) {
+					reaching.remove(d);
+				}
+			}
+		});
 
-	private Set<String> getForwardDeliveries(Delivery d) {
-		Set<String> forward = forwardDeliveries.get(d.getId());
+		reachable.getAncestors(components).forEach(c -> reaching.or(reachable.getMemberSet(c)));
 
-		if (forward != null) {
-			return forward;
-		}
+		return reaching;
+	}
 
-		forward = new LinkedHashSet<>();
+	private static IntBitmap getSuppliers(TracingGraph graph, IntBitmap deliveries) {
+		IntBitmap suppliers = new IntBitmap();
 
-		for (String next : d.getAllNextIds()) {
-			if (!next.equals(d.getId())) {
-				forward.add(next);
-				forward.addAll(getForwardDeliveries(deliveryMap.get(next)));
+		deliveries.forEach(d -> {
+			if (!graph.isKilledStation(graph.getSupplier(d))) {
+				suppliers.add(graph.getSupplier(d));
 			}
-		}
+		});
 
-		forwardDeliveries.put(d.getId(), forward);
-
-		return forward;
+		return suppliers;
 	}
 
-	private Set<String> getBackwardStations(Delivery d) {
-		Set<String> result = new LinkedHashSet<>();
-
-		if (!killContaminationStations.contains(d.getSupplierId())) {
-			result.add(d.getSupplierId());
-		}
+	private static Set<String> getChangedKeys(Map<String, Double> oldMap, Map<String, Double> newMap) {
+		Set<String> changed = new LinkedHashSet<>();
 
-		for (String id : getBackwardDeliveries(d)) {
-			result.add(deliveryMap.get(id).getSupplierId());
+		for (String key : Sets.union(oldMap.keySet(), newMap.keySet())) {
+			if (!Objects.equals(oldMap.get(key), newMap.get(key))) {
+				changed.add(key);
+			}
 		}
 
-		return result;
+		return changed;
 	}
 
-	private Set<String> getForwardStations(Delivery d) {
-		Set<String> result = new LinkedHashSet<>();
-
-		if (!killContaminationDeliveries.contains(d.getId())) {
-			result.add(d.getRecipientId());
+	private static void setSums(double[][] sums, int index, double[] values) {
+		for (int i = 0; i < values.length; i++) {
+			sums[i][index] = values[i];
 		}
+	}
 
-		for (String id : getForwardDeliveries(d)) {
-			result.add(deliveryMap.get(id).getRecipientId());
+	private static void addSums(double[][] sums, int index, double[] values) {
+		for (int i = 0; i < values.length; i++) {
+			sums[i][index] += values[i];
 		}
+	}
 
-		return result;
+	private static double nullToZero(Double value) {
+		return value != null ? value : 0.0;
 	}
 
-	private static double getWeight(Double weight, ScoreType type) {
-		if (weight == null) {
-			return 0.0;
+	private static void addWeight(double[] sums, double weight) {
+		if (weight == 0.0) {
+			return;
 		}
 
+		sums[ScoreType.COMBINED.ordinal()] += getWeight(weight, ScoreType.COMBINED);
+		sums[ScoreType.POSITIVE.ordinal()] += getWeight(weight, ScoreType.POSITIVE);
+		sums[ScoreType.NEGATIVE.ordinal()] += getWeight(weight, ScoreType.NEGATIVE);
+	}
+
+	private static double getWeight(double weight, ScoreType type) {
 		switch (type) {
 		case COMBINED:
 			return weight;
@@ -468,14 +543,21 @@ public class Tracing {
 		}
 	}
 
+	/**
+	 * Scores of all stations and deliveries. The forward and backward sets of the
+	 * single elements are only computed when they are accessed for the first time.
+	 * If only the union over some observed elements is needed,
+	 * {@link #getObservedClosure(Collection, Collection)} should be used.
+	 */
 	public static final class Result {
 
-		private Map<String, Double> stationScores;
-		private Map<String, Double> stationPositiveScores;
-		private Map<String, Double> stationNegativeScores;
-		private Map<String, Double> deliveryScores;
-		private Map<String, Double> deliveryPositiveScores;
-		private Map<String, Double> deliveryNegativeScores;
+		private TracingGraph graph;
+		private Condensation forwardReachable;
+		private Condensation backwardReachable;
+
+		private double[][] stationSums;
+		private double[][] deliverySums;
+		private double[] denoms;
 
 		private SetMultimap<String, String> forwardStationsByStation;
 		private SetMultimap<String, String> backwardStationsByStation;
@@ -488,54 +570,87 @@ public class Tracing {
 
 		private double scoreNormalizer;
 
-		private Result() {
-			stationScores = new LinkedHashMap<>();
-			stationPositiveScores = new LinkedHashMap<>();
-			stationNegativeScores = new LinkedHashMap<>();
-			deliveryScores = new LinkedHashMap<>();
-			deliveryPositiveScores = new LinkedHashMap<>();
-			deliveryNegativeScores = new LinkedHashMap<>();
-			forwardStationsByStation = LinkedHashMultimap.create();
-			backwardStationsByStation = LinkedHashMultimap.create();
-			forwardDeliveriesByStation = LinkedHashMultimap.create();
-			backwardDeliveriesByStation = LinkedHashMultimap.create();
-			forwardStationsByDelivery = LinkedHashMultimap.create();
-			backwardStationsByDelivery = LinkedHashMultimap.create();
-			forwardDeliveriesByDelivery = LinkedHashMultimap.create();
-			backwardDeliveriesByDelivery = LinkedHashMultimap.create();
+		private Result(TracingGraph graph, Condensation forwardReachable, Condensation backwardReachable) {
+			this.graph = graph;
+			this.forwardReachable = forwardReachable;
+			this.backwardReachable = backwardReachable;
+
+			Collection<String> stationIds = graph.getStationIds();
+			Collection<String> deliveryIds = graph.getDeliveryIds();
+			Set<String> none = Collections.emptySet();
+
+			stationSums = new double[ScoreType.values().length][graph.getStationCount()];
+			deliverySums = new double[ScoreType.values().length][graph.getDeliveryCount()];
+			forwardStationsByStation = new LazySetMultimap<>(stationIds,
+					id -> getStations(Collections.singleton(id), none, true));
+			backwardStationsByStation = new LazySetMultimap<>(stationIds,
+					id -> getStations(Collections.singleton(id), none, false));
+			forwardDeliveriesByStation = new LazySetMultimap<>(stationIds,
+					id -> getDeliveries(Collections.singleton(id), none, true));
+			backwardDeliveriesByStation = new LazySetMultimap<>(stationIds,
+					id -> getDeliveries(Collections.singleton(id), none, false));
+			forwardStationsByDelivery = new LazySetMultimap<>(deliveryIds,
+					id -> getStations(none, Collections.singleton(id), true));
+			backwardStationsByDelivery = new LazySetMultimap<>(deliveryIds,
+					id -> getStations(none, Collections.singleton(id), false));
+			forwardDeliveriesByDelivery = new LazySetMultimap<>(deliveryIds,
+					id -> getDeliveries(none, Collections.singleton(id), true));
+			backwardDeliveriesByDelivery = new LazySetMultimap<>(deliveryIds,
+					id -> getDeliveries(none, Collections.singleton(id), false));
+			scoreNormalizer = 1.0;
+		}
+
+		/**
+		 * Creates a copy with the same links and closures, whose weight sums can be
+		 * updated independently.
+		 */
+		private Result(Result previous) {
+			graph = previous.graph;
+			forwardReachable = previous.forwardReachable;
+			backwardReachable = previous.backwardReachable;
+			stationSums = Stream.of(previous.stationSums).map(double[]::clone).toArray(double[][]::new);
+			deliverySums = Stream.of(previous.deliverySums).map(double[]::clone).toArray(double[][]::new);
+			forwardStationsByStation = previous.forwardStationsByStation;
+			backwardStationsByStation = previous.backwardStationsByStation;
+			forwardDeliveriesByStation = previous.forwardDeliveriesByStation;
+			backwardDeliveriesByStation = previous.backwardDeliveriesByStation;
+			forwardStationsByDelivery = previous.forwardStationsByDelivery;
+			backwardStationsByDelivery = previous.backwardStationsByDelivery;
+			forwardDeliveriesByDelivery = previous.forwardDeliveriesByDelivery;
+			backwardDeliveriesByDelivery = previous.backwardDeliveriesByDelivery;
 			scoreNormalizer = 1.0;
 		}
 
 		public double getStationScore(String id) {
-			return nullToZero(stationScores.get(id));
+			return getScore(stationSums, ScoreType.COMBINED, graph.getStationIndex(id));
 		}
 
 		public double getStationNormalizedScore(String id) {
-			return nullToZero(stationScores.get(id)) / scoreNormalizer;
+			return getScore(stationSums, ScoreType.COMBINED, graph.getStationIndex(id)) / scoreNormalizer;
 		}
 
 		public double getStationPositiveScore(String id) {
-			return nullToZero(stationPositiveScores.get(id));
+			return getScore(stationSums, ScoreType.POSITIVE, graph.getStationIndex(id));
 		}
 
 		public double getStationNegativeScore(String id) {
-			return nullToZero(stationNegativeScores.get(id));
+			return getScore(stationSums, ScoreType.NEGATIVE, graph.getStationIndex(id));
 		}
 
 		public double getDeliveryScore(String id) {
-			return nullToZero(deliveryScores.get(id));
+			return getScore(deliverySums, ScoreType.COMBINED, graph.getDeliveryIndex(id));
 		}
 
 		public double getDeliveryNormalizedScore(String id) {
-			return nullToZero(deliveryScores.get(id)) / scoreNormalizer;
+			return getScore(deliverySums, ScoreType.COMBINED, graph.getDeliveryIndex(id)) / scoreNormalizer;
 		}
 
 		public double getDeliveryPositiveScore(String id) {
-			return nullToZero(deliveryPositiveScores.get(id));
+			return getScore(deliverySums, ScoreType.POSITIVE, graph.getDeliveryIndex(id));
 		}
 
 		public double getDeliveryNegativeScore(String id) {
-			return nullToZero(deliveryNegativeScores.get(id));
+			return getScore(deliverySums, ScoreType.NEGATIVE, graph.getDeliveryIndex(id));
 		}
 
 		public SetMultimap<String, String> getForwardStationsByStation() {
@@ -570,8 +685,163 @@ public class Tracing {
 			return backwardDeliveriesByDelivery;
 		}
 
-		private static double nullToZero(Double score) {
-			return score != null ? score : 0.0;
+		/**
+		 * Returns the union of the forward and backward sets of the observed stations
+		 * and deliveries. Unknown ids are ignored.
+		 */
+		public ObservedClosure getObservedClosure(Collection<String> observedStations,
+				Collection<String> observedDeliveries) {
+			IntBitmap forwardStations = new IntBitmap();
+			IntBitmap backwardStations = new IntBitmap();
+			IntBitmap forwardDeliveries = new IntBitmap();
+			IntBitmap backwardDeliveries = new IntBitmap();
+
+			collect(observedStations, observedDeliveries, true, forwardStations, forwardDeliveries);
+			collect(observedStations, observedDeliveries, false, backwardStations, backwardDeliveries);
+
+			return new ObservedClosure(toStationSet(forwardStations), toStationSet(backwardStations),
+					toDeliverySet(forwardDeliveries), toDeliverySet(backwardDeliveries));
+		}
+
+		private Set<String> getStations(Collection<String> stations, Collection<String> deliveries,
+				boolean forward) {
+			IntBitmap reachedStations = new IntBitmap();
+
+			collect(stations, deliveries, forward, reachedStations, new IntBitmap());
+
+			return toStationSet(reachedStations);
+		}
+
+		private Set<String> getDeliveries(Collection<String> stations, Collection<String> deliveries,
+				boolean forward) {
+			IntBitmap reachedDeliveries = new IntBitmap();
+
+			collect(stations, deliveries, forward, new IntBitmap(), reachedDeliveries);
+
+			return toDeliverySet(reachedDeliveries);
+		}
+
+		private void collect(Collection<String> stations, Collection<String> deliveries, boolean forward,
+				IntBitmap reachedStations, IntBitmap reachedDeliveries) {
+			Condensation reachable = forward ? forwardReachable : backwardReachable;
+
+			for (String id : stations) {
+				Integer s = graph.getStationIndex(id);
+
+				if (s != null) {
+					Tracing.collect(graph, forward ? graph.getOutgoing() : graph.getIncoming(), s, reachable,
+							forward, reachedStations, reachedDeliveries);
+				}
+			}
+
+			for (String id : deliveries) {
+				Integer d = graph.getDeliveryIndex(id);
+
+				if (d != null) {
+					Tracing.collect(graph, d, reachable, forward, reachedStations, reachedDeliveries);
+				}
+			}
+		}
+
+		private Set<String> toStationSet(IntBitmap stations) {
+			return new BitmapSet<>(stations, graph::getStationId,
+					o -> o instanceof String ? graph.getStationIndex((String) o) : null);
+		}
+
+		private Set<String> toDeliverySet(IntBitmap deliveries) {
+			return new BitmapSet<>(deliveries, graph::getDeliveryId,
+					o -> o instanceof String ? graph.getDeliveryIndex((String) o) : null);
+		}
+
+		private void updateScores(double[] denoms) {
+			double maxAbs = 0.0;
+
+			this.denoms = denoms;
+
+			for (double sum : Doubles.concat(stationSums[ScoreType.COMBINED.ordinal()],
+					deliverySums[ScoreType.COMBINED.ordinal()])) {
+				maxAbs = Math.max(maxAbs, Math.abs(toScore(sum, ScoreType.COMBINED)));
+			}
+
+			scoreNormalizer = maxAbs > 0.0 ? maxAbs : 1.0;
+		}
+
+		private double getScore(double[][] sums, ScoreType type, Integer index) {
+			return index != null ? toScore(sums[type.ordinal()][index], type) : 0.0;
+		}
+
+		private double toScore(double sum, ScoreType type) {
+			double denom = denoms[type.ordinal()];
+
+			return denom != 0.0 ? sum / denom : 0.0;
+		}
+	}
+
+	/**
+	 * Copy of the settings, that were used for the last result.
+	 */
+	private final class ResultInput {
+
+		private boolean enforceTemporalOrder;
+		private Map<String, Double> stationWeights;
+		private Map<String, Double> deliveryWeights;
+		private Set<String> ccStations;
+		private Set<String> ccDeliveries;
+		private Set<String> killContaminationStations;
+		private Set<String> killContaminationDeliveries;
+
+		private ResultInput(boolean enforceTemporalOrder) {
+			this.enforceTemporalOrder = enforceTemporalOrder;
+			stationWeights = new LinkedHashMap<>(Tracing.this.stationWeights);
+			deliveryWeights = new LinkedHashMap<>(Tracing.this.deliveryWeights);
+			ccStations = new LinkedHashSet<>(Tracing.this.ccStations);
+			ccDeliveries = new LinkedHashSet<>(Tracing.this.ccDeliveries);
+			killContaminationStations = new LinkedHashSet<>(Tracing.this.killContaminationStations);
+			killContaminationDeliveries = new LinkedHashSet<>(Tracing.this.killContaminationDeliveries);
+		}
+
+		private boolean hasSameLinks(boolean enforceTemporalOrder) {
+			return this.enforceTemporalOrder == enforceTemporalOrder && ccStations.equals(Tracing.this.ccStations)
+					&& ccDeliveries.equals(Tracing.this.ccDeliveries)
+					&& killContaminationStations.equals(Tracing.this.killContaminationStations)
+					&& killContaminationDeliveries.equals(Tracing.this.killContaminationDeliveries);
+		}
+
+		private boolean hasSameWeights() {
+			return stationWeights.equals(Tracing.this.stationWeights)
+					&& deliveryWeights.equals(Tracing.this.deliveryWeights);
+		}
+	}
+
+	public static final class ObservedClosure {
+
+		private Set<String> forwardStations;
+		private Set<String> backwardStations;
+		private Set<String> forwardDeliveries;
+		private Set<String> backwardDeliveries;
+
+		private ObservedClosure(Set<String> forwardStations, Set<String> backwardStations,
+				Set<String> forwardDeliveries, Set<String> backwardDeliveries) {
+			this.forwardStations = forwardStations;
+			this.backwardStations = backwardStations;
+			this.forwardDeliveries = forwardDeliveries;
+			this.backwardDeliveries = backwardDeliveries;
+		}
+
+		public Set<String> getForwardStations() {
+			return forwardStations;
+		}
+
+		public Set<String> getBackwardStations() {
+			return backwardStations;
+		}
+
+		public Set<String> getForwardDeliveries() {
+			return forwardDeliveries;
+		}
+
+		public Set<String> getBackwardDeliveries() {
+			return backwardDeliveries;
 		}
 	}
 }
@@ -44,6 +44,8 @@ public interface TracingColumns {
 	public static final String NORMALIZED_SCORE = "Normalized Score";
 	public static final String POSITIVE_SCORE = "Positive Score";
 	public static final String NEGATIVE_SCORE = "Negative Score";
+	public static final String SCENARIO = "Scenario";
+	public static final String SOURCE_RANK = "Source Rank";
 
 	public static final String OBSERVED = "Observed";
 	public static final String BACKWARD = "Backward";
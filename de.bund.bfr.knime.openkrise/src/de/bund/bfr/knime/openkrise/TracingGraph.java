@@ -0,0 +1,357 @@
+/*******************************************************************************
+ * Copyright (c) 2016 German Federal Institute for Risk Assessment (BfR)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Department Biological Safety - BfR
+ *******************************************************************************/
+package de.bund.bfr.knime.openkrise;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.bund.bfr.knime.openkrise.common.Delivery;
+import de.bund.bfr.knime.openkrise.common.PackedDate;
+
+/**
+ * Delivery network with station and delivery ids interned to dense ints. Cross
+ * contamination and kill contamination are already applied to the links.
+ */
+final class TracingGraph {
+
+	private String[] stationIds;
+	private String[] deliveryIds;
+	private Map<String, Integer> stationIndex;
+	private Map<String, Integer> deliveryIndex;
+
+	private int[] suppliers;
+	private int[] recipients;
+	private boolean[] killedStations;
+	private boolean[] killedDeliveries;
+
+	private IntGraph next;
+	private IntGraph previous;
+	private IntGraph outgoing;
+	private IntGraph incoming;
+
+	public TracingGraph(Collection<Delivery> deliveries, Set<String> ccStations, Set<String> ccDeliveries,
+			Set<String> killContaminationStations, Set<String> killContaminationDeliveries,
+			boolean enforceTemporalOrder) {
+		Map<String, Delivery> deliveryMap = new LinkedHashMap<>();
+
+		stationIndex = new LinkedHashMap<>();
+
+		for (Delivery d : deliveries) {
+			intern(stationIndex, d.getRecipientId());
+			intern(stationIndex, d.getSupplierId());
+			deliveryMap.put(d.getId(), d);
+		}
+
+		int stationCount = stationIndex.size();
+		int deliveryCount = deliveryMap.size();
+		Delivery[] deliveryArray = deliveryMap.values().toArray(new Delivery[0]);
+
+		stationIds = stationIndex.keySet().toArray(new String[0]);
+		deliveryIds = deliveryMap.keySet().toArray(new String[0]);
+		deliveryIndex = new LinkedHashMap<>();
+
+		for (String id : deliveryIds) {
+			intern(deliveryIndex, id);
+		}
+
+		suppliers = new int[deliveryCount];
+		recipients = new int[deliveryCount];
+
+		IntGraph.Builder outgoingBuilder = new IntGraph.Builder(stationCount);
+		IntGraph.Builder incomingBuilder = new IntGraph.Builder(stationCount);
+		IntGraph.Builder nextBuilder = new IntGraph.Builder(deliveryCount);
+		IntGraph.Builder previousBuilder = new IntGraph.Builder(deliveryCount);
+
+		for (int i = 0; i < deliveryCount; i++) {
+			Delivery d = deliveryArray[i];
+
+			suppliers[i] = stationIndex.get(d.getSupplierId());
+			recipients[i] = stationIndex.get(d.getRecipientId());
+			outgoingBuilder.add(suppliers[i], i);
+			incomingBuilder.add(recipients[i], i);
+
+			for (String id : d.getAllNextIds()) {
+				Integer index = deliveryIndex.get(id);
+
+				if (index != null) {
+					nextBuilder.add(i, index);
+				}
+			}
+
+			for (String id : d.getAllPreviousIds()) {
+				Integer index = deliveryIndex.get(id);
+
+				if (index != null) {
+					previousBuilder.add(i, index);
+				}
+			}
+		}
+
+		IntGraph allOutgoing = outgoingBuilder.build();
+		IntGraph allIncoming = incomingBuilder.build();
+
+		// in.isBefore(out) is the same as departureEnds[out] >= arrivalStarts[in];
+		// without temporal order all keys are 0
+		int[] arrivalStarts = new int[deliveryCount];
+		int[] departureEnds = new int[deliveryCount];
+
+		if (enforceTemporalOrder) {
+			for (int i = 0; i < deliveryCount; i++) {
+				int arrival = deliveryArray[i].getArrivalDate();
+				int departure = deliveryArray[i].getDepartureDate();
+
+				arrivalStarts[i] = arrival != PackedDate.UNKNOWN ? PackedDate.getFirstDay(arrival) : Integer.MIN_VALUE;
+				departureEnds[i] = departure != PackedDate.UNKNOWN ? PackedDate.getLastDay(departure)
+						: Integer.MAX_VALUE;
+			}
+		}
+
+		for (int s : toIndices(ccStations, stationIndex)) {
+			long[] ins = sortByKey(allIncoming, s, arrivalStarts);
+
+			for (int j = allOutgoing.start(s); j < allOutgoing.end(s); j++) {
+				int out = allOutgoing.target(j);
+
+				for (int i = 0, n = countUpTo(ins, departureEnds[out]); i < n; i++) {
+					int in = (int) ins[i];
+
+					if (in != out) {
+						nextBuilder.add(in, out);
+						previousBuilder.add(out, in);
+					}
+				}
+			}
+		}
+
+		// delivery cc: all incoming-ccs are mixed
+		IntGraph stationCCNext = nextBuilder.build();
+		Map<Integer, List<Integer>> ccDeliveriesByRecipient = new LinkedHashMap<>();
+
+		for (int d : toIndices(ccDeliveries, deliveryIndex)) {
+			ccDeliveriesByRecipient.computeIfAbsent(recipients[d], r -> new ArrayList<>()).add(d);
+		}
+
+		int[] suppliedBy = new int[deliveryCount];
+
+		for (List<Integer> group : ccDeliveriesByRecipient.values()) {
+			if (group.size() < 2) {
+				continue;
+			}
+
+			List<Integer> union = new ArrayList<>();
+			long[] ins = new long[group.size()];
+
+			for (int k = 0; k < ins.length; k++) {
+				int in = group.get(k);
+
+				ins[k] = toKeyEntry(arrivalStarts[in], in);
+
+				for (int i = stationCCNext.start(in); i < stationCCNext.end(in); i++) {
+					int out = stationCCNext.target(i);
+
+					if (suppliedBy[out]++ == 0) {
+						union.add(out);
+					}
+				}
+			}
+
+			Arrays.sort(ins);
+
+			// the backward link is only created, if "out" is passed on to "in" from
+			// another delivery of the group
+			for (int out : union) {
+				int acceptedBy = countUpTo(ins, departureEnds[out]);
+
+				for (int i = 0; i < acceptedBy; i++) {
+					int in = (int) ins[i];
+
+					nextBuilder.add(in, out);
+
+					if (suppliedBy[out] > (stationCCNext.contains(in, out) ? 1 : 0) || acceptedBy > 1) {
+						previousBuilder.add(out, in);
+					}
+				}
+			}
+
+			for (int out : union) {
+				suppliedBy[out] = 0;
+			}
+		}
+
+		IntGraph allNext = nextBuilder.build();
+		IntGraph allPrevious = previousBuilder.build();
+
+		killedStations = new boolean[stationCount];
+		killedDeliveries = new boolean[deliveryCount];
+
+		for (int s : toIndices(killContaminationStations, stationIndex)) {
+			killedStations[s] = true;
+		}
+
+		for (int d : toIndices(killContaminationDeliveries, deliveryIndex)) {
+			killedDeliveries[d] = true;
+		}
+
+		// a kill station stops everything that arrives there, a killed delivery
+		// stops contamination from being passed on by the delivery itself
+		IntGraph.Builder finalNext = new IntGraph.Builder(deliveryCount);
+		IntGraph.Builder finalPrevious = new IntGraph.Builder(deliveryCount);
+		IntGraph.Builder finalOutgoing = new IntGraph.Builder(stationCount);
+		IntGraph.Builder finalIncoming = new IntGraph.Builder(stationCount);
+
+		for (int d = 0; d < deliveryCount; d++) {
+			if (!killedStations[recipients[d]] && !killedDeliveries[d]) {
+				for (int i = allNext.start(d); i < allNext.end(d); i++) {
+					finalNext.add(d, allNext.target(i));
+				}
+			}
+
+			if (!killedStations[suppliers[d]]) {
+				for (int i = allPrevious.start(d); i < allPrevious.end(d); i++) {
+					int prev = allPrevious.target(i);
+
+					if (!killedDeliveries[prev] || killedStations[recipients[prev]] || !allNext.contains(prev, d)) {
+						finalPrevious.add(d, prev);
+					}
+				}
+
+				finalOutgoing.add(suppliers[d], d);
+			}
+
+			if (!killedDeliveries[d]) {
+				finalIncoming.add(recipients[d], d);
+			}
+		}
+
+		next = finalNext.build();
+		previous = finalPrevious.build();
+		outgoing = finalOutgoing.build();
+		incoming = finalIncoming.build();
+	}
+
+	public int getStationCount() {
+		return stationIds.length;
+	}
+
+	public int getDeliveryCount() {
+		return deliveryIds.length;
+	}
+
+	public Collection<String> getStationIds() {
+		return Collections.unmodifiableSet(stationIndex.keySet());
+	}
+
+	public Collection<String> getDeliveryIds() {
+		return Collections.unmodifiableSet(deliveryIndex.keySet());
+	}
+
+	public String getStationId(int station) {
+		return stationIds[station];
+	}
+
+	public String getDeliveryId(int delivery) {
+		return deliveryIds[delivery];
+	}
+
+	public Integer getStationIndex(String id) {
+		return stationIndex.get(id);
+	}
+
+	public Integer getDeliveryIndex(String id) {
+		return deliveryIndex.get(id);
+	}
+
+	public int getSupplier(int delivery) {
+		return suppliers[delivery];
+	}
+
+	public int getRecipient(int delivery) {
+		return recipients[delivery];
+	}
+
+	public boolean isKilledStation(int station) {
+		return killedStations[station];
+	}
+
+	public boolean isKilledDelivery(int delivery) {
+		return killedDeliveries[delivery];
+	}
+
+	public IntGraph getNext() {
+		return next;
+	}
+
+	public IntGraph getPrevious() {
+		return previous;
+	}
+
+	public IntGraph getOutgoing() {
+		return outgoing;
+	}
+
+	public IntGraph getIncoming() {
+		return incoming;
+	}
+
+	private static void intern(Map<String, Integer> index, String id) {
+		if (!index.containsKey(id)) {
+			index.put(id, index.size());
+		}
+	}
+
+	private static long toKeyEntry(int key, int index) {
+		return (long) key << 32 | index & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Returns the targets of source, sorted by their keys.
+	 */
+	private static long[] sortByKey(IntGraph graph, int source, int[] keys) {
+		long[] entries = new long[graph.end(source) - graph.start(source)];
+
+		for (int i = 0; i < entries.length; i++) {
+			int target = graph.target(graph.start(source) + i);
+
+			entries[i] = toKeyEntry(keys[target], target);
+		}
+
+		Arrays.sort(entries);
+
+		return entries;
+	}
+
+	/**
+	 * Returns the number of sorted entries with a key less than or equal to key.
+	 * Since indices are never negative, the search value is never found.
+	 */
+	private static int countUpTo(long[] sortedEntries, int key) {
+		return -Arrays.binarySearch(sortedEntries, toKeyEntry(key, -1)) - 1;
+	}
+
+	private static int[] toIndices(Set<String> ids, Map<String, Integer> index) {
+		return ids.stream().map(index::get).filter(i -> i != null).mapToInt(i -> i).toArray();
+	}
+}
@@ -60,7 +60,9 @@ import de.bund.bfr.knime.gis.views.canvas.util.EdgePropertySchema;
 import de.bund.bfr.knime.gis.views.canvas.util.Naming;
 import de.bund.bfr.knime.gis.views.canvas.util.NodePropertySchema;
 import de.bund.bfr.knime.gis.views.canvas.util.PropertySchema;
+import de.bund.bfr.knime.gis.views.canvas.util.PropertyStore;
 import de.bund.bfr.knime.openkrise.common.Delivery;
+import de.bund.bfr.knime.openkrise.common.PackedDate;
 
 public class TracingUtils {
 
@@ -119,6 +121,8 @@ public class TracingUtils {
 
 		nodeSchema.getMap().put(TracingColumns.ID, String.class);
 
+		PropertyStore store = new PropertyStore(nodeSchema);
+
 		for (DataRow row : nodeTable) {
 			String id = IO.getToCleanString(row.getCell(nodeTable.getSpec().findColumnIndex(TracingColumns.ID)));
 
@@ -129,7 +133,7 @@ public class TracingUtils {
 						"Station Table: Duplicate value in " + TracingColumns.ID + " column: " + id);
 			}
 
-			Map<String, Object> properties = new LinkedHashMap<>();
+			Map<String, Object> properties = store.newRow();
 
 			TracingUtils.addToProperties(properties, nodeSchema, nodeTable.getSpec(), row);
 			properties.put(TracingColumns.ID, id);
@@ -159,6 +163,8 @@ public class TracingUtils {
 
 		nodeSchema.getMap().put(TracingColumns.ID, String.class);
 
+		PropertyStore store = new PropertyStore(nodeSchema);
+
 		for (DataRow row : nodeTable) {
 			String id = IO.getToCleanString(row.getCell(spec.findColumnIndex(TracingColumns.ID)));
 			Double lat = IO.getDouble(row.getCell(spec.findColumnIndex(GeocodingNodeModel.LATITUDE_COLUMN)));
@@ -184,7 +190,7 @@ public class TracingUtils {
 				}
 			}
 
-			Map<String, Object> properties = new LinkedHashMap<>();
+			Map<String, Object> properties = store.newRow();
 
 			TracingUtils.addToProperties(properties, nodeSchema, nodeTable.getSpec(), row);
 			properties.put(TracingColumns.ID, id);
@@ -224,6 +230,8 @@ public class TracingUtils {
 		edgeSchema.getMap().put(TracingColumns.FROM, String.class);
 		edgeSchema.getMap().put(TracingColumns.TO, String.class);
 
+		PropertyStore store = new PropertyStore(edgeSchema);
+
 		for (DataRow row : edgeTable) {
 			String id = IO.getToCleanString(row.getCell(spec.findColumnIndex(TracingColumns.ID)));
 
@@ -244,7 +252,7 @@ public class TracingUtils {
 				continue;
 			}
 
-			Map<String, Object> properties = new LinkedHashMap<>();
+			Map<String, Object> properties = store.newRow();
 
 			TracingUtils.addToProperties(properties, edgeSchema, edgeTable.getSpec(), row);
 			properties.put(TracingColumns.ID, id);
@@ -267,11 +275,10 @@ public class TracingUtils {
 		Map<String, Delivery> deliveries = new LinkedHashMap<>();
 
 		for (Edge<V> edge : edges) {
-			String departureDate = (String) edge.getProperties().get(TracingColumns.DELIVERY_DEPARTURE);
-			String arrivalDate = (String) edge.getProperties().get(TracingColumns.DELIVERY_ARRIVAL);
+			int departureDate = parseDate((String) edge.getProperties().get(TracingColumns.DELIVERY_DEPARTURE));
+			int arrivalDate = parseDate((String) edge.getProperties().get(TracingColumns.DELIVERY_ARRIVAL));
 			Delivery delivery = new Delivery(edge.getId(), edge.getFrom().getId(), edge.getTo().getId(),
-					getDay(departureDate), getMonth(departureDate), getYear(departureDate), getDay(arrivalDate),
-					getMonth(arrivalDate), getYear(arrivalDate));
+					departureDate, arrivalDate);
 
 			deliveries.put(edge.getId(), delivery);
 		}
@@ -369,78 +376,55 @@ public class TracingUtils {
 		}
 	}
 
-	private static Integer getYear(String date) {
+	/**
+	 * Parses "dd.mm.yyyy", "mm.yyyy", "yyyy-mm-dd", "yyyy-mm" and "yyyy" in one
+	 * pass over the string. Parts that are not numbers are treated as missing.
+	 */
+	private static int parseDate(String date) {
 		if (date == null) {
-			return null;
+			return PackedDate.UNKNOWN;
 		}
 
-		String year = null;
+		int firstDot = -1;
+		int lastDot = -1;
+		int firstDash = -1;
+		int lastDash = -1;
 
-		if (date.contains(".")) {
-			year = date.substring(date.lastIndexOf('.') + 1);
-		} else if (date.contains("-")) {
-			year = date.substring(0, date.indexOf('-'));
-		} else {
-			year = date;
-		}
+		for (int i = 0; i < date.length(); i++) {
+			char c = date.charAt(i);
 
-		try {
-			return Integer.parseInt(year);
-		} catch (NumberFormatException | NullPointerException e) {
-			return null;
+			if (c == '.') {
+				firstDot = firstDot == -1 ? i : firstDot;
+				lastDot = i;
+			} else if (c == '-') {
+				firstDash = firstDash == -1 ? i : firstDash;
+				lastDash = i;
+			}
 		}
-	}
 
-	private static Integer getMonth(String date) {
-		if (date == null) {
-			return null;
-		}
+		int n = date.length();
 
-		String month = null;
+		if (firstDot != -1) {
+			Integer day = firstDot != lastDot ? parseNumber(date, 0, firstDot) : null;
+			Integer month = firstDot != lastDot ? parseNumber(date, firstDot + 1, lastDot)
+					: parseNumber(date, 0, firstDot);
 
-		if (date.contains(".")) {
-			int i1 = date.indexOf('.');
-			int i2 = date.lastIndexOf('.');
+			return PackedDate.of(parseNumber(date, lastDot + 1, n), month, day);
+		} else if (firstDash != -1) {
+			Integer day = firstDash != lastDash ? parseNumber(date, lastDash + 1, n) : null;
+			Integer month = firstDash != lastDash ? parseNumber(date, firstDash + 1, lastDash)
+					: parseNumber(date, firstDash + 1, n);
 
-			if (i1 == i2) {
-				month = date.substring(0, i1);
-			} else {
-				month = date.substring(i1 + 1, i2);
-			}
-		} else if (date.contains("-")) {
-			int i1 = date.indexOf('-');
-			int i2 = date.lastIndexOf('-');
-
-			if (i1 == i2) {
-				month = date.substring(i1 + 1);
-			} else {
-				month = date.substring(i1 + 1, i2);
-			}
+			return PackedDate.of(parseNumber(date, 0, firstDash), month, day);
 		}
 
-		try {
-			return Integer.parseInt(month);
-		} catch (NumberFormatException | NullPointerException e) {
-			return null;
-		}
+		return PackedDate.of(parseNumber(date, 0, n), null, null);
 	}
 
-	private static Integer getDay(String date) {
-		if (date == null) {
-			return null;
-		}
-
-		String day = null;
-
-		if (date.contains(".")) {
-			day = date.substring(0, date.indexOf('.'));
-		} else if (date.contains("-")) {
-			day = date.substring(date.lastIndexOf('-') + 1);
-		}
-
+	private static Integer parseNumber(String date, int start, int end) {
 		try {
-			return Integer.parseInt(day);
-		} catch (NumberFormatException | NullPointerException e) {
+			return Integer.parseInt(date.substring(start, end));
+		} catch (NumberFormatException e) {
 			return null;
 		}
 	}